@@ -4,44 +4,219 @@ import at.technikum.mrp.config.DatabaseConfig;
 import at.technikum.mrp.config.ServerConfig;
 import at.technikum.mrp.controller.*;
 import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.ImportRepository;
+import at.technikum.mrp.repository.MediaEngagementRepository;
 import at.technikum.mrp.repository.MediaRepository;
 import at.technikum.mrp.repository.RatingRepository;
 import at.technikum.mrp.repository.UserRepository;
 import at.technikum.mrp.server.MrpHttpServer;
 import at.technikum.mrp.service.*;
+import at.technikum.mrp.util.HttpUtil;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Main {
     public static void main(String[] args) throws Exception {
 
         ServerConfig.printConfig();
+        HttpUtil.setMaxBodyBytes(ServerConfig.getMaxRequestBodyBytes());
 
         if (!DatabaseConfig.testConnection()) {
             System.err.println("Abbruch: DB nicht erreichbar.");
             return;
         }
 
+        // Admin-Import statt Server: import media|ratings <datei>
+        if (args.length > 0 && args[0].equals("import")) {
+            System.exit(runImport(args));
+        }
+
         // Repos
         UserRepository userRepository = new UserRepository();
         MediaRepository mediaRepository = new MediaRepository();
         RatingRepository ratingRepository = new RatingRepository();
         FavoritesRepository favoritesRepository = new FavoritesRepository();
+        MediaEngagementRepository engagementRepository = new MediaEngagementRepository();
 
         // Services
         TokenService tokenService = new TokenService();
         AuthService authService = new AuthService(userRepository, tokenService);
-        MediaService mediaService = new MediaService(mediaRepository);
-        RatingService ratingService = new RatingService(ratingRepository, mediaRepository, userRepository);
+        // Spalten-Katalog (BitSets pro Genre/Typ/Jahr/Altersfreigabe) für Facetten in GET /api/media?facets=true,
+        // optional auch für die Liste selbst (statt Filter-SQL)
+        CatalogService catalogService = new CatalogService(mediaRepository, ratingRepository);
+        long catalogMedia = catalogService.rebuild();
+        System.out.println("✓ Katalog: " + catalogMedia + " Media"
+                + (ServerConfig.isCatalogInMemoryEnabled() ? " (GET /api/media aus dem Speicher)" : ""));
+        MediaService mediaService = new MediaService(mediaRepository,
+                ServerConfig.isCatalogInMemoryEnabled() ? catalogService : null);
+        // Like-Zähler: gesammelt im Speicher, gebündelt in die DB (statt Row-Lock pro Like)
+        LikeCounterService likeCounter =
+                new LikeCounterService(ratingRepository, ServerConfig.getLikeFlushIntervalMillis());
+        likeCounter.start();
+        // Average Scores / User-Statistiken: Write-Behind, jede ID max. 1x pro Debounce-Intervall
+        StatisticsWriteBehindService statistics = new StatisticsWriteBehindService(
+                mediaRepository, userRepository,
+                ServerConfig.getStatsDebounceMillis(), ServerConfig.getStatsQueueCapacity());
+        statistics.start();
+        RatingService ratingService =
+                new RatingService(ratingRepository, mediaRepository, userRepository, likeCounter, statistics);
         FavoritesService favoritesService = new FavoritesService(favoritesRepository, mediaRepository);
-        RecommendationService recommendationService = new RecommendationService(mediaRepository, ratingRepository);
 
+        // Collaborative Filtering einmal aus der DB aufbauen, danach inkrementell über RatingListener
+        CollaborativeFilteringService collaborativeFiltering =
+                new CollaborativeFilteringService(ratingRepository, ServerConfig.getCfNeighbours());
+        long cfRatings = collaborativeFiltering.rebuild();
+        System.out.println("✓ Collaborative Filtering: " + cfRatings + " Ratings, "
+                + collaborativeFiltering.getItemCount() + " Media");
+        ratingService.addListener(collaborativeFiltering);
+
+        // Matrix Factorization: Training läuft im Hintergrund (erster Lauf direkt nach dem Start)
+        MatrixFactorizationService matrixFactorization = new MatrixFactorizationService(
+                ratingRepository,
+                ServerConfig.getMfFactors(),
+                ServerConfig.getMfIterations(),
+                ServerConfig.getMfLambda(),
+                ServerConfig.getMfThreads(),
+                ServerConfig.getMfIntervalMinutes()
+        );
+        matrixFactorization.start();
+
+        // LSH-Index für "ähnliche Media" (Genres + Bewerter), danach inkrementell über Listener
+        SimilarMediaService similarMediaService = new SimilarMediaService(mediaRepository, ratingRepository);
+        long similarCount = similarMediaService.rebuild();
+        System.out.println("✓ Similar-Media Index: " + similarCount + " Media");
+        mediaService.addListener(similarMediaService);
+        ratingService.addListener(similarMediaService);
+
+        // Titel-Index (Wort -> Media-IDs) für /api/media/suggest, danach inkrementell über MediaListener
+        TitleSearchService titleSearch = new TitleSearchService(mediaRepository);
+        long indexedTitles = titleSearch.rebuild();
+        System.out.println("✓ Titel-Index: " + indexedTitles + " Titel");
+        mediaService.addListener(titleSearch);
+
+        // Spalten-Katalog (oben geladen) inkrementell über Listener
+        mediaService.addListener(catalogService);
+        ratingService.addListener(catalogService);
+
+        // fertiges JSON pro Media, ungültig ab der nächsten Änderung an diesem Media.
+        // Vor dem Listen-Cache registriert: ein Refresh nach dessen Versionssprung sieht nur noch gültige Fragmente
+        MediaJsonCache jsonCache = new MediaJsonCache(ServerConfig.getMediaJsonCacheMaxEntries());
+        mediaService.addListener(jsonCache);
+        ratingService.addListener(jsonCache);
+
+        // Response-Cache für GET /api/media, Katalog-Version steigt bei jeder Media- oder Rating-Änderung
+        ExecutorService listRefresher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "media-list-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        MediaListCache listCache = new MediaListCache(ServerConfig.getListCacheMaxEntries(), listRefresher);
+        mediaService.addListener(listCache);
+        ratingService.addListener(listCache);
+        // average_score kommt zeitversetzt aus dem Write-Behind -> dann noch einmal veralten lassen
+        statistics.addListener(listCache);
+
+        // Leaderboard im Speicher (Rang-Baum), danach inkrementell über RatingListener
+        LeaderboardService leaderboardService = new LeaderboardService(userRepository);
+        long leaderboardUsers = leaderboardService.rebuild();
+        System.out.println("✓ Leaderboard: " + leaderboardUsers + " User");
+        ratingService.addListener(leaderboardService);
+        authService.addListener(leaderboardService);
+
+        // Zeitfenster-Zähler (24h / 7d) für Leaderboard ?window= und /api/media/trending
+        ActivityWindowService activityWindowService = new ActivityWindowService(ratingRepository, favoritesRepository);
+        long activityEvents = activityWindowService.rebuild();
+        System.out.println("✓ Aktivität (7 Tage): " + activityEvents + " Ereignisse");
+        ratingService.addListener(activityWindowService);
+        favoritesService.addListener(activityWindowService);
+        mediaService.addListener(activityWindowService);
+
+        // Ungefähres Trending mit fixem Speicher (Count-Min Sketch + Heavy Hitters), ?mode=approx
+        ApproximateTrendingService approximateTrending = new ApproximateTrendingService(
+                ratingRepository,
+                favoritesRepository,
+                ServerConfig.getTrendingApproxEpsilon(),
+                ServerConfig.getTrendingApproxDelta(),
+                ServerConfig.getTrendingApproxMemoryKb(),
+                ServerConfig.getTrendingApproxHeavyHitters()
+        );
+        approximateTrending.rebuild();
+        ratingService.addListener(approximateTrending);
+        favoritesService.addListener(approximateTrending);
+
+        // Verschiedene User pro Media/Tag (HyperLogLog), gespeichert als bytea
+        EngagementService engagementService = new EngagementService(
+                engagementRepository,
+                ratingRepository,
+                favoritesRepository,
+                ServerConfig.getEngagementRetentionDays(),
+                ServerConfig.getEngagementFlushIntervalSeconds()
+        );
+        long engagementSketches = engagementService.rebuild();
+        System.out.println("✓ Engagement: " + engagementSketches + " Tages-Sketches");
+        engagementService.start();
+        ratingService.addListener(engagementService);
+        favoritesService.addListener(engagementService);
+        mediaService.addListener(engagementService);
+
+        RecommendationService recommendationService = new RecommendationService(
+                mediaRepository, ratingRepository, collaborativeFiltering, matrixFactorization);
+
+
+        // Dashboard: Abschnitte parallel auf eigenem Pool (nicht der HttpServer-Pool, der wartet ja auf das Ergebnis)
+        ExecutorService dashboardExecutor = Executors.newFixedThreadPool(Math.max(1, ServerConfig.getDashboardThreads()), r -> {
+            Thread t = new Thread(r, "dashboard");
+            t.setDaemon(true);
+            return t;
+        });
+        DashboardService dashboardService = new DashboardService(ratingService, mediaService, favoritesService,
+                recommendationService, dashboardExecutor, ServerConfig.getDashboardTimeoutMillis());
+
+        // NDJSON-Export pro User, gestreamt über DB-Cursor
+        ExportService exportService = new ExportService(ratingRepository, favoritesRepository);
 
         // Controller
         AuthController authController = new AuthController(authService);
-        MediaController mediaController = new MediaController(mediaService, tokenService, ratingService, favoritesService);
+        MediaController mediaController = new MediaController(mediaService, tokenService, ratingService, favoritesService, similarMediaService, activityWindowService, approximateTrending, engagementService, titleSearch, catalogService, listCache, jsonCache);
         RatingController ratingController = new RatingController(ratingService, tokenService);
         FavoritesController favoritesController = new FavoritesController(favoritesService, tokenService);
-        UserController userController = new UserController(tokenService, userRepository, ratingService, mediaService, recommendationService, favoritesService);
-        LeaderboardController leaderboardController = new LeaderboardController(userRepository);
+        UserController userController = new UserController(tokenService, userRepository, ratingService, mediaService, recommendationService, favoritesService, dashboardService, exportService);
+        LeaderboardController leaderboardController = new LeaderboardController(leaderboardService, activityWindowService, tokenService);
+        MetricsController metricsController = new MetricsController(tokenService);
+
+        // POST /api/batch: eigener Pool, damit wartende Batches nicht die Threads des HttpServers blockieren
+        ExecutorService batchExecutor = Executors.newFixedThreadPool(Math.max(1, ServerConfig.getBatchThreads()), r -> {
+            Thread t = new Thread(r, "batch");
+            t.setDaemon(true);
+            return t;
+        });
+        BatchController batchController = new BatchController(tokenService, batchExecutor,
+                ServerConfig.getBatchMaxRequests(), ServerConfig.getBatchTimeoutMillis());
+        metricsController.register("matrixFactorization", matrixFactorization::getMetrics);
+        metricsController.register("likeCounter", likeCounter::getMetrics);
+        metricsController.register("statistics", statistics::getMetrics);
+        metricsController.register("approximateTrending", approximateTrending::getMetrics);
+        metricsController.register("engagement", engagementService::getMetrics);
+        metricsController.register("titleSearch", titleSearch::getMetrics);
+        metricsController.register("catalog", catalogService::getMetrics);
+        metricsController.register("mediaListCache", listCache::getMetrics);
+        metricsController.register("mediaJsonCache", jsonCache::getMetrics);
+        metricsController.register("batch", batchController::getMetrics);
+        metricsController.register("dashboard", dashboardService::getMetrics);
+        metricsController.register("export", exportService::getMetrics);
+        metricsController.register("coalescing", () -> {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("mediaList", mediaService.getListCoalescingMetrics());
+            out.put("topRated", recommendationService.getTopRatedCoalescingMetrics());
+            return out;
+        });
 
         // Server
         MrpHttpServer server = new MrpHttpServer(
@@ -51,11 +226,57 @@ public class Main {
                 ratingController,
                 favoritesController,
                 userController,
-                leaderboardController
+                leaderboardController,
+                metricsController,
+                batchController
         );
 
         server.start();
 
+        // Beim Beenden (Ctrl+C / SIGTERM) offene Like-Zähler, Statistiken und Sketches noch in die DB schreiben
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            matrixFactorization.stop();
+            likeCounter.stop();
+            statistics.stop();
+            engagementService.stop();
+        }, "shutdown"));
+
         System.out.println("Base URL: http://localhost:" + ServerConfig.getPort() + "/api");
     }
+
+    /**
+     * Bulk-Import über COPY (ImportService), läuft ohne HTTP-Server.
+     * Ein laufender Server sieht die Daten nach dem nächsten Neustart (Indizes werden beim Start aufgebaut).
+     */
+    private static int runImport(String[] args) {
+        String usage = "Aufruf: import media|ratings <datei.csv|datei.ndjson|datei.jsonl>";
+        if (args.length != 3) {
+            System.err.println(usage);
+            return 2;
+        }
+
+        ImportRepository.Kind kind;
+        switch (args[1].toLowerCase(Locale.ROOT)) {
+            case "media" -> kind = ImportRepository.Kind.MEDIA;
+            case "ratings" -> kind = ImportRepository.Kind.RATINGS;
+            default -> {
+                System.err.println(usage);
+                return 2;
+            }
+        }
+
+        ImportService importService = new ImportService(new ImportRepository(),
+                ServerConfig.getImportChunkRows(), ServerConfig.getImportQueueChunks());
+        try {
+            ImportService.Report report = importService.importFile(kind, Path.of(args[2]));
+            System.out.print(report.summary());
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        } catch (IOException | SQLException e) {
+            System.err.println("Import fehlgeschlagen, nichts übernommen: " + e.getMessage());
+            return 1;
+        }
+    }
 }
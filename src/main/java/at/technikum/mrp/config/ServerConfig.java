@@ -24,6 +24,11 @@ public class ServerConfig {
         }
     }
 
+    // Maximale Größe eines Request Bodies in Bytes, größere werden mit 413 abgelehnt (Standard: 1 MiB)
+    public static int getMaxRequestBodyBytes() {
+        return intProperty("server.max.body.bytes", 1024 * 1024);
+    }
+
     // Token Ablaufzeit in Stunden (Standard: 24)
     public static int getTokenExpirationHours() {
         try {
@@ -33,6 +38,154 @@ public class ServerConfig {
         }
     }
 
+    // Collaborative Filtering: wie viele Nachbarn pro Media gehalten werden (Standard: 20)
+    public static int getCfNeighbours() {
+        return intProperty("recommendation.cf.neighbours", 20);
+    }
+
+    // Matrix Factorization: Anzahl latenter Faktoren (Standard: 16)
+    public static int getMfFactors() {
+        return intProperty("recommendation.mf.factors", 16);
+    }
+
+    // Matrix Factorization: ALS-Iterationen pro Training (Standard: 10)
+    public static int getMfIterations() {
+        return intProperty("recommendation.mf.iterations", 10);
+    }
+
+    // Matrix Factorization: Regularisierung lambda (Standard: 0.1)
+    public static double getMfLambda() {
+        return doubleProperty("recommendation.mf.lambda", 0.1);
+    }
+
+    // Matrix Factorization: Threads fürs Training (Standard: alle Kerne)
+    public static int getMfThreads() {
+        return intProperty("recommendation.mf.threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    // Matrix Factorization: Minuten zwischen zwei Trainings (Standard: 60)
+    public static int getMfIntervalMinutes() {
+        return intProperty("recommendation.mf.interval.minutes", 60);
+    }
+
+    // Likes: Millisekunden zwischen zwei Flushes der gesammelten Like-Zähler (Standard: 1000)
+    public static int getLikeFlushIntervalMillis() {
+        return intProperty("likes.flush.interval.ms", 1000);
+    }
+
+    // Statistiken: Millisekunden, über die Rating-Writes gesammelt werden, bevor Averages neu berechnet werden (Standard: 500)
+    public static int getStatsDebounceMillis() {
+        return intProperty("stats.debounce.ms", 500);
+    }
+
+    // Statistiken: max. Anzahl vorgemerkter Media/User, darüber wird synchron gerechnet (Standard: 10000)
+    public static int getStatsQueueCapacity() {
+        return intProperty("stats.queue.capacity", 10000);
+    }
+
+    // Trending (ungefähr): relativer Fehler des Count-Min Sketch pro Stunden-Bucket (Standard: 0.001)
+    public static double getTrendingApproxEpsilon() {
+        return doubleProperty("trending.approx.epsilon", 0.001);
+    }
+
+    // Trending (ungefähr): Wahrscheinlichkeit, dass der Fehler überschritten wird (Standard: 0.01)
+    public static double getTrendingApproxDelta() {
+        return doubleProperty("trending.approx.delta", 0.01);
+    }
+
+    // Trending (ungefähr): Speicherbudget für alle Sketches in KB, kappt die Breite (Standard: 4096)
+    public static int getTrendingApproxMemoryKb() {
+        return intProperty("trending.approx.memory.kb", 4096);
+    }
+
+    // Trending (ungefähr): wie viele Heavy Hitters pro Stunden-Bucket verfolgt werden (Standard: 200)
+    public static int getTrendingApproxHeavyHitters() {
+        return intProperty("trending.approx.heavy.hitters", 200);
+    }
+
+    // Engagement: wie viele Tage HyperLogLog-Sketches im Speicher bleiben (Standard: 30)
+    public static int getEngagementRetentionDays() {
+        return intProperty("engagement.retention.days", 30);
+    }
+
+    // Engagement: Sekunden zwischen zwei Speichervorgängen der geänderten Sketches (Standard: 30)
+    public static int getEngagementFlushIntervalSeconds() {
+        return intProperty("engagement.flush.interval.seconds", 30);
+    }
+
+    // Katalog: GET /api/media komplett aus dem Spalten-Katalog im Speicher beantworten statt per SQL (Standard: aus)
+    public static boolean isCatalogInMemoryEnabled() {
+        return booleanProperty("catalog.inmemory.enabled", false);
+    }
+
+    // Listen-Cache: max. Anzahl gecachter Filter-Kombinationen für GET /api/media, 0 = aus (Standard: 1000)
+    public static int getListCacheMaxEntries() {
+        return intProperty("media.list.cache.max.entries", 1000);
+    }
+
+    // JSON-Cache: max. Anzahl Media mit fertig serialisiertem JSON im Speicher, 0 = aus (Standard: 100000)
+    public static int getMediaJsonCacheMaxEntries() {
+        return intProperty("media.json.cache.max.entries", 100000);
+    }
+
+    // Batch: max. Teil-Requests pro POST /api/batch (Standard: 20)
+    public static int getBatchMaxRequests() {
+        return intProperty("batch.max.requests", 20);
+    }
+
+    // Batch: Threads für parallele GET-Teil-Requests (Standard: 8)
+    public static int getBatchThreads() {
+        return intProperty("batch.threads", 8);
+    }
+
+    // Batch: gemeinsame Deadline für alle Teil-Requests eines Batches in ms (Standard: 10000)
+    public static int getBatchTimeoutMillis() {
+        return intProperty("batch.timeout.ms", 10000);
+    }
+
+    // Dashboard: Threads für die parallel geladenen Abschnitte (Standard: 8)
+    public static int getDashboardThreads() {
+        return intProperty("dashboard.threads", 8);
+    }
+
+    // Dashboard: gemeinsame Deadline für alle Abschnitte in ms, danach Teilergebnis mit errors (Standard: 2000)
+    public static int getDashboardTimeoutMillis() {
+        return intProperty("dashboard.timeout.ms", 2000);
+    }
+
+    // Import: Zeilen pro COPY-Block (Standard: 10000)
+    public static int getImportChunkRows() {
+        return intProperty("import.chunk.rows", 10000);
+    }
+
+    // Import: max. fertig geparste Blöcke in der Queue, danach wartet der Parser auf COPY (Standard: 4)
+    public static int getImportQueueChunks() {
+        return intProperty("import.queue.chunks", 4);
+    }
+
+    private static int intProperty(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(DatabaseConfig.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static double doubleProperty(String key, double defaultValue) {
+        try {
+            return Double.parseDouble(DatabaseConfig.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static boolean booleanProperty(String key, boolean defaultValue) {
+        String value = DatabaseConfig.getProperty(key, String.valueOf(defaultValue)).trim();
+        if (value.equalsIgnoreCase("true")) return true;
+        if (value.equalsIgnoreCase("false")) return false;
+        return defaultValue;
+    }
+
     public static void printConfig() {
         System.out.println("=== Server Konfiguration ===");
         System.out.println("Port: " + getPort());
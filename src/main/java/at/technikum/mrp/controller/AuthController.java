@@ -40,8 +40,7 @@ public class AuthController {
             }
 
             // Body lesen und JSON -> RegisterRequest parsen
-            String body = HttpUtil.readBody(exchange);
-            RegisterRequest req = JsonUtil.MAPPER.readValue(body, RegisterRequest.class);
+            RegisterRequest req = HttpUtil.readJson(exchange, JsonUtil.REGISTER_REQUEST_READER);
 
             // Business-Logik: User anlegen (inkl. Passwort-Hashing)
             User created = authService.register(req);
@@ -74,8 +73,7 @@ public class AuthController {
             }
 
             // Body lesen und JSON -> LoginRequest
-            String body = HttpUtil.readBody(exchange);
-            LoginRequest req = JsonUtil.MAPPER.readValue(body, LoginRequest.class);
+            LoginRequest req = HttpUtil.readJson(exchange, JsonUtil.LOGIN_REQUEST_READER);
 
             // Login prüfen (Passwort gegen Hash) und Token ausgeben
             String token = authService.login(req);
@@ -0,0 +1,289 @@
+package at.technikum.mrp.controller;
+
+import at.technikum.mrp.dto.BatchRequest;
+import at.technikum.mrp.service.TokenService;
+import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.HttpUtil;
+import at.technikum.mrp.util.InMemoryExchange;
+import at.technikum.mrp.util.JsonFragments;
+import at.technikum.mrp.util.JsonUtil;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * POST /api/batch
+ * Mehrere API-Aufrufe in einem Request (z.B. Profil, Favoriten, Empfehlungen, History beim App-Start):
+ * {"requests":[{"method":"GET","path":"/api/users/alice/profile"}, {"method":"POST","path":"/api/media/3/rate","body":{...}}]}
+ * -> {"responses":[{"status":200,"body":{...}}, {"status":201,"body":{...}}]} in derselben Reihenfolge.
+ *
+ * - Token wird einmal für den ganzen Batch geprüft (401 -> kein Teil-Request läuft), die Teil-Requests bekommen
+ *   den User mit (TokenService.requireUserId) statt das Token erneut zu prüfen
+ * - Streaming-Endpunkte (GET /api/users/{username}/export) sind nicht erlaubt: die Antwort würde komplett im
+ *   Speicher gesammelt, der Export soll aber mit konstantem Speicher direkt in die Verbindung schreiben
+ * - Teil-Requests laufen als InMemoryExchange durch dieselben Handler wie die normalen Routen (Routing wie HttpServer:
+ *   längster passender Pfad-Präfix), die Routen registriert MrpHttpServer
+ * - aufeinanderfolgende GETs laufen parallel auf dem Batch-Threadpool, ein schreibender Request (POST/PUT/DELETE)
+ *   wartet auf alles davor und läuft allein -> Reihenfolge zwischen Lesen und Schreiben bleibt erhalten
+ * - gemeinsame Deadline für den ganzen Batch: was danach noch starten würde, läuft nicht mehr (504), laufende GETs
+ *   werden abgebrochen (504), auf einen laufenden Write wird gewartet (sein Ergebnis zählt)
+ */
+public class BatchController {
+
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "DELETE");
+
+    // Antworten, die gestreamt werden und deshalb nicht in eine Batch-Antwort passen
+    private static final Pattern STREAMING_PATH = Pattern.compile("^/api/users/[^/]+/export/?(\\?.*)?$");
+
+    private final TokenService tokenService;
+    private final ExecutorService executor;
+    private final int maxRequests;
+    private final long timeoutMillis;
+
+    // Prefix -> Handler, wie die Contexts im HttpServer
+    private final List<Route> routes = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong subRequests = new AtomicLong();
+    private final AtomicLong parallelGroups = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private record Route(String prefix, HttpHandler handler) {}
+
+    private record Result(int status, byte[] body) {}
+
+    public BatchController(TokenService tokenService, ExecutorService executor, int maxRequests, long timeoutMillis) {
+        this.tokenService = tokenService;
+        this.executor = executor;
+        this.maxRequests = Math.max(1, maxRequests);
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+    }
+
+    /**
+     * Route, die im Batch erreichbar ist (gleicher Pfad-Präfix wie beim HttpServer.createContext).
+     */
+    public void register(String prefix, HttpHandler handler) {
+        routes.add(new Route(prefix, handler));
+    }
+
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
+            int userId = tokenService.requireUserIdFromAuthHeader(authHeader);
+
+            if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+                HttpUtil.sendEmpty(exchange, 405);
+                return;
+            }
+
+            BatchRequest req = HttpUtil.readJson(exchange, JsonUtil.BATCH_REQUEST_READER);
+            List<BatchRequest.Item> items = req == null ? null : req.getRequests();
+            if (items == null || items.isEmpty()) throw ApiException.badRequest("requests fehlt oder ist leer");
+            if (items.size() > maxRequests) {
+                throw ApiException.badRequest("Maximal " + maxRequests + " Requests pro Batch");
+            }
+            for (BatchRequest.Item item : items) {
+                validate(item);
+            }
+
+            List<Result> results = execute(items, authHeader, userId, exchange);
+
+            List<byte[]> out = new ArrayList<>(results.size());
+            for (Result r : results) {
+                Map<String, byte[]> entry = new LinkedHashMap<>();
+                entry.put("status", JsonFragments.toBytes(r.status()));
+                entry.put("body", r.body().length == 0 ? JsonFragments.toBytes(null) : r.body());
+                out.add(JsonFragments.object(entry));
+            }
+
+            Map<String, byte[]> response = new LinkedHashMap<>();
+            response.put("responses", JsonFragments.array(out));
+            HttpUtil.sendJsonBytes(exchange, 200, JsonFragments.object(response));
+
+        } catch (ApiException e) {
+            HttpUtil.sendJson(exchange, e.getStatus(), Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            HttpUtil.sendJson(exchange, 500, Map.of("message", "Internal Server Error"));
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("batches", batches.get());
+        m.put("subRequests", subRequests.get());
+        m.put("parallelGroups", parallelGroups.get());
+        m.put("timeouts", timeouts.get());
+        return m;
+    }
+
+    private void validate(BatchRequest.Item item) {
+        if (item == null || item.getMethod() == null || item.getPath() == null) {
+            throw ApiException.badRequest("Jeder Request braucht method und path");
+        }
+        if (!METHODS.contains(item.getMethod().toUpperCase(Locale.ROOT))) {
+            throw ApiException.badRequest("method nicht erlaubt: " + item.getMethod());
+        }
+        if (!item.getPath().startsWith("/api/")) {
+            throw ApiException.badRequest("path muss mit /api/ beginnen: " + item.getPath());
+        }
+        if (item.getPath().startsWith("/api/batch")) {
+            throw ApiException.badRequest("Verschachtelte Batches sind nicht erlaubt");
+        }
+        if (STREAMING_PATH.matcher(item.getPath()).matches()) {
+            throw ApiException.badRequest("Streaming-Endpunkte sind im Batch nicht erlaubt: " + item.getPath());
+        }
+    }
+
+    /**
+     * Führt die Teil-Requests aus: GET-Gruppen parallel, Writes einzeln und in Reihenfolge.
+     */
+    private List<Result> execute(List<BatchRequest.Item> items, String authHeader, int userId, HttpExchange outer) {
+        batches.incrementAndGet();
+        subRequests.addAndGet(items.size());
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Result[] results = new Result[items.size()];
+        List<Integer> group = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getMethod().equalsIgnoreCase("GET")) {
+                group.add(i);
+                continue;
+            }
+            runGroup(group, items, results, authHeader, userId, outer, deadline);
+            group.clear();
+
+            // schreibender Request: allein, nach allem davor (keine Parallelität mit anderen Teil-Requests)
+            runGroup(List.of(i), items, results, authHeader, userId, outer, deadline);
+        }
+        runGroup(group, items, results, authHeader, userId, outer, deadline);
+
+        return List.of(results);
+    }
+
+    /**
+     * Ist die Deadline schon vorbei, wird ein Teil-Request gar nicht mehr gestartet (504, "nicht ausgeführt").
+     * Ein gestarteter GET wird bei Deadline abgebrochen (Lesen hat keine Nebenwirkung). Auf einen gestarteten
+     * Write wird immer gewartet: cancel/interrupt hält JDBC nicht auf, ein 504 würde sonst evtl. einen
+     * committeten Write melden.
+     */
+    private void runGroup(List<Integer> indexes,
+                          List<BatchRequest.Item> items,
+                          Result[] results,
+                          String authHeader,
+                          int userId,
+                          HttpExchange outer,
+                          long deadline) {
+        if (indexes.isEmpty()) return;
+        if (indexes.size() > 1) parallelGroups.incrementAndGet();
+
+        List<Future<Result>> futures = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            if (System.nanoTime() - deadline >= 0) {
+                futures.add(null);
+                continue;
+            }
+            BatchRequest.Item item = items.get(index);
+            futures.add(executor.submit(() -> dispatch(item, authHeader, userId, outer)));
+        }
+
+        for (int k = 0; k < indexes.size(); k++) {
+            Future<Result> f = futures.get(k);
+            boolean write = !items.get(indexes.get(k)).getMethod().equalsIgnoreCase("GET");
+            Result r;
+            if (f == null) {
+                timeouts.incrementAndGet();
+                r = error(504, "Nicht ausgeführt: Zeitlimit des Batches überschritten");
+            } else {
+                try {
+                    r = write ? f.get() : f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    f.cancel(true);
+                    timeouts.incrementAndGet();
+                    r = error(504, "Zeitlimit des Batches überschritten");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (!write) f.cancel(true);
+                    r = error(503, write ? "Batch abgebrochen, Ergebnis unbekannt" : "Batch abgebrochen");
+                } catch (ExecutionException e) {
+                    r = error(500, "Internal Server Error");
+                }
+            }
+            results[indexes.get(k)] = r;
+        }
+    }
+
+    /**
+     * Ein Teil-Request durch den passenden Handler, Antwort wird im Speicher mitgeschrieben.
+     */
+    private Result dispatch(BatchRequest.Item item, String authHeader, int userId, HttpExchange outer)
+            throws IOException {
+        URI uri;
+        try {
+            uri = new URI(item.getPath());
+        } catch (URISyntaxException e) {
+            return error(400, "Ungültiger path: " + item.getPath());
+        }
+
+        HttpHandler handler = resolve(uri.getPath());
+        if (handler == null) return error(404, "Keine Route für " + uri.getPath());
+
+        byte[] body = item.getBody() == null || item.getBody().isNull()
+                ? new byte[0]
+                : JsonUtil.MAPPER.writeValueAsBytes(item.getBody());
+
+        Headers headers = new Headers();
+        headers.set("Authorization", authHeader);
+        headers.set("Content-Type", "application/json");
+        headers.set("Content-Length", String.valueOf(body.length));
+
+        InMemoryExchange sub = new InMemoryExchange(item.getMethod().toUpperCase(Locale.ROOT), uri, headers, body,
+                outer.getRemoteAddress(), userId);
+        handler.handle(sub);
+
+        int status = sub.getResponseCode();
+        if (status < 0) return error(500, "Keine Antwort vom Handler");
+
+        // kein JSON (z.B. Text) -> als String einbetten, sonst wäre die Batch-Antwort kaputt
+        byte[] responseBody = sub.getResponseBytes();
+        String contentType = sub.getResponseHeaders().getFirst("Content-Type");
+        if (responseBody.length > 0 && contentType != null && !contentType.startsWith("application/json")) {
+            responseBody = JsonFragments.toBytes(new String(responseBody, StandardCharsets.UTF_8));
+        }
+        return new Result(status, responseBody);
+    }
+
+    // längster passender Präfix gewinnt, wie bei HttpServer-Contexts (/api/users/favorites vor /api/users)
+    private HttpHandler resolve(String path) {
+        Route best = null;
+        for (Route r : routes) {
+            if (path.startsWith(r.prefix()) && (best == null || r.prefix().length() > best.prefix().length())) {
+                best = r;
+            }
+        }
+        return best == null ? null : best.handler();
+    }
+
+    private static Result error(int status, String message) {
+        return new Result(status, JsonFragments.toBytes(Map.of("message", message)));
+    }
+}
@@ -1,10 +1,12 @@
 package at.technikum.mrp.controller;
 
+import at.technikum.mrp.dto.MediaResponse;
 import at.technikum.mrp.model.Media;
 import at.technikum.mrp.service.FavoritesService;
 import at.technikum.mrp.service.TokenService;
 import at.technikum.mrp.util.ApiException;
 import at.technikum.mrp.util.HttpUtil;
+import at.technikum.mrp.util.JsonUtil;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
@@ -24,9 +26,7 @@ public class FavoritesController {
 
     public void handle(HttpExchange exchange) throws IOException {
         try {
-            int userId = tokenService.requireUserIdFromAuthHeader(
-                    exchange.getRequestHeaders().getFirst("Authorization")
-            );
+            int userId = tokenService.requireUserId(exchange);
 
             String method = exchange.getRequestMethod().toUpperCase();
             if (!method.equals("GET")) {
@@ -36,23 +36,12 @@ public class FavoritesController {
 
             List<Media> favorites = favoritesService.listFavorites(userId);
 
-            List<Map<String, Object>> out = new ArrayList<>();
+            List<MediaResponse> out = new ArrayList<>(favorites.size());
             for (Media m : favorites) {
-                out.add(Map.of(
-                        "id", m.getId(),
-                        "title", m.getTitle(),
-                        "description", m.getDescription(),
-                        "mediaType", m.getType(),
-                        "releaseYear", m.getReleaseYear(),
-                        "genres", m.getGenres(),
-                        "ageRestriction", m.getAgeRestriction(),
-                        "creatorId", m.getCreatorId(),
-                        "averageScore", m.getAverageScore(),
-                        "createdAt", m.getCreatedAt()
-                ));
+                out.add(MediaResponse.from(m));
             }
 
-            HttpUtil.sendJson(exchange, 200, out);
+            HttpUtil.sendJson(exchange, 200, JsonUtil.MEDIA_LIST_WRITER, out);
 
         } catch (ApiException e) {
             HttpUtil.sendJson(exchange, e.getStatus(), Map.of("message", e.getMessage()));
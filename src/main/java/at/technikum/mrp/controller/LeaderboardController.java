@@ -1,40 +1,95 @@
 package at.technikum.mrp.controller;
 
-import at.technikum.mrp.repository.UserRepository;
+import at.technikum.mrp.service.ActivityWindowService;
+import at.technikum.mrp.service.LeaderboardService;
+import at.technikum.mrp.service.TokenService;
+import at.technikum.mrp.util.ApiException;
 import at.technikum.mrp.util.HttpUtil;
 import at.technikum.mrp.util.QueryUtil;
+import at.technikum.mrp.util.SlidingWindowCounter;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * GET /api/leaderboard?limit=&window=24h|7d   (public, ohne window = all-time)
+ * GET /api/leaderboard/me                      (Platz des eingeloggten Users, Bearer Token)
+ * Alles kommt aus dem Speicher (Rang-Baum bzw. Zeitfenster-Zähler), nicht mehr per ORDER BY aus der DB.
+ */
 public class LeaderboardController {
 
-    private final UserRepository userRepository;
+    private final LeaderboardService leaderboardService;
+    private final ActivityWindowService activityWindowService;
+    private final TokenService tokenService;
 
-    public LeaderboardController(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public LeaderboardController(LeaderboardService leaderboardService,
+                                 ActivityWindowService activityWindowService,
+                                 TokenService tokenService) {
+        this.leaderboardService = leaderboardService;
+        this.activityWindowService = activityWindowService;
+        this.tokenService = tokenService;
     }
 
     public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod().toUpperCase();
-        if (!method.equals("GET")) {
-            HttpUtil.sendEmpty(exchange, 405);
-            return;
-        }
-
-        int limit = 10;
         try {
-            String q = exchange.getRequestURI().getQuery();
-            if (q != null) {
-                Map<String, String> params = QueryUtil.parse(q);
+            String method = exchange.getRequestMethod().toUpperCase();
+            if (!method.equals("GET")) {
+                HttpUtil.sendEmpty(exchange, 405);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/api/leaderboard/me")) {
+                int userId = tokenService.requireUserId(exchange);
+                Map<String, Object> rank = leaderboardService.rankOf(userId)
+                        .orElseThrow(() -> ApiException.notFound("User nicht gefunden"));
+                HttpUtil.sendJson(exchange, 200, rank);
+                return;
+            }
+            if (!path.equals("/api/leaderboard") && !path.equals("/api/leaderboard/")) {
+                HttpUtil.sendEmpty(exchange, 404);
+                return;
+            }
+
+            Map<String, String> params = QueryUtil.parse(exchange.getRequestURI().getQuery());
+
+            int limit = 10;
+            try {
                 String s = params.get("limit");
                 if (s != null) limit = Integer.parseInt(s);
+            } catch (Exception ignored) {}
+
+            String window = params.get("window");
+            if (window == null || window.isBlank()) {
+                HttpUtil.sendJson(exchange, 200, leaderboardService.top(limit));
+                return;
             }
-        } catch (Exception ignored) {}
 
-        List<Map<String, Object>> data = userRepository.findLeaderboard(limit);
-        HttpUtil.sendJson(exchange, 200, data);
+            // Zeitfenster: Top-K-Arrays der Größe limit -> begrenzen
+            int windowLimit = Math.max(1, Math.min(limit, 100));
+
+            List<Map<String, Object>> data = new ArrayList<>();
+            for (SlidingWindowCounter.Count c : activityWindowService.topUsers(window, windowLimit)) {
+                String username = leaderboardService.usernameOf(c.id);
+                if (username == null) continue;
+
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("rank", data.size() + 1);
+                row.put("username", username);
+                row.put("totalRatings", c.count);
+                row.put("window", window.toLowerCase());
+                data.add(row);
+            }
+            HttpUtil.sendJson(exchange, 200, data);
+
+        } catch (ApiException e) {
+            HttpUtil.sendJson(exchange, e.getStatus(), Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            HttpUtil.sendJson(exchange, 500, Map.of("message", "Internal Server Error"));
+        }
     }
 }
@@ -1,33 +1,63 @@
 package at.technikum.mrp.controller;
 
 import at.technikum.mrp.dto.MediaRequest;
+import at.technikum.mrp.dto.MediaResponse;
 import at.technikum.mrp.dto.RatingRequest;
+import at.technikum.mrp.dto.RatingResponse;
 import at.technikum.mrp.model.Media;
 import at.technikum.mrp.model.Rating;
+import at.technikum.mrp.repository.MediaRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.service.ActivityWindowService;
+import at.technikum.mrp.service.ApproximateTrendingService;
+import at.technikum.mrp.service.CatalogService;
+import at.technikum.mrp.service.EngagementService;
 import at.technikum.mrp.service.FavoritesService;
+import at.technikum.mrp.service.MediaCatalog;
+import at.technikum.mrp.service.MediaJsonCache;
+import at.technikum.mrp.service.MediaListCache;
 import at.technikum.mrp.service.MediaService;
 import at.technikum.mrp.service.RatingService;
+import at.technikum.mrp.service.RecommendationCandidate;
+import at.technikum.mrp.service.SimilarMediaService;
+import at.technikum.mrp.service.TitleSearchService;
 import at.technikum.mrp.service.TokenService;
 import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.FieldSelection;
 import at.technikum.mrp.util.HttpUtil;
+import at.technikum.mrp.util.JsonFragments;
 import at.technikum.mrp.util.JsonUtil;
 import at.technikum.mrp.util.QueryUtil;
+import at.technikum.mrp.util.SlidingWindowCounter;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * HTTP-Controller für Media-Endpoints.
  * Unterstützt:
- * - GET  /api/media              (Liste + Filter)
+ * - GET  /api/media              (Liste + Filter, ?title=...&fuzzy=true für tippfehler-tolerante Titelsuche,
+ *                                  ?facets=true -> {items, facets} mit Anzahl pro Genre/Typ/Jahr/Altersfreigabe,
+ *                                  ?fields=id,title,... -> nur diese Felder/Spalten,
+ *                                  Antworten aus dem MediaListCache)
  * - POST /api/media              (Media erstellen)
  * - GET  /api/media/{id}         (ein Media holen)
  * - PUT  /api/media/{id}         (Media updaten)
  * - DELETE /api/media/{id}       (Media löschen)
  * - POST /api/media/{id}/rate    (Media bewerten)
+ * - GET  /api/media/{id}/ratings (Ratings eines Media, optional ?fields=id,stars,...)
+ * - GET  /api/media/{id}/similar (ähnliche Media aus dem LSH-Index, optional ?limit=10)
+ * - GET  /api/media/trending     (meiste Ratings + Favoriten im Zeitfenster, ?window=24h|7d&limit=10,
+ *                                  ?mode=approx für die Sketch-basierte Variante)
+ * - GET  /api/media/suggest      (Autocomplete über den Titel-Index, ?q=...&limit=10)
+ * - GET  /api/media/{id}/engagement (verschiedene Bewerter/Favorisierer der letzten ?days=7 Tage, HyperLogLog)
  *
  * Alle Media-Endpoints sind geschützt -> Authorization: Bearer <token> ist Pflicht.
  */
@@ -37,19 +67,41 @@ public class MediaController {
     private final TokenService tokenService;
     private final RatingService ratingService;
     private final FavoritesService favoritesService;
-
-    public MediaController(MediaService mediaService, TokenService tokenService, RatingService ratingService, FavoritesService favoritesService) {
+    private final SimilarMediaService similarMediaService;
+    private final ActivityWindowService activityWindowService;
+    private final ApproximateTrendingService approximateTrending;
+    private final EngagementService engagementService;
+    private final TitleSearchService titleSearch;
+    private final CatalogService catalogService;
+    private final MediaListCache listCache;
+    private final MediaJsonCache jsonCache;
+
+    public MediaController(MediaService mediaService, TokenService tokenService, RatingService ratingService,
+                           FavoritesService favoritesService, SimilarMediaService similarMediaService,
+                           ActivityWindowService activityWindowService,
+                           ApproximateTrendingService approximateTrending,
+                           EngagementService engagementService,
+                           TitleSearchService titleSearch,
+                           CatalogService catalogService,
+                           MediaListCache listCache,
+                           MediaJsonCache jsonCache) {
         this.mediaService = mediaService;
         this.tokenService = tokenService;
         this.ratingService = ratingService;
         this.favoritesService = favoritesService;
+        this.similarMediaService = similarMediaService;
+        this.activityWindowService = activityWindowService;
+        this.approximateTrending = approximateTrending;
+        this.engagementService = engagementService;
+        this.titleSearch = titleSearch;
+        this.catalogService = catalogService;
+        this.listCache = listCache;
+        this.jsonCache = jsonCache;
     }
 
     public void handle(HttpExchange exchange) throws IOException {
         try {
-            int userId = tokenService.requireUserIdFromAuthHeader(
-                    exchange.getRequestHeaders().getFirst("Authorization")
-            );
+            int userId = tokenService.requireUserId(exchange);
 
             String path = exchange.getRequestURI().getPath(); // z.B. /api/media oder /api/media/123 oder /api/media/123/rate
             String method = exchange.getRequestMethod().toUpperCase();
@@ -72,21 +124,11 @@ public class MediaController {
                     return;
                 }
 
-                String body = HttpUtil.readBody(exchange);
-                RatingRequest req = JsonUtil.MAPPER.readValue(body, RatingRequest.class);
+                RatingRequest req = HttpUtil.readJson(exchange, JsonUtil.RATING_REQUEST_READER);
 
                 Rating created = ratingService.rateMedia(userId, mediaId, req);
 
-                HttpUtil.sendJson(exchange, 201, Map.of(
-                        "id", created.getId(),
-                        "mediaId", created.getMediaId(),
-                        "userId", created.getUserId(),
-                        "stars", created.getStars(),
-                        "comment", created.getComment(),
-                        "confirmed", created.getConfirmed(),
-                        "likesCount", created.getLikesCount(),
-                        "createdAt", created.getCreatedAt()
-                ));
+                HttpUtil.sendJson(exchange, 201, JsonUtil.RATING_WRITER, RatingResponse.from(created));
                 return;
             }
 
@@ -107,31 +149,56 @@ public class MediaController {
                 // 404 wenn Media nicht existiert (für saubere API)
                 mediaService.getById(mediaId);
 
-                List<Rating> ratings = ratingService.listByMediaId(mediaId);
-
-                // Kommentar-Regel:
-                // - öffentlich nur wenn confirmed == true
-                // - der Autor selbst sieht seinen Kommentar immer (auch unconfirmed)
-                List<Map<String, Object>> out = new ArrayList<>();
-                for (Rating r : ratings) {
-                    String commentOut = null;
-                    if (Boolean.TRUE.equals(r.getConfirmed()) || r.getUserId().equals(userId)) {
-                        commentOut = r.getComment();
-                    }
-
-                    out.add(Map.of(
-                            "id", r.getId(),
-                            "mediaId", r.getMediaId(),
-                            "userId", r.getUserId(),
-                            "stars", r.getStars(),
-                            "comment", commentOut,
-                            "confirmed", r.getConfirmed(),
-                            "likesCount", r.getLikesCount(),
-                            "createdAt", r.getCreatedAt()
-                    ));
+                Map<String, String> q = QueryUtil.parse(exchange.getRequestURI().getQuery());
+                Set<String> fields = FieldSelection.parse(q.get("fields"), RatingRepository.FIELDS);
+
+                List<RatingResponse> out = ratingService.listVisibleByMediaId(mediaId, userId, fields);
+
+                HttpUtil.sendJson(exchange, 200, JsonUtil.withFields(JsonUtil.RATING_LIST_WRITER, fields), out);
+                return;
+            }
+
+            // Spezialfall: /api/media/{id}/similar
+            if (parts.length == 5 && "similar".equals(parts[4])) {
+                int mediaId;
+                try {
+                    mediaId = Integer.parseInt(parts[3]);
+                } catch (NumberFormatException ex) {
+                    throw ApiException.badRequest("mediaId muss eine Zahl sein");
+                }
+
+                if (!method.equals("GET")) {
+                    HttpUtil.sendEmpty(exchange, 405);
+                    return;
+                }
+
+                handleSimilar(exchange, mediaId);
+                return;
+            }
+
+            // Spezialfall: /api/media/{id}/engagement
+            if (parts.length == 5 && "engagement".equals(parts[4])) {
+                int mediaId;
+                try {
+                    mediaId = Integer.parseInt(parts[3]);
+                } catch (NumberFormatException ex) {
+                    throw ApiException.badRequest("mediaId muss eine Zahl sein");
+                }
+
+                if (!method.equals("GET")) {
+                    HttpUtil.sendEmpty(exchange, 405);
+                    return;
+                }
+
+                mediaService.getById(mediaId); // 404 wenn es das Media nicht gibt
+
+                Map<String, String> q = QueryUtil.parse(exchange.getRequestURI().getQuery());
+                Integer days = parseIntOrNull(q.get("days"));
+                if (days != null && (days < 1 || days > 366)) {
+                    throw ApiException.badRequest("days muss zwischen 1 und 366 liegen");
                 }
 
-                HttpUtil.sendJson(exchange, 200, out);
+                HttpUtil.sendJson(exchange, 200, engagementService.estimate(mediaId, days == null ? 7 : days));
                 return;
             }
 
@@ -161,6 +228,28 @@ public class MediaController {
             }
 
 
+            // Spezialfall: /api/media/trending (sonst würde "trending" als ID geparst)
+            if (parts.length == 4 && "trending".equals(parts[3])) {
+                if (!method.equals("GET")) {
+                    HttpUtil.sendEmpty(exchange, 405);
+                    return;
+                }
+
+                handleTrending(exchange);
+                return;
+            }
+
+            // Spezialfall: /api/media/suggest
+            if (parts.length == 4 && "suggest".equals(parts[3])) {
+                if (!method.equals("GET")) {
+                    HttpUtil.sendEmpty(exchange, 405);
+                    return;
+                }
+
+                handleSuggest(exchange);
+                return;
+            }
+
             // Normalfall: /api/media oder /api/media/{id}
             boolean hasId = parts.length == 4;
 
@@ -187,17 +276,21 @@ public class MediaController {
             }
 
             if (method.equals("GET")) {
+                long loadedAt = jsonCache.stamp();
                 Media m = mediaService.getById(mediaId);
-                HttpUtil.sendJson(exchange, 200, toMediaJson(m));
+
+                // Detailseite: "N verschiedene User diese Woche" aus den Tages-Sketches
+                Object uniqueUsers = engagementService.estimate(mediaId, 7).get("uniqueUsers");
+                HttpUtil.sendJsonBytes(exchange, 200,
+                        JsonFragments.withField(mediaJson(m, loadedAt), "uniqueUsers7d", uniqueUsers));
                 return;
             }
 
             if (method.equals("PUT")) {
-                String body = HttpUtil.readBody(exchange);
-                MediaRequest req = JsonUtil.MAPPER.readValue(body, MediaRequest.class);
+                MediaRequest req = HttpUtil.readJson(exchange, JsonUtil.MEDIA_REQUEST_READER);
 
                 Media updated = mediaService.update(userId, mediaId, req);
-                HttpUtil.sendJson(exchange, 200, toMediaJson(updated));
+                HttpUtil.sendJson(exchange, 200, JsonUtil.MEDIA_WRITER, MediaResponse.from(updated));
                 return;
             }
 
@@ -217,29 +310,194 @@ public class MediaController {
     }
 
     private void handleCreate(HttpExchange exchange, int userId) throws IOException {
-        String body = HttpUtil.readBody(exchange);
-        MediaRequest req = JsonUtil.MAPPER.readValue(body, MediaRequest.class);
+        MediaRequest req = HttpUtil.readJson(exchange, JsonUtil.MEDIA_REQUEST_READER);
 
         Media created = mediaService.create(userId, req);
-        HttpUtil.sendJson(exchange, 201, toMediaJson(created));
+        HttpUtil.sendJson(exchange, 201, JsonUtil.MEDIA_WRITER, MediaResponse.from(created));
     }
 
     private void handleList(HttpExchange exchange) throws IOException {
         Map<String, String> q = QueryUtil.parse(exchange.getRequestURI().getQuery());
 
         String title = q.get("title");
+        if ("true".equalsIgnoreCase(q.get("fuzzy"))) {
+            handleFuzzy(exchange, title, parseIntOrNull(q.get("limit")));
+            return;
+        }
+
         String genre = q.get("genre");
         String mediaType = q.get("mediaType");
         Integer releaseYear = parseIntOrNull(q.get("releaseYear"));
         Integer ageRestriction = parseIntOrNull(q.get("ageRestriction"));
         Double rating = parseDoubleOrNull(q.get("rating"));
         String sortBy = q.get("sortBy");
+        boolean withFacets = "true".equalsIgnoreCase(q.get("facets"));
+        Set<String> fields = FieldSelection.parse(q.get("fields"), MediaRepository.FIELDS);
+
+        // fertige JSON-Bytes aus dem Response-Cache (veraltete werden ausgeliefert und im Hintergrund erneuert)
+        String key = MediaService.listKey(title, genre, mediaType, releaseYear, ageRestriction, rating, sortBy)
+                + (withFacets ? "\u0000facets" : "")
+                + (fields == null ? "" : "\u0000fields=" + String.join(",", fields));
+        byte[] body = listCache.get(key, () ->
+                listJson(title, genre, mediaType, releaseYear, ageRestriction, rating, sortBy, withFacets, fields));
+        HttpUtil.sendJsonBytes(exchange, 200, body);
+    }
+
+    private byte[] listJson(String title,
+                            String genre,
+                            String mediaType,
+                            Integer releaseYear,
+                            Integer ageRestriction,
+                            Double rating,
+                            String sortBy,
+                            boolean withFacets,
+                            Set<String> fields) {
+        long loadedAt = jsonCache.stamp();
+        List<Media> list = mediaService.list(title, genre, mediaType, releaseYear, ageRestriction, rating, sortBy, fields);
+
+        byte[] itemsJson;
+        if (fields == null) {
+            // Elemente aus dem JSON-Cache pro Media, nur noch aneinandergehängt
+            List<byte[]> items = new ArrayList<>(list.size());
+            for (Media m : list) {
+                items.add(mediaJson(m, loadedAt));
+            }
+            itemsJson = JsonFragments.array(items);
+        } else {
+            // der JSON-Cache hält nur volle Objekte -> schmale Auswahl direkt mit gefiltertem Writer
+            List<MediaResponse> items = new ArrayList<>(list.size());
+            for (Media m : list) {
+                items.add(MediaResponse.from(m));
+            }
+            itemsJson = JsonFragments.toBytes(JsonUtil.withFields(JsonUtil.MEDIA_LIST_WRITER, fields), items);
+        }
+
+        if (!withFacets) {
+            return itemsJson;
+        }
+
+        // Facetten aus dem Spalten-Katalog im Speicher (gleiche Filter, ohne weitere Queries)
+        MediaCatalog.Facets facets = catalogService.facets(title, genre, mediaType, releaseYear, ageRestriction, rating);
+        Map<String, Object> facetJson = new LinkedHashMap<>();
+        facetJson.put("total", facets.total);
+        facetJson.put("genres", facets.genres);
+        facetJson.put("mediaTypes", facets.mediaTypes);
+        facetJson.put("releaseYears", facets.releaseYears);
+        facetJson.put("ageRestrictions", facets.ageRestrictions);
+
+        Map<String, byte[]> response = new LinkedHashMap<>();
+        response.put("items", itemsJson);
+        response.put("facets", JsonFragments.toBytes(facetJson));
+        return JsonFragments.object(response);
+    }
+
+    private void handleSimilar(HttpExchange exchange, int mediaId) throws IOException {
+        // nicht im Index -> in der DB prüfen, damit es ein sauberes 404 gibt
+        if (!similarMediaService.contains(mediaId)) {
+            mediaService.getById(mediaId);
+        }
+
+        Map<String, String> q = QueryUtil.parse(exchange.getRequestURI().getQuery());
+        Integer limit = parseIntOrNull(q.get("limit"));
+
+        int effectiveLimit = limit == null ? 10 : Math.max(1, Math.min(limit, 50));
+
+        List<RecommendationCandidate> similar = similarMediaService.findSimilar(mediaId, effectiveLimit);
+
+        Map<Integer, Float> scoreById = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        for (RecommendationCandidate c : similar) {
+            ids.add(c.mediaId);
+            scoreById.put(c.mediaId, c.score);
+        }
+
+        long loadedAt = jsonCache.stamp();
+        List<byte[]> out = new ArrayList<>();
+        for (Media m : mediaService.getByIds(ids)) {
+            double similarity = Math.round(scoreById.get(m.getId()) * 1000) / 1000.0;
+            out.add(JsonFragments.withField(mediaJson(m, loadedAt), "similarity", similarity));
+        }
+
+        HttpUtil.sendJsonArray(exchange, 200, out);
+    }
+
+    private void handleTrending(HttpExchange exchange) throws IOException {
+        Map<String, String> q = QueryUtil.parse(exchange.getRequestURI().getQuery());
+        String window = q.getOrDefault("window", ActivityWindowService.WINDOW_24H);
+        Integer limit = parseIntOrNull(q.get("limit"));
+        int effectiveLimit = limit == null ? 10 : Math.max(1, Math.min(limit, 50));
+        String mode = q.getOrDefault("mode", "exact");
+
+        List<SlidingWindowCounter.Count> top;
+        if ("exact".equalsIgnoreCase(mode)) {
+            top = activityWindowService.topMedia(window, effectiveLimit);
+        } else if ("approx".equalsIgnoreCase(mode)) {
+            top = approximateTrending.top(window, effectiveLimit);
+        } else {
+            throw ApiException.badRequest("mode muss 'exact' oder 'approx' sein");
+        }
+
+        Map<Integer, Integer> countById = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        for (SlidingWindowCounter.Count c : top) {
+            ids.add(c.id);
+            countById.put(c.id, c.count);
+        }
+
+        long loadedAt = jsonCache.stamp();
+        List<byte[]> out = new ArrayList<>();
+        for (Media m : mediaService.getByIds(ids)) {
+            out.add(JsonFragments.withField(mediaJson(m, loadedAt), "trendingCount", countById.get(m.getId())));
+        }
+
+        HttpUtil.sendJsonArray(exchange, 200, out);
+    }
+
+    private void handleFuzzy(HttpExchange exchange, String title, Integer limit) throws IOException {
+        if (title == null || title.isBlank()) {
+            throw ApiException.badRequest("title fehlt");
+        }
+        int effectiveLimit = limit == null ? 20 : Math.max(1, Math.min(limit, 100));
+
+        // doppelt so viele Treffer holen, damit bei gleicher Ähnlichkeit der average_score entscheiden kann
+        List<TitleSearchService.Match> matches = titleSearch.fuzzy(title, effectiveLimit * 2);
+
+        Map<Integer, Float> similarityById = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        for (TitleSearchService.Match match : matches) {
+            ids.add(match.id);
+            similarityById.put(match.id, match.similarity);
+        }
+
+        long loadedAt = jsonCache.stamp();
+        List<Media> found = new ArrayList<>(mediaService.getByIds(ids));
+        found.sort(Comparator
+                .comparingDouble((Media m) -> -Math.round(similarityById.get(m.getId()) * 100))
+                .thenComparingDouble(m -> m.getAverageScore() == null ? 0 : -m.getAverageScore()));
+
+        List<byte[]> out = new ArrayList<>();
+        for (Media m : found.subList(0, Math.min(effectiveLimit, found.size()))) {
+            double similarity = Math.round(similarityById.get(m.getId()) * 1000) / 1000.0;
+            out.add(JsonFragments.withField(mediaJson(m, loadedAt), "similarity", similarity));
+        }
+
+        HttpUtil.sendJsonArray(exchange, 200, out);
+    }
+
+    private void handleSuggest(HttpExchange exchange) throws IOException {
+        Map<String, String> q = QueryUtil.parse(exchange.getRequestURI().getQuery());
+        String query = q.get("q");
+        if (query == null || query.isBlank()) {
+            throw ApiException.badRequest("q fehlt");
+        }
 
-        List<Media> list = mediaService.list(title, genre, mediaType, releaseYear, ageRestriction, rating, sortBy);
+        Integer limit = parseIntOrNull(q.get("limit"));
+        int effectiveLimit = limit == null ? 10 : Math.max(1, Math.min(limit, 50));
 
+        // nur ID + Titel, kein DB-Zugriff
         List<Map<String, Object>> out = new ArrayList<>();
-        for (Media m : list) {
-            out.add(toMediaJson(m));
+        for (TitleSearchService.Suggestion s : titleSearch.suggest(query, effectiveLimit)) {
+            out.add(Map.of("id", s.id, "title", s.title));
         }
 
         HttpUtil.sendJson(exchange, 200, out);
@@ -255,18 +513,9 @@ public class MediaController {
         try { return Double.parseDouble(s); } catch (Exception e) { return null; }
     }
 
-    private Map<String, Object> toMediaJson(Media m) {
-        return Map.of(
-                "id", m.getId(),
-                "title", m.getTitle(),
-                "description", m.getDescription(),
-                "mediaType", m.getType(),
-                "releaseYear", m.getReleaseYear(),
-                "genres", m.getGenres(),
-                "ageRestriction", m.getAgeRestriction(),
-                "creatorId", m.getCreatorId(),
-                "averageScore", m.getAverageScore(),
-                "createdAt", m.getCreatedAt()
-        );
+    // JSON eines Media aus dem MediaJsonCache (loadedAt = jsonCache.stamp() von vor dem Laden)
+    private byte[] mediaJson(Media m, long loadedAt) {
+        return jsonCache.fragment(m, loadedAt,
+                media -> JsonFragments.toBytes(JsonUtil.MEDIA_WRITER, MediaResponse.from(media)));
     }
 }
@@ -0,0 +1,58 @@
+package at.technikum.mrp.controller;
+
+import at.technikum.mrp.service.TokenService;
+import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.HttpUtil;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * GET /api/metrics
+ * Laufzeit-Kennzahlen der In-Memory Komponenten (z.B. Trainingsdauer und RMSE des MF-Modells).
+ * Die Quellen werden im Main registriert, der Controller kennt die Services selbst nicht.
+ */
+public class MetricsController {
+
+    private final TokenService tokenService;
+    private final Map<String, Supplier<Map<String, Object>>> sources = new ConcurrentHashMap<>();
+
+    public MetricsController(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * Registriert eine Kennzahlen-Quelle unter einem Namen (z.B. "matrixFactorization").
+     */
+    public void register(String name, Supplier<Map<String, Object>> source) {
+        sources.put(name, source);
+    }
+
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            tokenService.requireUserId(exchange);
+
+            if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+                HttpUtil.sendEmpty(exchange, 405);
+                return;
+            }
+
+            // TreeMap -> stabile Reihenfolge im JSON
+            Map<String, Object> out = new TreeMap<>();
+            for (Map.Entry<String, Supplier<Map<String, Object>>> e : sources.entrySet()) {
+                out.put(e.getKey(), e.getValue().get());
+            }
+
+            HttpUtil.sendJson(exchange, 200, out);
+
+        } catch (ApiException e) {
+            HttpUtil.sendJson(exchange, e.getStatus(), Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            HttpUtil.sendJson(exchange, 500, Map.of("message", "Internal Server Error"));
+        }
+    }
+}
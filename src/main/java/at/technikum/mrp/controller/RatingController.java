@@ -1,6 +1,9 @@
 package at.technikum.mrp.controller;
 
+import at.technikum.mrp.dto.BulkRatingRequest;
+import at.technikum.mrp.dto.BulkRatingResult;
 import at.technikum.mrp.dto.RatingRequest;
+import at.technikum.mrp.dto.RatingResponse;
 import at.technikum.mrp.model.Rating;
 import at.technikum.mrp.service.RatingService;
 import at.technikum.mrp.service.TokenService;
@@ -10,12 +13,14 @@ import at.technikum.mrp.util.JsonUtil;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
  * HTTP-Controller für Rating-Endpoints unter /api/ratings
  *
  * Unterstützt:
+ * - POST   /api/ratings/bulk          (viele Ratings auf einmal, Ergebnis pro Eintrag)
  * - PUT    /api/ratings/{id}          (Rating updaten)
  * - DELETE /api/ratings/{id}          (Rating löschen)
  * - POST   /api/ratings/{id}/confirm  (Kommentar bestätigen)
@@ -36,9 +41,7 @@ public class RatingController {
     public void handle(HttpExchange exchange) throws IOException {
         try {
             // 1) Auth
-            int userId = tokenService.requireUserIdFromAuthHeader(
-                    exchange.getRequestHeaders().getFirst("Authorization")
-            );
+            int userId = tokenService.requireUserId(exchange);
 
             // 2) Pfad normalisieren (Trailing Slash entfernen)
             String path = exchange.getRequestURI().getPath(); // z.B. /api/ratings/123/confirm
@@ -55,6 +58,19 @@ public class RatingController {
                 return;
             }
 
+            // /api/ratings/bulk (vor dem ID-Parsing)
+            if (parts.length == 4 && "bulk".equals(parts[3])) {
+                if (!method.equals("POST")) {
+                    HttpUtil.sendEmpty(exchange, 405);
+                    return;
+                }
+
+                BulkRatingRequest req = HttpUtil.readJson(exchange, JsonUtil.BULK_RATING_REQUEST_READER);
+                List<BulkRatingResult> results = ratingService.rateBulk(userId, req == null ? null : req.getRatings());
+                HttpUtil.sendJson(exchange, 200, JsonUtil.BULK_RATING_RESULT_LIST_WRITER, results);
+                return;
+            }
+
             // /api/ratings/{id}
             int ratingId;
             try {
@@ -74,7 +90,7 @@ public class RatingController {
                     }
 
                     Rating updated = ratingService.confirmComment(userId, ratingId);
-                    HttpUtil.sendJson(exchange, 200, toRatingJson(updated));
+                    HttpUtil.sendJson(exchange, 200, JsonUtil.RATING_WRITER, RatingResponse.from(updated));
                     return;
                 }
 
@@ -105,11 +121,10 @@ public class RatingController {
 
             // PUT /api/ratings/{id}
             if (method.equals("PUT")) {
-                String body = HttpUtil.readBody(exchange);
-                RatingRequest req = JsonUtil.MAPPER.readValue(body, RatingRequest.class);
+                RatingRequest req = HttpUtil.readJson(exchange, JsonUtil.RATING_REQUEST_READER);
 
                 Rating updated = ratingService.updateRating(userId, ratingId, req);
-                HttpUtil.sendJson(exchange, 200, toRatingJson(updated));
+                HttpUtil.sendJson(exchange, 200, JsonUtil.RATING_WRITER, RatingResponse.from(updated));
                 return;
             }
 
@@ -129,17 +144,4 @@ public class RatingController {
             HttpUtil.sendJson(exchange, 500, Map.of("message", "Internal Server Error"));
         }
     }
-
-    private Map<String, Object> toRatingJson(Rating r) {
-        return Map.of(
-                "id", r.getId(),
-                "mediaId", r.getMediaId(),
-                "userId", r.getUserId(),
-                "stars", r.getStars(),
-                "comment", r.getComment(),
-                "confirmed", r.getConfirmed(),
-                "likesCount", r.getLikesCount(),
-                "createdAt", r.getCreatedAt()
-        );
-    }
 }
@@ -1,58 +1,87 @@
 package at.technikum.mrp.controller;
 
+import at.technikum.mrp.dto.RatingHistoryResponse;
+import at.technikum.mrp.dto.RecommendationResponse;
+import at.technikum.mrp.dto.UserProfileResponse;
 import at.technikum.mrp.dto.UserProfileUpdate;
 import at.technikum.mrp.model.Media;
 import at.technikum.mrp.model.Rating;
 import at.technikum.mrp.model.User;
+import at.technikum.mrp.repository.RatingRepository;
 import at.technikum.mrp.repository.UserRepository;
 import at.technikum.mrp.service.*;
 import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.FieldSelection;
 import at.technikum.mrp.util.HttpUtil;
 import at.technikum.mrp.util.JsonUtil;
 import at.technikum.mrp.util.QueryUtil;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * User-Endpunkte (spec-nah):
  * - GET/PUT /api/users/{username}/profile          (Profil ansehen/ändern)
- * - GET     /api/users/{username}/ratings          (eigene Rating-History)
- * - GET     /api/users/{username}/recommendations  (Empfehlungen, optional ?limit=10)
+ * - GET     /api/users/{username}/ratings          (eigene Rating-History, optional ?fields=id,stars,mediaTitle,...)
+ * - GET     /api/users/{username}/recommendations  (Empfehlungen, optional ?limit=10&strategy=collaborative)
+ * - GET     /api/users/{username}/dashboard        (Profil, letzte Ratings, Favoriten, Empfehlungen parallel geladen,
+ *                                                   optional ?limit=5 pro Liste)
+ * - GET     /api/users/{username}/export           (alle Ratings + Favoriten als NDJSON, gestreamt, gzip bei
+ *                                                   Accept-Encoding: gzip)
  *
  * Zugriff nur auf das eigene Profil -> Username aus URL muss zum Token passen.
  */
 public class UserController {
 
+    // Felder der History für ?fields=: Rating-Spalten ohne userId (ist immer man selbst), dazu mediaTitle
+    private static final Set<String> HISTORY_FIELDS;
+
+    static {
+        Set<String> fields = new LinkedHashSet<>(RatingRepository.FIELDS);
+        fields.remove("userId");
+        fields.add("mediaTitle");
+        HISTORY_FIELDS = fields;
+    }
+
     private final TokenService tokenService;
     private final UserRepository userRepository;
     private final RatingService ratingService;
     private final MediaService mediaService;
     private final RecommendationService recommendationService;
     private final FavoritesService favoritesService;
+    private final DashboardService dashboardService;
+    private final ExportService exportService;
 
     public UserController(TokenService tokenService,
                           UserRepository userRepository,
                           RatingService ratingService,
                           MediaService mediaService,
                           RecommendationService recommendationService,
-                          FavoritesService favoritesService) {
+                          FavoritesService favoritesService,
+                          DashboardService dashboardService,
+                          ExportService exportService) {
         this.tokenService = tokenService;
         this.userRepository = userRepository;
         this.ratingService = ratingService;
         this.mediaService = mediaService;
         this.recommendationService = recommendationService;
         this.favoritesService = favoritesService;
+        this.dashboardService = dashboardService;
+        this.exportService = exportService;
     }
 
     public void handle(HttpExchange exchange) throws IOException {
         try {
-            int tokenUserId = tokenService.requireUserIdFromAuthHeader(
-                    exchange.getRequestHeaders().getFirst("Authorization")
-            );
+            int tokenUserId = tokenService.requireUserId(exchange);
 
             String path = exchange.getRequestURI().getPath();   // z.B. /api/users/alice/profile
             String method = exchange.getRequestMethod().toUpperCase();
@@ -87,19 +116,19 @@ public class UserController {
                     return;
                 }
 
-                // optional: ?limit=10
+                // optional: ?limit=10&strategy=content|collaborative
+                Map<String, String> params = QueryUtil.parse(exchange.getRequestURI().getQuery());
+                String strategy = params.get("strategy");
+
+                // begrenzt wie beim Dashboard: die Strategien legen Top-K-Arrays der Größe limit an
                 int limit = 10;
                 try {
-                    String q = exchange.getRequestURI().getQuery();
-                    if (q != null) {
-                        Map<String, String> params = QueryUtil.parse(q);
-                        String s = params.get("limit");
-                        if (s != null) limit = Integer.parseInt(s);
-                    }
+                    String s = params.get("limit");
+                    if (s != null) limit = Math.max(1, Math.min(Integer.parseInt(s), 50));
                 } catch (Exception ignored) {}
 
-                List<Map<String, Object>> recs = recommendationService.recommendForUser(user.getId(), limit);
-                HttpUtil.sendJson(exchange, 200, recs);
+                List<RecommendationResponse> recs = recommendationService.recommendForUser(user.getId(), limit, strategy);
+                HttpUtil.sendJson(exchange, 200, JsonUtil.RECOMMENDATION_LIST_WRITER, recs);
                 return;
             }
 
@@ -112,6 +141,32 @@ public class UserController {
                 return;
             }
 
+            if ("dashboard".equals(action)) {
+                if (!method.equals("GET")) {
+                    HttpUtil.sendEmpty(exchange, 405);
+                    return;
+                }
+                Map<String, String> params = QueryUtil.parse(exchange.getRequestURI().getQuery());
+
+                int limit = 5;
+                try {
+                    String s = params.get("limit");
+                    if (s != null) limit = Math.max(1, Math.min(Integer.parseInt(s), 50));
+                } catch (Exception ignored) {}
+
+                HttpUtil.sendJson(exchange, 200, dashboardService.build(user, limit));
+                return;
+            }
+
+            if ("export".equals(action)) {
+                if (!method.equals("GET")) {
+                    HttpUtil.sendEmpty(exchange, 405);
+                    return;
+                }
+                handleExport(exchange, user);
+                return;
+            }
+
             if ("favorites".equals(action)) {
                 if (!method.equals("GET")) {
                     HttpUtil.sendEmpty(exchange, 405);
@@ -134,20 +189,12 @@ public class UserController {
 
     private void handleProfile(HttpExchange exchange, String method, User user) throws IOException {
         if (method.equals("GET")) {
-            HttpUtil.sendJson(exchange, 200, Map.of(
-                    "id", user.getId(),
-                    "username", user.getUsername(),
-                    "email", user.getEmail(),
-                    "createdAt", user.getCreatedAt(),
-                    "totalRatings", user.getTotalRatings(),
-                    "averageRating", user.getAverageRating()
-            ));
+            HttpUtil.sendJson(exchange, 200, JsonUtil.USER_PROFILE_WRITER, UserProfileResponse.from(user));
             return;
         }
 
         if (method.equals("PUT")) {
-            String body = HttpUtil.readBody(exchange);
-            UserProfileUpdate req = JsonUtil.MAPPER.readValue(body, UserProfileUpdate.class);
+            UserProfileUpdate req = HttpUtil.readJson(exchange, JsonUtil.USER_PROFILE_UPDATE_READER);
 
             // wir erlauben hier nur Email zu ändern
             String newEmail = (req == null) ? null : req.getEmail();
@@ -158,14 +205,7 @@ public class UserController {
             User updated = userRepository.findById(user.getId())
                     .orElseThrow(() -> new ApiException(500, "User konnte nicht neu geladen werden"));
 
-            HttpUtil.sendJson(exchange, 200, Map.of(
-                    "id", updated.getId(),
-                    "username", updated.getUsername(),
-                    "email", updated.getEmail(),
-                    "createdAt", updated.getCreatedAt(),
-                    "totalRatings", updated.getTotalRatings(),
-                    "averageRating", updated.getAverageRating()
-            ));
+            HttpUtil.sendJson(exchange, 200, JsonUtil.USER_PROFILE_WRITER, UserProfileResponse.from(updated));
             return;
         }
 
@@ -173,29 +213,57 @@ public class UserController {
     }
 
     private void handleRatingHistory(HttpExchange exchange, int userId) throws IOException {
-        List<Rating> ratings = ratingService.listByUserId(userId);
+        Map<String, String> q = QueryUtil.parse(exchange.getRequestURI().getQuery());
+        Set<String> fields = FieldSelection.parse(q.get("fields"), HISTORY_FIELDS);
+
+        // mediaTitle ist keine Spalte von ratings: dafür wird mediaId geladen, ohne mediaTitle auch kein Media-Lookup
+        boolean withTitle = FieldSelection.includes(fields, "mediaTitle");
+        Set<String> columns = fields;
+        if (fields != null) {
+            columns = new TreeSet<>(fields);
+            columns.remove("mediaTitle");
+            if (withTitle) columns.add("mediaId");
+        }
+
+        List<Rating> ratings = ratingService.listByUserId(userId, columns);
 
-        List<Map<String, Object>> out = new ArrayList<>();
+        List<RatingHistoryResponse> out = new ArrayList<>(ratings.size());
         for (Rating r : ratings) {
             String mediaTitle = null;
-            try {
-                Media m = mediaService.getById(r.getMediaId());
-                mediaTitle = m.getTitle();
-            } catch (Exception ignored) {}
+            if (withTitle) {
+                try {
+                    Media m = mediaService.getById(r.getMediaId());
+                    mediaTitle = m.getTitle();
+                } catch (Exception ignored) {}
+            }
 
             // In der eigenen History sieht man den Kommentar immer (auch unconfirmed)
-            out.add(Map.of(
-                    "id", r.getId(),
-                    "mediaId", r.getMediaId(),
-                    "mediaTitle", mediaTitle,
-                    "stars", r.getStars(),
-                    "comment", r.getComment(),
-                    "confirmed", r.getConfirmed(),
-                    "likesCount", r.getLikesCount(),
-                    "createdAt", r.getCreatedAt()
-            ));
+            out.add(RatingHistoryResponse.from(r, mediaTitle));
         }
 
-        HttpUtil.sendJson(exchange, 200, out);
+        HttpUtil.sendJson(exchange, 200, JsonUtil.withFields(JsonUtil.RATING_HISTORY_LIST_WRITER, fields), out);
+    }
+
+    /**
+     * Ab hier ist der Status (200) schon gesendet: Fehler können nur noch als letzte Zeile gemeldet werden,
+     * die fehlende "end"-Zeile zeigt dem Client, dass der Export unvollständig ist.
+     */
+    private void handleExport(HttpExchange exchange, User user) throws IOException {
+        exchange.getResponseHeaders().set("Content-Disposition",
+                "attachment; filename=\"" + user.getUsername() + "-export.ndjson\"");
+
+        try (OutputStream out = HttpUtil.startStream(exchange, 200, "application/x-ndjson; charset=utf-8",
+                HttpUtil.acceptsGzip(exchange))) {
+            try {
+                exportService.export(user.getId(), out);
+            } catch (SQLException e) {
+                System.err.println("Fehler beim Export: " + e.getMessage());
+                out.write("{\"type\":\"error\",\"message\":\"Export abgebrochen\"}\n".getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            // Client hat die Verbindung geschlossen, keine Antwort mehr möglich
+        } finally {
+            exchange.close();
+        }
     }
 }
@@ -0,0 +1,44 @@
+package at.technikum.mrp.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * DTO für POST /api/batch: mehrere API-Aufrufe in einem Request.
+ */
+public class BatchRequest {
+    private List<Item> requests;
+
+    public BatchRequest() {}
+
+    public List<Item> getRequests() { return requests; }
+    public void setRequests(List<Item> requests) { this.requests = requests; }
+
+    /**
+     * Ein Teil-Request, z.B. {"method":"GET","path":"/api/users/alice/profile"}.
+     * body ist beliebiges JSON und wird so an den Controller weitergegeben.
+     */
+    public static class Item {
+        private String method;
+        private String path;
+        private JsonNode body;
+
+        public Item() {}
+
+        public Item(String method, String path, JsonNode body) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        public String getMethod() { return method; }
+        public void setMethod(String method) { this.method = method; }
+
+        public String getPath() { return path; }
+        public void setPath(String path) { this.path = path; }
+
+        public JsonNode getBody() { return body; }
+        public void setBody(JsonNode body) { this.body = body; }
+    }
+}
@@ -0,0 +1,45 @@
+package at.technikum.mrp.dto;
+
+import java.util.List;
+
+/**
+ * DTO für POST /api/ratings/bulk: viele Ratings eines Users auf einmal (z.B. Import von einer anderen Plattform).
+ */
+public class BulkRatingRequest {
+    private List<Item> ratings;
+
+    public BulkRatingRequest() {}
+
+    public BulkRatingRequest(List<Item> ratings) {
+        this.ratings = ratings;
+    }
+
+    public List<Item> getRatings() { return ratings; }
+    public void setRatings(List<Item> ratings) { this.ratings = ratings; }
+
+    /**
+     * Ein Rating: wie RatingRequest, plus das Media.
+     */
+    public static class Item {
+        private Integer mediaId;
+        private Integer stars; // 1-5
+        private String comment;
+
+        public Item() {}
+
+        public Item(Integer mediaId, Integer stars, String comment) {
+            this.mediaId = mediaId;
+            this.stars = stars;
+            this.comment = comment;
+        }
+
+        public Integer getMediaId() { return mediaId; }
+        public void setMediaId(Integer mediaId) { this.mediaId = mediaId; }
+
+        public Integer getStars() { return stars; }
+        public void setStars(Integer stars) { this.stars = stars; }
+
+        public String getComment() { return comment; }
+        public void setComment(String comment) { this.comment = comment; }
+    }
+}
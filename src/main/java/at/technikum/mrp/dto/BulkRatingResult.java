@@ -0,0 +1,21 @@
+package at.technikum.mrp.dto;
+
+/**
+ * Ergebnis pro Eintrag von POST /api/ratings/bulk (gleiche Reihenfolge wie im Request).
+ * status wie beim Einzel-Endpoint: 201 angelegt, 400 ungültig, 404 Media fehlt, 409 schon bewertet.
+ * rating nur bei 201, message nur bei Fehlern.
+ */
+public record BulkRatingResult(int index,
+                               Integer mediaId,
+                               int status,
+                               String message,
+                               RatingResponse rating) {
+
+    public static BulkRatingResult created(int index, RatingResponse rating) {
+        return new BulkRatingResult(index, rating.mediaId(), 201, null, rating);
+    }
+
+    public static BulkRatingResult failed(int index, Integer mediaId, int status, String message) {
+        return new BulkRatingResult(index, mediaId, status, message, null);
+    }
+}
@@ -0,0 +1,37 @@
+package at.technikum.mrp.dto;
+
+import at.technikum.mrp.model.Media;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Response-DTO für ein Media (Liste, Detail, Favoriten).
+ * Feldreihenfolge = Reihenfolge im JSON, null-Werte erlaubt (im Gegensatz zu Map.of).
+ */
+public record MediaResponse(Integer id,
+                            String title,
+                            String description,
+                            String mediaType,
+                            Integer releaseYear,
+                            List<String> genres,
+                            Integer ageRestriction,
+                            Integer creatorId,
+                            Double averageScore,
+                            LocalDateTime createdAt) {
+
+    public static MediaResponse from(Media m) {
+        return new MediaResponse(
+                m.getId(),
+                m.getTitle(),
+                m.getDescription(),
+                m.getType(),
+                m.getReleaseYear(),
+                m.getGenres(),
+                m.getAgeRestriction(),
+                m.getCreatorId(),
+                m.getAverageScore(),
+                m.getCreatedAt()
+        );
+    }
+}
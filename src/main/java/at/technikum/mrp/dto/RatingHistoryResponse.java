@@ -0,0 +1,31 @@
+package at.technikum.mrp.dto;
+
+import at.technikum.mrp.model.Rating;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response-DTO für einen Eintrag der eigenen Rating-History (mit Media-Titel statt userId).
+ */
+public record RatingHistoryResponse(Integer id,
+                                    Integer mediaId,
+                                    String mediaTitle,
+                                    Integer stars,
+                                    String comment,
+                                    Boolean confirmed,
+                                    Integer likesCount,
+                                    LocalDateTime createdAt) {
+
+    public static RatingHistoryResponse from(Rating r, String mediaTitle) {
+        return new RatingHistoryResponse(
+                r.getId(),
+                r.getMediaId(),
+                mediaTitle,
+                r.getStars(),
+                r.getComment(),
+                r.getConfirmed(),
+                r.getLikesCount(),
+                r.getCreatedAt()
+        );
+    }
+}
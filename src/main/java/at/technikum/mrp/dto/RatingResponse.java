@@ -0,0 +1,38 @@
+package at.technikum.mrp.dto;
+
+import at.technikum.mrp.model.Rating;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response-DTO für ein Rating (rate, update, Ratings eines Media).
+ */
+public record RatingResponse(Integer id,
+                             Integer mediaId,
+                             Integer userId,
+                             Integer stars,
+                             String comment,
+                             Boolean confirmed,
+                             Integer likesCount,
+                             LocalDateTime createdAt) {
+
+    public static RatingResponse from(Rating r) {
+        return from(r, r.getComment());
+    }
+
+    /**
+     * Mit abweichendem Kommentar (z.B. null, wenn er für den Aufrufer nicht sichtbar ist).
+     */
+    public static RatingResponse from(Rating r, String visibleComment) {
+        return new RatingResponse(
+                r.getId(),
+                r.getMediaId(),
+                r.getUserId(),
+                r.getStars(),
+                visibleComment,
+                r.getConfirmed(),
+                r.getLikesCount(),
+                r.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,40 @@
+package at.technikum.mrp.dto;
+
+import at.technikum.mrp.model.Media;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Response-DTO für eine Empfehlung: Media-Felder + Score und Strategie (reason).
+ */
+public record RecommendationResponse(Integer id,
+                                     String title,
+                                     String description,
+                                     String mediaType,
+                                     Integer releaseYear,
+                                     List<String> genres,
+                                     Integer ageRestriction,
+                                     Integer creatorId,
+                                     Double averageScore,
+                                     LocalDateTime createdAt,
+                                     Number recommendationScore,
+                                     String reason) {
+
+    public static RecommendationResponse from(Media m, Number score, String reason) {
+        return new RecommendationResponse(
+                m.getId(),
+                m.getTitle(),
+                m.getDescription(),
+                m.getType(),
+                m.getReleaseYear(),
+                m.getGenres(),
+                m.getAgeRestriction(),
+                m.getCreatorId(),
+                m.getAverageScore(),
+                m.getCreatedAt(),
+                score,
+                reason
+        );
+    }
+}
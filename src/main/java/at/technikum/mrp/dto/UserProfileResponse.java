@@ -0,0 +1,27 @@
+package at.technikum.mrp.dto;
+
+import at.technikum.mrp.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response-DTO für GET/PUT /api/users/{username}/profile.
+ */
+public record UserProfileResponse(Integer id,
+                                  String username,
+                                  String email,
+                                  LocalDateTime createdAt,
+                                  Integer totalRatings,
+                                  Double averageRating) {
+
+    public static UserProfileResponse from(User u) {
+        return new UserProfileResponse(
+                u.getId(),
+                u.getUsername(),
+                u.getEmail(),
+                u.getCreatedAt(),
+                u.getTotalRatings(),
+                u.getAverageRating()
+        );
+    }
+}
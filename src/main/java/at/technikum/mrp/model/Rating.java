@@ -15,6 +15,8 @@ public class Rating {
     private String comment;
     private Boolean confirmed;
     private Integer likesCount;
+    // Generation des letzten Like-Flushs, der likes_count geändert hat (siehe LikeCounterService)
+    private Long likesFlushGen;
     private LocalDateTime createdAt;
 
     private Rating(Builder builder) {
@@ -25,6 +27,7 @@ public class Rating {
         this.comment = builder.comment;
         this.confirmed = builder.confirmed;
         this.likesCount = builder.likesCount;
+        this.likesFlushGen = builder.likesFlushGen;
         this.createdAt = builder.createdAt;
     }
 
@@ -36,6 +39,7 @@ public class Rating {
     public String getComment() { return comment; }
     public Boolean getConfirmed() { return confirmed; }
     public Integer getLikesCount() { return likesCount; }
+    public Long getLikesFlushGen() { return likesFlushGen; }
     public LocalDateTime getCreatedAt() { return createdAt; }
 
     // Setters
@@ -51,6 +55,7 @@ public class Rating {
         private String comment;
         private Boolean confirmed = false;
         private Integer likesCount = 0;
+        private Long likesFlushGen;
         private LocalDateTime createdAt = LocalDateTime.now();
 
         public Builder() {}
@@ -62,6 +67,7 @@ public class Rating {
         public Builder comment(String comment) { this.comment = comment; return this; }
         public Builder confirmed(Boolean confirmed) { this.confirmed = confirmed; return this; }
         public Builder likesCount(Integer likesCount) { this.likesCount = likesCount; return this; }
+        public Builder likesFlushGen(Long likesFlushGen) { this.likesFlushGen = likesFlushGen; return this; }
         public Builder createdAt(LocalDateTime createdAt) { this.createdAt = createdAt; return this; }
 
         public Rating build() {
@@ -3,6 +3,7 @@ package at.technikum.mrp.repository;
 import at.technikum.mrp.config.DatabaseConfig;
 import at.technikum.mrp.model.Media;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -10,6 +11,25 @@ import java.util.List;
 
 public class FavoritesRepository {
 
+    // Wie viele Zeilen der Treiber pro Roundtrip vom Cursor holt
+    private static final int STREAM_FETCH_SIZE = 2000;
+
+    /**
+     * Callback für forEachFavoriteOfUser: darf beim Schreiben in die Response eine IOException werfen.
+     */
+    @FunctionalInterface
+    public interface FavoriteExportHandler {
+        void accept(Media media) throws IOException;
+    }
+
+    /**
+     * Callback für forEachFavoriteSince: wer hat wann welches Media favorisiert.
+     */
+    @FunctionalInterface
+    public interface FavoriteEventHandler {
+        void accept(int userId, int mediaId, long createdAtMillis);
+    }
+
     // true = neu eingefügt, false = war schon Favorit
     public boolean addFavorite(int userId, int mediaId) {
         String sql =
@@ -77,6 +97,77 @@ public class FavoritesRepository {
         return out;
     }
 
+    /**
+     * Die neuesten limit Favoriten eines Users (Dashboard), LIMIT in der DB statt die ganze Liste zu laden.
+     * queryTimeoutSeconds > 0 bricht die Abfrage in der DB ab (0 = kein Limit).
+     */
+    public List<Media> findRecentFavoritesOfUser(int userId, int limit, int queryTimeoutSeconds) {
+        List<Media> out = new ArrayList<>();
+
+        String sql =
+                "SELECT m.* " +
+                        "FROM favorites f " +
+                        "JOIN media m ON m.id = f.media_id " +
+                        "WHERE f.user_id = ? " +
+                        "ORDER BY f.created_at DESC " +
+                        "LIMIT ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            if (queryTimeoutSeconds > 0) stmt.setQueryTimeout(queryTimeoutSeconds);
+            stmt.setInt(1, userId);
+            stmt.setInt(2, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    out.add(mapResultSetToMedia(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Laden der letzten Favorites: " + e.getMessage());
+        }
+
+        return out;
+    }
+
+    /**
+     * Wie findFavoritesByUserId, aber über einen serverseitigen Cursor statt als Liste (z.B. für den Export).
+     * Fehler werden weitergeworfen, der Aufrufer steckt schon mitten in der Response.
+     *
+     * @return Anzahl gelesener Zeilen
+     */
+    public long forEachFavoriteOfUser(int userId, FavoriteExportHandler handler) throws SQLException, IOException {
+        String sql =
+                "SELECT m.* " +
+                        "FROM favorites f " +
+                        "JOIN media m ON m.id = f.media_id " +
+                        "WHERE f.user_id = ? " +
+                        "ORDER BY f.created_at DESC";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            // PostgreSQL nutzt fetchSize nur bei autoCommit=false
+            conn.setAutoCommit(false);
+
+            long count = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, userId);
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.accept(mapResultSetToMedia(rs));
+                        count++;
+                    }
+                }
+            }
+
+            conn.commit();
+            return count;
+        }
+    }
+
     // --- Helper: Media mappen (ähnlich wie im MediaRepository) ---
     private Media mapResultSetToMedia(ResultSet rs) throws SQLException {
         return Media.builder()
@@ -99,4 +190,32 @@ public class FavoritesRepository {
         }
         return Arrays.asList(genresString.split(","));
     }
+
+    /**
+     * Alle Favoriten ab einem Zeitpunkt (z.B. zum Vorbefüllen der Zeitfenster-Zähler beim Start).
+     *
+     * @return Anzahl gelesener Zeilen oder -1 bei SQL-Fehler
+     */
+    public long forEachFavoriteSince(Timestamp since, FavoriteEventHandler handler) {
+        String sql = "SELECT user_id, media_id, created_at FROM favorites WHERE created_at >= ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, since);
+
+            long count = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.accept(rs.getInt(1), rs.getInt(2), rs.getTimestamp(3).getTime());
+                    count++;
+                }
+            }
+            return count;
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Laden der Favoriten: " + e.getMessage());
+            return -1;
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package at.technikum.mrp.repository;
+
+import at.technikum.mrp.config.DatabaseConfig;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk-Import von Media und Ratings über PostgreSQL COPY FROM STDIN (CopyManager des Treibers).
+ *
+ * Ablauf in einer Transaktion:
+ * 1. temporäre Staging-Tabelle (alle Spalten TEXT, damit COPY nie an einer kaputten Zeile scheitert)
+ * 2. COPY der Blöcke, wie sie vom ImportService kommen (jeder Block wird sofort an den Server geschickt)
+ * 3. Validierung per SQL in der Staging-Tabelle: ungültige Zeilen bekommen einen Grund in "error"
+ * 4. gültige Zeilen per INSERT ... SELECT in die echte Tabelle
+ * 5. Ratings: average_score und User-Statistiken der betroffenen Media/User einmal neu berechnen
+ */
+public class ImportRepository {
+
+    public enum Kind { MEDIA, RATINGS }
+
+    // Spalten der Staging-Tabellen in der Reihenfolge der COPY-Zeilen
+    public static final List<String> MEDIA_COLUMNS = List.of(
+            "title", "description", "media_type", "release_year", "genres", "age_restriction", "creator_id");
+    public static final List<String> RATING_COLUMNS = List.of(
+            "media_id", "user_id", "stars", "comment", "confirmed");
+
+    /**
+     * copied = Zeilen in der Staging-Tabelle, inserted = neu in der echten Tabelle,
+     * rejected = Grund -> Anzahl aus der Validierung. copied - rejected - inserted wurden übersprungen
+     * (Rating schon vorhanden oder doppelt in der Datei).
+     */
+    public record Result(long copied, long inserted, Map<String, Long> rejected) {}
+
+    public static List<String> columns(Kind kind) {
+        return kind == Kind.MEDIA ? MEDIA_COLUMNS : RATING_COLUMNS;
+    }
+
+    /**
+     * Kopiert alle Blöcke (COPY-Textformat, Zeilen mit \n abgeschlossen) und übernimmt die gültigen Zeilen.
+     * Fehler -> Rollback, nichts wird übernommen.
+     */
+    public Result copyAndMerge(Kind kind, Iterator<byte[]> chunks) throws SQLException {
+        String staging = kind == Kind.MEDIA ? "import_media" : "import_ratings";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                try (Statement st = conn.createStatement()) {
+                    StringBuilder ddl = new StringBuilder("CREATE TEMP TABLE ").append(staging)
+                            .append(" (line BIGSERIAL");
+                    for (String c : columns(kind)) ddl.append(", ").append(c).append(" TEXT");
+                    ddl.append(", error TEXT) ON COMMIT DROP");
+                    st.execute(ddl.toString());
+                }
+
+                long copied = copy(conn, staging, columns(kind), chunks);
+
+                Map<String, Long> rejected = validate(conn, staging,
+                        kind == Kind.MEDIA ? mediaRules() : ratingRules());
+
+                long inserted;
+                try (Statement st = conn.createStatement()) {
+                    inserted = st.executeUpdate(kind == Kind.MEDIA ? mergeMediaSql() : mergeRatingsSql());
+                    if (kind == Kind.RATINGS) {
+                        st.executeUpdate(rebuildMediaScoresSql());
+                        st.executeUpdate(rebuildUserStatisticsSql());
+                    }
+                }
+
+                conn.commit();
+                return new Result(copied, inserted, rejected);
+
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private long copy(Connection conn, String staging, List<String> columns, Iterator<byte[]> chunks) throws SQLException {
+        String sql = "COPY " + staging + " (" + String.join(", ", columns) + ") FROM STDIN";
+        CopyIn in = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        try {
+            while (chunks.hasNext()) {
+                byte[] chunk = chunks.next();
+                in.writeToCopy(chunk, 0, chunk.length);
+                // Block sofort zum Server, statt ihn im Treiber-Puffer zu sammeln
+                in.flushCopy();
+            }
+            return in.endCopy();
+        } finally {
+            if (in.isActive()) in.cancelCopy();
+        }
+    }
+
+    /**
+     * Regeln der Reihe nach: jede Zeile bekommt den ersten Grund, der auf sie zutrifft.
+     */
+    private Map<String, Long> validate(Connection conn, String staging, Map<String, String> rules) throws SQLException {
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            String sql = "UPDATE " + staging + " SET error = ? WHERE error IS NULL AND (" + rule.getValue() + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, rule.getKey());
+                int n = stmt.executeUpdate();
+                if (n > 0) rejected.put(rule.getKey(), (long) n);
+            }
+        }
+        return rejected;
+    }
+
+    // Text -> int nur wenn es eine Zahl ist (CASE, damit der Cast nie auf ungültigen Werten läuft)
+    private static String intOrNull(String column) {
+        return "(CASE WHEN TRIM(" + column + ") ~ '^[0-9]{1,9}$' THEN TRIM(" + column + ")::int END)";
+    }
+
+    private static Map<String, String> mediaRules() {
+        Map<String, String> rules = new LinkedHashMap<>();
+        rules.put("title fehlt", "NULLIF(TRIM(title), '') IS NULL");
+        rules.put("title länger als 200 Zeichen", "length(TRIM(title)) > 200");
+        rules.put("mediaType ungültig", "media_type IS NULL OR UPPER(TRIM(media_type)) NOT IN ('MOVIE', 'SERIES', 'GAME')");
+        rules.put("releaseYear keine Zahl", "release_year IS NOT NULL AND " + intOrNull("release_year") + " IS NULL");
+        rules.put("ageRestriction keine Zahl", "age_restriction IS NOT NULL AND " + intOrNull("age_restriction") + " IS NULL");
+        rules.put("genres länger als 200 Zeichen", "length(genres) > 200");
+        rules.put("creatorId unbekannt", "creator_id IS NOT NULL AND NOT EXISTS " +
+                "(SELECT 1 FROM users u WHERE u.id = " + intOrNull("creator_id") + ")");
+        return rules;
+    }
+
+    private static Map<String, String> ratingRules() {
+        Map<String, String> rules = new LinkedHashMap<>();
+        rules.put("stars nicht zwischen 1 und 5", "stars IS NULL OR TRIM(stars) !~ '^[1-5]$'");
+        rules.put("confirmed ungültig", "confirmed IS NOT NULL AND LOWER(TRIM(confirmed)) NOT IN ('true', 'false', 't', 'f', '1', '0')");
+        rules.put("Media unbekannt", "NOT EXISTS (SELECT 1 FROM media m WHERE m.id = " + intOrNull("media_id") + ")");
+        rules.put("User unbekannt", "NOT EXISTS (SELECT 1 FROM users u WHERE u.id = " + intOrNull("user_id") + ")");
+        return rules;
+    }
+
+    private static String mergeMediaSql() {
+        return "INSERT INTO media (title, description, media_type, release_year, genres, age_restriction, creator_id) " +
+                "SELECT TRIM(title), description, UPPER(TRIM(media_type)), " + intOrNull("release_year") + ", " +
+                "COALESCE(genres, ''), " + intOrNull("age_restriction") + ", " + intOrNull("creator_id") + " " +
+                "FROM import_media WHERE error IS NULL ORDER BY line";
+    }
+
+    // doppelte (media_id, user_id) in der Datei: die erste Zeile gewinnt, schon vorhandene Ratings bleiben unverändert
+    private static String mergeRatingsSql() {
+        return "INSERT INTO ratings (media_id, user_id, stars, comment, confirmed) " +
+                "SELECT DISTINCT ON (media_id, user_id) media_id, user_id, stars, comment, confirmed FROM (" +
+                "  SELECT " + intOrNull("media_id") + " AS media_id, " + intOrNull("user_id") + " AS user_id, " +
+                "    TRIM(stars)::int AS stars, comment, " +
+                "    COALESCE(LOWER(TRIM(confirmed)) IN ('true', 't', '1'), FALSE) AS confirmed, line " +
+                "  FROM import_ratings WHERE error IS NULL" +
+                ") s ORDER BY media_id, user_id, line " +
+                "ON CONFLICT (media_id, user_id) DO NOTHING";
+    }
+
+    private static String rebuildMediaScoresSql() {
+        return "UPDATE media m SET average_score = a.avg FROM (" +
+                "  SELECT media_id, AVG(stars) AS avg FROM ratings WHERE media_id IN " +
+                "    (SELECT " + intOrNull("media_id") + " FROM import_ratings WHERE error IS NULL) " +
+                "  GROUP BY media_id" +
+                ") a WHERE m.id = a.media_id";
+    }
+
+    private static String rebuildUserStatisticsSql() {
+        return "UPDATE users u SET total_ratings = a.cnt, average_rating = a.avg FROM (" +
+                "  SELECT user_id, COUNT(*) AS cnt, AVG(stars) AS avg FROM ratings WHERE user_id IN " +
+                "    (SELECT " + intOrNull("user_id") + " FROM import_ratings WHERE error IS NULL) " +
+                "  GROUP BY user_id" +
+                ") a WHERE u.id = a.user_id";
+    }
+}
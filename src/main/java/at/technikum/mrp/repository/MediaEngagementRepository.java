@@ -0,0 +1,131 @@
+package at.technikum.mrp.repository;
+
+import at.technikum.mrp.config.DatabaseConfig;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository für media_engagement: HyperLogLog-Sketches (bytea) pro Media und Tag.
+ * Die Sketches selbst werden im EngagementService gerechnet, hier wird nur gelesen/geschrieben.
+ */
+public class MediaEngagementRepository {
+
+    /**
+     * Callback für gelesene Sketches: rohe Bytes, ohne Zwischenobjekte.
+     */
+    @FunctionalInterface
+    public interface SketchRowHandler {
+        void accept(int mediaId, LocalDate day, byte[] raters, byte[] favoriters);
+    }
+
+    /**
+     * Ein zu schreibender Tages-Sketch.
+     */
+    public static final class SketchRow {
+        public final int mediaId;
+        public final LocalDate day;
+        public final byte[] raters;
+        public final byte[] favoriters;
+
+        public SketchRow(int mediaId, LocalDate day, byte[] raters, byte[] favoriters) {
+            this.mediaId = mediaId;
+            this.day = day;
+            this.raters = raters;
+            this.favoriters = favoriters;
+        }
+    }
+
+    /**
+     * Alle Sketches ab einem Tag (zum Laden beim Start).
+     *
+     * @return Anzahl Zeilen oder -1 bei SQL-Fehler
+     */
+    public long forEachSince(LocalDate from, SketchRowHandler handler) {
+        String sql = "SELECT media_id, day, raters, favoriters FROM media_engagement WHERE day >= ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setDate(1, Date.valueOf(from));
+            return read(stmt, handler);
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Laden der Engagement-Sketches: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Sketches eines Media in [from, to] (für Zeiträume, die nicht mehr im Speicher liegen).
+     *
+     * @return Anzahl Zeilen oder -1 bei SQL-Fehler
+     */
+    public long forEachOfMedia(int mediaId, LocalDate from, LocalDate to, SketchRowHandler handler) {
+        String sql = "SELECT media_id, day, raters, favoriters FROM media_engagement " +
+                "WHERE media_id = ? AND day BETWEEN ? AND ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, mediaId);
+            stmt.setDate(2, Date.valueOf(from));
+            stmt.setDate(3, Date.valueOf(to));
+            return read(stmt, handler);
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Laden der Engagement-Sketches: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Schreibt geänderte Sketches (Insert oder Überschreiben) in einer Transaktion als JDBC-Batch.
+     */
+    public boolean upsertAll(List<SketchRow> rows) {
+        if (rows.isEmpty()) return true;
+
+        // WHERE EXISTS: Sketch eines inzwischen gelöschten Media wird still verworfen statt den Batch (FK) zu sprengen
+        String sql = "INSERT INTO media_engagement (media_id, day, raters, favoriters) " +
+                "SELECT ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM media WHERE id = ?) " +
+                "ON CONFLICT (media_id, day) DO UPDATE SET raters = EXCLUDED.raters, favoriters = EXCLUDED.favoriters";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (SketchRow r : rows) {
+                    stmt.setInt(1, r.mediaId);
+                    stmt.setDate(2, Date.valueOf(r.day));
+                    stmt.setBytes(3, r.raters);
+                    stmt.setBytes(4, r.favoriters);
+                    stmt.setInt(5, r.mediaId);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+                return true;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Speichern der Engagement-Sketches: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private long read(PreparedStatement stmt, SketchRowHandler handler) throws SQLException {
+        long count = 0;
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                handler.accept(rs.getInt(1), rs.getDate(2).toLocalDate(), rs.getBytes(3), rs.getBytes(4));
+                count++;
+            }
+        }
+        return count;
+    }
+}
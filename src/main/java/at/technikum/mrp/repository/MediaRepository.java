@@ -2,12 +2,21 @@ package at.technikum.mrp.repository;
 
 import at.technikum.mrp.config.DatabaseConfig;
 import at.technikum.mrp.model.Media;
+import at.technikum.mrp.util.FieldSelection;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Repository für Media-Operationen.
@@ -15,6 +24,29 @@ import java.util.Optional;
  */
 public class MediaRepository {
 
+    // Wie viele Zeilen der Treiber pro Roundtrip vom Cursor holt
+    private static final int STREAM_FETCH_SIZE = 2000;
+
+    // JSON-Feld (MediaResponse) -> Spalte, für ?fields=
+    public static final Map<String, String> COLUMNS;
+    public static final Set<String> FIELDS;
+
+    static {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("id", "id");
+        columns.put("title", "title");
+        columns.put("description", "description");
+        columns.put("mediaType", "media_type");
+        columns.put("releaseYear", "release_year");
+        columns.put("genres", "genres");
+        columns.put("ageRestriction", "age_restriction");
+        columns.put("creatorId", "creator_id");
+        columns.put("averageScore", "average_score");
+        columns.put("createdAt", "created_at");
+        COLUMNS = Collections.unmodifiableMap(columns);
+        FIELDS = COLUMNS.keySet();
+    }
+
     /**
      * Holt ein Media per ID.
      * Optional.empty() wenn nicht gefunden oder SQL-Fehler.
@@ -157,6 +189,72 @@ public class MediaRepository {
         return mediaList;
     }
 
+    /**
+     * Welche der IDs gibt es als Media? Nur die id-Spalte, ein Query für alle.
+     */
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        Set<Integer> out = new HashSet<>();
+        if (ids == null || ids.isEmpty()) return out;
+
+        String sql = "SELECT id FROM media WHERE id = ANY(?)";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    out.add(rs.getInt("id"));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Prüfen der Media-IDs: " + e.getMessage());
+        }
+        return out;
+    }
+
+    /**
+     * Holt mehrere Media in einem Query (id = ANY(array)).
+     * Ergebnis kommt in derselben Reihenfolge wie ids; nicht (mehr) existierende IDs fehlen einfach.
+     */
+    public List<Media> findByIds(List<Integer> ids) {
+        return findByIds(ids, 0);
+    }
+
+    /**
+     * Wie oben; queryTimeoutSeconds > 0 bricht die Abfrage in der DB ab (0 = kein Limit).
+     */
+    public List<Media> findByIds(List<Integer> ids, int queryTimeoutSeconds) {
+        List<Media> out = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) return out;
+
+        String sql = "SELECT * FROM media WHERE id = ANY(?)";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            if (queryTimeoutSeconds > 0) stmt.setQueryTimeout(queryTimeoutSeconds);
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+
+            Map<Integer, Media> byId = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Media m = mapResultSetToMedia(rs);
+                    byId.put(m.getId(), m);
+                }
+            }
+
+            for (Integer id : ids) {
+                Media m = byId.get(id);
+                if (m != null) out.add(m);
+            }
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Laden der Media per IDs: " + e.getMessage());
+        }
+        return out;
+    }
+
     /**
      * Gibt alle Media zurück (unfiltered).
      */
@@ -177,6 +275,40 @@ public class MediaRepository {
         return mediaList;
     }
 
+    /**
+     * Streamt alle Media über einen serverseitigen Cursor (z.B. zum Aufbau von In-Memory Indizes beim Start).
+     * Im Gegensatz zu findAll() liegt nie der ganze Katalog gleichzeitig als Liste im Speicher.
+     *
+     * @return Anzahl gelesener Zeilen oder -1 bei SQL-Fehler
+     */
+    public long forEachMedia(Consumer<Media> consumer) {
+        String sql = "SELECT * FROM media";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            // PostgreSQL nutzt fetchSize nur bei autoCommit=false
+            conn.setAutoCommit(false);
+
+            long count = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(mapResultSetToMedia(rs));
+                        count++;
+                    }
+                }
+            }
+
+            conn.commit();
+            return count;
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Streamen der Media: " + e.getMessage());
+            return -1;
+        }
+    }
+
     /**
      * Media eines bestimmten Creators (z.B. "meine Einträge").
      */
@@ -227,21 +359,26 @@ public class MediaRepository {
      * Hier passiert die "Übersetzung" DB-Spaltennamen -> Java-Felder.
      */
     private Media mapResultSetToMedia(ResultSet rs) throws SQLException {
-        Integer releaseYear = (Integer) rs.getObject("release_year");
-        Integer ageRestriction = (Integer) rs.getObject("age_restriction");
-
-        return Media.builder()
-                .id(rs.getInt("id"))
-                .title(rs.getString("title"))
-                .description(rs.getString("description"))
-                .type(rs.getString("media_type"))
-                .releaseYear(releaseYear)
-                .genres(stringToGenres(rs.getString("genres")))
-                .ageRestriction(ageRestriction)
-                .creatorId((Integer) rs.getObject("creator_id")) // sicherer als getInt()
-                .averageScore(rs.getDouble("average_score"))
-                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
-                .build();
+        return mapResultSetToMedia(rs, null);
+    }
+
+    /**
+     * Wie oben, liest aber nur die Spalten der Feld-Auswahl (null = alle).
+     */
+    private Media mapResultSetToMedia(ResultSet rs, Set<String> fields) throws SQLException {
+        Media.Builder b = Media.builder().id(rs.getInt("id"));
+
+        if (FieldSelection.includes(fields, "title")) b.title(rs.getString("title"));
+        if (FieldSelection.includes(fields, "description")) b.description(rs.getString("description"));
+        if (FieldSelection.includes(fields, "mediaType")) b.type(rs.getString("media_type"));
+        if (FieldSelection.includes(fields, "releaseYear")) b.releaseYear((Integer) rs.getObject("release_year"));
+        if (FieldSelection.includes(fields, "genres")) b.genres(stringToGenres(rs.getString("genres")));
+        if (FieldSelection.includes(fields, "ageRestriction")) b.ageRestriction((Integer) rs.getObject("age_restriction"));
+        if (FieldSelection.includes(fields, "creatorId")) b.creatorId((Integer) rs.getObject("creator_id")); // sicherer als getInt()
+        if (FieldSelection.includes(fields, "averageScore")) b.averageScore(rs.getDouble("average_score"));
+        if (FieldSelection.includes(fields, "createdAt")) b.createdAt(rs.getTimestamp("created_at").toLocalDateTime());
+
+        return b.build();
     }
 
     /**
@@ -282,9 +419,25 @@ public class MediaRepository {
                                     Integer ageRestriction,
                                     Double minRating,
                                     String sortBy) {
+        return findFiltered(title, genre, mediaType, releaseYear, ageRestriction, minRating, sortBy, null);
+    }
+
+    /**
+     * Wie oben, lädt aber nur die Spalten für die Feld-Auswahl (?fields=, null = alle).
+     */
+    public List<Media> findFiltered(String title,
+                                    String genre,
+                                    String mediaType,
+                                    Integer releaseYear,
+                                    Integer ageRestriction,
+                                    Double minRating,
+                                    String sortBy,
+                                    Set<String> fields) {
 
         List<Media> mediaList = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT * FROM media WHERE 1=1 ");
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(FieldSelection.columns(fields, COLUMNS))
+                .append(" FROM media WHERE 1=1 ");
         List<Object> params = new ArrayList<>();
 
         // "WHERE 1=1" macht es einfacher, immer nur "AND ..." anzuhängen
@@ -334,7 +487,7 @@ public class MediaRepository {
 
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                mediaList.add(mapResultSetToMedia(rs));
+                mediaList.add(mapResultSetToMedia(rs, fields));
             }
         } catch (SQLException e) {
             System.err.println("Fehler beim Filtern von Media: " + e.getMessage());
@@ -372,27 +525,74 @@ public class MediaRepository {
         return out;
     }
 
-    public List<Media> findNotRatedByUser(int userId) {
+    /**
+     * Kandidaten für die content-Empfehlung, Vorfilterung passiert in der DB:
+     * - nur Media, die der User noch nicht bewertet hat (NOT EXISTS nutzt UNIQUE(media_id, user_id))
+     * - score wird hier schon genau so berechnet wie im RecommendationService: +3 für favoriteGenre,
+     *   plus die beste Ähnlichkeit zu einem gut bewerteten Media (stars >= minStars):
+     *   gleicher Typ +2, gleiche Altersfreigabe +1, +1 pro gemeinsamem Genre
+     * - die maxMatching Media mit score > 0, sortiert wie im Service (score, average_score, title);
+     *   der Schnitt bei maxMatching verliert deshalb nichts, was unter die Top limit <= maxMatching käme
+     * - plus ein kleiner Fallback-Pool (score 0, bestes average_score), max. fallbackLimit
+     * Es werden nur die Spalten geladen, die das Scoring braucht (keine description etc.).
+     */
+    public List<Media> findRecommendationCandidates(int userId, int minStars, String favoriteGenre,
+                                                    int maxMatching, int fallbackLimit) {
         List<Media> out = new ArrayList<>();
 
         String sql =
-                "SELECT * FROM media " +
-                        "WHERE id NOT IN (SELECT media_id FROM ratings WHERE user_id = ?) " +
-                        "ORDER BY created_at DESC";
+                "WITH liked AS ( " +
+                        "  SELECT m.media_type, m.genres, m.age_restriction " +
+                        "  FROM ratings r JOIN media m ON m.id = r.media_id " +
+                        "  WHERE r.user_id = ? AND r.stars >= ? " +
+                        "), candidates AS ( " +
+                        "  SELECT m.id, m.title, m.media_type, m.genres, m.age_restriction, m.average_score, " +
+                        "    (CASE WHEN EXISTS (SELECT 1 FROM unnest(string_to_array(m.genres, ',')) AS g " +
+                        "                       WHERE LOWER(TRIM(g)) = ?) THEN 3 ELSE 0 END) + " +
+                        "    COALESCE((SELECT MAX( " +
+                        "        (CASE WHEN LOWER(l.media_type) = LOWER(m.media_type) THEN 2 ELSE 0 END) + " +
+                        "        (CASE WHEN l.age_restriction = m.age_restriction THEN 1 ELSE 0 END) + " +
+                        "        (SELECT COUNT(DISTINCT g) FROM unnest(string_to_array(m.genres, ',')) AS g " +
+                        "         WHERE g = ANY(string_to_array(l.genres, ',')))) " +
+                        "      FROM liked l), 0) AS score " +
+                        "  FROM media m " +
+                        "  WHERE NOT EXISTS (SELECT 1 FROM ratings r WHERE r.media_id = m.id AND r.user_id = ?) " +
+                        ") " +
+                        "(SELECT id, title, media_type, genres, age_restriction, average_score FROM candidates " +
+                        " WHERE score > 0 " +
+                        " ORDER BY score DESC, COALESCE(average_score, 0) DESC, LOWER(COALESCE(title, '')) ASC LIMIT ?) " +
+                        "UNION ALL " +
+                        "(SELECT id, title, media_type, genres, age_restriction, average_score FROM candidates " +
+                        " WHERE score = 0 " +
+                        " ORDER BY COALESCE(average_score, 0) DESC, LOWER(COALESCE(title, '')) ASC LIMIT ?)";
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, userId);
+            stmt.setInt(2, minStars);
+            // null (kein Lieblingsgenre) vergleicht nie gleich -> kein Bonus
+            stmt.setString(3, favoriteGenre == null ? null : favoriteGenre.trim().toLowerCase());
+            stmt.setInt(4, userId);
+            stmt.setInt(5, maxMatching);
+            stmt.setInt(6, fallbackLimit);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    out.add(mapResultSetToMedia(rs));
+                    // bewusst nur die Scoring-Felder, Details lädt der Service für die Top-N per findByIds
+                    out.add(Media.builder()
+                            .id(rs.getInt("id"))
+                            .title(rs.getString("title"))
+                            .type(rs.getString("media_type"))
+                            .genres(stringToGenres(rs.getString("genres")))
+                            .ageRestriction((Integer) rs.getObject("age_restriction"))
+                            .averageScore(rs.getDouble("average_score"))
+                            .build());
                 }
             }
 
         } catch (SQLException e) {
-            System.err.println("Fehler beim Laden nicht bewerteter Media: " + e.getMessage());
+            System.err.println("Fehler beim Laden der Empfehlungs-Kandidaten: " + e.getMessage());
         }
 
         return out;
@@ -2,11 +2,17 @@ package at.technikum.mrp.repository;
 
 import at.technikum.mrp.config.DatabaseConfig;
 import at.technikum.mrp.model.Rating;
+import at.technikum.mrp.util.FieldSelection;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository für Ratings.
@@ -14,6 +20,57 @@ import java.util.Optional;
  */
 public class RatingRepository {
 
+    // Wie viele Zeilen der Treiber pro Roundtrip vom Cursor holt
+    private static final int STREAM_FETCH_SIZE = 5000;
+
+    // Max. Anzahl (id, delta)-Paare pro UPDATE ... FROM (VALUES ...)
+    private static final int LIKE_FLUSH_BATCH = 500;
+
+    // Max. Zeilen pro INSERT ... SELECT FROM (VALUES ...) beim Bulk-Import
+    private static final int BULK_INSERT_BATCH = 500;
+
+    // JSON-Feld (RatingResponse) -> Spalte, für ?fields=
+    public static final Map<String, String> COLUMNS;
+    public static final Set<String> FIELDS;
+
+    static {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("id", "id");
+        columns.put("mediaId", "media_id");
+        columns.put("userId", "user_id");
+        columns.put("stars", "stars");
+        columns.put("comment", "comment");
+        columns.put("confirmed", "confirmed");
+        columns.put("likesCount", "likes_count");
+        columns.put("createdAt", "created_at");
+        COLUMNS = Collections.unmodifiableMap(columns);
+        FIELDS = COLUMNS.keySet();
+    }
+
+    /**
+     * Callback für forEachRating: bekommt nur die rohen Spaltenwerte (kein Rating-Objekt pro Zeile).
+     */
+    @FunctionalInterface
+    public interface RatingRowHandler {
+        void accept(int userId, int mediaId, int stars);
+    }
+
+    /**
+     * Callback für forEachRatingSince: wer hat wann welches Media bewertet.
+     */
+    @FunctionalInterface
+    public interface RatingEventHandler {
+        void accept(int userId, int mediaId, long createdAtMillis);
+    }
+
+    /**
+     * Callback für forEachRatingOfUser: darf beim Schreiben in die Response eine IOException werfen.
+     */
+    @FunctionalInterface
+    public interface RatingExportHandler {
+        void accept(Rating rating, String mediaTitle) throws IOException;
+    }
+
     /**
      * Rating per ID holen.
      */
@@ -149,8 +206,16 @@ public class RatingRepository {
      * Alle Ratings zu einem Media (neueste zuerst).
      */
     public List<Rating> findByMediaId(Integer mediaId) {
+        return findByMediaId(mediaId, null);
+    }
+
+    /**
+     * Wie oben, lädt aber nur die Spalten für die Feld-Auswahl (?fields=, null = alle).
+     */
+    public List<Rating> findByMediaId(Integer mediaId, Set<String> fields) {
         List<Rating> ratings = new ArrayList<>();
-        String sql = "SELECT * FROM ratings WHERE media_id = ? ORDER BY created_at DESC";
+        String sql = "SELECT " + selectColumns(fields) +
+                " FROM ratings WHERE media_id = ? ORDER BY created_at DESC";
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -159,7 +224,7 @@ public class RatingRepository {
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                ratings.add(mapResultSetToRating(rs));
+                ratings.add(mapResultSetToRating(rs, fields));
             }
         } catch (SQLException e) {
             System.err.println("Fehler beim Laden der Ratings: " + e.getMessage());
@@ -167,12 +232,51 @@ public class RatingRepository {
         return ratings;
     }
 
+    /**
+     * Die neuesten limit Ratings eines Users (Dashboard), LIMIT in der DB statt die ganze History zu laden.
+     */
+    public List<Rating> findRecentByUserId(Integer userId, int limit) {
+        return findRecentByUserId(userId, limit, 0);
+    }
+
+    /**
+     * Wie oben; queryTimeoutSeconds > 0 bricht die Abfrage in der DB ab (0 = kein Limit).
+     */
+    public List<Rating> findRecentByUserId(Integer userId, int limit, int queryTimeoutSeconds) {
+        List<Rating> ratings = new ArrayList<>();
+        String sql = "SELECT * FROM ratings WHERE user_id = ? ORDER BY created_at DESC LIMIT ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            if (queryTimeoutSeconds > 0) stmt.setQueryTimeout(queryTimeoutSeconds);
+            stmt.setInt(1, userId);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                ratings.add(mapResultSetToRating(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Laden der letzten User-Ratings: " + e.getMessage());
+        }
+        return ratings;
+    }
+
     /**
      * Alle Ratings eines Users (z.B. Profil/History).
      */
     public List<Rating> findByUserId(Integer userId) {
+        return findByUserId(userId, null);
+    }
+
+    /**
+     * Wie oben, lädt aber nur die Spalten für die Feld-Auswahl (?fields=, null = alle).
+     */
+    public List<Rating> findByUserId(Integer userId, Set<String> fields) {
         List<Rating> ratings = new ArrayList<>();
-        String sql = "SELECT * FROM ratings WHERE user_id = ? ORDER BY created_at DESC";
+        String sql = "SELECT " + selectColumns(fields) +
+                " FROM ratings WHERE user_id = ? ORDER BY created_at DESC";
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -181,7 +285,7 @@ public class RatingRepository {
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                ratings.add(mapResultSetToRating(rs));
+                ratings.add(mapResultSetToRating(rs, fields));
             }
         } catch (SQLException e) {
             System.err.println("Fehler beim Laden der User-Ratings: " + e.getMessage());
@@ -212,13 +316,14 @@ public class RatingRepository {
     }
 
     /**
-     * Liked ein Rating genau 1x pro User.
+     * Liked ein Rating genau 1x pro User und zählt likes_count sofort mit (ohne LikeCounterService).
      * - legt einen Eintrag in rating_likes an (UNIQUE verhindert Doppel-Likes)
      * - erhöht likes_count im ratings Datensatz
+     * Beides in einer Transaktion.
      *
      * @return true wenn Like neu gesetzt wurde, false wenn User schon geliked hat
      */
-    public boolean likeRating(int ratingId, int userId) {
+    public boolean likeRatingAndCount(int ratingId, int userId) {
         String insertLike =
                 "INSERT INTO rating_likes (rating_id, user_id) VALUES (?, ?) " +
                         "ON CONFLICT (rating_id, user_id) DO NOTHING";
@@ -270,20 +375,312 @@ public class RatingRepository {
         }
     }
 
+    /**
+     * Liked ein Rating genau 1x pro User.
+     * Legt nur den Eintrag in rating_likes an (UNIQUE verhindert Doppel-Likes).
+     * likes_count wird NICHT hier erhöht, sondern gesammelt über incrementLikeCounts()
+     * (sonst sperrt jeder Like dieselbe ratings-Zeile -> Lock-Contention bei beliebten Reviews).
+     *
+     * @return true wenn Like neu gesetzt wurde, false wenn User schon geliked hat
+     */
+    public boolean likeRating(int ratingId, int userId) {
+        String insertLike =
+                "INSERT INTO rating_likes (rating_id, user_id) VALUES (?, ?) " +
+                        "ON CONFLICT (rating_id, user_id) DO NOTHING";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement ins = conn.prepareStatement(insertLike)) {
+
+            ins.setInt(1, ratingId);
+            ins.setInt(2, userId);
+            return ins.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            // Hier NICHT "false" zurückgeben, sonst würden wir echte DB-Fehler als "schon geliked" missverstehen
+            throw new RuntimeException("Fehler beim Liken des Ratings: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Bulk-Import der Ratings eines Users in einer Transaktion:
+     * - INSERT ... SELECT FROM (VALUES ...) ON CONFLICT (media_id, user_id) DO NOTHING, ein Statement pro Block
+     *   (schon bewertete Media werden übersprungen, nicht mehr existierende über WHERE EXISTS auch)
+     * - danach average_score aller betroffenen Media und die User-Statistik je einmal neu berechnet
+     *
+     * @return tatsächlich eingefügte Ratings (mit id und created_at) oder null bei SQL-Fehler (Rollback)
+     */
+    public List<Rating> insertBulk(int userId, List<Rating> ratings) {
+        List<Rating> inserted = new ArrayList<>();
+        if (ratings.isEmpty()) return inserted;
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                for (int from = 0; from < ratings.size(); from += BULK_INSERT_BATCH) {
+                    List<Rating> chunk = ratings.subList(from, Math.min(ratings.size(), from + BULK_INSERT_BATCH));
+
+                    StringBuilder sql = new StringBuilder(
+                            "INSERT INTO ratings (media_id, user_id, stars, comment, confirmed) " +
+                                    "SELECT v.media_id, ?, v.stars, v.comment, FALSE FROM (VALUES ");
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (i > 0) sql.append(", ");
+                        sql.append("(?::int, ?::int, ?::text)");
+                    }
+                    sql.append(") AS v(media_id, stars, comment) ")
+                            .append("WHERE EXISTS (SELECT 1 FROM media m WHERE m.id = v.media_id) ")
+                            .append("ON CONFLICT (media_id, user_id) DO NOTHING ")
+                            .append("RETURNING id, media_id, stars, comment, created_at");
+
+                    try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                        int idx = 1;
+                        stmt.setInt(idx++, userId);
+                        for (Rating r : chunk) {
+                            stmt.setInt(idx++, r.getMediaId());
+                            stmt.setInt(idx++, r.getStars());
+                            stmt.setString(idx++, r.getComment());
+                        }
+
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                inserted.add(Rating.builder()
+                                        .id(rs.getInt("id"))
+                                        .mediaId(rs.getInt("media_id"))
+                                        .userId(userId)
+                                        .stars(rs.getInt("stars"))
+                                        .comment(rs.getString("comment"))
+                                        .confirmed(false)
+                                        .likesCount(0)
+                                        .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                                        .build());
+                            }
+                        }
+                    }
+                }
+
+                if (!inserted.isEmpty()) {
+                    Integer[] mediaIds = inserted.stream().map(Rating::getMediaId).distinct().toArray(Integer[]::new);
+
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "UPDATE media SET average_score = " +
+                                    "(SELECT COALESCE(AVG(r.stars), 0.0) FROM ratings r WHERE r.media_id = media.id) " +
+                                    "WHERE id = ANY(?)")) {
+                        stmt.setArray(1, conn.createArrayOf("integer", mediaIds));
+                        stmt.executeUpdate();
+                    }
+
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "UPDATE users SET " +
+                                    "total_ratings = (SELECT COUNT(*) FROM ratings WHERE user_id = ?), " +
+                                    "average_rating = (SELECT COALESCE(AVG(stars), 0.0) FROM ratings WHERE user_id = ?) " +
+                                    "WHERE id = ?")) {
+                        stmt.setInt(1, userId);
+                        stmt.setInt(2, userId);
+                        stmt.setInt(3, userId);
+                        stmt.executeUpdate();
+                    }
+                }
+
+                conn.commit();
+                return inserted;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Bulk-Import der Ratings: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Erhöht likes_count für viele Ratings auf einmal:
+     * UPDATE ... FROM (VALUES (id, delta), ...) -> ein Statement pro Block statt ein UPDATE pro Like.
+     * Alles in einer Transaktion: entweder alle Deltas landen in der DB oder keines.
+     * Jede geänderte Zeile bekommt likes_flush_gen = generation (Lesende erkennen daran, dass der Flush drin ist).
+     */
+    public boolean incrementLikeCounts(Map<Integer, Long> deltas, long generation) {
+        if (deltas.isEmpty()) return true;
+
+        List<Map.Entry<Integer, Long>> entries = new ArrayList<>(deltas.entrySet());
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                for (int from = 0; from < entries.size(); from += LIKE_FLUSH_BATCH) {
+                    List<Map.Entry<Integer, Long>> chunk =
+                            entries.subList(from, Math.min(entries.size(), from + LIKE_FLUSH_BATCH));
+
+                    StringBuilder sql = new StringBuilder(
+                            "UPDATE ratings r SET likes_count = r.likes_count + v.delta, likes_flush_gen = ? FROM (VALUES ");
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (i > 0) sql.append(", ");
+                        sql.append("(?::int, ?::int)");
+                    }
+                    sql.append(") AS v(id, delta) WHERE r.id = v.id");
+
+                    try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                        int idx = 1;
+                        stmt.setLong(idx++, generation);
+                        for (Map.Entry<Integer, Long> e : chunk) {
+                            stmt.setInt(idx++, e.getKey());
+                            stmt.setInt(idx++, Math.toIntExact(e.getValue()));
+                        }
+                        stmt.executeUpdate();
+                    }
+                }
+
+                conn.commit();
+                return true;
+
+            } catch (SQLException | ArithmeticException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException | ArithmeticException e) {
+            System.err.println("Fehler beim Schreiben der Like-Zähler: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Streamt alle Ratings (user_id, media_id, stars) über einen serverseitigen Cursor.
+     * PostgreSQL beachtet fetchSize nur bei autoCommit=false, sonst würde der Treiber alles auf einmal laden.
+     *
+     * @return Anzahl gelesener Zeilen oder -1 bei SQL-Fehler
+     */
+    public long forEachRating(RatingRowHandler handler) {
+        String sql = "SELECT user_id, media_id, stars FROM ratings";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+
+            long count = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.accept(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+                        count++;
+                    }
+                }
+            }
+
+            // nur gelesen -> commit beendet die Transaktion (und damit den Cursor)
+            conn.commit();
+            return count;
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Streamen der Ratings: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Streamt alle Ratings eines Users (neueste zuerst) mit Media-Titel über einen serverseitigen Cursor,
+     * z.B. für den Export. Titel per JOIN statt Lookup pro Rating.
+     * Fehler werden weitergeworfen statt geloggt: der Aufrufer steckt schon mitten in der Response.
+     *
+     * @return Anzahl gelesener Zeilen
+     */
+    public long forEachRatingOfUser(int userId, RatingExportHandler handler) throws SQLException, IOException {
+        String sql = "SELECT r.*, m.title AS media_title FROM ratings r " +
+                "LEFT JOIN media m ON m.id = r.media_id " +
+                "WHERE r.user_id = ? ORDER BY r.created_at DESC, r.id DESC";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+
+            long count = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, userId);
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.accept(mapResultSetToRating(rs), rs.getString("media_title"));
+                        count++;
+                    }
+                }
+            }
+
+            conn.commit();
+            return count;
+        }
+    }
+
+    /**
+     * Streamt alle Ratings ab einem Zeitpunkt (user_id, media_id, created_at), z.B. zum Vorbefüllen
+     * der Zeitfenster-Zähler beim Start.
+     *
+     * @return Anzahl gelesener Zeilen oder -1 bei SQL-Fehler
+     */
+    public long forEachRatingSince(Timestamp since, RatingEventHandler handler) {
+        String sql = "SELECT user_id, media_id, created_at FROM ratings WHERE created_at >= ?";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+
+            long count = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setTimestamp(1, since);
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.accept(rs.getInt(1), rs.getInt(2), rs.getTimestamp(3).getTime());
+                        count++;
+                    }
+                }
+            }
+
+            conn.commit();
+            return count;
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Streamen der Ratings: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * SELECT-Liste für die Feld-Auswahl; likes_flush_gen gehört zu likes_count
+     * (LikeCounterService erkennt daran, ob ein laufender Flush schon in der Zeile steckt).
+     */
+    private static String selectColumns(Set<String> fields) {
+        String columns = FieldSelection.columns(fields, COLUMNS);
+        return fields != null && fields.contains("likesCount") ? columns + ", likes_flush_gen" : columns;
+    }
 
     /**
      * Mapping: ResultSet -> Rating (DB -> Java Objekt).
      */
     private Rating mapResultSetToRating(ResultSet rs) throws SQLException {
-        return Rating.builder()
-                .id(rs.getInt("id"))
-                .mediaId(rs.getInt("media_id"))
-                .userId(rs.getInt("user_id"))
-                .stars(rs.getInt("stars"))
-                .comment(rs.getString("comment"))
-                .confirmed(rs.getBoolean("confirmed"))
-                .likesCount(rs.getInt("likes_count"))
-                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
-                .build();
+        return mapResultSetToRating(rs, null);
+    }
+
+    /**
+     * Wie oben, liest aber nur die Spalten der Feld-Auswahl (null = alle).
+     */
+    private Rating mapResultSetToRating(ResultSet rs, Set<String> fields) throws SQLException {
+        Rating.Builder b = Rating.builder().id(rs.getInt("id"));
+
+        if (FieldSelection.includes(fields, "mediaId")) b.mediaId(rs.getInt("media_id"));
+        if (FieldSelection.includes(fields, "userId")) b.userId(rs.getInt("user_id"));
+        if (FieldSelection.includes(fields, "stars")) b.stars(rs.getInt("stars"));
+        if (FieldSelection.includes(fields, "comment")) b.comment(rs.getString("comment"));
+        if (FieldSelection.includes(fields, "confirmed")) b.confirmed(rs.getBoolean("confirmed"));
+        if (FieldSelection.includes(fields, "likesCount")) {
+            b.likesCount(rs.getInt("likes_count"));
+            b.likesFlushGen(rs.getLong("likes_flush_gen"));
+        }
+        if (FieldSelection.includes(fields, "createdAt")) b.createdAt(rs.getTimestamp("created_at").toLocalDateTime());
+
+        return b.build();
     }
 }
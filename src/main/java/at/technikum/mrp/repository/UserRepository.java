@@ -15,6 +15,14 @@ import java.util.Optional;
  */
 public class UserRepository {
 
+    /**
+     * Callback für forEachUserRatingStats: eine Zeile pro User, ohne User-Objekt.
+     */
+    @FunctionalInterface
+    public interface UserStatsHandler {
+        void accept(int userId, String username, int totalRatings, long starSum);
+    }
+
     /**
      * Sucht einen User über username (wichtig für Login).
      */
@@ -177,6 +185,35 @@ public class UserRepository {
         return out;
     }
 
+    /**
+     * Liefert für jeden User Anzahl und Summe seiner Sterne (direkt aus ratings, nicht aus den
+     * denormalisierten Spalten) -> Startwerte für das In-Memory Leaderboard.
+     *
+     * @return Anzahl User oder -1 bei SQL-Fehler
+     */
+    public long forEachUserRatingStats(UserStatsHandler handler) {
+        String sql =
+                "SELECT u.id, u.username, COUNT(r.id) AS total, COALESCE(SUM(r.stars), 0) AS star_sum " +
+                        "FROM users u LEFT JOIN ratings r ON r.user_id = u.id " +
+                        "GROUP BY u.id, u.username";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            long count = 0;
+            while (rs.next()) {
+                handler.accept(rs.getInt("id"), rs.getString("username"),
+                        rs.getInt("total"), rs.getLong("star_sum"));
+                count++;
+            }
+            return count;
+
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Laden der User-Statistiken: " + e.getMessage());
+            return -1;
+        }
+    }
 
     /**
      * Löscht einen User per ID.
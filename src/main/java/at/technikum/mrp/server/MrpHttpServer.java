@@ -1,11 +1,14 @@
 package at.technikum.mrp.server;
 
 import at.technikum.mrp.controller.AuthController;
+import at.technikum.mrp.controller.BatchController;
 import at.technikum.mrp.controller.FavoritesController;
 import at.technikum.mrp.controller.LeaderboardController;
 import at.technikum.mrp.controller.MediaController;
+import at.technikum.mrp.controller.MetricsController;
 import at.technikum.mrp.controller.RatingController;
 import at.technikum.mrp.controller.UserController;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
@@ -19,6 +22,7 @@ import java.util.concurrent.Executors;
  */
 public class MrpHttpServer {
     private final HttpServer server;
+    private final BatchController batchController;
 
     public MrpHttpServer(
             int port,
@@ -27,34 +31,51 @@ public class MrpHttpServer {
             RatingController ratingController,
             FavoritesController favoritesController,
             UserController userController,
-            LeaderboardController leaderboardController
+            LeaderboardController leaderboardController,
+            MetricsController metricsController,
+            BatchController batchController
     ) throws IOException {
 
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.batchController = batchController;
 
         // Auth
-        server.createContext("/api/users/register", authController::handleRegister);
-        server.createContext("/api/users/login", authController::handleLogin);
+        route("/api/users/register", authController::handleRegister);
+        route("/api/users/login", authController::handleLogin);
 
         // Media (inkl. /api/media/{id}, /rate, /ratings, /favorite über Controller-Parsing)
-        server.createContext("/api/media", mediaController::handle);
+        route("/api/media", mediaController::handle);
 
         // Ratings
-        server.createContext("/api/ratings", ratingController::handle);
+        route("/api/ratings", ratingController::handle);
 
         // Favorites list (GET /api/users/favorites)
-        server.createContext("/api/users/favorites", favoritesController::handle);
+        route("/api/users/favorites", favoritesController::handle);
 
         // User profile, history, recommendations (GET/PUT /api/users/{username}/profile etc.)
-        server.createContext("/api/users", userController::handle);
+        route("/api/users", userController::handle);
 
         // Leaderboard
-        server.createContext("/api/leaderboard", leaderboardController::handle);
+        route("/api/leaderboard", leaderboardController::handle);
+
+        // Metrics (Kennzahlen der In-Memory Komponenten)
+        route("/api/metrics", metricsController::handle);
+
+        // Batch (Teil-Requests laufen über die oben registrierten Routen, selbst nicht im Batch erreichbar)
+        server.createContext("/api/batch", batchController::handle);
 
         // Threadpool
         server.setExecutor(Executors.newFixedThreadPool(16));
     }
 
+    /**
+     * Registriert die Route beim HttpServer und für POST /api/batch.
+     */
+    private void route(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+        batchController.register(path, handler);
+    }
+
     public void start() {
         server.start();
         System.out.println("✓ HTTP Server läuft");
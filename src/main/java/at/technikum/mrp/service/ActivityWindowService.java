@@ -0,0 +1,120 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.SlidingWindowCounter;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Aktivität in gleitenden Zeitfenstern (24h / 7d), komplett im Speicher:
+ * - pro User: neue minus gelöschte Ratings (-> Leaderboard ?window=)
+ * - pro Media: neue Ratings + neue Favoriten, wieder jeweils minus gelöschte (-> /api/media/trending)
+ * Löschungen werden im aktuellen Bucket abgezogen, damit rate -> delete -> rate nicht jedes Mal +1 bringt.
+ * Gezählt wird in Ringpuffern aus Stunden-Buckets (SlidingWindowCounter), gefüttert über die Listener.
+ * Beim Start werden die letzten 7 Tage einmalig aus der DB geladen, danach wird ratings nie mehr
+ * nach Zeitstempel abgefragt.
+ */
+public class ActivityWindowService implements RatingListener, FavoritesListener, MediaListener {
+
+    public static final String WINDOW_24H = "24h";
+    public static final String WINDOW_7D = "7d";
+
+    private static final long BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_BUCKETS = 7 * 24;
+
+    private final RatingRepository ratingRepository;
+    private final FavoritesRepository favoritesRepository;
+    private final LongSupplier clock;
+
+    private final SlidingWindowCounter userRatings = new SlidingWindowCounter(MAX_BUCKETS, BUCKET_MILLIS);
+    private final SlidingWindowCounter mediaActivity = new SlidingWindowCounter(MAX_BUCKETS, BUCKET_MILLIS);
+
+    public ActivityWindowService(RatingRepository ratingRepository, FavoritesRepository favoritesRepository) {
+        this(ratingRepository, favoritesRepository, System::currentTimeMillis);
+    }
+
+    public ActivityWindowService(RatingRepository ratingRepository,
+                                 FavoritesRepository favoritesRepository,
+                                 LongSupplier clock) {
+        this.ratingRepository = ratingRepository;
+        this.favoritesRepository = favoritesRepository;
+        this.clock = clock;
+    }
+
+    /**
+     * Lädt Ratings/Favoriten der letzten 7 Tage in die Zähler (einmal beim Start).
+     *
+     * @return Anzahl geladener Ereignisse oder -1 bei DB-Fehler
+     */
+    public long rebuild() {
+        Timestamp since = new Timestamp(clock.getAsLong() - MAX_BUCKETS * BUCKET_MILLIS);
+
+        long ratings = ratingRepository.forEachRatingSince(since, (userId, mediaId, at) -> {
+            userRatings.add(userId, at, 1);
+            mediaActivity.add(mediaId, at, 1);
+        });
+        if (ratings < 0) return -1;
+
+        long favorites = favoritesRepository.forEachFavoriteSince(since,
+                (userId, mediaId, at) -> mediaActivity.add(mediaId, at, 1));
+        if (favorites < 0) return -1;
+
+        return ratings + favorites;
+    }
+
+    /**
+     * "24h" / "7d" -> Anzahl Stunden-Buckets.
+     */
+    public static int parseWindow(String window) {
+        if (WINDOW_24H.equalsIgnoreCase(window)) return 24;
+        if (WINDOW_7D.equalsIgnoreCase(window)) return MAX_BUCKETS;
+        throw ApiException.badRequest("window muss '24h' oder '7d' sein");
+    }
+
+    /**
+     * User mit den meisten neuen Ratings im Fenster (netto, User mit 0 oder weniger fallen weg).
+     */
+    public List<SlidingWindowCounter.Count> topUsers(String window, int limit) {
+        return userRatings.top(clock.getAsLong(), parseWindow(window), limit);
+    }
+
+    /**
+     * Media mit der meisten Aktivität (Ratings + Favoriten) im Fenster.
+     */
+    public List<SlidingWindowCounter.Count> topMedia(String window, int limit) {
+        return mediaActivity.top(clock.getAsLong(), parseWindow(window), limit);
+    }
+
+    @Override
+    public void onRatingChanged(int userId, int mediaId, int oldStars, int newStars) {
+        // neues Rating +1, gelöschtes -1; Änderungen der Sterne sind keine neue Aktivität
+        int delta;
+        if (oldStars == 0 && newStars != 0) delta = 1;
+        else if (oldStars != 0 && newStars == 0) delta = -1;
+        else return;
+
+        long now = clock.getAsLong();
+        userRatings.add(userId, now, delta);
+        mediaActivity.add(mediaId, now, delta);
+    }
+
+    @Override
+    public void onFavoriteAdded(int userId, int mediaId) {
+        mediaActivity.add(mediaId, clock.getAsLong(), 1);
+    }
+
+    @Override
+    public void onFavoriteRemoved(int userId, int mediaId) {
+        mediaActivity.add(mediaId, clock.getAsLong(), -1);
+    }
+
+    @Override
+    public void onMediaDeleted(int mediaId) {
+        mediaActivity.remove(mediaId);
+    }
+}
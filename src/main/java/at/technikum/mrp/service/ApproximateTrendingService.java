@@ -0,0 +1,228 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.CountMinSketch;
+import at.technikum.mrp.util.SlidingWindowCounter;
+import at.technikum.mrp.util.SpaceSaving;
+import at.technikum.mrp.util.TopK;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Ungefähres Trending (?mode=approx) mit fixem Speicher, unabhängig von der Anzahl Media:
+ * - pro Stunden-Bucket ein Count-Min Sketch (Häufigkeit jeder Media-ID) und eine Space-Saving Liste
+ *   (die häufigsten IDs dieses Buckets)
+ * - Top-K im Fenster: Kandidaten = Vereinigung der Space-Saving Listen, Score = Summe der Sketch-Schätzungen
+ *
+ * Fehler pro Bucket: höchstens epsilon * (Ereignisse im Bucket) zu viel, nie zu wenig.
+ * Ist das Speicherbudget kleiner als für epsilon nötig, wird die Breite gekappt (effektives epsilon in /api/metrics).
+ */
+public class ApproximateTrendingService implements RatingListener, FavoritesListener {
+
+    private static final long BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int BUCKETS = 7 * 24;
+
+    private final RatingRepository ratingRepository;
+    private final FavoritesRepository favoritesRepository;
+    private final LongSupplier clock;
+    private final int heavyHitters;
+
+    private final Bucket[] ring = new Bucket[BUCKETS];
+
+    public ApproximateTrendingService(RatingRepository ratingRepository,
+                                      FavoritesRepository favoritesRepository,
+                                      double epsilon,
+                                      double delta,
+                                      int memoryBudgetKb,
+                                      int heavyHitters) {
+        this(ratingRepository, favoritesRepository, epsilon, delta, memoryBudgetKb, heavyHitters,
+                System::currentTimeMillis);
+    }
+
+    public ApproximateTrendingService(RatingRepository ratingRepository,
+                                      FavoritesRepository favoritesRepository,
+                                      double epsilon,
+                                      double delta,
+                                      int memoryBudgetKb,
+                                      int heavyHitters,
+                                      LongSupplier clock) {
+        this.ratingRepository = ratingRepository;
+        this.favoritesRepository = favoritesRepository;
+        this.clock = clock;
+        this.heavyHitters = Math.max(1, heavyHitters);
+
+        int depth = CountMinSketch.depthFor(delta);
+        long budgetInts = (long) memoryBudgetKb * 1024 / Integer.BYTES;
+        int maxWidth = (int) Math.max(1, budgetInts / ((long) depth * BUCKETS));
+        int width = Math.min(CountMinSketch.widthFor(epsilon), maxWidth);
+
+        for (int i = 0; i < BUCKETS; i++) {
+            ring[i] = new Bucket(new CountMinSketch(width, depth, 7L), new SpaceSaving(this.heavyHitters));
+        }
+    }
+
+    /**
+     * Lädt Ratings/Favoriten der letzten 7 Tage in die Sketches (einmal beim Start).
+     *
+     * @return Anzahl geladener Ereignisse oder -1 bei DB-Fehler
+     */
+    public long rebuild() {
+        Timestamp since = new Timestamp(clock.getAsLong() - BUCKETS * BUCKET_MILLIS);
+
+        long ratings = ratingRepository.forEachRatingSince(since, (userId, mediaId, at) -> add(mediaId, at));
+        if (ratings < 0) return -1;
+
+        long favorites = favoritesRepository.forEachFavoriteSince(since, (userId, mediaId, at) -> add(mediaId, at));
+        if (favorites < 0) return -1;
+
+        return ratings + favorites;
+    }
+
+    /**
+     * Ungefähre Top-Media im Fenster ("24h" / "7d").
+     * Kein Lock über die ganze Berechnung: jeder Bucket wird einzeln und nur kurz gesperrt
+     * (Kandidaten kopieren, dann ihre Schätzungen aufsummieren), add() wartet also höchstens auf einen Bucket.
+     */
+    public List<SlidingWindowCounter.Count> top(String window, int limit) {
+        int windowBuckets = ActivityWindowService.parseWindow(window);
+        if (limit <= 0) return List.of();
+
+        long now = clock.getAsLong() / BUCKET_MILLIS;
+
+        Set<Integer> candidates = new HashSet<>();
+        for (long b = now - windowBuckets + 1; b <= now; b++) {
+            Bucket bucket = ring[slot(b)];
+            synchronized (bucket) {
+                if (bucket.index != b) continue;
+                for (int id : bucket.heavyHitters.ids()) candidates.add(id);
+            }
+        }
+        if (candidates.isEmpty()) return List.of();
+
+        int[] ids = new int[candidates.size()];
+        int n = 0;
+        for (int id : candidates) ids[n++] = id;
+
+        int[] counts = new int[ids.length];
+        for (long b = now - windowBuckets + 1; b <= now; b++) {
+            Bucket bucket = ring[slot(b)];
+            synchronized (bucket) {
+                if (bucket.index != b) continue;
+                for (int i = 0; i < ids.length; i++) counts[i] += bucket.sketch.estimate(ids[i]);
+            }
+        }
+
+        // höchstens so viele wie Heavy-Hitter-Kandidaten
+        int capacity = Math.min(limit, ids.length);
+        int[] topIds = new int[capacity];
+        float[] topScores = new float[capacity];
+        int size = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (counts[i] > 0) size = TopK.insert(topIds, topScores, size, ids[i], counts[i]);
+        }
+
+        List<SlidingWindowCounter.Count> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            out.add(new SlidingWindowCounter.Count(topIds[i], (int) topScores[i]));
+        }
+        return out;
+    }
+
+    /**
+     * Geschätzte Anzahl Ereignisse eines Media im Fenster (nie kleiner als der echte Wert).
+     */
+    public int estimate(int mediaId, String window) {
+        long now = clock.getAsLong() / BUCKET_MILLIS;
+        int windowBuckets = ActivityWindowService.parseWindow(window);
+
+        int sum = 0;
+        for (long b = now - windowBuckets + 1; b <= now; b++) {
+            Bucket bucket = ring[slot(b)];
+            synchronized (bucket) {
+                if (bucket.index == b) sum += bucket.sketch.estimate(mediaId);
+            }
+        }
+        return sum;
+    }
+
+    public Map<String, Object> getMetrics() {
+        CountMinSketch any = ring[0].sketch;
+
+        long bytes = 0;
+        long events = 0;
+        long now = clock.getAsLong() / BUCKET_MILLIS;
+        for (Bucket b : ring) {
+            synchronized (b) {
+                bytes += b.sketch.memoryBytes() + b.heavyHitters.memoryBytes();
+                if (b.index > now - BUCKETS) events += b.sketch.getTotal();
+            }
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("buckets", BUCKETS);
+        out.put("width", any.getWidth());
+        out.put("depth", any.getDepth());
+        out.put("epsilon", Math.E / any.getWidth());
+        out.put("delta", Math.exp(-any.getDepth()));
+        out.put("heavyHitters", heavyHitters);
+        out.put("memoryBytes", bytes);
+        out.put("events7d", events);
+        return out;
+    }
+
+    @Override
+    public void onRatingChanged(int userId, int mediaId, int oldStars, int newStars) {
+        // nur neue Ratings zählen (wie ActivityWindowService)
+        if (oldStars != 0 || newStars == 0) return;
+        add(mediaId, clock.getAsLong());
+    }
+
+    @Override
+    public void onFavoriteAdded(int userId, int mediaId) {
+        add(mediaId, clock.getAsLong());
+    }
+
+    // --- intern ---
+
+    // sperrt nur den betroffenen Bucket (Lesende in anderen Buckets stören nicht)
+    private void add(int mediaId, long atMillis) {
+        long index = atMillis / BUCKET_MILLIS;
+        Bucket b = ring[slot(index)];
+
+        synchronized (b) {
+            if (b.index != index) {
+                if (b.index > index) return; // älter als das Fenster
+                b.sketch.clear();
+                b.heavyHitters.clear();
+                b.index = index;
+            }
+            b.sketch.add(mediaId, 1);
+            b.heavyHitters.offer(mediaId, 1);
+        }
+    }
+
+    private static int slot(long index) {
+        return (int) Math.floorMod(index, (long) BUCKETS);
+    }
+
+    // alle Felder nur unter synchronized (bucket) lesen/schreiben
+    private static final class Bucket {
+        final CountMinSketch sketch;
+        final SpaceSaving heavyHitters;
+        long index = Long.MIN_VALUE;
+
+        Bucket(CountMinSketch sketch, SpaceSaving heavyHitters) {
+            this.sketch = sketch;
+            this.heavyHitters = heavyHitters;
+        }
+    }
+}
@@ -7,6 +7,9 @@ import at.technikum.mrp.repository.UserRepository;
 import at.technikum.mrp.util.ApiException;
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Business-Logik für Registrierung und Login.
  * Controller macht nur HTTP/JSON, Service macht Validierung + Hashing + DB-Zugriff.
@@ -16,11 +19,18 @@ public class AuthService {
     private final UserRepository userRepository;
     private final TokenService tokenService;
 
+    // Listener werden nur beim Start registriert -> CopyOnWrite passt
+    private final List<UserListener> listeners = new CopyOnWriteArrayList<>();
+
     public AuthService(UserRepository userRepository, TokenService tokenService) {
         this.userRepository = userRepository;
         this.tokenService = tokenService;
     }
 
+    public void addListener(UserListener listener) {
+        listeners.add(listener);
+    }
+
     /**
      * Registriert einen neuen User.
      * - Validiert Input
@@ -51,6 +61,15 @@ public class AuthService {
 
         User saved = userRepository.save(toSave);
         if (saved == null) throw new ApiException(500, "User konnte nicht gespeichert werden");
+
+        // Fehler in einem Listener dürfen die Registrierung nicht kaputt machen (DB ist schon geschrieben)
+        for (UserListener l : listeners) {
+            try {
+                l.onUserRegistered(saved);
+            } catch (RuntimeException e) {
+                System.err.println("Fehler im UserListener: " + e.getMessage());
+            }
+        }
         return saved;
     }
 
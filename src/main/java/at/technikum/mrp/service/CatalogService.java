@@ -0,0 +1,144 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.repository.MediaRepository;
+import at.technikum.mrp.repository.RatingRepository;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Facetten für die Media-Liste (Anzahl pro Genre / Typ / Jahr / Altersfreigabe zum aktuellen Filter)
+ * aus dem spaltenorientierten MediaCatalog statt je einem GROUP BY pro Facette.
+ * Optional auch die Liste selbst (GET /api/media ohne Postgres, siehe catalog.inmemory.enabled).
+ *
+ * Aufbau einmal beim Start (Media + Ratings), danach inkrementell über MediaListener und RatingListener.
+ */
+public class CatalogService implements MediaListener, RatingListener {
+
+    private final MediaRepository mediaRepository;
+    private final RatingRepository ratingRepository;
+
+    private MediaCatalog catalog = new MediaCatalog();
+    // erst nach dem ersten erfolgreichen rebuild() vollständig, vorher muss die Liste aus der DB kommen
+    private volatile boolean ready;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public CatalogService(MediaRepository mediaRepository, RatingRepository ratingRepository) {
+        this.mediaRepository = mediaRepository;
+        this.ratingRepository = ratingRepository;
+    }
+
+    /**
+     * Lädt alle Media und die Sterne aller Ratings (für den Score) aus der DB.
+     *
+     * @return Anzahl Media oder -1 bei DB-Fehler (alter Stand bleibt dann erhalten)
+     */
+    public long rebuild() {
+        MediaCatalog newCatalog = new MediaCatalog();
+
+        long count = mediaRepository.forEachMedia(newCatalog::put);
+        if (count < 0) return -1;
+
+        long ratings = ratingRepository.forEachRating(
+                (userId, mediaId, stars) -> newCatalog.applyRating(mediaId, 0, stars));
+        if (ratings < 0) return -1;
+        newCatalog.buildSortIndexes();
+
+        lock.writeLock().lock();
+        try {
+            catalog = newCatalog;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return count;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Gefilterte und sortierte Liste wie MediaRepository.findFiltered, komplett aus dem Speicher.
+     */
+    public List<Media> list(String title,
+                            String genre,
+                            String mediaType,
+                            Integer releaseYear,
+                            Integer ageRestriction,
+                            Double minRating,
+                            String sortBy) {
+        lock.readLock().lock();
+        try {
+            BitSet rows = catalog.filter(title, genre, mediaType, releaseYear, ageRestriction, minRating);
+            return catalog.list(rows, sortBy);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Facetten für dieselben Filter wie GET /api/media (ein Filter-Durchlauf, ein Zähl-Durchlauf).
+     */
+    public MediaCatalog.Facets facets(String title,
+                                      String genre,
+                                      String mediaType,
+                                      Integer releaseYear,
+                                      Integer ageRestriction,
+                                      Double minRating) {
+        lock.readLock().lock();
+        try {
+            BitSet rows = catalog.filter(title, genre, mediaType, releaseYear, ageRestriction, minRating);
+            return catalog.facets(rows);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("media", catalog.size());
+            out.put("servesList", ready);
+            out.put("memoryBytes", catalog.memoryBytes());
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onMediaSaved(Media media) {
+        lock.writeLock().lock();
+        try {
+            catalog.put(media);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onMediaDeleted(int mediaId) {
+        lock.writeLock().lock();
+        try {
+            catalog.remove(mediaId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRatingChanged(int userId, int mediaId, int oldStars, int newStars) {
+        lock.writeLock().lock();
+        try {
+            catalog.applyRating(mediaId, oldStars, newStars);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Item-Item Collaborative Filtering ("wer X gut fand, fand auch Y gut").
+ * - Beim Start wird aus der ratings-Tabelle eine dünn besetzte Ähnlichkeitsmatrix gebaut.
+ *   Pro Media werden nur die Top-N Nachbarn gehalten (int[] IDs + float[] Ähnlichkeiten).
+ * - Neue/geänderte/gelöschte Ratings kommen über RatingListener rein und aktualisieren
+ *   nur die betroffene Zeile (+ die Einträge in den Nachbarlisten der Co-Media).
+ * - Empfehlung = Merge der Nachbarlisten aller Media, die der User gut bewertet hat.
+ *
+ * Ähnlichkeit: Kosinus über (stars - 3), also auf die Skalenmitte zentriert
+ * (1 Stern und 5 Sterne sind dadurch "gegensätzlich"), gedämpft bei wenigen gemeinsamen Bewertern.
+ */
+public class CollaborativeFilteringService implements RatingListener {
+
+    // Skalenmitte: 3 Sterne = neutral
+    private static final int MIDPOINT = 3;
+
+    // Shrinkage: sim * n / (n + SHRINK) -> 1-2 gemeinsame Bewerter zählen weniger
+    private static final float SHRINK = 5f;
+
+    private final RatingRepository ratingRepository;
+    private final int maxNeighbours;
+
+    // userId -> (mediaId -> stars), mediaId -> Bewerter + Nachbarliste
+    private final Map<Integer, SparseRow> userRows = new HashMap<>();
+    private final Map<Integer, ItemState> items = new HashMap<>();
+
+    // Viele parallele Leser (Empfehlungen), wenige Schreiber (Ratings)
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public CollaborativeFilteringService(RatingRepository ratingRepository, int maxNeighbours) {
+        this.ratingRepository = ratingRepository;
+        this.maxNeighbours = Math.max(1, maxNeighbours);
+    }
+
+    /**
+     * Baut alles neu aus der DB auf (einmal beim Start).
+     * Bei einem DB-Fehler bleibt der alte Stand erhalten.
+     *
+     * @return Anzahl geladener Ratings oder -1 bei Fehler
+     */
+    public long rebuild() {
+        Map<Integer, SparseRow> newUsers = new HashMap<>();
+        Map<Integer, ItemState> newItems = new HashMap<>();
+
+        long rows = ratingRepository.forEachRating((userId, mediaId, stars) -> {
+            newUsers.computeIfAbsent(userId, k -> new SparseRow()).put(mediaId, stars);
+            newItems.computeIfAbsent(mediaId, k -> new ItemState(maxNeighbours)).addRater(userId, stars);
+        });
+        if (rows < 0) return -1;
+
+        lock.writeLock().lock();
+        try {
+            userRows.clear();
+            userRows.putAll(newUsers);
+            items.clear();
+            items.putAll(newItems);
+
+            for (Integer mediaId : items.keySet()) {
+                computeRow(mediaId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return rows;
+    }
+
+    @Override
+    public void onRatingSaved(int userId, int mediaId, int stars) {
+        lock.writeLock().lock();
+        try {
+            SparseRow userRow = userRows.computeIfAbsent(userId, k -> new SparseRow());
+            userRow.put(mediaId, stars);
+            items.computeIfAbsent(mediaId, k -> new ItemState(maxNeighbours)).addRater(userId, stars);
+
+            refresh(mediaId, userRow);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRatingDeleted(int userId, int mediaId) {
+        lock.writeLock().lock();
+        try {
+            SparseRow userRow = userRows.get(userId);
+            ItemState item = items.get(mediaId);
+            if (userRow == null || item == null) return;
+
+            userRow.remove(mediaId);
+            item.removeRater(userId);
+
+            refresh(mediaId, userRow);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empfehlungen für einen User: Nachbarn aller Media mit stars >= minStars,
+     * gewichtet mit (stars - 3) * Ähnlichkeit. Bereits bewertete Media werden ausgelassen.
+     */
+    public List<RecommendationCandidate> recommend(int userId, int minStars, int limit) {
+        if (limit <= 0) return List.of();
+
+        recomputeDirtyRows(userId, minStars);
+
+        lock.readLock().lock();
+        try {
+            SparseRow userRow = userRows.get(userId);
+            if (userRow == null || userRow.size == 0) return List.of();
+
+            // mediaId -> aufsummierter Score (float[1], damit nicht bei jedem += neu geboxt wird)
+            Map<Integer, float[]> scores = new HashMap<>();
+
+            for (int k = 0; k < userRow.size; k++) {
+                int stars = userRow.values[k];
+                if (stars < minStars) continue;
+
+                ItemState item = items.get(userRow.ids[k]);
+                if (item == null) continue;
+
+                float weight = stars - MIDPOINT;
+                for (int n = 0; n < item.neighbourCount; n++) {
+                    int candidate = item.neighbourIds[n];
+                    if (userRow.get(candidate) > 0) continue; // schon bewertet
+
+                    scores.computeIfAbsent(candidate, c -> new float[1])[0] += weight * item.neighbourSims[n];
+                }
+            }
+
+            // nie größer als die Zahl der Kandidaten, auch wenn ein Aufrufer ein riesiges limit übergibt
+            int k = Math.min(limit, scores.size());
+            int[] topIds = new int[k];
+            float[] topScores = new float[k];
+            int size = 0;
+            for (Map.Entry<Integer, float[]> e : scores.entrySet()) {
+                float score = e.getValue()[0];
+                if (score > 0) size = TopK.insert(topIds, topScores, size, e.getKey(), score);
+            }
+
+            List<RecommendationCandidate> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                out.add(new RecommendationCandidate(topIds[i], topScores[i]));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aktuelle Nachbarliste eines Media (höchste Ähnlichkeit zuerst).
+     */
+    public List<RecommendationCandidate> getNeighbours(int mediaId) {
+        lock.readLock().lock();
+        try {
+            ItemState item = items.get(mediaId);
+            if (item == null) return List.of();
+
+            List<RecommendationCandidate> out = new ArrayList<>(item.neighbourCount);
+            for (int n = 0; n < item.neighbourCount; n++) {
+                out.add(new RecommendationCandidate(item.neighbourIds[n], item.neighbourSims[n]));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Anzahl Media, für die es Bewertungen gibt (für Logging beim Start).
+     */
+    public int getItemCount() {
+        lock.readLock().lock();
+        try {
+            return items.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- interne Logik (nur unter Write-Lock aufrufen) ---
+
+    /**
+     * Zeile mediaId neu berechnen und die Ähnlichkeit in die Listen aller Co-Media spiegeln.
+     * userRow = Zeile des Users, der gerade geschrieben hat (deren Media verlieren evtl. den letzten Co-Rater).
+     */
+    private void refresh(int mediaId, SparseRow userRow) {
+        Map<Integer, Float> sims = computeRow(mediaId);
+
+        for (Map.Entry<Integer, Float> e : sims.entrySet()) {
+            updateNeighbour(e.getKey(), mediaId, e.getValue());
+        }
+
+        // nach einem Delete gibt es evtl. keinen gemeinsamen Bewerter mehr -> Eintrag entfernen
+        for (int k = 0; k < userRow.size; k++) {
+            int other = userRow.ids[k];
+            if (other != mediaId && !sims.containsKey(other)) {
+                updateNeighbour(other, mediaId, 0f);
+            }
+        }
+    }
+
+    /**
+     * Berechnet alle Ähnlichkeiten von mediaId zu Media mit mindestens einem gemeinsamen Bewerter
+     * und setzt daraus die Top-N Nachbarliste.
+     *
+     * @return alle Co-Media mit ihrer (evtl. <= 0) Ähnlichkeit
+     */
+    private Map<Integer, Float> computeRow(int mediaId) {
+        ItemState item = items.get(mediaId);
+        Map<Integer, Float> result = new HashMap<>();
+        if (item == null) return result;
+
+        // otherId -> {dot, coCount}
+        Map<Integer, float[]> acc = new HashMap<>();
+        SparseRow raters = item.raters;
+
+        for (int k = 0; k < raters.size; k++) {
+            SparseRow userRow = userRows.get(raters.ids[k]);
+            if (userRow == null) continue;
+
+            int centered = raters.values[k] - MIDPOINT;
+            for (int m = 0; m < userRow.size; m++) {
+                int other = userRow.ids[m];
+                if (other == mediaId) continue;
+
+                float[] a = acc.computeIfAbsent(other, o -> new float[2]);
+                a[0] += centered * (userRow.values[m] - MIDPOINT);
+                a[1] += 1;
+            }
+        }
+
+        int positive = 0;
+        item.neighbourCount = 0;
+        for (Map.Entry<Integer, float[]> e : acc.entrySet()) {
+            ItemState other = items.get(e.getKey());
+            float sim = 0f;
+            if (other != null && item.normSq > 0 && other.normSq > 0) {
+                float dot = e.getValue()[0];
+                float coCount = e.getValue()[1];
+                sim = (float) (dot / Math.sqrt((double) item.normSq * other.normSq)) * (coCount / (coCount + SHRINK));
+            }
+            result.put(e.getKey(), sim);
+
+            if (sim > 0) {
+                positive++;
+                item.neighbourCount = TopK.insert(item.neighbourIds, item.neighbourSims, item.neighbourCount, e.getKey(), sim);
+            }
+        }
+
+        item.truncated = positive > maxNeighbours;
+        item.dirty = false;
+        return result;
+    }
+
+    /**
+     * Setzt die Ähnlichkeit von neighbourId in der Liste von mediaId.
+     * Wenn ein Eintrag schlechter wird und die Liste abgeschnitten war, könnte ein vorher
+     * verworfener Kandidat jetzt besser sein -> Zeile als dirty markieren (wird beim Lesen neu berechnet).
+     */
+    private void updateNeighbour(int mediaId, int neighbourId, float sim) {
+        ItemState item = items.get(mediaId);
+        if (item == null) return;
+
+        int pos = -1;
+        for (int n = 0; n < item.neighbourCount; n++) {
+            if (item.neighbourIds[n] == neighbourId) {
+                pos = n;
+                break;
+            }
+        }
+
+        if (pos >= 0) {
+            float old = item.neighbourSims[pos];
+            System.arraycopy(item.neighbourIds, pos + 1, item.neighbourIds, pos, item.neighbourCount - pos - 1);
+            System.arraycopy(item.neighbourSims, pos + 1, item.neighbourSims, pos, item.neighbourCount - pos - 1);
+            item.neighbourCount--;
+
+            if (sim < old && item.truncated) item.dirty = true;
+        }
+
+        if (sim > 0) {
+            boolean wasFull = item.neighbourCount == maxNeighbours;
+            item.neighbourCount = TopK.insert(item.neighbourIds, item.neighbourSims, item.neighbourCount, neighbourId, sim);
+            if (wasFull) item.truncated = true;
+        }
+    }
+
+    /**
+     * Dirty-Zeilen der gut bewerteten Media eines Users vor dem Lesen neu berechnen.
+     */
+    private void recomputeDirtyRows(int userId, int minStars) {
+        List<Integer> dirty = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            SparseRow userRow = userRows.get(userId);
+            if (userRow == null) return;
+
+            for (int k = 0; k < userRow.size; k++) {
+                if (userRow.values[k] < minStars) continue;
+                ItemState item = items.get(userRow.ids[k]);
+                if (item != null && item.dirty) dirty.add(userRow.ids[k]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (dirty.isEmpty()) return;
+
+        lock.writeLock().lock();
+        try {
+            for (Integer mediaId : dirty) {
+                ItemState item = items.get(mediaId);
+                if (item != null && item.dirty) computeRow(mediaId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Zustand pro Media: wer hat bewertet (+ Norm) und die aktuelle Top-N Nachbarliste.
+     */
+    private static class ItemState {
+        final SparseRow raters = new SparseRow();
+        int normSq;                 // Summe (stars - 3)^2 -> bleibt exakt, weil nur ganze Zahlen
+        final int[] neighbourIds;
+        final float[] neighbourSims;
+        int neighbourCount;
+        boolean truncated;          // es gab mehr positive Kandidaten als Platz in der Liste
+        boolean dirty;              // Liste evtl. nicht mehr exakt -> vor dem Lesen neu berechnen
+
+        ItemState(int maxNeighbours) {
+            this.neighbourIds = new int[maxNeighbours];
+            this.neighbourSims = new float[maxNeighbours];
+        }
+
+        void addRater(int userId, int stars) {
+            int old = raters.put(userId, stars);
+            if (old > 0) normSq -= square(old - MIDPOINT);
+            normSq += square(stars - MIDPOINT);
+        }
+
+        void removeRater(int userId) {
+            int old = raters.remove(userId);
+            if (old > 0) normSq -= square(old - MIDPOINT);
+        }
+
+        private static int square(int v) {
+            return v * v;
+        }
+    }
+
+    /**
+     * Sortierte, dünn besetzte Zeile (id -> stars) auf primitiven Arrays.
+     * 0 heißt "nicht vorhanden" (stars sind immer 1..5).
+     */
+    private static class SparseRow {
+        int[] ids = new int[4];
+        byte[] values = new byte[4];
+        int size;
+
+        int get(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            return pos >= 0 ? values[pos] : 0;
+        }
+
+        /**
+         * @return alter Wert oder 0 wenn neu
+         */
+        int put(int id, int value) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                int old = values[pos];
+                values[pos] = (byte) value;
+                return old;
+            }
+
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            ids[pos] = id;
+            values[pos] = (byte) value;
+            size++;
+            return 0;
+        }
+
+        /**
+         * @return entfernter Wert oder 0 wenn nicht vorhanden
+         */
+        int remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return 0;
+
+            int old = values[pos];
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+            size--;
+            return old;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.dto.MediaResponse;
+import at.technikum.mrp.dto.RatingHistoryResponse;
+import at.technikum.mrp.dto.UserProfileResponse;
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.model.Rating;
+import at.technikum.mrp.model.User;
+import at.technikum.mrp.util.ApiException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * GET /api/users/{username}/dashboard: Profil, letzte Ratings, Favoriten und Empfehlungen in einer Antwort.
+ * Der User ist vom Controller schon aufgelöst (ein findByUsername, ein Token-Check), die Abschnitte
+ * laufen parallel auf dem Executor und teilen sich eine Deadline.
+ *
+ * Was bis zur Deadline nicht fertig ist oder fehlschlägt, kommt als null zurück und steht unter "errors"
+ * (Abschnitt -> {status, message}); die anderen Abschnitte werden trotzdem ausgeliefert.
+ *
+ * cancel() auf dem Future unterbricht keinen laufenden JDBC-Aufruf. Die Abfragen der Abschnitte Ratings und
+ * Favoriten bekommen deshalb die Deadline als Query-Timeout mit und geben ihren Thread spätestens dann frei.
+ * Die Empfehlungen laufen über mehrere geteilte Queries ohne Timeout; ein abgelaufener Empfehlungs-Abschnitt
+ * belegt seinen Pool-Thread bis zum Ende (sichtbar als "sectionsRunning", in dashboard.threads einrechnen).
+ */
+public class DashboardService {
+
+    public static final String SECTION_PROFILE = "profile";
+    public static final String SECTION_RATINGS = "recentRatings";
+    public static final String SECTION_FAVORITES = "favorites";
+    public static final String SECTION_RECOMMENDATIONS = "recommendations";
+
+    private final RatingService ratingService;
+    private final MediaService mediaService;
+    private final FavoritesService favoritesService;
+    private final RecommendationService recommendationService;
+    private final Executor executor;
+    private final long timeoutMillis;
+    // Query-Timeout für die Abschnitts-Abfragen: Deadline auf ganze Sekunden aufgerundet (JDBC kann nur Sekunden)
+    private final int queryTimeoutSeconds;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong partial = new AtomicLong();
+    private final AtomicLong sectionTimeouts = new AtomicLong();
+    private final AtomicLong sectionFailures = new AtomicLong();
+    // Abschnitte, die gerade einen Pool-Thread belegen (auch solche, deren Deadline schon abgelaufen ist)
+    private final AtomicLong sectionsRunning = new AtomicLong();
+
+    public DashboardService(RatingService ratingService,
+                            MediaService mediaService,
+                            FavoritesService favoritesService,
+                            RecommendationService recommendationService,
+                            Executor executor,
+                            long timeoutMillis) {
+        this.ratingService = ratingService;
+        this.mediaService = mediaService;
+        this.favoritesService = favoritesService;
+        this.recommendationService = recommendationService;
+        this.executor = executor;
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        this.queryTimeoutSeconds = (int) Math.max(1, (this.timeoutMillis + 999) / 1000);
+    }
+
+    /**
+     * Baut das Dashboard. limit gilt pro Liste (Ratings, Favoriten, Empfehlungen).
+     */
+    public Map<String, Object> build(User user, int limit) {
+        requests.incrementAndGet();
+        int userId = user.getId();
+
+        // alle Abschnitte starten, bevor auf den ersten gewartet wird
+        Map<String, CompletableFuture<Object>> sections = new LinkedHashMap<>();
+        sections.put(SECTION_PROFILE, CompletableFuture.completedFuture(UserProfileResponse.from(user)));
+        sections.put(SECTION_RATINGS, async(() -> recentRatings(userId, limit)));
+        sections.put(SECTION_FAVORITES, async(() -> favorites(userId, limit)));
+        sections.put(SECTION_RECOMMENDATIONS, async(() -> recommendationService.recommendForUser(userId, limit)));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        Map<String, Object> errors = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<Object>> e : sections.entrySet()) {
+            CompletableFuture<Object> f = e.getValue();
+            Object value = null;
+            try {
+                value = f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                f.cancel(true);
+                sectionTimeouts.incrementAndGet();
+                errors.put(e.getKey(), error(504, "Zeitlimit überschritten"));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                errors.put(e.getKey(), error(503, "Abgebrochen"));
+            } catch (ExecutionException ex) {
+                sectionFailures.incrementAndGet();
+                if (ex.getCause() instanceof ApiException api) {
+                    errors.put(e.getKey(), error(api.getStatus(), api.getMessage()));
+                } else {
+                    errors.put(e.getKey(), error(500, "Internal Server Error"));
+                }
+            }
+            out.put(e.getKey(), value);
+        }
+
+        if (!errors.isEmpty()) {
+            partial.incrementAndGet();
+            out.put("errors", errors);
+        }
+        return out;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("requests", requests.get());
+        m.put("partial", partial.get());
+        m.put("sectionTimeouts", sectionTimeouts.get());
+        m.put("sectionFailures", sectionFailures.get());
+        m.put("sectionsRunning", sectionsRunning.get());
+        return m;
+    }
+
+    private CompletableFuture<Object> async(Supplier<Object> section) {
+        return CompletableFuture.supplyAsync(() -> {
+            sectionsRunning.incrementAndGet();
+            try {
+                return section.get();
+            } finally {
+                sectionsRunning.decrementAndGet();
+            }
+        }, executor);
+    }
+
+    /**
+     * Letzte Ratings mit Media-Titel: eine Query mit LIMIT + ein findByIds für alle Titel (statt getById pro Rating).
+     */
+    private List<RatingHistoryResponse> recentRatings(int userId, int limit) {
+        List<Rating> ratings = ratingService.listRecentByUserId(userId, limit, queryTimeoutSeconds);
+
+        List<Integer> mediaIds = new ArrayList<>(ratings.size());
+        for (Rating r : ratings) mediaIds.add(r.getMediaId());
+
+        Map<Integer, String> titleById = new HashMap<>();
+        if (!mediaIds.isEmpty()) {
+            for (Media m : mediaService.getByIds(mediaIds, queryTimeoutSeconds)) titleById.put(m.getId(), m.getTitle());
+        }
+
+        List<RatingHistoryResponse> out = new ArrayList<>(ratings.size());
+        for (Rating r : ratings) {
+            out.add(RatingHistoryResponse.from(r, titleById.get(r.getMediaId())));
+        }
+        return out;
+    }
+
+    /**
+     * Neueste Favoriten: LIMIT in der DB, nicht die ganze Favoritenliste laden und kürzen.
+     */
+    private List<MediaResponse> favorites(int userId, int limit) {
+        List<Media> favs = favoritesService.listRecentFavorites(userId, limit, queryTimeoutSeconds);
+
+        List<MediaResponse> out = new ArrayList<>(favs.size());
+        for (Media m : favs) {
+            out.add(MediaResponse.from(m));
+        }
+        return out;
+    }
+
+    private static Map<String, Object> error(int status, String message) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("status", status);
+        m.put("message", message);
+        return m;
+    }
+}
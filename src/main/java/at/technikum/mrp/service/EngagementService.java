@@ -0,0 +1,291 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.MediaEngagementRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * "N verschiedene User haben sich diese Woche mit dem Titel beschäftigt" ohne COUNT(DISTINCT user_id):
+ * - pro Media und Tag (UTC) je ein HyperLogLog für Bewerter und für Favorisierer
+ * - beliebige Zeiträume = Merge der Tages-Sketches
+ * - Pflege bei jedem Write über die Listener, Speichern als bytea in media_engagement (Write-Behind,
+ *   alle paar Sekunden + beim Herunterfahren)
+ * - im Speicher liegen nur die letzten retentionDays Tage, ältere Tage werden bei Bedarf aus der DB gelesen
+ */
+public class EngagementService implements RatingListener, FavoritesListener, MediaListener {
+
+    // 2^10 Register = 1 KB pro Sketch, Standardfehler ca. 3%
+    private static final int PRECISION = 10;
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final MediaEngagementRepository engagementRepository;
+    private final RatingRepository ratingRepository;
+    private final FavoritesRepository favoritesRepository;
+    private final int retentionDays;
+    private final long flushIntervalSeconds;
+    private final LongSupplier clock;
+
+    // Schlüssel = mediaId (obere 32 Bit) + Tag seit 1970 (untere 32 Bit)
+    private final Map<Long, DaySketch> sketches = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    // Kennzahlen (für /api/metrics)
+    private volatile int flushes;
+    private volatile int failedFlushes;
+    private volatile int lastFlushRows;
+
+    public EngagementService(MediaEngagementRepository engagementRepository,
+                             RatingRepository ratingRepository,
+                             FavoritesRepository favoritesRepository,
+                             int retentionDays,
+                             long flushIntervalSeconds) {
+        this(engagementRepository, ratingRepository, favoritesRepository, retentionDays, flushIntervalSeconds,
+                System::currentTimeMillis);
+    }
+
+    public EngagementService(MediaEngagementRepository engagementRepository,
+                             RatingRepository ratingRepository,
+                             FavoritesRepository favoritesRepository,
+                             int retentionDays,
+                             long flushIntervalSeconds,
+                             LongSupplier clock) {
+        this.engagementRepository = engagementRepository;
+        this.ratingRepository = ratingRepository;
+        this.favoritesRepository = favoritesRepository;
+        this.retentionDays = Math.max(1, retentionDays);
+        this.flushIntervalSeconds = Math.max(1, flushIntervalSeconds);
+        this.clock = clock;
+    }
+
+    /**
+     * Lädt die Sketches der letzten retentionDays Tage. Ist die Tabelle noch leer (erster Start),
+     * werden sie einmalig aus ratings/favorites aufgebaut und beim nächsten Flush gespeichert.
+     *
+     * @return Anzahl Tages-Sketches im Speicher oder -1 bei DB-Fehler
+     */
+    public long rebuild() {
+        long today = today();
+        LocalDate from = LocalDate.ofEpochDay(today - retentionDays + 1);
+
+        long loaded = engagementRepository.forEachSince(from, (mediaId, day, raters, favoriters) ->
+                sketches.put(key(mediaId, day.toEpochDay()),
+                        new DaySketch(HyperLogLog.fromBytes(raters), HyperLogLog.fromBytes(favoriters))));
+        if (loaded < 0) return -1;
+
+        if (loaded == 0) {
+            Timestamp since = new Timestamp(from.toEpochDay() * DAY_MILLIS);
+            long ratings = ratingRepository.forEachRatingSince(since,
+                    (userId, mediaId, at) -> record(mediaId, at / DAY_MILLIS, userId, true));
+            long favorites = favoritesRepository.forEachFavoriteSince(since,
+                    (userId, mediaId, at) -> record(mediaId, at / DAY_MILLIS, userId, false));
+            if (ratings < 0 || favorites < 0) return -1;
+        }
+        return sketches.size();
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "engagement-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalSeconds, flushIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stoppt den Scheduler und speichert alle geänderten Sketches (beim Herunterfahren).
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        flush();
+    }
+
+    /**
+     * Geschätzte Anzahl verschiedener Bewerter / Favorisierer / User insgesamt in den letzten days Tagen.
+     */
+    public Map<String, Object> estimate(int mediaId, int days) {
+        long today = today();
+        long from = today - Math.max(1, days) + 1;
+        long memoryFrom = today - retentionDays + 1;
+
+        HyperLogLog raters = new HyperLogLog(PRECISION);
+        HyperLogLog favoriters = new HyperLogLog(PRECISION);
+
+        for (long day = Math.max(from, memoryFrom); day <= today; day++) {
+            DaySketch s = sketches.get(key(mediaId, day));
+            if (s == null) continue;
+            synchronized (s) {
+                raters.merge(s.raters);
+                favoriters.merge(s.favoriters);
+            }
+        }
+
+        // ältere Tage liegen nur noch in der DB (ein Query über den Primärschlüssel)
+        if (from < memoryFrom) {
+            engagementRepository.forEachOfMedia(mediaId, LocalDate.ofEpochDay(from),
+                    LocalDate.ofEpochDay(memoryFrom - 1), (id, day, r, f) -> {
+                        raters.merge(HyperLogLog.fromBytes(r));
+                        favoriters.merge(HyperLogLog.fromBytes(f));
+                    });
+        }
+
+        HyperLogLog users = raters.copy();
+        users.merge(favoriters);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("mediaId", mediaId);
+        out.put("days", Math.max(1, days));
+        out.put("uniqueRaters", raters.estimate());
+        out.put("uniqueFavoriters", favoriters.estimate());
+        out.put("uniqueUsers", users.estimate());
+        return out;
+    }
+
+    /**
+     * Speichert alle seit dem letzten Flush geänderten Sketches und wirft abgelaufene Tage aus dem Speicher.
+     *
+     * @return Anzahl geschriebener Zeilen
+     */
+    public synchronized int flush() {
+        List<Long> keys = new ArrayList<>(dirty);
+        List<MediaEngagementRepository.SketchRow> rows = new ArrayList<>(keys.size());
+
+        for (Long key : keys) {
+            // vor dem Kopieren entfernen: Änderungen danach markieren den Sketch wieder als dirty
+            dirty.remove(key);
+            DaySketch s = sketches.get(key);
+            if (s == null) continue;
+
+            synchronized (s) {
+                rows.add(new MediaEngagementRepository.SketchRow(mediaIdOf(key), LocalDate.ofEpochDay(dayOf(key)),
+                        s.raters.toBytes(), s.favoriters.toBytes()));
+            }
+        }
+
+        if (!rows.isEmpty() && !engagementRepository.upsertAll(rows)) {
+            dirty.addAll(keys);
+            failedFlushes++;
+            return 0;
+        }
+
+        // abgelaufene Tage sind gespeichert -> aus dem Speicher nehmen
+        long memoryFrom = today() - retentionDays + 1;
+        sketches.keySet().removeIf(k -> dayOf(k) < memoryFrom && !dirty.contains(k));
+
+        if (!rows.isEmpty()) {
+            flushes++;
+            lastFlushRows = rows.size();
+        }
+        return rows.size();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("retentionDays", retentionDays);
+        out.put("sketches", sketches.size());
+        out.put("memoryBytes", (long) sketches.size() * 2 * (1 << PRECISION));
+        out.put("dirty", dirty.size());
+        out.put("flushes", flushes);
+        out.put("failedFlushes", failedFlushes);
+        out.put("lastFlushRows", lastFlushRows);
+        return out;
+    }
+
+    @Override
+    public void onRatingChanged(int userId, int mediaId, int oldStars, int newStars) {
+        // neues oder geändertes Rating = Beschäftigung mit dem Titel an diesem Tag
+        if (newStars == 0) return;
+        record(mediaId, today(), userId, true);
+    }
+
+    @Override
+    public void onFavoriteAdded(int userId, int mediaId) {
+        record(mediaId, today(), userId, false);
+    }
+
+    @Override
+    public void onMediaDeleted(int mediaId) {
+        // Zeilen in der DB verschwinden per ON DELETE CASCADE
+        sketches.keySet().removeIf(k -> mediaIdOf(k) == mediaId);
+        dirty.removeIf(k -> mediaIdOf(k) == mediaId);
+    }
+
+    // --- intern ---
+
+    private void record(int mediaId, long day, int userId, boolean rater) {
+        if (day < today() - retentionDays + 1) return;
+
+        long key = key(mediaId, day);
+        DaySketch s = sketches.computeIfAbsent(key,
+                k -> new DaySketch(new HyperLogLog(PRECISION), new HyperLogLog(PRECISION)));
+
+        boolean changed;
+        synchronized (s) {
+            changed = rater ? s.raters.add(userId) : s.favoriters.add(userId);
+        }
+        // nur speichern, wenn sich ein Register geändert hat (wiederkehrende User ändern meist nichts)
+        if (changed) dirty.add(key);
+    }
+
+    private long today() {
+        return Math.floorDiv(clock.getAsLong(), DAY_MILLIS);
+    }
+
+    private static long key(int mediaId, long day) {
+        return ((long) mediaId << 32) | (day & 0xffffffffL);
+    }
+
+    private static int mediaIdOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static long dayOf(long key) {
+        return key & 0xffffffffL;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Scheduler darf nicht sterben, sonst wird nie wieder gespeichert
+            System.err.println("Fehler beim Speichern der Engagement-Sketches: " + e.getMessage());
+        }
+    }
+
+    private static final class DaySketch {
+        final HyperLogLog raters;
+        final HyperLogLog favoriters;
+
+        DaySketch(HyperLogLog raters, HyperLogLog favoriters) {
+            this.raters = raters;
+            this.favoriters = favoriters;
+        }
+    }
+}
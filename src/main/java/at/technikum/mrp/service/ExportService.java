@@ -0,0 +1,90 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.dto.MediaResponse;
+import at.technikum.mrp.dto.RatingHistoryResponse;
+import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.JsonUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GET /api/users/{username}/export: alle Ratings und Favoriten eines Users als NDJSON (ein JSON-Objekt pro Zeile).
+ * Die Zeilen kommen über einen Cursor aus der DB und werden sofort in den Stream geschrieben,
+ * der Speicher bleibt also gleich, egal wie lang die History ist.
+ *
+ * {"type":"rating","data":{...}}              wie ein Eintrag aus GET /api/users/{username}/ratings
+ * {"type":"favorite","data":{...}}            wie GET /api/media/{id}
+ * {"type":"end","ratings":n,"favorites":m}    letzte Zeile; fehlt sie, ist der Export unvollständig
+ */
+public class ExportService {
+
+    private static final byte[] RATING_PREFIX = "{\"type\":\"rating\",\"data\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FAVORITE_PREFIX = "{\"type\":\"favorite\",\"data\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LINE_END = "}\n".getBytes(StandardCharsets.UTF_8);
+
+    private final RatingRepository ratingRepository;
+    private final FavoritesRepository favoritesRepository;
+
+    private final AtomicLong exports = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public record Result(long ratings, long favorites) {}
+
+    public ExportService(RatingRepository ratingRepository, FavoritesRepository favoritesRepository) {
+        this.ratingRepository = ratingRepository;
+        this.favoritesRepository = favoritesRepository;
+    }
+
+    /**
+     * Schreibt den Export nach out (wird nicht geschlossen).
+     * SQLException/IOException mitten im Export: was bis dahin geschrieben wurde bleibt, die "end"-Zeile fehlt.
+     */
+    public Result export(int userId, OutputStream out) throws IOException, SQLException {
+        exports.incrementAndGet();
+        try {
+            long ratings = ratingRepository.forEachRatingOfUser(userId, (rating, mediaTitle) -> {
+                // eigener Export -> Kommentar immer dabei (auch unconfirmed), wie in der History
+                writeLine(out, RATING_PREFIX, JsonUtil.RATING_HISTORY_WRITER.writeValueAsBytes(
+                        RatingHistoryResponse.from(rating, mediaTitle)));
+            });
+            long favorites = favoritesRepository.forEachFavoriteOfUser(userId, media ->
+                    writeLine(out, FAVORITE_PREFIX, JsonUtil.MEDIA_WRITER.writeValueAsBytes(MediaResponse.from(media))));
+
+            Map<String, Object> end = new LinkedHashMap<>();
+            end.put("type", "end");
+            end.put("ratings", ratings);
+            end.put("favorites", favorites);
+            out.write(JsonUtil.MAPPER.writeValueAsBytes(end));
+            out.write('\n');
+
+            rows.addAndGet(ratings + favorites);
+            return new Result(ratings, favorites);
+
+        } catch (IOException | SQLException e) {
+            failures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("exports", exports.get());
+        m.put("rows", rows.get());
+        m.put("failures", failures.get());
+        return m;
+    }
+
+    private static void writeLine(OutputStream out, byte[] prefix, byte[] data) throws IOException {
+        out.write(prefix);
+        out.write(data);
+        out.write(LINE_END);
+    }
+}
@@ -0,0 +1,18 @@
+package at.technikum.mrp.service;
+
+/**
+ * Callback für Favoriten-Änderungen.
+ * FavoritesService ruft die Listener nach erfolgreichem DB-Write auf.
+ */
+public interface FavoritesListener {
+
+    /**
+     * Media wurde als Favorit markiert.
+     */
+    default void onFavoriteAdded(int userId, int mediaId) {}
+
+    /**
+     * Favorit wurde entfernt.
+     */
+    default void onFavoriteRemoved(int userId, int mediaId) {}
+}
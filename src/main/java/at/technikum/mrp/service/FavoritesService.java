@@ -6,17 +6,28 @@ import at.technikum.mrp.repository.MediaRepository;
 import at.technikum.mrp.util.ApiException;
 
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class FavoritesService {
 
     private final FavoritesRepository favoritesRepository;
     private final MediaRepository mediaRepository;
 
+    // Listener werden nur beim Start registriert, aber bei jedem Write gelesen -> CopyOnWrite passt
+    private final List<FavoritesListener> listeners = new CopyOnWriteArrayList<>();
+
     public FavoritesService(FavoritesRepository favoritesRepository, MediaRepository mediaRepository) {
         this.favoritesRepository = favoritesRepository;
         this.mediaRepository = mediaRepository;
     }
 
+    /**
+     * Registriert einen Listener, der über neue/entfernte Favoriten informiert wird.
+     */
+    public void addListener(FavoritesListener listener) {
+        listeners.add(listener);
+    }
+
     public void addFavorite(int userId, int mediaId) {
         // Media muss existieren (saubere API)
         mediaRepository.findById(mediaId)
@@ -26,6 +37,14 @@ public class FavoritesService {
         if (!ok) {
             throw ApiException.conflict("Dieses Media ist bereits als Favorit markiert");
         }
+
+        for (FavoritesListener l : listeners) {
+            try {
+                l.onFavoriteAdded(userId, mediaId);
+            } catch (RuntimeException e) {
+                System.err.println("Fehler im FavoritesListener: " + e.getMessage());
+            }
+        }
     }
 
     public void removeFavorite(int userId, int mediaId) {
@@ -37,9 +56,24 @@ public class FavoritesService {
         if (!ok) {
             throw ApiException.notFound("Dieses Media ist nicht in deinen Favoriten");
         }
+
+        for (FavoritesListener l : listeners) {
+            try {
+                l.onFavoriteRemoved(userId, mediaId);
+            } catch (RuntimeException e) {
+                System.err.println("Fehler im FavoritesListener: " + e.getMessage());
+            }
+        }
     }
 
     public List<Media> listFavorites(int userId) {
         return favoritesRepository.findFavoritesByUserId(userId);
     }
+
+    /**
+     * Nur die neuesten limit Favoriten (LIMIT in der DB), mit Query-Timeout in Sekunden (0 = kein Limit).
+     */
+    public List<Media> listRecentFavorites(int userId, int limit, int queryTimeoutSeconds) {
+        return favoritesRepository.findRecentFavoritesOfUser(userId, limit, queryTimeoutSeconds);
+    }
 }
@@ -0,0 +1,396 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.ImportRepository;
+import at.technikum.mrp.repository.ImportRepository.Kind;
+import at.technikum.mrp.util.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bulk-Import von Media oder Ratings aus NDJSON- oder CSV-Dateien (statt MediaRepository.save Zeile für Zeile).
+ *
+ * Ein Parser-Thread liest die Datei, macht aus jedem Datensatz eine Zeile im COPY-Textformat und legt
+ * Blöcke von chunkRows Zeilen in eine Queue mit queueChunks Plätzen. Ist die Queue voll, wartet der Parser,
+ * bis COPY wieder einen Block abgeholt hat -> Speicher bleibt begrenzt, egal wie groß die Datei ist.
+ * Validierung, Übernahme und Neuberechnung der Aggregate macht ImportRepository in einer Transaktion.
+ *
+ * Feldnamen wie in der API: NDJSON {"title":..,"mediaType":..,"genres":["Action"]} bzw.
+ * {"mediaId":..,"userId":..,"stars":..}; CSV mit Kopfzeile, Spaltennamen camelCase oder snake_case.
+ */
+public class ImportService {
+
+    public enum Format {
+        NDJSON, CSV;
+
+        /**
+         * Format aus der Dateiendung, null wenn unbekannt.
+         */
+        public static Format fromFileName(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".csv")) return CSV;
+            if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) return NDJSON;
+            return null;
+        }
+    }
+
+    // Feldnamen in der Datei, gleiche Reihenfolge wie ImportRepository.columns(kind)
+    private static final Map<Kind, List<String>> FIELDS = Map.of(
+            Kind.MEDIA, List.of("title", "description", "mediaType", "releaseYear", "genres", "ageRestriction", "creatorId"),
+            Kind.RATINGS, List.of("mediaId", "userId", "stars", "comment", "confirmed"));
+
+    // so viele nicht lesbare Zeilen werden im Bericht einzeln genannt
+    private static final int MAX_ERROR_SAMPLES = 10;
+
+    /**
+     * rowsRead = Datensätze in der Datei, parseErrors = davon nicht lesbar (nicht kopiert),
+     * rejected = von der Validierung abgelehnt (Grund -> Anzahl), skipped = gültig, aber schon vorhanden
+     * oder doppelt in der Datei.
+     */
+    public record Report(Kind kind,
+                         long rowsRead,
+                         long parseErrors,
+                         List<String> parseErrorSamples,
+                         long copied,
+                         long inserted,
+                         Map<String, Long> rejected,
+                         long skipped,
+                         long millis) {
+
+        public double rowsPerSecond() {
+            return millis <= 0 ? rowsRead : rowsRead * 1000.0 / millis;
+        }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "Import %s: %d Zeilen in %.1f s (%.0f Zeilen/s)%n",
+                    kind.name().toLowerCase(Locale.ROOT), rowsRead, millis / 1000.0, rowsPerSecond()));
+            sb.append(String.format("  übernommen: %d, übersprungen (schon vorhanden/doppelt): %d%n", inserted, skipped));
+            if (parseErrors > 0) {
+                sb.append(String.format("  nicht lesbar: %d%n", parseErrors));
+                for (String s : parseErrorSamples) sb.append("    ").append(s).append(System.lineSeparator());
+            }
+            for (Map.Entry<String, Long> e : rejected.entrySet()) {
+                sb.append(String.format("  abgelehnt (%s): %d%n", e.getKey(), e.getValue()));
+            }
+            return sb.toString();
+        }
+    }
+
+    // ein fertiger COPY-Block
+    private record Chunk(byte[] data, int rows) {}
+
+    private static final Chunk END = new Chunk(new byte[0], 0);
+
+    private final ImportRepository repository;
+    private final int chunkRows;
+    private final int queueChunks;
+
+    public ImportService(ImportRepository repository, int chunkRows, int queueChunks) {
+        this.repository = repository;
+        this.chunkRows = Math.max(1, chunkRows);
+        this.queueChunks = Math.max(1, queueChunks);
+    }
+
+    /**
+     * Importiert eine Datei, Format aus der Endung (.csv, .ndjson, .jsonl).
+     */
+    public Report importFile(Kind kind, Path file) throws IOException, SQLException {
+        Format format = Format.fromFileName(file.getFileName().toString());
+        if (format == null) {
+            throw new IllegalArgumentException("Unbekanntes Format (erwartet .csv, .ndjson oder .jsonl): " + file);
+        }
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(kind, format, in);
+        }
+    }
+
+    public Report importFrom(Kind kind, Format format, Reader reader) throws IOException, SQLException {
+        long start = System.nanoTime();
+
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueChunks);
+        Parser parser = new Parser(kind, format, reader instanceof BufferedReader b ? b : new BufferedReader(reader), queue);
+        Thread parserThread = new Thread(parser, "import-parser");
+        parserThread.setDaemon(true);
+        parserThread.start();
+
+        ImportRepository.Result result;
+        try {
+            result = repository.copyAndMerge(kind, new QueueIterator(queue, parser, start));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            // bei Abbruch wartet der Parser evtl. noch auf einen freien Platz in der Queue
+            parserThread.interrupt();
+            try {
+                parserThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long rejected = 0;
+        for (long n : result.rejected().values()) rejected += n;
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        return new Report(kind, parser.rowsRead, parser.parseErrors, List.copyOf(parser.errorSamples),
+                result.copied(), result.inserted(), result.rejected(),
+                Math.max(0, result.copied() - rejected - result.inserted()), millis);
+    }
+
+    /**
+     * Liest die Datei und füllt die Queue. Lesefehler beenden den Import (über END + failure),
+     * einzelne kaputte Datensätze werden nur gezählt.
+     */
+    private final class Parser implements Runnable {
+        private final Kind kind;
+        private final Format format;
+        private final BufferedReader in;
+        private final BlockingQueue<Chunk> queue;
+
+        // nach join() bzw. nach END in der Queue sichtbar
+        private volatile long rowsRead;
+        private volatile long parseErrors;
+        private final List<String> errorSamples = new ArrayList<>();
+        private volatile IOException failure;
+
+        Parser(Kind kind, Format format, BufferedReader in, BlockingQueue<Chunk> queue) {
+            this.kind = kind;
+            this.format = format;
+            this.in = in;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            try {
+                parse();
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                // COPY abgebrochen, niemand holt mehr ab
+                return;
+            }
+            try {
+                queue.put(END);
+            } catch (InterruptedException ignored) {
+                // COPY abgebrochen
+            }
+        }
+
+        private void parse() throws IOException, InterruptedException {
+            List<String> fields = FIELDS.get(kind);
+            int[] csvIndex = null;
+
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            int rowsInChunk = 0;
+            long lineNo = 0;
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+
+                if (format == Format.CSV && csvIndex == null) {
+                    csvIndex = headerIndex(parseCsvLine(line), fields);
+                    continue;
+                }
+
+                rowsRead++;
+                String[] values;
+                try {
+                    values = format == Format.CSV ? csvValues(parseCsvLine(line), csvIndex) : jsonValues(line, fields);
+                } catch (IllegalArgumentException | IOException e) {
+                    parseErrors++;
+                    if (errorSamples.size() < MAX_ERROR_SAMPLES) errorSamples.add("Zeile " + lineNo + ": " + e.getMessage());
+                    continue;
+                }
+
+                chunk.writeBytes(toCopyRow(values).getBytes(StandardCharsets.UTF_8));
+                if (++rowsInChunk >= chunkRows) {
+                    queue.put(new Chunk(chunk.toByteArray(), rowsInChunk));
+                    chunk.reset();
+                    rowsInChunk = 0;
+                }
+            }
+            if (rowsInChunk > 0) queue.put(new Chunk(chunk.toByteArray(), rowsInChunk));
+        }
+    }
+
+    /**
+     * Holt die Blöcke für COPY aus der Queue (blockiert, bis der Parser den nächsten fertig hat)
+     * und gibt pro Block den Fortschritt aus. END kommt auch nach einem Lesefehler (damit COPY nicht
+     * ewig wartet), der wird hier zur Exception -> Rollback im Repository.
+     */
+    private static final class QueueIterator implements Iterator<byte[]> {
+        private final BlockingQueue<Chunk> queue;
+        private final Parser parser;
+        private final long start;
+        private Chunk next;
+        private long rows;
+
+        QueueIterator(BlockingQueue<Chunk> queue, Parser parser, long start) {
+            this.queue = queue;
+            this.parser = parser;
+            this.start = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Import abgebrochen", e);
+                }
+            }
+            if (next == END && parser.failure != null) throw new UncheckedIOException(parser.failure);
+            return next != END;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Chunk c = next;
+            next = null;
+
+            rows += c.rows();
+            double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+            System.out.printf(Locale.ROOT, "  ... %d Zeilen kopiert (%.0f Zeilen/s)%n", rows, rows / seconds);
+            return c.data();
+        }
+    }
+
+    /**
+     * Eine Zeile im COPY-Textformat: Tab-getrennt, \N für null, Backslash und Steuerzeichen escaped.
+     */
+    static String toCopyRow(String[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append('\t');
+            String v = values[i];
+            if (v == null) {
+                sb.append("\\N");
+                continue;
+            }
+            for (int k = 0; k < v.length(); k++) {
+                char c = v.charAt(k);
+                switch (c) {
+                    case '\\' -> sb.append("\\\\");
+                    case '\t' -> sb.append("\\t");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    default -> sb.append(c);
+                }
+            }
+        }
+        return sb.append('\n').toString();
+    }
+
+    /**
+     * Werte eines NDJSON-Objekts in Spaltenreihenfolge. Arrays (genres) werden zu "a,b,c" wie in MediaRepository.
+     */
+    static String[] jsonValues(String line, List<String> fields) throws IOException {
+        JsonNode node = JsonUtil.MAPPER.readTree(line);
+        if (node == null || !node.isObject()) throw new IllegalArgumentException("kein JSON-Objekt");
+
+        String[] out = new String[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            JsonNode v = node.get(fields.get(i));
+            if (v == null || v.isNull()) continue;
+            if (v.isArray()) {
+                List<String> parts = new ArrayList<>(v.size());
+                for (JsonNode p : v) parts.add(p.asText());
+                out[i] = String.join(",", parts);
+            } else if (v.isContainerNode()) {
+                throw new IllegalArgumentException(fields.get(i) + " darf kein Objekt sein");
+            } else {
+                out[i] = v.asText();
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Position jedes Felds in der CSV-Kopfzeile (-1 = Spalte fehlt -> null).
+     * "media_type", "mediaType" und "MediaType" zählen als gleich.
+     */
+    static int[] headerIndex(List<String> header, List<String> fields) {
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) byName.putIfAbsent(normalize(header.get(i)), i);
+
+        int[] index = new int[fields.size()];
+        for (int i = 0; i < fields.size(); i++) index[i] = byName.getOrDefault(normalize(fields.get(i)), -1);
+        return index;
+    }
+
+    private static String normalize(String name) {
+        return name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String[] csvValues(List<String> row, int[] index) {
+        String[] out = new String[index.length];
+        for (int i = 0; i < index.length; i++) {
+            out[i] = index[i] >= 0 && index[i] < row.size() ? row.get(index[i]) : null;
+        }
+        return out;
+    }
+
+    /**
+     * Eine CSV-Zeile (RFC 4180, Trennzeichen Komma). Leeres Feld ohne Anführungszeichen -> null,
+     * "" -> leerer String, "" innerhalb von Anführungszeichen -> ". Zeilenumbrüche in Feldern werden
+     * nicht unterstützt (ein Datensatz pro Zeile).
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> out = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                out.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Anführungszeichen nicht geschlossen");
+        out.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+        return out;
+    }
+}
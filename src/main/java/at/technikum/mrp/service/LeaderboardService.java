@@ -0,0 +1,230 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.User;
+import at.technikum.mrp.repository.UserRepository;
+import at.technikum.mrp.util.OrderStatisticTree;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Leaderboard im Speicher statt "ORDER BY total_ratings DESC, average_rating DESC, username" über die ganze users-Tabelle.
+ * - beim Start einmal aus der DB geladen, danach bei jedem Rating-Write über RatingListener angepasst
+ * - neu registrierte User kommen über UserListener mit 0 Ratings dazu (wie früher: alle User, ohne Ratings ganz unten)
+ * - Top-N = die ersten N Elemente des sortierten Baums, "mein Rang" = Rang-Abfrage in O(log n)
+ *
+ * Reihenfolge wie bisher: meiste Ratings, dann höchster Durchschnitt (2 Nachkommastellen wie DECIMAL(3,2)),
+ * dann Username.
+ */
+public class LeaderboardService implements RatingListener, UserListener {
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt((Entry e) -> -e.totalRatings)
+            .thenComparingInt(e -> -e.averageCents())
+            .thenComparing(e -> e.username)
+            .thenComparingInt(e -> e.userId);
+
+    private final UserRepository userRepository;
+
+    private Map<Integer, Entry> byUser = new HashMap<>();
+    private OrderStatisticTree<Entry> ranking = new OrderStatisticTree<>(ORDER);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public LeaderboardService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Lädt alle User mit ihren Rating-Summen aus der DB (einmal beim Start).
+     *
+     * @return Anzahl User oder -1 bei DB-Fehler (alter Stand bleibt dann erhalten)
+     */
+    public long rebuild() {
+        Map<Integer, Entry> newByUser = new HashMap<>();
+        OrderStatisticTree<Entry> newRanking = new OrderStatisticTree<>(ORDER);
+
+        long count = userRepository.forEachUserRatingStats((userId, username, total, starSum) -> {
+            Entry e = new Entry(userId, username, total, starSum);
+            newByUser.put(userId, e);
+            newRanking.add(e);
+        });
+        if (count < 0) return -1;
+
+        lock.writeLock().lock();
+        try {
+            byUser = newByUser;
+            ranking = newRanking;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return count;
+    }
+
+    /**
+     * Top-N, gleiche Felder wie früher aus der DB (+ rank).
+     */
+    public List<Map<String, Object>> top(int limit) {
+        lock.readLock().lock();
+        try {
+            List<Map<String, Object>> out = new ArrayList<>();
+            int rank = 1;
+            for (Entry e : ranking.first(limit)) {
+                out.add(toJson(e, rank++));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Platz eines Users (1 = erster) inkl. seiner Werte und der Gesamtanzahl.
+     * User, die seit dem Start neu registriert wurden, werden beim ersten Zugriff nachgeladen.
+     */
+    public Optional<Map<String, Object>> rankOf(int userId) {
+        lock.readLock().lock();
+        try {
+            Entry e = byUser.get(userId);
+            if (e != null) return Optional.of(rankJson(e));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Optional<User> user = userRepository.findById(userId);
+        if (user.isEmpty()) return Optional.empty();
+
+        lock.writeLock().lock();
+        try {
+            Entry e = byUser.get(userId);
+            if (e == null) {
+                e = new Entry(userId, user.get().getUsername(), 0, 0);
+                put(e);
+            }
+            return Optional.of(rankJson(e));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Username aus dem Speicher (für das Zeitfenster-Leaderboard), null wenn unbekannt.
+     */
+    public String usernameOf(int userId) {
+        lock.readLock().lock();
+        try {
+            Entry e = byUser.get(userId);
+            return e == null ? null : e.username;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byUser.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRatingChanged(int userId, int mediaId, int oldStars, int newStars) {
+        // Username nachladen, falls der User seit dem Start neu ist (außerhalb des Locks)
+        String username = null;
+        if (!known(userId)) {
+            username = userRepository.findById(userId).map(User::getUsername).orElse(null);
+            if (username == null) return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Entry old = byUser.get(userId);
+            if (old == null) old = new Entry(userId, username, 0, 0);
+            else ranking.remove(old);
+
+            int total = old.totalRatings + (newStars > 0 ? 1 : 0) - (oldStars > 0 ? 1 : 0);
+            long sum = old.starSum + newStars - oldStars;
+            put(new Entry(userId, old.username, total, sum));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onUserRegistered(User user) {
+        if (user.getId() == null) return;
+
+        lock.writeLock().lock();
+        try {
+            // ein Rating-Event kann schneller gewesen sein
+            if (!byUser.containsKey(user.getId())) {
+                put(new Entry(user.getId(), user.getUsername(), 0, 0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- intern ---
+
+    private boolean known(int userId) {
+        lock.readLock().lock();
+        try {
+            return byUser.containsKey(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // nur mit Write-Lock aufrufen
+    private void put(Entry e) {
+        byUser.put(e.userId, e);
+        ranking.add(e);
+    }
+
+    // nur mit Lock aufrufen
+    private Map<String, Object> rankJson(Entry e) {
+        Map<String, Object> out = toJson(e, ranking.rank(e) + 1);
+        out.put("users", ranking.size());
+        return out;
+    }
+
+    private static Map<String, Object> toJson(Entry e, int rank) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("rank", rank);
+        map.put("username", e.username);
+        map.put("totalRatings", e.totalRatings);
+        map.put("averageRating", e.averageCents() / 100.0);
+        return map;
+    }
+
+    /**
+     * Unveränderlich: bei jeder Änderung wird ein neuer Eintrag einsortiert (Sortierschlüssel darf sich im Baum nicht ändern).
+     */
+    private static final class Entry {
+        final int userId;
+        final String username;
+        final int totalRatings;
+        final long starSum;
+
+        Entry(int userId, String username, int totalRatings, long starSum) {
+            this.userId = userId;
+            this.username = username;
+            this.totalRatings = totalRatings;
+            this.starSum = starSum;
+        }
+
+        // Durchschnitt in Hundertstel, gerundet wie DECIMAL(3,2)
+        int averageCents() {
+            if (totalRatings == 0) return 0;
+            return (int) Math.round(starSum * 100.0 / totalRatings);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.RatingRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Sammelt Like-Zähler im Speicher und schreibt sie periodisch gebündelt in die DB.
+ * - pro Rating ein LongAdder (gestreifter Zähler) -> viele gleichzeitige Likes auf dasselbe Rating
+ *   blockieren sich nicht gegenseitig und sperren auch keine ratings-Zeile
+ * - flush() schreibt alle Deltas mit einem UPDATE ... FROM (VALUES ...) statt einem UPDATE pro Like
+ * - Lesende addieren pendingFor() auf likes_count aus der DB, damit noch nicht geschriebene Likes sichtbar sind.
+ *   Jeder Flush hat eine Generation, die das UPDATE in likes_flush_gen der Zeile stempelt: steht sie schon
+ *   in der gelesenen Zeile, ist der laufende Flush dort schon enthalten und wird nicht noch einmal addiert.
+ *   Niemand wartet dabei auf die DB (kein Lock über den Flush-Commit).
+ *
+ * Die Dedup-Prüfung (rating_likes) bleibt synchron in der DB, hier wird nur gezählt.
+ */
+public class LikeCounterService {
+
+    private final RatingRepository ratingRepository;
+    private final long flushIntervalMillis;
+
+    // noch nicht geschriebene Likes pro Rating
+    private final ConcurrentHashMap<Integer, Counter> pending = new ConcurrentHashMap<>();
+
+    // Wie oft readConsistent die DB-Abfrage wiederholt, wenn währenddessen ein Flush fertig wurde
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private record InFlight(long generation, Map<Integer, Long> deltas) {}
+
+    private static final InFlight NONE = new InFlight(0, Map.of());
+
+    // gerade in Arbeit befindlicher Flush (zählt für Lesende mit, bis die DB committed hat)
+    private volatile InFlight inFlight = NONE;
+
+    // Generation des nächsten Flushs. Startet bei der Uhrzeit, damit sie nicht mit Stempeln
+    // aus einem früheren Serverlauf zusammenfällt (verglichen wird nur auf Gleichheit).
+    private long nextGeneration = System.currentTimeMillis() * 1000;
+
+    // Seqlock über pending/inFlight: ungerade während flush() Zähler leert oder inFlight zurücksetzt
+    // (nur im Speicher, nie während der DB-Abfrage). Lesende wiederholen, wenn er sich geändert hat.
+    private volatile long stateSeq;
+
+    private ScheduledExecutorService scheduler;
+
+    // Kennzahlen (für /api/metrics)
+    private volatile int flushes;
+    private volatile int failedFlushes;
+    private volatile int lastFlushRows;
+    private volatile LocalDateTime lastFlushAt;
+    private final LongAdder flushedLikes = new LongAdder();
+
+    public LikeCounterService(RatingRepository ratingRepository, long flushIntervalMillis) {
+        this.ratingRepository = ratingRepository;
+        this.flushIntervalMillis = Math.max(10, flushIntervalMillis);
+    }
+
+    /**
+     * Startet das periodische Schreiben der gesammelten Likes.
+     */
+    public synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "like-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stoppt den Scheduler und schreibt alles Offene noch einmal weg (beim Herunterfahren).
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        flush();
+    }
+
+    public void increment(int ratingId) {
+        add(ratingId, 1);
+    }
+
+    /**
+     * Likes, die für dieses Rating schon gezählt, aber noch nicht in der DB sind.
+     */
+    public long pendingFor(int ratingId) {
+        return pendingFor(ratingId, null);
+    }
+
+    /**
+     * Wie oben, für eine gelesene ratings-Zeile: likesFlushGen = deren likes_flush_gen.
+     * Hat der laufende Flush die Zeile schon gestempelt, stecken seine Deltas schon in likes_count.
+     * Passt nur dann exakt zur Zeile, wenn beides innerhalb von readConsistent gelesen wird.
+     */
+    public long pendingFor(int ratingId, Long likesFlushGen) {
+        InFlight f = inFlight;
+        long sum = 0;
+        if (likesFlushGen == null || likesFlushGen != f.generation()) {
+            sum += f.deltas().getOrDefault(ratingId, 0L);
+        }
+
+        Counter c = pending.get(ratingId);
+        if (c != null) sum += c.likes.sum();
+
+        return sum;
+    }
+
+    /**
+     * Führt einen Lesezugriff (DB-Abfrage + pendingFor) aus und wiederholt ihn, falls währenddessen
+     * ein Flush Zähler geleert oder seinen Commit abgeschlossen hat (sonst fehlten diese Likes kurz).
+     * Ein Flush, der gerade in der DB schreibt, hält niemanden auf; nach MAX_READ_ATTEMPTS Versuchen
+     * (Flush-Intervall kürzer als die Abfrage) gilt das letzte Ergebnis.
+     */
+    public <T> T readConsistent(Supplier<T> read) {
+        T result = null;
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long seq = stableSeq();
+            result = read.get();
+            if (stateSeq == seq) return result;
+        }
+        return result;
+    }
+
+    /**
+     * Schreibt alle gesammelten Deltas in die DB.
+     * Schlägt das Schreiben fehl, werden die Deltas wieder auf die Zähler addiert (nichts geht verloren).
+     *
+     * @return Anzahl geschriebener Ratings (0 wenn nichts offen war oder die DB nicht erreichbar war)
+     */
+    public synchronized int flush() {
+        Map<Integer, Long> deltas = new HashMap<>();
+        long generation = nextGeneration++;
+
+        // stateSeq wird nur hier geschrieben (flush ist synchronized)
+        stateSeq++;
+        try {
+            // sumThenReset setzt jede Zelle atomar zurück -> parallele increment() gehen nicht verloren
+            for (Map.Entry<Integer, Counter> e : pending.entrySet()) {
+                Counter c = e.getValue();
+                long d = c.likes.sumThenReset();
+
+                // Zähler ohne neue Likes aus der Map nehmen, damit sie nicht unbegrenzt wächst.
+                // Erst entfernen, dann schließen, dann ein letztes Mal leeren: was danach noch
+                // auf dem alten Zähler landet, verschiebt increment() selbst auf den neuen (siehe add).
+                if (d == 0 && pending.remove(e.getKey(), c)) {
+                    c.closed = true;
+                    d = c.likes.sumThenReset();
+                }
+                if (d != 0) deltas.merge(e.getKey(), d, Long::sum);
+            }
+            inFlight = deltas.isEmpty() ? NONE : new InFlight(generation, deltas);
+        } finally {
+            stateSeq++;
+        }
+
+        if (deltas.isEmpty()) return 0;
+
+        // ohne Lock: Lesende sehen bis zum Commit alte Zeilen + inFlight, danach gestempelte Zeilen ohne inFlight
+        boolean ok;
+        try {
+            ok = ratingRepository.incrementLikeCounts(deltas, generation);
+        } catch (RuntimeException e) {
+            ok = false;
+        }
+
+        stateSeq++;
+        try {
+            if (!ok) {
+                // zurück in die Zähler, nächster Flush versucht es erneut
+                for (Map.Entry<Integer, Long> e : deltas.entrySet()) {
+                    add(e.getKey(), e.getValue());
+                }
+            }
+            inFlight = NONE;
+        } finally {
+            stateSeq++;
+        }
+
+        if (!ok) {
+            failedFlushes++;
+            return 0;
+        }
+
+        long likes = 0;
+        for (long d : deltas.values()) likes += d;
+        flushedLikes.add(likes);
+        flushes++;
+        lastFlushRows = deltas.size();
+        lastFlushAt = LocalDateTime.now();
+        return deltas.size();
+    }
+
+    public Map<String, Object> getMetrics() {
+        long pendingLikes = 0;
+        for (Counter c : pending.values()) pendingLikes += c.likes.sum();
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("flushIntervalMillis", flushIntervalMillis);
+        out.put("pendingRatings", pending.size());
+        out.put("pendingLikes", pendingLikes);
+        out.put("flushes", flushes);
+        out.put("failedFlushes", failedFlushes);
+        out.put("flushedLikes", flushedLikes.sum());
+        out.put("lastFlushRows", lastFlushRows);
+        out.put("lastFlushAt", lastFlushAt);
+        return out;
+    }
+
+    // wartet kurz, falls flush() gerade Zähler leert (nur Speicher, keine DB)
+    private long stableSeq() {
+        long seq;
+        while (((seq = stateSeq) & 1) != 0) {
+            Thread.onSpinWait();
+        }
+        return seq;
+    }
+
+    private void add(int ratingId, long n) {
+        while (true) {
+            Counter c = pending.get(ratingId);
+            if (c == null) {
+                c = pending.computeIfAbsent(ratingId, k -> new Counter());
+            }
+            c.likes.add(n);
+            if (!c.closed) return;
+
+            // Zähler wurde inzwischen vom Flush entfernt: was noch darauf liegt (eigenes Like oder das
+            // eines anderen Threads) holen und auf den aktuellen Zähler übertragen.
+            // Hat der Flush es schon mitgenommen, ist n hier 0.
+            n = c.likes.sumThenReset();
+            if (n == 0) return;
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Scheduler darf nicht sterben, sonst werden nie wieder Likes geschrieben
+            System.err.println("Fehler beim Schreiben der Like-Zähler: " + e.getMessage());
+        }
+    }
+
+    private static final class Counter {
+        // gestreifter Zähler: gleichzeitige Likes auf dasselbe Rating blockieren sich nicht
+        final LongAdder likes = new LongAdder();
+
+        // true sobald der Flush den Zähler aus "pending" entfernt hat
+        volatile boolean closed;
+    }
+}
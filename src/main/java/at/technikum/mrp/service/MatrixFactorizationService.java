@@ -0,0 +1,429 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.TopK;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latent-Factor Modell (Matrix Factorization) für personalisierte Empfehlungen.
+ * - Training läuft im Hintergrund nach Zeitplan (ALS = Alternating Least Squares)
+ * - Ratings werden per JDBC-Cursor gestreamt und direkt in primitive Arrays geschrieben (keine Rating-Objekte)
+ * - User- und Item-Faktoren werden jeweils parallel auf mehreren Kernen gelöst
+ * - Das fertige Modell wird atomar ausgetauscht -> Requests sehen immer ein vollständiges Modell
+ *
+ * Vorhersage: stars ≈ globalMean + userFactor · itemFactor
+ */
+public class MatrixFactorizationService {
+
+    private final RatingRepository ratingRepository;
+    private final int factors;
+    private final int iterations;
+    private final double lambda;
+    private final int threads;
+    private final long intervalMinutes;
+
+    private final AtomicReference<Model> model = new AtomicReference<>();
+    private final AtomicBoolean training = new AtomicBoolean(false);
+    private ScheduledExecutorService scheduler;
+
+    // Kennzahlen vom letzten Lauf (für /api/metrics)
+    private volatile int runs;
+    private volatile String lastError;
+
+    public MatrixFactorizationService(RatingRepository ratingRepository,
+                                      int factors,
+                                      int iterations,
+                                      double lambda,
+                                      int threads,
+                                      long intervalMinutes) {
+        this.ratingRepository = ratingRepository;
+        this.factors = Math.max(1, factors);
+        this.iterations = Math.max(1, iterations);
+        this.lambda = lambda;
+        this.threads = Math.max(1, threads);
+        this.intervalMinutes = Math.max(1, intervalMinutes);
+    }
+
+    /**
+     * Startet das periodische Training (erster Lauf sofort, im Hintergrund).
+     */
+    public synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mf-training");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::trainSafely, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void trainSafely() {
+        try {
+            train();
+        } catch (Exception e) {
+            // Scheduler würde bei einer Exception alle weiteren Läufe abbrechen
+            lastError = e.getMessage();
+            System.err.println("Fehler beim Training des MF-Modells: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Trainiert ein neues Modell und tauscht es bei Erfolg aus.
+     *
+     * @return false wenn schon ein Training läuft oder die Ratings nicht geladen werden konnten
+     */
+    public boolean train() throws Exception {
+        if (!training.compareAndSet(false, true)) return false;
+
+        try {
+            long start = System.nanoTime();
+
+            RatingData data = loadRatings();
+            if (data == null) {
+                lastError = "Ratings konnten nicht geladen werden";
+                return false;
+            }
+
+            Model next = fit(data);
+            next.trainingMillis = (System.nanoTime() - start) / 1_000_000;
+            next.trainedAt = LocalDateTime.now();
+
+            model.set(next);
+            runs++;
+            lastError = null;
+
+            System.out.println("✓ MF-Modell trainiert: " + data.size + " Ratings, RMSE "
+                    + String.format("%.4f", next.rmse) + ", " + next.trainingMillis + " ms");
+            return true;
+        } finally {
+            training.set(false);
+        }
+    }
+
+    /**
+     * Top-N Vorhersagen für einen User.
+     * excludedMediaIds muss aufsteigend sortiert sein (z.B. bereits bewertete Media).
+     * Leere Liste wenn noch kein Modell existiert oder der User im Modell unbekannt ist (Cold Start).
+     */
+    public List<RecommendationCandidate> recommend(int userId, int[] excludedMediaIds, int limit) {
+        Model m = model.get();
+        if (m == null || limit <= 0) return List.of();
+
+        Integer u = m.userIndex.get(userId);
+        if (u == null) return List.of();
+
+        int k = m.factors;
+        int userOffset = u * k;
+
+        // nie größer als die Zahl der Items im Modell, auch bei riesigem limit
+        int capacity = Math.min(limit, m.itemIds.length);
+        int[] topIds = new int[capacity];
+        float[] topScores = new float[capacity];
+        int size = 0;
+
+        for (int item = 0; item < m.itemIds.length; item++) {
+            int mediaId = m.itemIds[item];
+            if (Arrays.binarySearch(excludedMediaIds, mediaId) >= 0) continue;
+
+            float dot = 0f;
+            int itemOffset = item * k;
+            for (int f = 0; f < k; f++) {
+                dot += m.userFactors[userOffset + f] * m.itemFactors[itemOffset + f];
+            }
+            size = TopK.insert(topIds, topScores, size, mediaId, m.globalMean + dot);
+        }
+
+        List<RecommendationCandidate> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            out.add(new RecommendationCandidate(topIds[i], topScores[i]));
+        }
+        return out;
+    }
+
+    /**
+     * Kennzahlen für /api/metrics (Trainingszeit, RMSE, Modellgröße).
+     */
+    public Map<String, Object> getMetrics() {
+        Model m = model.get();
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("status", training.get() ? "training" : (m == null ? "notTrained" : "ready"));
+        out.put("runs", runs);
+        out.put("factors", factors);
+        out.put("iterations", iterations);
+        out.put("threads", threads);
+        if (m != null) {
+            out.put("trainedAt", m.trainedAt);
+            out.put("trainingMillis", m.trainingMillis);
+            out.put("rmse", m.rmse);
+            out.put("ratings", m.ratingCount);
+            out.put("users", m.userIndex.size());
+            out.put("media", m.itemIds.length);
+        }
+        out.put("lastError", lastError);
+        return out;
+    }
+
+    // --- Training ---
+
+    /**
+     * Streamt alle Ratings in primitive Arrays und vergibt dichte Indizes für User/Media.
+     */
+    private RatingData loadRatings() {
+        RatingData data = new RatingData();
+
+        long rows = ratingRepository.forEachRating((userId, mediaId, stars) -> {
+            int u = data.userIndex.computeIfAbsent(userId, id -> data.userIndex.size());
+            int i = data.itemIndex.computeIfAbsent(mediaId, id -> data.itemIndex.size());
+            data.add(u, i, stars);
+        });
+
+        return rows < 0 ? null : data;
+    }
+
+    private Model fit(RatingData data) throws Exception {
+        int nUsers = data.userIndex.size();
+        int nItems = data.itemIndex.size();
+        int k = factors;
+
+        double sum = 0;
+        for (int e = 0; e < data.size; e++) sum += data.stars[e];
+        float mean = data.size == 0 ? 0f : (float) (sum / data.size);
+
+        // CSR-Struktur: Ratings gruppiert nach User bzw. nach Media
+        Csr byUser = Csr.build(nUsers, data.users, data.items, data.stars, data.size);
+        Csr byItem = Csr.build(nItems, data.items, data.users, data.stars, data.size);
+
+        float[] userFactors = new float[nUsers * k];
+        float[] itemFactors = new float[nItems * k];
+        Random random = new Random(42);
+        for (int i = 0; i < itemFactors.length; i++) {
+            itemFactors[i] = (float) (random.nextGaussian() * 0.1);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "mf-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (int it = 0; it < iterations; it++) {
+                solveParallel(pool, byUser, itemFactors, userFactors, mean);
+                solveParallel(pool, byItem, userFactors, itemFactors, mean);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Trainings-RMSE
+        double sq = 0;
+        for (int e = 0; e < data.size; e++) {
+            float pred = mean;
+            int uo = data.users[e] * k;
+            int io = data.items[e] * k;
+            for (int f = 0; f < k; f++) pred += userFactors[uo + f] * itemFactors[io + f];
+            double err = data.stars[e] - pred;
+            sq += err * err;
+        }
+
+        Model m = new Model();
+        m.factors = k;
+        m.globalMean = mean;
+        m.userIndex = data.userIndex;
+        m.itemIds = new int[nItems];
+        for (Map.Entry<Integer, Integer> e : data.itemIndex.entrySet()) {
+            m.itemIds[e.getValue()] = e.getKey();
+        }
+        m.userFactors = userFactors;
+        m.itemFactors = itemFactors;
+        m.rmse = data.size == 0 ? 0.0 : Math.sqrt(sq / data.size);
+        m.ratingCount = data.size;
+        return m;
+    }
+
+    /**
+     * Ein ALS-Halbschritt: fixed bleibt fest, für jede Zeile in rows wird target neu gelöst.
+     * Zeilen sind unabhängig voneinander -> in Blöcken auf den Threadpool verteilen.
+     */
+    private void solveParallel(ExecutorService pool, Csr rows, float[] fixed, float[] target, float mean) throws Exception {
+        int chunks = threads * 4;
+        int chunkSize = Math.max(1, (rows.rowCount + chunks - 1) / chunks);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < rows.rowCount; from += chunkSize) {
+            int start = from;
+            int end = Math.min(rows.rowCount, from + chunkSize);
+            tasks.add(() -> {
+                solveRange(rows, fixed, target, mean, start, end);
+                return null;
+            });
+        }
+
+        for (Future<Void> f : pool.invokeAll(tasks)) {
+            f.get(); // Exceptions aus den Workern weiterreichen
+        }
+    }
+
+    /**
+     * Löst pro Zeile (A + lambda * n * I) x = b mit A = Σ q qᵀ, b = Σ (r - mean) q (ALS-WR).
+     */
+    private void solveRange(Csr rows, float[] fixed, float[] target, float mean, int from, int to) {
+        int k = factors;
+        double[] a = new double[k * k];
+        double[] b = new double[k];
+
+        for (int row = from; row < to; row++) {
+            int start = rows.ptr[row];
+            int end = rows.ptr[row + 1];
+            int n = end - start;
+
+            Arrays.fill(a, 0.0);
+            Arrays.fill(b, 0.0);
+
+            for (int e = start; e < end; e++) {
+                int off = rows.cols[e] * k;
+                double r = rows.vals[e] - mean;
+                for (int x = 0; x < k; x++) {
+                    double qx = fixed[off + x];
+                    b[x] += r * qx;
+                    for (int y = 0; y <= x; y++) {
+                        a[x * k + y] += qx * fixed[off + y];
+                    }
+                }
+            }
+            for (int x = 0; x < k; x++) {
+                a[x * k + x] += lambda * Math.max(1, n);
+            }
+
+            choleskySolve(a, b, k);
+
+            int out = row * k;
+            for (int x = 0; x < k; x++) target[out + x] = (float) b[x];
+        }
+    }
+
+    /**
+     * Cholesky-Zerlegung (nur unteres Dreieck von a wird gelesen) und Lösung in-place: b wird zu x.
+     * a ist durch die Regularisierung immer positiv definit.
+     */
+    private static void choleskySolve(double[] a, double[] b, int k) {
+        for (int j = 0; j < k; j++) {
+            double d = a[j * k + j];
+            for (int p = 0; p < j; p++) d -= a[j * k + p] * a[j * k + p];
+            d = Math.sqrt(Math.max(d, 1e-12));
+            a[j * k + j] = d;
+
+            for (int i = j + 1; i < k; i++) {
+                double s = a[i * k + j];
+                for (int p = 0; p < j; p++) s -= a[i * k + p] * a[j * k + p];
+                a[i * k + j] = s / d;
+            }
+        }
+        // L y = b
+        for (int i = 0; i < k; i++) {
+            double s = b[i];
+            for (int p = 0; p < i; p++) s -= a[i * k + p] * b[p];
+            b[i] = s / a[i * k + i];
+        }
+        // Lᵀ x = y
+        for (int i = k - 1; i >= 0; i--) {
+            double s = b[i];
+            for (int p = i + 1; p < k; p++) s -= a[p * k + i] * b[p];
+            b[i] = s / a[i * k + i];
+        }
+    }
+
+    /**
+     * Fertiges Modell (wird nach dem Training nicht mehr verändert).
+     */
+    private static class Model {
+        int factors;
+        float globalMean;
+        Map<Integer, Integer> userIndex;   // userId -> Zeile in userFactors
+        int[] itemIds;                     // Zeile in itemFactors -> mediaId
+        float[] userFactors;               // nUsers * factors
+        float[] itemFactors;               // nItems * factors
+        double rmse;
+        int ratingCount;
+        long trainingMillis;
+        LocalDateTime trainedAt;
+    }
+
+    /**
+     * Rohdaten aus dem Cursor als Tripel (userIdx, itemIdx, stars) in wachsenden Arrays.
+     */
+    private static class RatingData {
+        final Map<Integer, Integer> userIndex = new HashMap<>();
+        final Map<Integer, Integer> itemIndex = new HashMap<>();
+        int[] users = new int[1024];
+        int[] items = new int[1024];
+        byte[] stars = new byte[1024];
+        int size;
+
+        void add(int u, int i, int s) {
+            if (size == users.length) {
+                int cap = size * 2;
+                users = Arrays.copyOf(users, cap);
+                items = Arrays.copyOf(items, cap);
+                stars = Arrays.copyOf(stars, cap);
+            }
+            users[size] = u;
+            items[size] = i;
+            stars[size] = (byte) s;
+            size++;
+        }
+    }
+
+    /**
+     * Compressed Sparse Row: Einträge der Zeile r liegen in cols/vals[ptr[r] .. ptr[r+1]).
+     */
+    private static class Csr {
+        int rowCount;
+        int[] ptr;
+        int[] cols;
+        byte[] vals;
+
+        static Csr build(int rowCount, int[] rowIdx, int[] colIdx, byte[] values, int size) {
+            Csr c = new Csr();
+            c.rowCount = rowCount;
+            c.ptr = new int[rowCount + 1];
+            c.cols = new int[size];
+            c.vals = new byte[size];
+
+            for (int e = 0; e < size; e++) c.ptr[rowIdx[e] + 1]++;
+            for (int r = 0; r < rowCount; r++) c.ptr[r + 1] += c.ptr[r];
+
+            int[] next = Arrays.copyOf(c.ptr, rowCount);
+            for (int e = 0; e < size; e++) {
+                int pos = next[rowIdx[e]]++;
+                c.cols[pos] = colIdx[e];
+                c.vals[pos] = values[e];
+            }
+            return c;
+        }
+    }
+}
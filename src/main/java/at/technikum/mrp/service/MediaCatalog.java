@@ -0,0 +1,545 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Spaltenorientierte Kopie der media-Tabelle im Speicher:
+ * - eine Zeile pro Media, jede Spalte ein primitives Array (Jahr, Altersfreigabe, Score in Cent, Typ-Ordinal, ...),
+ *   Texte als Referenz-Spalten, Genre-Namen interniert (jeder Name nur einmal im Speicher)
+ * - pro Typ / Genre / Jahr / Altersfreigabe ein BitSet der Zeilen -> Filter = BitSet-Schnittmengen
+ * - Facetten zählen alle Spalten in einem Durchlauf über die gefilterten Zeilen
+ * - pro sortBy (title / year / score) eine vorsortierte Permutation der Zeilen, die bei Änderungen
+ *   per binärer Suche nachgeführt wird -> Liste = Permutation durchlaufen, gefilterte Zeilen ausgeben
+ *
+ * average_score wird aus Summe/Anzahl der Sterne mitgeführt (gerundet wie DECIMAL(3,2)),
+ * damit der Filter ?rating= nicht auf den Write-Behind der Statistiken warten muss.
+ *
+ * Nicht thread-safe: der Aufrufer muss synchronisieren.
+ */
+public class MediaCatalog {
+
+    private static final int NONE = -1;
+
+    // unter dieser Trefferquote werden die Treffer direkt sortiert statt die ganze Permutation zu durchlaufen
+    private static final int DIRECT_SORT_RATIO = 16;
+
+    /**
+     * Vergleich zweier Zeilen ohne Boxing (für die Sortier-Permutationen).
+     */
+    @FunctionalInterface
+    private interface RowComparator {
+        int compare(int rowA, int rowB);
+    }
+
+    private final Map<Integer, Integer> rowById = new HashMap<>();
+    private final BitSet alive = new BitSet();
+    private final Deque<Integer> freeRows = new ArrayDeque<>();
+    private int rowCount;
+
+    // Spalten
+    private int[] ids = new int[16];
+    private int[] typeOrd = new int[16];
+    private int[] yearOrd = new int[16];
+    private int[] ageOrd = new int[16];
+    private int[][] genreOrds = new int[16][];
+    private String[] titlesLower = new String[16];
+    private String[] titles = new String[16];
+    private String[] descriptions = new String[16];
+    private String[][] genreNames = new String[16][];
+    private int[] creatorIds = new int[16];
+    private long[] createdSeconds = new long[16];
+    private int[] createdNanos = new int[16];
+    private long[] starSums = new long[16];
+    private int[] ratingCounts = new int[16];
+
+    // Wertebereiche der Facetten-Spalten
+    private final Dictionary<String> types = new Dictionary<>();
+    private final Dictionary<String> genres = new Dictionary<>();  // Schlüssel klein geschrieben
+    private final Dictionary<Integer> years = new Dictionary<>();
+    private final Dictionary<Integer> ages = new Dictionary<>();
+    private final Map<String, String> interned = new HashMap<>();
+
+    // Sortier-Permutationen, erst nach buildSortIndexes() aktiv (beim Laden wäre Einfügen pro Zeile O(n))
+    private final SortIndex byTitle = new SortIndex(this::compareTitle);
+    private final SortIndex byYear = new SortIndex(this::compareYear);
+    private final SortIndex byScore = new SortIndex(this::compareScore);
+    private boolean sortIndexesBuilt;
+
+    /**
+     * Ergebnis der Facetten-Zählung (Wert -> Anzahl, nur Werte mit Anzahl > 0).
+     */
+    public static final class Facets {
+        public final int total;
+        public final Map<String, Integer> genres;
+        public final Map<String, Integer> mediaTypes;
+        public final Map<Integer, Integer> releaseYears;
+        public final Map<Integer, Integer> ageRestrictions;
+
+        Facets(int total, Map<String, Integer> genres, Map<String, Integer> mediaTypes,
+               Map<Integer, Integer> releaseYears, Map<Integer, Integer> ageRestrictions) {
+            this.total = total;
+            this.genres = genres;
+            this.mediaTypes = mediaTypes;
+            this.releaseYears = releaseYears;
+            this.ageRestrictions = ageRestrictions;
+        }
+    }
+
+    public int size() {
+        return rowById.size();
+    }
+
+    public boolean contains(int mediaId) {
+        return rowById.containsKey(mediaId);
+    }
+
+    /**
+     * Sortiert alle Zeilen einmal in die Permutationen (nach dem Laden), danach werden sie inkrementell gepflegt.
+     */
+    public void buildSortIndexes() {
+        int[] rows = alive.stream().toArray();
+        byTitle.build(rows);
+        byYear.build(rows);
+        byScore.build(rows);
+        sortIndexesBuilt = true;
+    }
+
+    /**
+     * Legt ein Media an oder überschreibt seine Spalten (Rating-Summen bleiben bei einem Update erhalten).
+     */
+    public void put(Media m) {
+        Integer existing = rowById.get(m.getId());
+        int row;
+        if (existing != null) {
+            row = existing;
+            clearBits(row);
+            unindex(row);
+        } else {
+            row = freeRows.isEmpty() ? rowCount++ : freeRows.pop();
+            ensureCapacity(row + 1);
+            rowById.put(m.getId(), row);
+            alive.set(row);
+            starSums[row] = 0;
+            ratingCounts[row] = 0;
+        }
+
+        ids[row] = m.getId();
+        titles[row] = m.getTitle();
+        titlesLower[row] = m.getTitle() == null ? "" : m.getTitle().toLowerCase(Locale.ROOT);
+        descriptions[row] = m.getDescription();
+        creatorIds[row] = m.getCreatorId() == null ? Integer.MIN_VALUE : m.getCreatorId();
+        LocalDateTime createdAt = m.getCreatedAt();
+        createdSeconds[row] = createdAt == null ? Long.MIN_VALUE : createdAt.toEpochSecond(ZoneOffset.UTC);
+        createdNanos[row] = createdAt == null ? 0 : createdAt.getNano();
+
+        typeOrd[row] = m.getType() == null ? NONE : types.add(m.getType(), m.getType(), row);
+        yearOrd[row] = m.getReleaseYear() == null ? NONE : years.add(m.getReleaseYear(), m.getReleaseYear(), row);
+        ageOrd[row] = m.getAgeRestriction() == null ? NONE : ages.add(m.getAgeRestriction(), m.getAgeRestriction(), row);
+
+        List<String> g = m.getGenres() == null ? List.of() : m.getGenres();
+        int[] ords = new int[g.size()];
+        String[] names = new String[g.size()];
+        int n = 0;
+        int namesCount = 0;
+        for (String genre : g) {
+            if (genre == null) continue;
+            names[namesCount++] = interned.computeIfAbsent(genre, k -> k);
+            if (genre.isBlank()) continue;
+            String display = genre.trim();
+            int ord = genres.add(display.toLowerCase(Locale.ROOT), display, row);
+            if (!contains(ords, n, ord)) ords[n++] = ord;
+        }
+        genreOrds[row] = Arrays.copyOf(ords, n);
+        genreNames[row] = Arrays.copyOf(names, namesCount);
+
+        index(row);
+    }
+
+    public void remove(int mediaId) {
+        Integer row = rowById.remove(mediaId);
+        if (row == null) return;
+
+        clearBits(row);
+        unindex(row);
+        alive.clear(row);
+        titles[row] = null;
+        titlesLower[row] = null;
+        descriptions[row] = null;
+        genreOrds[row] = null;
+        genreNames[row] = null;
+        freeRows.push(row);
+    }
+
+    /**
+     * Rating-Änderung (oldStars = 0 -> neu, newStars = 0 -> gelöscht), hält den Score aktuell.
+     */
+    public void applyRating(int mediaId, int oldStars, int newStars) {
+        Integer row = rowById.get(mediaId);
+        if (row == null) return;
+
+        // nur die Score-Permutation hängt an den Sternen
+        if (sortIndexesBuilt) byScore.remove(row);
+        if (oldStars != 0) {
+            starSums[row] -= oldStars;
+            ratingCounts[row]--;
+        }
+        if (newStars != 0) {
+            starSums[row] += newStars;
+            ratingCounts[row]++;
+        }
+        if (sortIndexesBuilt) byScore.insert(row);
+    }
+
+    /**
+     * average_score in Cent (0 ohne Ratings), gerundet wie DECIMAL(3,2).
+     */
+    public int scoreCents(int mediaId) {
+        Integer row = rowById.get(mediaId);
+        return row == null ? 0 : scoreCentsOfRow(row);
+    }
+
+    /**
+     * Zeilen, die alle gesetzten Filter erfüllen (gleiche Semantik wie MediaRepository.findFiltered:
+     * title/genre als Teilstring ohne Groß-/Kleinschreibung, Rest exakt, rating = Mindest-Score).
+     */
+    public BitSet filter(String title,
+                         String genre,
+                         String mediaType,
+                         Integer releaseYear,
+                         Integer ageRestriction,
+                         Double minRating) {
+
+        BitSet result = (BitSet) alive.clone();
+
+        // zuerst die billigen BitSet-Schnittmengen, danach Score/Titel nur noch für die übrigen Zeilen
+        if (mediaType != null && !mediaType.isBlank()) {
+            result.and(types.rowsOf(mediaType.trim().toUpperCase(Locale.ROOT)));
+        }
+        if (releaseYear != null) {
+            result.and(years.rowsOf(releaseYear));
+        }
+        if (ageRestriction != null) {
+            result.and(ages.rowsOf(ageRestriction));
+        }
+        if (genre != null && !genre.isBlank()) {
+            String needle = genre.toLowerCase(Locale.ROOT);
+            BitSet anyGenre = new BitSet();
+            for (int ord = 0; ord < genres.size(); ord++) {
+                if (genres.keyOf(ord).contains(needle)) anyGenre.or(genres.rows(ord));
+            }
+            result.and(anyGenre);
+        }
+        if (minRating != null) {
+            for (int row = result.nextSetBit(0); row >= 0; row = result.nextSetBit(row + 1)) {
+                if (scoreCentsOfRow(row) / 100.0 < minRating) result.clear(row);
+            }
+        }
+        if (title != null && !title.isBlank()) {
+            String needle = title.toLowerCase(Locale.ROOT);
+            for (int row = result.nextSetBit(0); row >= 0; row = result.nextSetBit(row + 1)) {
+                if (!titlesLower[row].contains(needle)) result.clear(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Zählt Genre, Typ, Jahr und Altersfreigabe der gegebenen Zeilen in einem Durchlauf.
+     */
+    public Facets facets(BitSet rows) {
+        int[] typeCounts = new int[types.size()];
+        int[] genreCounts = new int[genres.size()];
+        int[] yearCounts = new int[years.size()];
+        int[] ageCounts = new int[ages.size()];
+        int total = 0;
+
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            total++;
+            if (typeOrd[row] != NONE) typeCounts[typeOrd[row]]++;
+            if (yearOrd[row] != NONE) yearCounts[yearOrd[row]]++;
+            if (ageOrd[row] != NONE) ageCounts[ageOrd[row]]++;
+            for (int g : genreOrds[row]) genreCounts[g]++;
+        }
+
+        return new Facets(
+                total,
+                genres.counts(genreCounts, byCountDesc()),
+                types.counts(typeCounts, byCountDesc()),
+                years.counts(yearCounts, Map.Entry.comparingByKey(Comparator.reverseOrder())),
+                ages.counts(ageCounts, Map.Entry.comparingByKey())
+        );
+    }
+
+    /**
+     * Gefilterte Zeilen als Media, sortiert wie findFiltered (title / year / score, sonst title).
+     * Titel: ohne Groß-/Kleinschreibung (wie die Standard-Collation), Jahr: aufsteigend, ohne Jahr am Ende,
+     * Score: absteigend; Gleichstand jeweils nach ID.
+     */
+    public List<Media> list(BitSet rows, String sortBy) {
+        SortIndex index = switch (sortBy == null ? "title" : sortBy) {
+            case "year" -> byYear;
+            case "score" -> byScore;
+            default -> byTitle;
+        };
+
+        int matches = rows.cardinality();
+        List<Media> out = new ArrayList<>(matches);
+        if (matches == 0) return out;
+
+        if (!sortIndexesBuilt || (long) matches * DIRECT_SORT_RATIO < index.size) {
+            // wenige Treffer: nur diese sortieren
+            int[] hits = rows.stream().toArray();
+            Integer[] boxed = new Integer[hits.length];
+            for (int i = 0; i < hits.length; i++) boxed[i] = hits[i];
+            Arrays.sort(boxed, (a, b) -> index.comparator.compare(a, b));
+            for (int row : boxed) out.add(toMedia(row));
+        } else {
+            // viele Treffer: Permutation durchlaufen, schon sortiert
+            for (int i = 0; i < index.size && out.size() < matches; i++) {
+                int row = index.rows[i];
+                if (rows.get(row)) out.add(toMedia(row));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Media-IDs der gegebenen Zeilen (in Zeilenreihenfolge).
+     */
+    public List<Integer> idsOf(BitSet rows) {
+        List<Integer> out = new ArrayList<>(rows.cardinality());
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            out.add(ids[row]);
+        }
+        return out;
+    }
+
+    /**
+     * Grobe Speicherschätzung der Spalten + BitSets (für /api/metrics).
+     */
+    public long memoryBytes() {
+        // int-Spalten, Summe, Anzahl, Zeit, Genre-Arrays, Titel (2x), Sortier-Permutationen
+        long perRow = 4L * 6 + 8 + 4 + 12 + 32 + 96 + 3 * 4;
+        long bitsets = (long) (types.size() + genres.size() + years.size() + ages.size() + 1) * (rowCount / 8 + 16);
+        return perRow * rowCount + bitsets;
+    }
+
+    // --- intern ---
+
+    private Media toMedia(int row) {
+        LocalDateTime createdAt = createdSeconds[row] == Long.MIN_VALUE ? null
+                : LocalDateTime.ofEpochSecond(createdSeconds[row], createdNanos[row], ZoneOffset.UTC);
+
+        return Media.builder()
+                .id(ids[row])
+                .title(titles[row])
+                .description(descriptions[row])
+                .type(typeOrd[row] == NONE ? null : types.keyOf(typeOrd[row]))
+                .releaseYear(yearOrd[row] == NONE ? null : years.keyOf(yearOrd[row]))
+                .genres(new ArrayList<>(Arrays.asList(genreNames[row])))
+                .ageRestriction(ageOrd[row] == NONE ? null : ages.keyOf(ageOrd[row]))
+                .creatorId(creatorIds[row] == Integer.MIN_VALUE ? null : creatorIds[row])
+                .averageScore(scoreCentsOfRow(row) / 100.0)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private void index(int row) {
+        if (!sortIndexesBuilt) return;
+        byTitle.insert(row);
+        byYear.insert(row);
+        byScore.insert(row);
+    }
+
+    // vor jeder Änderung der Sortier-Spalten aufrufen, sonst findet die binäre Suche die Zeile nicht mehr
+    private void unindex(int row) {
+        if (!sortIndexesBuilt) return;
+        byTitle.remove(row);
+        byYear.remove(row);
+        byScore.remove(row);
+    }
+
+    private int compareTitle(int a, int b) {
+        int c = titlesLower[a].compareTo(titlesLower[b]);
+        if (c != 0) return c;
+        c = String.valueOf(titles[a]).compareTo(String.valueOf(titles[b]));
+        return c != 0 ? c : Integer.compare(ids[a], ids[b]);
+    }
+
+    private int compareYear(int a, int b) {
+        // ohne Jahr ans Ende (wie NULLS LAST bei ORDER BY release_year)
+        long ya = yearOrd[a] == NONE ? Long.MAX_VALUE : years.keyOf(yearOrd[a]);
+        long yb = yearOrd[b] == NONE ? Long.MAX_VALUE : years.keyOf(yearOrd[b]);
+        int c = Long.compare(ya, yb);
+        return c != 0 ? c : Integer.compare(ids[a], ids[b]);
+    }
+
+    private int compareScore(int a, int b) {
+        int c = Integer.compare(scoreCentsOfRow(b), scoreCentsOfRow(a));
+        return c != 0 ? c : Integer.compare(ids[a], ids[b]);
+    }
+
+    private int scoreCentsOfRow(int row) {
+        if (ratingCounts[row] == 0) return 0;
+        return (int) Math.round(starSums[row] * 100.0 / ratingCounts[row]);
+    }
+
+    private void clearBits(int row) {
+        if (typeOrd[row] != NONE) types.rows(typeOrd[row]).clear(row);
+        if (yearOrd[row] != NONE) years.rows(yearOrd[row]).clear(row);
+        if (ageOrd[row] != NONE) ages.rows(ageOrd[row]).clear(row);
+        if (genreOrds[row] != null) {
+            for (int g : genreOrds[row]) genres.rows(g).clear(row);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) return;
+        int capacity = Math.max(needed, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        typeOrd = Arrays.copyOf(typeOrd, capacity);
+        yearOrd = Arrays.copyOf(yearOrd, capacity);
+        ageOrd = Arrays.copyOf(ageOrd, capacity);
+        genreOrds = Arrays.copyOf(genreOrds, capacity);
+        titlesLower = Arrays.copyOf(titlesLower, capacity);
+        starSums = Arrays.copyOf(starSums, capacity);
+        ratingCounts = Arrays.copyOf(ratingCounts, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        genreNames = Arrays.copyOf(genreNames, capacity);
+        creatorIds = Arrays.copyOf(creatorIds, capacity);
+        createdSeconds = Arrays.copyOf(createdSeconds, capacity);
+        createdNanos = Arrays.copyOf(createdNanos, capacity);
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    private static <K> Comparator<Map.Entry<K, Integer>> byCountDesc() {
+        return Map.Entry.<K, Integer>comparingByValue().reversed();
+    }
+
+    /**
+     * Zeilen in Sortierreihenfolge (totale Ordnung, Gleichstand nach ID), Einfügen/Entfernen per binärer Suche.
+     */
+    private static final class SortIndex {
+        private final RowComparator comparator;
+        private int[] rows = new int[0];
+        private int size;
+
+        SortIndex(RowComparator comparator) {
+            this.comparator = comparator;
+        }
+
+        void build(int[] allRows) {
+            Integer[] boxed = new Integer[allRows.length];
+            for (int i = 0; i < allRows.length; i++) boxed[i] = allRows[i];
+            Arrays.sort(boxed, (a, b) -> comparator.compare(a, b));
+
+            rows = new int[Math.max(16, allRows.length + allRows.length / 4)];
+            for (int i = 0; i < boxed.length; i++) rows[i] = boxed[i];
+            size = boxed.length;
+        }
+
+        void insert(int row) {
+            int pos = search(row);
+            if (pos >= 0) return;
+            pos = -pos - 1;
+
+            if (size == rows.length) rows = Arrays.copyOf(rows, Math.max(16, size * 2));
+            System.arraycopy(rows, pos, rows, pos + 1, size - pos);
+            rows[pos] = row;
+            size++;
+        }
+
+        void remove(int row) {
+            int pos = search(row);
+            if (pos < 0) return;
+            System.arraycopy(rows, pos + 1, rows, pos, size - pos - 1);
+            size--;
+        }
+
+        private int search(int row) {
+            int lo = 0, hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = comparator.compare(rows[mid], row);
+                if (c < 0) lo = mid + 1;
+                else if (c > 0) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+    }
+
+    /**
+     * Wert -> Ordinal, pro Ordinal Anzeige-Wert und BitSet der Zeilen. Ordinals werden nie wiederverwendet.
+     */
+    private static final class Dictionary<K> {
+        private final Map<K, Integer> ordByKey = new HashMap<>();
+        private final List<K> keys = new ArrayList<>();
+        private final List<K> displays = new ArrayList<>();
+        private final List<BitSet> rows = new ArrayList<>();
+
+        int size() {
+            return keys.size();
+        }
+
+        int add(K key, K display, int row) {
+            Integer ord = ordByKey.get(key);
+            if (ord == null) {
+                ord = keys.size();
+                ordByKey.put(key, ord);
+                keys.add(key);
+                displays.add(display);
+                rows.add(new BitSet());
+            }
+            rows.get(ord).set(row);
+            return ord;
+        }
+
+        K keyOf(int ord) {
+            return keys.get(ord);
+        }
+
+        BitSet rows(int ord) {
+            return rows.get(ord);
+        }
+
+        // unbekannter Wert -> leeres BitSet (Filter trifft nichts)
+        BitSet rowsOf(K key) {
+            Integer ord = ordByKey.get(key);
+            return ord == null ? new BitSet() : rows.get(ord);
+        }
+
+        Map<K, Integer> counts(int[] counts, Comparator<Map.Entry<K, Integer>> order) {
+            List<Map.Entry<K, Integer>> entries = new ArrayList<>();
+            for (int ord = 0; ord < counts.length; ord++) {
+                if (counts[ord] > 0) entries.add(Map.entry(displays.get(ord), counts[ord]));
+            }
+            entries.sort(order);
+
+            Map<K, Integer> out = new LinkedHashMap<>();
+            for (Map.Entry<K, Integer> e : entries) out.put(e.getKey(), e.getValue());
+            return out;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Fertig serialisiertes JSON pro Media (byte[]), damit Liste und Detail nicht jedes Mal
+ * eine Map bauen und Jackson per Reflection durchlaufen müssen.
+ *
+ * Versionierung über eine logische Uhr:
+ * - jede Änderung an einem Media (Save/Delete/Rating) merkt sich pro ID den Uhrstand der Änderung
+ * - Aufrufer lesen stamp() VOR dem Laden aus DB/Katalog und geben ihn beim Serialisieren mit
+ * - ein Eintrag gilt nur, wenn sein Ladezeitpunkt nach der letzten Änderung liegt
+ *   (ein Objekt, das vor einem Update geladen wurde, landet so nie unter der neuen Version im Cache)
+ * Zusätzlich muss averageScore übereinstimmen: der DB-Score kommt zeitversetzt aus dem Write-Behind,
+ * ohne eigenes Event.
+ *
+ * Größe begrenzt: ist der Cache voll, werden neue IDs einfach nicht mehr aufgenommen.
+ */
+public class MediaJsonCache implements MediaListener, RatingListener {
+
+    private final int maxEntries;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Integer, Long> changedAt = new ConcurrentHashMap<>();
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private static final class Entry {
+        final byte[] json;
+        final long loadedAt;
+        final Double averageScore;
+
+        Entry(byte[] json, long loadedAt, Double averageScore) {
+            this.json = json;
+            this.loadedAt = loadedAt;
+            this.averageScore = averageScore;
+        }
+    }
+
+    public MediaJsonCache(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+    }
+
+    /**
+     * Uhrstand vor dem Laden der Media merken und an fragment() weitergeben.
+     */
+    public long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * JSON des Media aus dem Cache oder frisch über serializer (dann gecacht, falls m aktuell genug ist).
+     *
+     * @param loadedAt stamp() von vor dem Laden von m
+     */
+    public byte[] fragment(Media m, long loadedAt, Function<Media, byte[]> serializer) {
+        int id = m.getId();
+        long lastChange = changedAt.getOrDefault(id, 0L);
+
+        Entry e = entries.get(id);
+        if (e != null && e.loadedAt >= lastChange && Objects.equals(e.averageScore, m.getAverageScore())) {
+            hits.increment();
+            return e.json;
+        }
+
+        misses.increment();
+        byte[] json = serializer.apply(m);
+        if (loadedAt >= lastChange && (e != null || entries.size() < maxEntries)) {
+            entries.put(id, new Entry(json, loadedAt, m.getAverageScore()));
+        }
+        return json;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("entries", entries.size());
+        out.put("maxEntries", maxEntries);
+        out.put("hits", hits.sum());
+        out.put("misses", misses.sum());
+        out.put("invalidations", invalidations.sum());
+        return out;
+    }
+
+    @Override
+    public void onMediaSaved(Media media) {
+        touch(media.getId());
+    }
+
+    @Override
+    public void onMediaDeleted(int mediaId) {
+        touch(mediaId);
+    }
+
+    @Override
+    public void onRatingChanged(int userId, int mediaId, int oldStars, int newStars) {
+        touch(mediaId);
+    }
+
+    private void touch(int mediaId) {
+        changedAt.put(mediaId, clock.incrementAndGet());
+        if (entries.remove(mediaId) != null) invalidations.increment();
+    }
+}
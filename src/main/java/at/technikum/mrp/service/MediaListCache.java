@@ -0,0 +1,170 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.util.SingleFlight;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Response-Cache für GET /api/media (stale-while-revalidate):
+ * - Schlüssel = normalisierte Filter/Sortierung (MediaService.listKey), Wert = fertig serialisierte JSON-Bytes
+ * - jede Media-Änderung und jede Rating-Änderung (Score) erhöht eine globale Katalog-Version,
+ *   Einträge mit älterer Version gelten als veraltet
+ * - ebenso jeder average_score, den der Write-Behind später in die DB schreibt: sonst bliebe ein Refresh,
+ *   der direkt nach dem Rating-Write noch den alten DB-Score gelesen hat, bis zur nächsten Änderung stehen
+ * - veraltete Einträge werden trotzdem sofort ausgeliefert, gleichzeitig lädt genau ein Hintergrund-Refresh
+ *   pro Schlüssel die aktuelle Antwort nach
+ * - nur ein Miss (Schlüssel noch nie gesehen) lädt synchron, gleichzeitige Misses teilen sich den Aufruf
+ *
+ * Größe begrenzt (LRU), maxEntries = 0 schaltet den Cache ab.
+ */
+public class MediaListCache implements MediaListener, RatingListener, StatisticsListener {
+
+    private final int maxEntries;
+    private final Executor refresher;
+
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, Entry> entries;
+    private final SingleFlight<String, byte[]> misses = new SingleFlight<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+
+    private static final class Entry {
+        final byte[] body;
+        final long version;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(byte[] body, long version) {
+            this.body = body;
+            this.version = version;
+        }
+    }
+
+    /**
+     * @param refresher führt die Hintergrund-Refreshes aus (im Server ein eigener Daemon-Thread)
+     */
+    public MediaListCache(int maxEntries, Executor refresher) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.refresher = refresher;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MediaListCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Antwort für key aus dem Cache, beim ersten Mal synchron über loader.
+     * Der loader darf keine request-spezifischen Objekte festhalten, er läuft evtl. später im Hintergrund.
+     */
+    public byte[] get(String key, Supplier<byte[]> loader) {
+        if (maxEntries == 0) return loader.get();
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if (entry == null) {
+            missCount.increment();
+            return misses.execute(key, () -> load(key, loader));
+        }
+
+        if (entry.version == version.get()) {
+            hits.increment();
+            return entry.body;
+        }
+
+        staleHits.increment();
+        if (entry.refreshing.compareAndSet(false, true)) {
+            try {
+                refresher.execute(() -> refresh(key, loader, entry));
+            } catch (RejectedExecutionException e) {
+                entry.refreshing.set(false);
+            }
+        }
+        return entry.body;
+    }
+
+    /**
+     * Aktuelle Katalog-Version (steigt bei jeder Media- oder Score-Änderung).
+     */
+    public long version() {
+        return version.get();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (entries) {
+            out.put("entries", entries.size());
+        }
+        out.put("maxEntries", maxEntries);
+        out.put("version", version.get());
+        out.put("hits", hits.sum());
+        out.put("staleHits", staleHits.sum());
+        out.put("misses", missCount.sum());
+        out.put("refreshes", refreshes.sum());
+        out.put("failedRefreshes", failedRefreshes.sum());
+        return out;
+    }
+
+    @Override
+    public void onMediaSaved(Media media) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onMediaDeleted(int mediaId) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onRatingChanged(int userId, int mediaId, int oldStars, int newStars) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onAverageScoreWritten(int mediaId) {
+        version.incrementAndGet();
+    }
+
+    // --- intern ---
+
+    private byte[] load(String key, Supplier<byte[]> loader) {
+        // Version vor dem Laden merken: ein Write während des Ladens macht den Eintrag gleich wieder veraltet
+        long loadedVersion = version.get();
+        byte[] body = loader.get();
+        synchronized (entries) {
+            Entry current = entries.get(key);
+            if (current == null || current.version <= loadedVersion) {
+                entries.put(key, new Entry(body, loadedVersion));
+            }
+        }
+        return body;
+    }
+
+    private void refresh(String key, Supplier<byte[]> loader, Entry stale) {
+        try {
+            load(key, loader);
+            refreshes.increment();
+        } catch (RuntimeException e) {
+            failedRefreshes.increment();
+            System.err.println("Fehler beim Aktualisieren der Media-Liste: " + e.getMessage());
+        } finally {
+            // falls der Eintrag nicht ersetzt wurde, darf der nächste Zugriff es erneut versuchen
+            stale.refreshing.set(false);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+
+/**
+ * Callback für Media-Änderungen (Create/Update/Delete).
+ * MediaService ruft die Listener nach erfolgreichem DB-Write auf, damit In-Memory Indizes aktuell bleiben.
+ */
+public interface MediaListener {
+
+    /**
+     * Media wurde angelegt oder geändert (media = aktueller Stand aus der DB).
+     */
+    default void onMediaSaved(Media media) {}
+
+    /**
+     * Media wurde gelöscht (Ratings/Favoriten hängen per ON DELETE CASCADE mit dran).
+     */
+    default void onMediaDeleted(int mediaId) {}
+}
@@ -4,9 +4,15 @@ import at.technikum.mrp.dto.MediaRequest;
 import at.technikum.mrp.model.Media;
 import at.technikum.mrp.repository.MediaRepository;
 import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.SingleFlight;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Business-Logik rund um Media.
@@ -18,8 +24,29 @@ public class MediaService {
 
     private final MediaRepository mediaRepository;
 
+    // optional: Liste aus dem Spalten-Katalog im Speicher (null = immer SQL)
+    private final CatalogService catalog;
+
+    // gleiche Filter-Query gleichzeitig -> nur eine Ausführung von findFiltered
+    private final SingleFlight<String, List<Media>> listFlight = new SingleFlight<>();
+
+    // wie im RatingService: Registrierung beim Start, Lesen bei jedem Write
+    private final List<MediaListener> listeners = new CopyOnWriteArrayList<>();
+
     public MediaService(MediaRepository mediaRepository) {
+        this(mediaRepository, null);
+    }
+
+    public MediaService(MediaRepository mediaRepository, CatalogService catalog) {
         this.mediaRepository = mediaRepository;
+        this.catalog = catalog;
+    }
+
+    /**
+     * Registriert einen Listener für Create/Update/Delete.
+     */
+    public void addListener(MediaListener listener) {
+        listeners.add(listener);
     }
 
     /**
@@ -48,6 +75,8 @@ public class MediaService {
 
         Media saved = mediaRepository.save(media);
         if (saved == null) throw new ApiException(500, "Media konnte nicht gespeichert werden");
+
+        notifySaved(saved);
         return saved;
     }
 
@@ -60,7 +89,22 @@ public class MediaService {
     }
 
     /**
-     * Liste + Filter. Die eigentliche Filter-SQL liegt im Repository (findFiltered).
+     * Mehrere Media auf einmal (ein Query), Reihenfolge wie ids. Nicht existierende IDs fehlen.
+     */
+    public List<Media> getByIds(List<Integer> ids) {
+        return mediaRepository.findByIds(ids);
+    }
+
+    /**
+     * Wie oben, mit Query-Timeout in Sekunden (0 = kein Limit).
+     */
+    public List<Media> getByIds(List<Integer> ids, int queryTimeoutSeconds) {
+        return mediaRepository.findByIds(ids, queryTimeoutSeconds);
+    }
+
+    /**
+     * Liste + Filter. Aus dem Katalog im Speicher, wenn konfiguriert und geladen,
+     * sonst über die Filter-SQL im Repository (findFiltered).
      */
     public List<Media> list(String title,
                             String genre,
@@ -69,17 +113,47 @@ public class MediaService {
                             Integer ageRestriction,
                             Double minRating,
                             String sortBy) {
+        return list(title, genre, mediaType, releaseYear, ageRestriction, minRating, sortBy, null);
+    }
+
+    /**
+     * Wie oben, mit Feld-Auswahl (?fields=, null = alle): die DB-Query lädt nur diese Spalten.
+     * Der Katalog im Speicher hat ohnehin alle Felder, dort wird nur das JSON schmäler.
+     */
+    public List<Media> list(String title,
+                            String genre,
+                            String mediaType,
+                            Integer releaseYear,
+                            Integer ageRestriction,
+                            Double minRating,
+                            String sortBy,
+                            Set<String> fields) {
 
-        return mediaRepository.findFiltered(
+        if (catalog != null && catalog.isReady()) {
+            return catalog.list(title, genre, mediaType, releaseYear, ageRestriction, minRating, sortBy);
+        }
+        String key = listKey(title, genre, mediaType, releaseYear, ageRestriction, minRating, sortBy)
+                + (fields == null ? "" : "\u0000fields=" + String.join(",", fields));
+        List<Media> shared = listFlight.execute(key, () -> mediaRepository.findFiltered(
                 title,
                 genre,
                 mediaType,
                 releaseYear,
                 ageRestriction,
                 minRating,
-                sortBy
-        );
-}
+                sortBy,
+                fields
+        ));
+        // Liste ist mit den anderen wartenden Aufrufern geteilt
+        return new ArrayList<>(shared);
+    }
+
+    /**
+     * Zähler der Request-Koaleszierung für die Liste (wie viele Aufrufe sich eine Query geteilt haben).
+     */
+    public Map<String, Object> getListCoalescingMetrics() {
+        return listFlight.getMetrics();
+    }
 
     /**
      * Update: nur creator darf ändern.
@@ -110,7 +184,9 @@ public class MediaService {
         if (!ok) throw new ApiException(500, "Update fehlgeschlagen");
 
         // Nochmal aus DB lesen, damit man sicher die DB-Version zurückgibt
-        return getById(mediaId);
+        Media reloaded = getById(mediaId);
+        notifySaved(reloaded);
+        return reloaded;
     }
 
     /**
@@ -125,5 +201,53 @@ public class MediaService {
 
         boolean ok = mediaRepository.delete(mediaId, userId);
         if (!ok) throw new ApiException(500, "Delete fehlgeschlagen");
+
+        notifyDeleted(mediaId);
+    }
+
+    /**
+     * Schlüssel für eine Listen-Query, normalisiert wie findFiltered die Parameter auswertet
+     * (LIKE case-insensitive, Typ groß, unbekanntes sortBy = title). Auch vom Response-Cache genutzt.
+     */
+    public static String listKey(String title,
+                                 String genre,
+                                 String mediaType,
+                                 Integer releaseYear,
+                                 Integer ageRestriction,
+                                 Double minRating,
+                         String sortBy) {
+        String order = sortBy == null ? "title" : switch (sortBy) {
+            case "year", "score" -> sortBy;
+            default -> "title";
+        };
+        return String.join("\u0000",
+                title == null || title.isBlank() ? "" : title.toLowerCase(Locale.ROOT),
+                genre == null || genre.isBlank() ? "" : genre.toLowerCase(Locale.ROOT),
+                mediaType == null || mediaType.isBlank() ? "" : mediaType.trim().toUpperCase(Locale.ROOT),
+                String.valueOf(releaseYear),
+                String.valueOf(ageRestriction),
+                String.valueOf(minRating),
+                order);
+    }
+
+    // Listener-Fehler nicht an den Client weitergeben, die DB ist zu dem Zeitpunkt schon geschrieben
+    private void notifySaved(Media media) {
+        for (MediaListener l : listeners) {
+            try {
+                l.onMediaSaved(media);
+            } catch (RuntimeException e) {
+                System.err.println("Fehler im MediaListener: " + e.getMessage());
+            }
+        }
+    }
+
+    private void notifyDeleted(int mediaId) {
+        for (MediaListener l : listeners) {
+            try {
+                l.onMediaDeleted(mediaId);
+            } catch (RuntimeException e) {
+                System.err.println("Fehler im MediaListener: " + e.getMessage());
+            }
+        }
     }
 }
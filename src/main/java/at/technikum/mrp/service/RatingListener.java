@@ -0,0 +1,32 @@
+package at.technikum.mrp.service;
+
+/**
+ * Callback für Rating-Änderungen.
+ * RatingService ruft die registrierten Listener nach jedem erfolgreichen Schreibzugriff auf,
+ * damit In-Memory-Strukturen (z.B. Collaborative Filtering) aktuell bleiben, ohne die DB neu zu lesen.
+ */
+public interface RatingListener {
+
+    /**
+     * Rating wurde neu angelegt oder geändert (stars = aktueller Wert).
+     */
+    default void onRatingSaved(int userId, int mediaId, int stars) {}
+
+    /**
+     * Rating wurde gelöscht.
+     */
+    default void onRatingDeleted(int userId, int mediaId) {}
+
+    /**
+     * Wie oben, zusätzlich mit dem vorherigen Wert (für Listener, die Summen mitführen).
+     * oldStars = 0 -> neues Rating, newStars = 0 -> gelöscht.
+     * Standard: delegiert an onRatingSaved/onRatingDeleted.
+     */
+    default void onRatingChanged(int userId, int mediaId, int oldStars, int newStars) {
+        if (newStars == 0) {
+            onRatingDeleted(userId, mediaId);
+        } else {
+            onRatingSaved(userId, mediaId, newStars);
+        }
+    }
+}
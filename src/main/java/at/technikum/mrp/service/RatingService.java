@@ -1,13 +1,25 @@
 package at.technikum.mrp.service;
 
+import at.technikum.mrp.dto.BulkRatingRequest;
+import at.technikum.mrp.dto.BulkRatingResult;
 import at.technikum.mrp.dto.RatingRequest;
+import at.technikum.mrp.dto.RatingResponse;
 import at.technikum.mrp.model.Rating;
 import at.technikum.mrp.repository.MediaRepository;
 import at.technikum.mrp.repository.RatingRepository;
 import at.technikum.mrp.repository.UserRepository;
 import at.technikum.mrp.util.ApiException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 /**
  * Business-Logik rund um Ratings.
@@ -15,16 +27,52 @@ import java.util.List;
  */
 public class RatingService {
 
+    // Obergrenze für POST /api/ratings/bulk (größere Importe in mehreren Requests)
+    public static final int MAX_BULK_ITEMS = 1000;
+
     private final RatingRepository ratingRepository;
     private final MediaRepository mediaRepository;
     private final UserRepository userRepository;
 
+    // null = Likes werden sofort (einzeln) in die DB geschrieben
+    private final LikeCounterService likeCounter;
+
+    // null = Statistiken werden sofort nach jedem Rating-Write neu berechnet
+    private final StatisticsWriteBehindService statistics;
+
+    // Listener werden nur beim Start registriert, aber bei jedem Write gelesen -> CopyOnWrite passt
+    private final List<RatingListener> listeners = new CopyOnWriteArrayList<>();
+
     public RatingService(RatingRepository ratingRepository,
                          MediaRepository mediaRepository,
                          UserRepository userRepository) {
+        this(ratingRepository, mediaRepository, userRepository, null);
+    }
+
+    public RatingService(RatingRepository ratingRepository,
+                         MediaRepository mediaRepository,
+                         UserRepository userRepository,
+                         LikeCounterService likeCounter) {
+        this(ratingRepository, mediaRepository, userRepository, likeCounter, null);
+    }
+
+    public RatingService(RatingRepository ratingRepository,
+                         MediaRepository mediaRepository,
+                         UserRepository userRepository,
+                         LikeCounterService likeCounter,
+                         StatisticsWriteBehindService statistics) {
         this.ratingRepository = ratingRepository;
         this.mediaRepository = mediaRepository;
         this.userRepository = userRepository;
+        this.likeCounter = likeCounter;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Registriert einen Listener, der über neue/geänderte/gelöschte Ratings informiert wird.
+     */
+    public void addListener(RatingListener listener) {
+        listeners.add(listener);
     }
 
     public Rating rateMedia(int userId, int mediaId, RatingRequest req) {
@@ -52,9 +100,75 @@ public class RatingService {
         if (saved == null) throw new ApiException(500, "Rating konnte nicht gespeichert werden");
 
         afterRatingChanged(userId, mediaId);
+        notifyChanged(userId, mediaId, 0, saved.getStars());
         return saved;
     }
 
+    /**
+     * Viele Ratings eines Users auf einmal (Import):
+     * Validierung pro Eintrag, ein Query für die Media-Existenz, dann ein Bulk-INSERT ... ON CONFLICT in einer
+     * Transaktion, in der auch average_score und die User-Statistik je einmal neu berechnet werden.
+     * Fehler einzelner Einträge brechen den Rest nicht ab, sie stehen im Ergebnis (Reihenfolge wie im Request).
+     */
+    public List<BulkRatingResult> rateBulk(int userId, List<BulkRatingRequest.Item> items) {
+        if (items == null || items.isEmpty()) throw ApiException.badRequest("ratings fehlt oder ist leer");
+        if (items.size() > MAX_BULK_ITEMS) {
+            throw ApiException.badRequest("Maximal " + MAX_BULK_ITEMS + " Ratings pro Request");
+        }
+
+        BulkRatingResult[] results = new BulkRatingResult[items.size()];
+        List<Rating> toSave = new ArrayList<>();
+        Map<Integer, Integer> indexByMedia = new HashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            BulkRatingRequest.Item item = items.get(i);
+            Integer mediaId = item == null ? null : item.getMediaId();
+
+            if (mediaId == null) {
+                results[i] = BulkRatingResult.failed(i, null, 400, "mediaId fehlt");
+            } else if (item.getStars() == null || item.getStars() < 1 || item.getStars() > 5) {
+                results[i] = BulkRatingResult.failed(i, mediaId, 400, "stars muss zwischen 1 und 5 sein");
+            } else if (indexByMedia.putIfAbsent(mediaId, i) != null) {
+                results[i] = BulkRatingResult.failed(i, mediaId, 409, "Media kommt mehrfach im Request vor");
+            } else {
+                toSave.add(Rating.builder()
+                        .mediaId(mediaId)
+                        .userId(userId)
+                        .stars(item.getStars())
+                        .comment(item.getComment())
+                        .build());
+            }
+        }
+
+        if (!toSave.isEmpty()) {
+            Set<Integer> existingMedia = mediaRepository.findExistingIds(indexByMedia.keySet());
+
+            List<Rating> inserted = ratingRepository.insertBulk(userId, toSave);
+            if (inserted == null) throw new ApiException(500, "Ratings konnten nicht gespeichert werden");
+
+            Set<Integer> insertedMedia = new HashSet<>();
+            for (Rating r : inserted) {
+                insertedMedia.add(r.getMediaId());
+                int i = indexByMedia.get(r.getMediaId());
+                results[i] = BulkRatingResult.created(i, RatingResponse.from(r));
+            }
+            for (Rating r : toSave) {
+                if (insertedMedia.contains(r.getMediaId())) continue;
+                int i = indexByMedia.get(r.getMediaId());
+                results[i] = existingMedia.contains(r.getMediaId())
+                        ? BulkRatingResult.failed(i, r.getMediaId(), 409, "Du hast dieses Media bereits bewertet")
+                        : BulkRatingResult.failed(i, r.getMediaId(), 404, "Media nicht gefunden");
+            }
+
+            // Statistiken sind schon in der Transaktion neu berechnet, die In-Memory Komponenten brauchen jedes Rating
+            for (Rating r : inserted) {
+                notifyChanged(userId, r.getMediaId(), 0, r.getStars());
+            }
+        }
+
+        return List.of(results);
+    }
+
     public Rating updateRating(int userId, int ratingId, RatingRequest req) {
         validate(req);
 
@@ -80,8 +194,9 @@ public class RatingService {
         if (!ok) throw new ApiException(500, "Update fehlgeschlagen");
 
         afterRatingChanged(userId, existing.getMediaId());
+        notifyChanged(userId, existing.getMediaId(), existing.getStars(), req.getStars());
 
-        return ratingRepository.findById(ratingId)
+        return findWithPendingLikes(ratingId)
                 .orElseThrow(() -> ApiException.notFound("Rating nicht gefunden"));
     }
 
@@ -97,6 +212,7 @@ public class RatingService {
         if (!ok) throw new ApiException(500, "Delete fehlgeschlagen");
 
         afterRatingChanged(userId, existing.getMediaId());
+        notifyChanged(userId, existing.getMediaId(), existing.getStars(), 0);
     }
 
     public Rating confirmComment(int userId, int ratingId) {
@@ -110,7 +226,7 @@ public class RatingService {
         boolean ok = ratingRepository.confirmComment(ratingId, userId);
         if (!ok) throw new ApiException(500, "Bestätigung fehlgeschlagen");
 
-        return ratingRepository.findById(ratingId)
+        return findWithPendingLikes(ratingId)
                 .orElseThrow(() -> ApiException.notFound("Rating nicht gefunden"));
     }
 
@@ -123,12 +239,20 @@ public class RatingService {
             throw ApiException.forbidden("Du kannst dein eigenes Rating nicht liken");
         }
 
-        boolean ok = ratingRepository.likeRating(ratingId, userId);
+        // likes_count nicht sofort hochzählen (Row-Lock pro Like), sondern gesammelt schreiben.
+        // Ohne LikeCounterService: Like-Eintrag und likes_count zusammen in einer Transaktion.
+        boolean ok = likeCounter != null
+                ? ratingRepository.likeRating(ratingId, userId)
+                : ratingRepository.likeRatingAndCount(ratingId, userId);
         if (!ok) {
             throw ApiException.conflict("Du hast dieses Rating bereits geliked");
         }
 
-        return ratingRepository.findById(ratingId)
+        if (likeCounter != null) {
+            likeCounter.increment(ratingId);
+        }
+
+        return findWithPendingLikes(ratingId)
                 .orElseThrow(() -> ApiException.notFound("Rating nicht gefunden"));
     }
 
@@ -142,15 +266,112 @@ public class RatingService {
     }
 
     public List<Rating> listByMediaId(int mediaId) {
-        return ratingRepository.findByMediaId(mediaId);
+        return listByMediaId(mediaId, null);
+    }
+
+    /**
+     * Mit Feld-Auswahl (?fields=, null = alle): nur diese Spalten werden geladen.
+     */
+    public List<Rating> listByMediaId(int mediaId, Set<String> fields) {
+        return readConsistent(() -> withPendingLikes(ratingRepository.findByMediaId(mediaId, fields)));
+    }
+
+    /**
+     * Ratings eines Media für GET /api/media/{id}/ratings, mit Kommentar-Regel:
+     * - öffentlich nur wenn confirmed == true
+     * - der Autor selbst sieht seinen Kommentar immer (auch unconfirmed)
+     * Ohne comment in der Feld-Auswahl gibt es nichts zu verbergen -> keine Extra-Spalten, keine Prüfung.
+     */
+    public List<RatingResponse> listVisibleByMediaId(int mediaId, int viewerId, Set<String> fields) {
+        boolean withComment = fields == null || fields.contains("comment");
+
+        // für die Kommentar-Regel werden userId/confirmed gebraucht, auch wenn sie nicht ausgegeben werden
+        Set<String> columns = fields;
+        if (fields != null && withComment) {
+            columns = new TreeSet<>(fields);
+            columns.add("userId");
+            columns.add("confirmed");
+        }
+
+        List<Rating> ratings = listByMediaId(mediaId, columns);
+
+        List<RatingResponse> out = new ArrayList<>(ratings.size());
+        for (Rating r : ratings) {
+            String commentOut = null;
+            if (withComment && (Boolean.TRUE.equals(r.getConfirmed()) || Integer.valueOf(viewerId).equals(r.getUserId()))) {
+                commentOut = r.getComment();
+            }
+            out.add(RatingResponse.from(r, commentOut));
+        }
+        return out;
     }
 
     public List<Rating> listByUserId(int userId) {
-        return ratingRepository.findByUserId(userId);
+        return listByUserId(userId, null);
+    }
+
+    public List<Rating> listByUserId(int userId, Set<String> fields) {
+        return readConsistent(() -> withPendingLikes(ratingRepository.findByUserId(userId, fields)));
+    }
+
+    public List<Rating> listRecentByUserId(int userId, int limit) {
+        return listRecentByUserId(userId, limit, 0);
+    }
+
+    // queryTimeoutSeconds > 0: Abfrage wird in der DB abgebrochen (Dashboard-Deadline)
+    public List<Rating> listRecentByUserId(int userId, int limit, int queryTimeoutSeconds) {
+        return readConsistent(() -> withPendingLikes(
+                ratingRepository.findRecentByUserId(userId, limit, queryTimeoutSeconds)));
+    }
+
+    private Optional<Rating> findWithPendingLikes(int ratingId) {
+        return readConsistent(() -> ratingRepository.findById(ratingId).map(this::withPendingLikes));
+    }
+
+    /**
+     * DB-Abfrage und pendingFor() passend zueinander (sonst Likes doppelt oder gar nicht gezählt).
+     */
+    private <T> T readConsistent(Supplier<T> read) {
+        return likeCounter == null ? read.get() : likeCounter.readConsistent(read);
+    }
+
+    /**
+     * likes_count aus der DB + Likes, die im LikeCounterService noch auf den Flush warten.
+     */
+    private Rating withPendingLikes(Rating r) {
+        if (likeCounter == null || r.getId() == null) return r;
+
+        long delta = likeCounter.pendingFor(r.getId(), r.getLikesFlushGen());
+        if (delta != 0) {
+            int base = r.getLikesCount() == null ? 0 : r.getLikesCount();
+            r.setLikesCount((int) (base + delta));
+        }
+        return r;
+    }
+
+    private List<Rating> withPendingLikes(List<Rating> ratings) {
+        if (likeCounter != null) ratings.forEach(this::withPendingLikes);
+        return ratings;
     }
 
     private void afterRatingChanged(int userId, int mediaId) {
+        // Bei vielen Ratings kurz hintereinander: gesammelt im Hintergrund statt UPDATE pro Write
+        if (statistics != null) {
+            statistics.markChanged(userId, mediaId);
+            return;
+        }
         mediaRepository.updateAverageScore(mediaId);
         userRepository.updateUserStatistics(userId);
     }
+
+    // Fehler in einem Listener dürfen den eigentlichen Request nicht kaputt machen (DB ist schon geschrieben)
+    private void notifyChanged(int userId, int mediaId, int oldStars, int newStars) {
+        for (RatingListener l : listeners) {
+            try {
+                l.onRatingChanged(userId, mediaId, oldStars, newStars);
+            } catch (RuntimeException e) {
+                System.err.println("Fehler im RatingListener: " + e.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package at.technikum.mrp.service;
+
+/**
+ * Ergebnis der In-Memory Recommender (Collaborative Filtering, Matrix Factorization):
+ * nur mediaId + Score, die Media-Details lädt der RecommendationService danach gesammelt aus der DB.
+ */
+public class RecommendationCandidate {
+    public final int mediaId;
+    public final float score;
+
+    public RecommendationCandidate(int mediaId, float score) {
+        this.mediaId = mediaId;
+        this.score = score;
+    }
+}
@@ -1,45 +1,160 @@
 package at.technikum.mrp.service;
 
+import at.technikum.mrp.dto.RecommendationResponse;
 import at.technikum.mrp.model.Media;
+import at.technikum.mrp.model.Rating;
 import at.technikum.mrp.repository.MediaRepository;
 import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.SingleFlight;
 
 import java.util.*;
 
 /**
- * Einfache Recommendation-Logik:
- * - Nimmt alle Medien, die der User >= 4 Sterne bewertet hat
- * - Sucht Medien, die der User noch nicht bewertet hat
- * - Vergibt Score basierend auf Genre/Typ/Altersfreigabe
+ * Recommendation-Logik mit drei Strategien (?strategy=):
+ * - content (Default): Medien, die der User >= 4 Sterne bewertet hat, werden mit noch nicht
+ *   bewerteten Medien verglichen (Score basierend auf Genre/Typ/Altersfreigabe)
+ * - collaborative: Item-Item Collaborative Filtering aus dem CollaborativeFilteringService
+ * - mf: Vorhersage per Skalarprodukt aus dem im Hintergrund trainierten MatrixFactorizationService
+ * In-Memory Strategien werden mit content-Empfehlungen aufgefüllt, falls sie zu wenig liefern (Cold Start).
  */
 public class RecommendationService {
 
+    public static final String STRATEGY_CONTENT = "content";
+    public static final String STRATEGY_COLLABORATIVE = "collaborative";
+    public static final String STRATEGY_MATRIX_FACTORIZATION = "mf";
+
+    private static final int MIN_STARS = 4;
+
+    // Obergrenze für vorgefilterte Kandidaten aus der DB (content-Strategie); exakt, solange limit <= MAX_CANDIDATES
+    private static final int MAX_CANDIDATES = 200;
+
     private final MediaRepository mediaRepository;
     private final RatingRepository ratingRepository;
+    private final CollaborativeFilteringService collaborativeFiltering;
+    private final MatrixFactorizationService matrixFactorization;
+
+    // Top-Rated-Fallback: gleichzeitige Cold-Start-User teilen sich eine Query pro limit
+    private final SingleFlight<Integer, List<Media>> topRatedFlight = new SingleFlight<>();
 
     public RecommendationService(MediaRepository mediaRepository, RatingRepository ratingRepository) {
+        this(mediaRepository, ratingRepository, null, null);
+    }
+
+    public RecommendationService(MediaRepository mediaRepository,
+                                 RatingRepository ratingRepository,
+                                 CollaborativeFilteringService collaborativeFiltering,
+                                 MatrixFactorizationService matrixFactorization) {
         this.mediaRepository = mediaRepository;
         this.ratingRepository = ratingRepository;
+        this.collaborativeFiltering = collaborativeFiltering;
+        this.matrixFactorization = matrixFactorization;
+    }
+
+    public List<RecommendationResponse> recommendForUser(int userId, int limit) {
+        return recommendForUser(userId, limit, STRATEGY_CONTENT);
+    }
+
+    /**
+     * Empfehlungen nach gewählter Strategie (null/leer = content).
+     */
+    public List<RecommendationResponse> recommendForUser(int userId, int limit, String strategy) {
+        // limit < 1 -> leere Liste (wie früher), statt subList-Fehler oder negativem SQL-LIMIT
+        if (limit <= 0) return List.of();
+
+        if (strategy == null || strategy.isBlank() || STRATEGY_CONTENT.equalsIgnoreCase(strategy)) {
+            return recommendByContent(userId, limit);
+        }
+        if (STRATEGY_COLLABORATIVE.equalsIgnoreCase(strategy)) {
+            if (collaborativeFiltering == null) {
+                throw new ApiException(503, "strategy=collaborative ist nicht verfügbar");
+            }
+            List<RecommendationCandidate> candidates = collaborativeFiltering.recommend(userId, MIN_STARS, limit);
+            return toRecommendations(userId, limit, candidates, STRATEGY_COLLABORATIVE);
+        }
+        if (STRATEGY_MATRIX_FACTORIZATION.equalsIgnoreCase(strategy)) {
+            if (matrixFactorization == null) {
+                throw new ApiException(503, "strategy=mf ist nicht verfügbar");
+            }
+            List<RecommendationCandidate> candidates =
+                    matrixFactorization.recommend(userId, ratedMediaIds(userId), limit);
+            return toRecommendations(userId, limit, candidates, STRATEGY_MATRIX_FACTORIZATION);
+        }
+        throw ApiException.badRequest("strategy muss 'content', 'collaborative' oder 'mf' sein");
+    }
+
+    /**
+     * Kandidaten kommen aus dem Speicher, aus der DB werden nur noch die Details
+     * der gefundenen Media (ein Query) geladen.
+     */
+    private List<RecommendationResponse> toRecommendations(int userId,
+                                                           int limit,
+                                                           List<RecommendationCandidate> candidates,
+                                                           String reason) {
+        Map<Integer, Float> scoreById = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        for (RecommendationCandidate c : candidates) {
+            ids.add(c.mediaId);
+            scoreById.put(c.mediaId, c.score);
+        }
+
+        List<RecommendationResponse> out = new ArrayList<>();
+        for (Media m : mediaRepository.findByIds(ids)) {
+            double score = Math.round(scoreById.get(m.getId()) * 1000) / 1000.0;
+            out.add(RecommendationResponse.from(m, score, reason));
+        }
+
+        // Cold Start (zu wenige Co-Ratings / User nicht im Modell): mit content-Empfehlungen auffüllen
+        if (out.size() < limit) {
+            Set<Integer> seen = new HashSet<>(ids);
+            for (RecommendationResponse rec : recommendByContent(userId, limit)) {
+                if (out.size() >= limit) break;
+                if (seen.add(rec.id())) out.add(rec);
+            }
+        }
+        return out;
     }
 
-    public List<Map<String, Object>> recommendForUser(int userId, int limit) {
-        int MIN_STARS = 4;
+    /**
+     * Zähler der Request-Koaleszierung für findTopRated.
+     */
+    public Map<String, Object> getTopRatedCoalescingMetrics() {
+        return topRatedFlight.getMetrics();
+    }
 
+    /**
+     * Bereits bewertete Media (sortiert), damit das MF-Modell sie beim Scoren überspringt.
+     */
+    private int[] ratedMediaIds(int userId) {
+        List<Rating> rated = ratingRepository.findByUserId(userId);
+        int[] ids = new int[rated.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rated.get(i).getMediaId();
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private List<RecommendationResponse> recommendByContent(int userId, int limit) {
         List<Media> liked = mediaRepository.findHighlyRatedByUser(userId, MIN_STARS);
-        List<Media> candidates = mediaRepository.findNotRatedByUser(userId);
 
         // Wenn der User noch nichts (gut) bewertet hat -> Fallback: Top Rated
         if (liked.isEmpty()) {
-            List<Media> top = mediaRepository.findTopRated(limit);
-            List<Map<String, Object>> out = new ArrayList<>();
+            List<Media> top = topRatedFlight.execute(limit, () -> mediaRepository.findTopRated(limit));
+            List<RecommendationResponse> out = new ArrayList<>();
             for (Media m : top) {
-                out.add(mediaToJsonWithScore(m, 0, "fallback_topRated"));
+                out.add(RecommendationResponse.from(m, 0, "fallback_topRated"));
             }
             return out;
         }
 
         String favoriteGenre = findFavoriteGenre(liked);
 
+        // Vorfilter in SQL: die DB rechnet denselben Score wie unten (inkl. Lieblingsgenre) und schneidet
+        // erst danach bei MAX_CANDIDATES ab (+ kleiner Fallback-Pool); nur die Spalten fürs Scoring
+        List<Media> candidates = mediaRepository.findRecommendationCandidates(
+                userId, MIN_STARS, favoriteGenre, MAX_CANDIDATES, limit);
+
         List<ScoredMedia> scored = new ArrayList<>();
         for (Media c : candidates) {
             int score = 0;
@@ -78,10 +193,19 @@ public class RecommendationService {
             return ta.compareToIgnoreCase(tb);
         });
 
-        List<Map<String, Object>> out = new ArrayList<>();
-        for (int i = 0; i < scored.size() && out.size() < limit; i++) {
-            ScoredMedia sm = scored.get(i);
-            out.add(mediaToJsonWithScore(sm.media, sm.score, "favoriteGenre=" + favoriteGenre));
+        // Details (description, createdAt, ...) nur für die Gewinner nachladen
+        List<ScoredMedia> top = scored.subList(0, Math.min(limit, scored.size()));
+        List<Integer> ids = new ArrayList<>();
+        for (ScoredMedia sm : top) ids.add(sm.media.getId());
+
+        Map<Integer, Media> details = new HashMap<>();
+        for (Media m : mediaRepository.findByIds(ids)) details.put(m.getId(), m);
+
+        List<RecommendationResponse> out = new ArrayList<>();
+        for (ScoredMedia sm : top) {
+            Media full = details.get(sm.media.getId());
+            if (full == null) continue; // zwischenzeitlich gelöscht
+            out.add(RecommendationResponse.from(full, sm.score, "favoriteGenre=" + favoriteGenre));
         }
 
         return out;
@@ -146,23 +270,6 @@ public class RecommendationService {
         return g;
     }
 
-    private Map<String, Object> mediaToJsonWithScore(Media m, int score, String reason) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", m.getId());
-        map.put("title", m.getTitle());
-        map.put("description", m.getDescription());
-        map.put("mediaType", m.getType());
-        map.put("releaseYear", m.getReleaseYear());
-        map.put("genres", m.getGenres());
-        map.put("ageRestriction", m.getAgeRestriction());
-        map.put("creatorId", m.getCreatorId());
-        map.put("averageScore", m.getAverageScore());
-        map.put("createdAt", m.getCreatedAt());
-        map.put("recommendationScore", score);
-        map.put("reason", reason);
-        return map;
-    }
-
     private static class ScoredMedia {
         final Media media;
         final int score;
@@ -0,0 +1,183 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.repository.MediaRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.MinHashLsh;
+import at.technikum.mrp.util.TopK;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Ähnliche Media" über zwei MinHash/LSH-Indizes:
+ * - Genre-Menge jedes Media
+ * - Menge der User, die das Media bewertet haben
+ * Kandidaten kommen nur aus gemeinsamen LSH-Buckets (kein Scan über den Katalog),
+ * Ranking = Mittelwert der geschätzten Jaccard-Ähnlichkeiten (nur Indizes, in denen beide Mengen nicht leer sind).
+ *
+ * Aktualisierung inkrementell über MediaListener (Genres) und RatingListener (Bewerter).
+ */
+public class SimilarMediaService implements MediaListener, RatingListener {
+
+    // Genres: kleine Mengen -> kurze Bänder, damit auch teilweise Überlappung gefunden wird
+    private static final int GENRE_BANDS = 16;
+    private static final int GENRE_ROWS = 2;
+
+    // Bewerter: größere Mengen -> längere Bänder, sonst werden die Buckets zu voll
+    private static final int RATER_BANDS = 16;
+    private static final int RATER_ROWS = 4;
+
+    // Obergrenze, wie viele Kandidaten pro Anfrage bewertet werden (hält volle Buckets günstig)
+    private static final int MAX_CANDIDATES = 500;
+
+    private final MediaRepository mediaRepository;
+    private final RatingRepository ratingRepository;
+
+    private MinHashLsh genres = new MinHashLsh(GENRE_BANDS, GENRE_ROWS, 1L);
+    private MinHashLsh raters = new MinHashLsh(RATER_BANDS, RATER_ROWS, 2L);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SimilarMediaService(MediaRepository mediaRepository, RatingRepository ratingRepository) {
+        this.mediaRepository = mediaRepository;
+        this.ratingRepository = ratingRepository;
+    }
+
+    /**
+     * Baut beide Indizes aus der DB neu auf (einmal beim Start).
+     *
+     * @return Anzahl indizierter Media oder -1 bei DB-Fehler (alter Stand bleibt dann erhalten)
+     */
+    public long rebuild() {
+        MinHashLsh newGenres = new MinHashLsh(GENRE_BANDS, GENRE_ROWS, 1L);
+        MinHashLsh newRaters = new MinHashLsh(RATER_BANDS, RATER_ROWS, 2L);
+
+        long mediaCount = mediaRepository.forEachMedia(m -> newGenres.setElements(m.getId(), genreKeys(m)));
+        if (mediaCount < 0) return -1;
+
+        long ratingCount = ratingRepository.forEachRating(
+                (userId, mediaId, stars) -> newRaters.addUnindexed(mediaId, userId));
+        if (ratingCount < 0) return -1;
+        newRaters.reindexAll();
+
+        lock.writeLock().lock();
+        try {
+            genres = newGenres;
+            raters = newRaters;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return mediaCount;
+    }
+
+    /**
+     * true wenn das Media im Index bekannt ist.
+     */
+    public boolean contains(int mediaId) {
+        lock.readLock().lock();
+        try {
+            return genres.contains(mediaId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ähnlichste Media (höchster Score zuerst), ohne das Media selbst.
+     */
+    public List<RecommendationCandidate> findSimilar(int mediaId, int limit) {
+        if (limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            Set<Integer> candidates = new LinkedHashSet<>();
+            genres.collectCandidates(mediaId, candidates, MAX_CANDIDATES);
+            raters.collectCandidates(mediaId, candidates, MAX_CANDIDATES * 2);
+
+            int capacity = Math.min(limit, candidates.size());
+            int[] topIds = new int[capacity];
+            float[] topScores = new float[capacity];
+            int size = 0;
+
+            for (int other : candidates) {
+                double sum = 0;
+                int parts = 0;
+
+                double genreSim = genres.similarity(mediaId, other);
+                if (genreSim >= 0) { sum += genreSim; parts++; }
+
+                double raterSim = raters.similarity(mediaId, other);
+                if (raterSim >= 0) { sum += raterSim; parts++; }
+
+                if (parts == 0 || sum <= 0) continue;
+                size = TopK.insert(topIds, topScores, size, other, (float) (sum / parts));
+            }
+
+            List<RecommendationCandidate> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                out.add(new RecommendationCandidate(topIds[i], topScores[i]));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onMediaSaved(Media media) {
+        lock.writeLock().lock();
+        try {
+            genres.setElements(media.getId(), genreKeys(media));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onMediaDeleted(int mediaId) {
+        lock.writeLock().lock();
+        try {
+            genres.removeId(mediaId);
+            raters.removeId(mediaId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRatingSaved(int userId, int mediaId, int stars) {
+        lock.writeLock().lock();
+        try {
+            raters.add(mediaId, userId); // Update eines bestehenden Ratings ändert die Menge nicht
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRatingDeleted(int userId, int mediaId) {
+        lock.writeLock().lock();
+        try {
+            raters.remove(mediaId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Genres case-insensitive als int-Elemente (Hash des normalisierten Strings).
+     */
+    private static int[] genreKeys(Media m) {
+        List<String> g = m.getGenres();
+        if (g == null) return new int[0];
+
+        return g.stream()
+                .map(s -> s.trim().toLowerCase())
+                .filter(s -> !s.isEmpty())
+                .mapToInt(String::hashCode)
+                .toArray();
+    }
+}
@@ -0,0 +1,14 @@
+package at.technikum.mrp.service;
+
+/**
+ * Callback für neu berechnete Statistiken.
+ * StatisticsWriteBehindService ruft die Listener auf, nachdem average_score eines Media in der DB neu
+ * geschrieben wurde (beim Write-Behind also erst zeitversetzt nach dem Rating-Write).
+ */
+public interface StatisticsListener {
+
+    /**
+     * average_score dieses Media wurde in der DB aktualisiert.
+     */
+    void onAverageScoreWritten(int mediaId);
+}
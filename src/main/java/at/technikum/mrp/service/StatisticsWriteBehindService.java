@@ -0,0 +1,209 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.MediaRepository;
+import at.technikum.mrp.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-Behind für abgeleitete Statistiken (media.average_score, User-Statistiken).
+ * - Rating-Writes merken sich nur die betroffenen Media-/User-IDs
+ * - ein Hintergrund-Thread rechnet alle paar hundert Millisekunden jede gemerkte ID genau einmal neu
+ *   -> 100 Ratings auf dasselbe Media in einer Sekunde = 1 UPDATE statt 100 (kein Anstellen am Row-Lock)
+ * - die Warteschlange ist begrenzt: ist sie voll, wird wie früher sofort synchron neu berechnet
+ * - beim Herunterfahren wird alles Offene noch geschrieben
+ *
+ * Folge: average_score kann bis zu einem Debounce-Intervall hinterherhinken ("staleness" in /api/metrics).
+ * Wer den Score cached, hört deshalb auf StatisticsListener statt nur auf den Rating-Write.
+ */
+public class StatisticsWriteBehindService {
+
+    private final MediaRepository mediaRepository;
+    private final UserRepository userRepository;
+    private final long debounceMillis;
+    private final int capacity;
+
+    // ID -> Zeitpunkt (nanoTime) der ersten noch nicht geschriebenen Änderung
+    private final ConcurrentHashMap<Integer, Long> dirtyMedia = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Long> dirtyUsers = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    // Listener werden nur beim Start registriert -> CopyOnWrite passt
+    private final List<StatisticsListener> listeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+
+    // Kennzahlen (für /api/metrics)
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private volatile long lastMaxStalenessMillis;
+    private volatile LocalDateTime lastFlushAt;
+
+    public StatisticsWriteBehindService(MediaRepository mediaRepository,
+                                        UserRepository userRepository,
+                                        long debounceMillis,
+                                        int capacity) {
+        this.mediaRepository = mediaRepository;
+        this.userRepository = userRepository;
+        this.debounceMillis = Math.max(10, debounceMillis);
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public void addListener(StatisticsListener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, debounceMillis, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stoppt den Worker und schreibt alle offenen Statistiken (beim Herunterfahren).
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        flush();
+    }
+
+    /**
+     * Merkt Media und User zur Neuberechnung vor. Mehrfache Änderungen derselben ID vor dem
+     * nächsten Flush werden zusammengefasst.
+     */
+    public void markChanged(int userId, int mediaId) {
+        enqueued.increment();
+        if (!enqueue(dirtyMedia, mediaId)) writeAverageScore(mediaId);
+        if (!enqueue(dirtyUsers, userId)) userRepository.updateUserStatistics(userId);
+    }
+
+    /**
+     * Schreibt alle vorgemerkten Statistiken, jede ID genau einmal.
+     *
+     * @return Anzahl neu berechneter Media + User
+     */
+    public synchronized int flush() {
+        long now = System.nanoTime();
+        long maxStaleNanos = 0;
+        int count = 0;
+
+        for (Integer mediaId : new ArrayList<>(dirtyMedia.keySet())) {
+            // erst entfernen, dann rechnen: Änderungen während des UPDATEs landen wieder in der Map
+            Long since = dirtyMedia.remove(mediaId);
+            if (since == null) continue;
+            pendingCount.decrementAndGet();
+            maxStaleNanos = Math.max(maxStaleNanos, now - since);
+            writeAverageScore(mediaId);
+            count++;
+        }
+
+        for (Integer userId : new ArrayList<>(dirtyUsers.keySet())) {
+            Long since = dirtyUsers.remove(userId);
+            if (since == null) continue;
+            pendingCount.decrementAndGet();
+            maxStaleNanos = Math.max(maxStaleNanos, now - since);
+            userRepository.updateUserStatistics(userId);
+            count++;
+        }
+
+        if (count > 0) {
+            written.add(count);
+            lastMaxStalenessMillis = TimeUnit.NANOSECONDS.toMillis(maxStaleNanos);
+            lastFlushAt = LocalDateTime.now();
+        }
+        return count;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("debounceMillis", debounceMillis);
+        out.put("capacity", capacity);
+        out.put("pending", pendingCount.get());
+        out.put("oldestPendingMillis", oldestPendingMillis());
+        out.put("lastFlushMaxStalenessMillis", lastMaxStalenessMillis);
+        out.put("lastFlushAt", lastFlushAt);
+        out.put("enqueued", enqueued.sum());
+        out.put("coalesced", coalesced.sum());
+        out.put("written", written.sum());
+        out.put("overflows", overflows.sum());
+        return out;
+    }
+
+    /**
+     * @return false wenn die Warteschlange voll ist (Aufrufer rechnet dann synchron)
+     */
+    private boolean enqueue(ConcurrentHashMap<Integer, Long> dirty, int id) {
+        if (dirty.containsKey(id)) {
+            coalesced.increment();
+            return true;
+        }
+        if (pendingCount.incrementAndGet() > capacity) {
+            pendingCount.decrementAndGet();
+            overflows.increment();
+            return false;
+        }
+        if (dirty.putIfAbsent(id, System.nanoTime()) != null) {
+            // parallel schon eingetragen -> reservierten Platz wieder freigeben
+            pendingCount.decrementAndGet();
+            coalesced.increment();
+        }
+        return true;
+    }
+
+    private void writeAverageScore(int mediaId) {
+        if (!mediaRepository.updateAverageScore(mediaId)) return;
+        for (StatisticsListener l : listeners) {
+            try {
+                l.onAverageScoreWritten(mediaId);
+            } catch (RuntimeException e) {
+                System.err.println("Fehler im StatisticsListener: " + e.getMessage());
+            }
+        }
+    }
+
+    private long oldestPendingMillis() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        List<Long> all = new ArrayList<>(dirtyMedia.values());
+        all.addAll(dirtyUsers.values());
+        for (long since : all) {
+            oldest = Math.max(oldest, now - since);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(oldest);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Worker darf nicht sterben, sonst bleiben Statistiken für immer veraltet
+            System.err.println("Fehler beim Aktualisieren der Statistiken: " + e.getMessage());
+        }
+    }
+}
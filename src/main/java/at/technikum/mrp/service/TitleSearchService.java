@@ -0,0 +1,445 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.repository.MediaRepository;
+import at.technikum.mrp.util.EditDistance;
+import at.technikum.mrp.util.InvertedIndex;
+import at.technikum.mrp.util.TopK;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Titelsuche im Speicher (statt LIKE-Scan bei jedem Tastendruck):
+ * - invertierter Index Wort -> sortierte Media-IDs, Wörter sortiert für Präfix-Anfragen
+ * - Autocomplete: alle Wörter der Eingabe bis auf das letzte müssen exakt vorkommen,
+ *   das letzte (gerade getippte) Wort als Präfix
+ * - Ranking: Titel beginnt mit der Eingabe > letztes Wort vollständig getroffen > kürzerer Titel
+ *
+ * Tippfehler-tolerante Suche (fuzzy) über einen zweiten Index (Wortlänge, Bigramm) -> Wort des Vokabulars:
+ * - Kandidaten-Wörter = Wörter passender Länge mit genug gemeinsamen Bigrammen (q-Gram-Lemma)
+ * - Prüfung mit begrenzter Editierdistanz inkl. Buchstabendreher (0 / 1 / 2 Fehler je nach Wortlänge)
+ * - jedes Wort der Eingabe muss (ungefähr) im Titel vorkommen, Score = mittlere Wort-Ähnlichkeit
+ *
+ * Aufbau einmal beim Start, danach inkrementell über MediaListener.
+ */
+public class TitleSearchService implements MediaListener {
+
+    // Obergrenze geprüfter Kandidaten bei sehr kurzen Präfixen ("a"), hält die Antwortzeit konstant
+    private static final int MAX_CANDIDATES = 500;
+
+    // Obergrenze geprüfter Titel in der Fuzzy-Suche (das seltenste Wort der Eingabe liefert die Kandidaten)
+    private static final int MAX_FUZZY_CANDIDATES = 20_000;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final MediaRepository mediaRepository;
+
+    private Index index = new Index();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TitleSearchService(MediaRepository mediaRepository) {
+        this.mediaRepository = mediaRepository;
+    }
+
+    /**
+     * Treffer für das Autocomplete (ID + Originaltitel).
+     */
+    public static final class Suggestion {
+        public final int id;
+        public final String title;
+
+        public Suggestion(int id, String title) {
+            this.id = id;
+            this.title = title;
+        }
+    }
+
+    /**
+     * Treffer der Fuzzy-Suche mit Ähnlichkeit 0..1 (1 = alle Wörter exakt getroffen).
+     */
+    public static final class Match {
+        public final int id;
+        public final String title;
+        public final float similarity;
+
+        public Match(int id, String title, float similarity) {
+            this.id = id;
+            this.title = title;
+            this.similarity = similarity;
+        }
+    }
+
+    /**
+     * Baut den Index aus der DB neu auf (einmal beim Start).
+     *
+     * @return Anzahl indizierter Titel oder -1 bei DB-Fehler (alter Stand bleibt dann erhalten)
+     */
+    public long rebuild() {
+        Index newIndex = new Index();
+
+        long count = mediaRepository.forEachMedia(m -> newIndex.put(m.getId(), m.getTitle()));
+        if (count < 0) return -1;
+
+        lock.writeLock().lock();
+        try {
+            index = newIndex;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return count;
+    }
+
+    /**
+     * Autocomplete-Vorschläge für die Eingabe q (bestes Ergebnis zuerst).
+     */
+    public List<Suggestion> suggest(String q, int limit) {
+        String query = normalize(q);
+        if (query.isEmpty() || limit <= 0) return List.of();
+
+        String[] tokens = query.split(" ");
+        String prefix = tokens[tokens.length - 1];
+
+        lock.readLock().lock();
+        try {
+            Index idx = index;
+            int[] topIds = new int[limit];
+            float[] topScores = new float[limit];
+            int[] size = {0};
+
+            if (tokens.length == 1) {
+                // 1) Titel, die mit dem Präfix beginnen (Index der ersten Wörter, exaktes Wort zuerst)
+                int[] scanned = {0};
+                idx.firstWords.forEachWithPrefix(prefix, (term, id) -> {
+                    float score = 2 + (term.equals(prefix) ? 1 : 0) + idx.lengthBonus(id);
+                    size[0] = TopK.insert(topIds, topScores, size[0], id, score);
+                    return ++scanned[0] < MAX_CANDIDATES;
+                });
+
+                // 2) nur wenn noch Plätze frei sind: Präfix an anderer Stelle im Titel (Score immer < 2)
+                if (size[0] < limit) {
+                    Set<Integer> seen = new HashSet<>();
+                    idx.words.forEachWithPrefix(prefix, (term, id) -> {
+                        if (seen.add(id) && !idx.titles.get(id).normalized.startsWith(prefix)) {
+                            float score = (term.equals(prefix) ? 1 : 0) + idx.lengthBonus(id);
+                            size[0] = TopK.insert(topIds, topScores, size[0], id, score);
+                        }
+                        return seen.size() < MAX_CANDIDATES;
+                    });
+                }
+            } else {
+                // vollständige Wörter schneiden (kürzeste Liste zuerst), dann Präfix am Kandidaten prüfen
+                String[] complete = Arrays.copyOf(tokens, tokens.length - 1);
+                Arrays.sort(complete, Comparator.comparingInt(idx.words::frequency));
+
+                int[] candidates = idx.words.postings(complete[0]);
+                for (int i = 1; i < complete.length && candidates.length > 0; i++) {
+                    candidates = idx.words.retain(candidates, complete[i]);
+                }
+
+                int checked = 0;
+                for (int id : candidates) {
+                    if (!idx.hasWordWithPrefix(id, prefix)) continue;
+                    size[0] = TopK.insert(topIds, topScores, size[0], id, idx.suggestScore(id, query, prefix));
+                    if (++checked >= MAX_CANDIDATES) break;
+                }
+            }
+
+            List<Suggestion> out = new ArrayList<>(size[0]);
+            for (int i = 0; i < size[0]; i++) {
+                out.add(new Suggestion(topIds[i], idx.titles.get(topIds[i]).title));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tippfehler-tolerante Suche: Titel, die jedes Wort von q mit wenigen Fehlern enthalten (ähnlichste zuerst).
+     */
+    public List<Match> fuzzy(String q, int limit) {
+        String query = normalize(q);
+        if (query.isEmpty() || limit <= 0) return List.of();
+
+        String[] tokens = new LinkedHashSet<>(Arrays.asList(query.split(" "))).toArray(new String[0]);
+
+        lock.readLock().lock();
+        try {
+            Index idx = index;
+
+            // pro Eingabe-Wort: passende Vokabular-Wörter mit Ähnlichkeit
+            List<Map<String, Float>> matches = new ArrayList<>(tokens.length);
+            for (String token : tokens) {
+                Map<String, Float> m = idx.similarWords(token);
+                if (m.isEmpty()) return List.of();
+                matches.add(m);
+            }
+
+            // Kandidaten aus dem Eingabe-Wort mit den wenigsten Titeln
+            int driver = 0;
+            long driverPostings = Long.MAX_VALUE;
+            for (int i = 0; i < matches.size(); i++) {
+                long total = 0;
+                for (String w : matches.get(i).keySet()) total += idx.words.frequency(w);
+                if (total < driverPostings) {
+                    driverPostings = total;
+                    driver = i;
+                }
+            }
+
+            Set<Integer> candidates = new HashSet<>();
+            for (String w : matches.get(driver).keySet()) {
+                idx.words.forEachPosting(w, id -> {
+                    if (candidates.size() < MAX_FUZZY_CANDIDATES) candidates.add(id);
+                });
+            }
+
+            int[] topIds = new int[limit];
+            float[] topScores = new float[limit];
+            int size = 0;
+
+            for (int id : candidates) {
+                float similarity = idx.fuzzySimilarity(id, matches);
+                if (similarity == 0) continue;
+
+                // bei gleicher Ähnlichkeit gewinnt der Titel mit weniger zusätzlichen Wörtern
+                int extraWords = Math.min(idx.words.termsOf(id).length - matches.size(), 100);
+                size = TopK.insert(topIds, topScores, size, id, similarity - 0.0001f * Math.max(0, extraWords));
+            }
+
+            List<Match> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                out.add(new Match(topIds[i], idx.titles.get(topIds[i]).title, idx.fuzzySimilarity(topIds[i], matches)));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("titles", index.words.size());
+            out.put("words", index.words.termCount());
+            out.put("ngrams", index.grams.termCount());
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onMediaSaved(Media media) {
+        lock.writeLock().lock();
+        try {
+            index.put(media.getId(), media.getTitle());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onMediaDeleted(int mediaId) {
+        lock.writeLock().lock();
+        try {
+            index.remove(mediaId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Kleinbuchstaben, ohne Akzente, Satzzeichen/Leerraum zu einem Leerzeichen zusammengefasst.
+     */
+    static String normalize(String s) {
+        if (s == null) return "";
+        String decomposed = Normalizer.normalize(s, Normalizer.Form.NFD);
+        String plain = DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase();
+        return NON_ALNUM.matcher(plain).replaceAll(" ").strip();
+    }
+
+    /**
+     * Erlaubte Tippfehler je nach Wortlänge (kurze Wörter exakt, sonst wird fast alles ähnlich).
+     */
+    static int maxEdits(int length) {
+        if (length <= 3) return 0;
+        if (length <= 6) return 1;
+        return 2;
+    }
+
+    // Bigramme mit Rand-Markierung, verschieden: "star" -> $s, st, ta, ar, r$
+    static Set<String> bigrams(String word) {
+        String padded = "$" + word + "$";
+        Set<String> out = new LinkedHashSet<>();
+        for (int i = 0; i + 2 <= padded.length(); i++) {
+            out.add(padded.substring(i, i + 2));
+        }
+        return out;
+    }
+
+    // Schlüssel im N-Gramm-Index: Länge mit drin, damit nur Wörter passender Länge gezählt werden
+    private static String gramKey(int length, String gram) {
+        return length + ":" + gram;
+    }
+
+    /**
+     * Alle Strukturen eines Index-Stands (wird bei rebuild() als Ganzes ausgetauscht).
+     * Nicht thread-safe: nur unter dem Lock des Services benutzen.
+     */
+    private static final class Index {
+        final InvertedIndex words = new InvertedIndex();   // Wort -> Media-IDs
+        final InvertedIndex firstWords = new InvertedIndex(); // erstes Wort des Titels -> Media-IDs
+        final InvertedIndex grams = new InvertedIndex();   // (Länge, Bigramm) -> Wort-IDs (Vokabular)
+        final Map<Integer, Entry> titles = new HashMap<>();
+        final Map<String, Integer> wordIds = new HashMap<>();
+        final List<String> wordById = new ArrayList<>();
+
+        void put(int id, String title) {
+            String[] old = words.termsOf(id);
+
+            Entry e = new Entry(title);
+            List<String> titleWords = e.words();
+            titles.put(id, e);
+            words.put(id, titleWords);
+            firstWords.put(id, titleWords.isEmpty() ? List.of() : List.of(titleWords.get(0)));
+
+            for (String w : words.termsOf(id)) {
+                if (!wordIds.containsKey(w)) {
+                    int wordId = wordById.size();
+                    wordById.add(w);
+                    wordIds.put(w, wordId);
+                    List<String> keys = new ArrayList<>();
+                    for (String g : bigrams(w)) keys.add(gramKey(w.length(), g));
+                    grams.put(wordId, keys);
+                }
+            }
+            dropUnusedWords(old);
+        }
+
+        void remove(int id) {
+            String[] old = words.termsOf(id);
+            titles.remove(id);
+            words.remove(id);
+            firstWords.remove(id);
+            dropUnusedWords(old);
+        }
+
+        // Wörter, die in keinem Titel mehr vorkommen, aus dem Vokabular nehmen
+        private void dropUnusedWords(String[] candidates) {
+            for (String w : candidates) {
+                if (words.frequency(w) > 0) continue;
+                Integer wordId = wordIds.remove(w);
+                if (wordId == null) continue;
+                grams.remove(wordId);
+                wordById.set(wordId, null);
+            }
+        }
+
+        /**
+         * Vokabular-Wörter mit höchstens maxEdits Fehlern zu token, mit Ähnlichkeit 1 - Distanz / Länge.
+         */
+        Map<String, Float> similarWords(String token) {
+            int k = maxEdits(token.length());
+            if (k == 0) {
+                return words.frequency(token) > 0 ? Map.of(token, 1f) : Map.of();
+            }
+
+            // q-Gram-Lemma: jeder Fehler (auch ein Buchstabendreher) zerstört höchstens 3 Bigramme
+            Set<String> tokenGrams = bigrams(token);
+            int minShared = Math.max(1, tokenGrams.size() - 3 * k);
+
+            // Wort-IDs sind dicht (0..n-1) -> Zähler als Array statt Map
+            int[] shared = new int[wordById.size()];
+            for (int length = Math.max(1, token.length() - k); length <= token.length() + k; length++) {
+                for (String g : tokenGrams) {
+                    grams.addCounts(gramKey(length, g), shared);
+                }
+            }
+
+            Map<String, Float> out = new HashMap<>();
+            for (int wordId = 0; wordId < shared.length; wordId++) {
+                if (shared[wordId] < minShared) continue;
+
+                String w = wordById.get(wordId);
+                if (w == null) continue;
+
+                int d = EditDistance.bounded(token, w, k);
+                if (d > k) continue;
+                out.put(w, 1f - (float) d / Math.max(w.length(), token.length()));
+            }
+            return out;
+        }
+
+        /**
+         * Mittlere Ähnlichkeit über alle Eingabe-Wörter (bestes Titel-Wort je Eingabe-Wort), 0 wenn eines fehlt.
+         */
+        float fuzzySimilarity(int id, List<Map<String, Float>> matches) {
+            String[] titleWords = words.termsOf(id);
+            float sum = 0;
+            for (Map<String, Float> m : matches) {
+                float best = 0;
+                for (String w : titleWords) {
+                    Float sim = m.get(w);
+                    if (sim != null && sim > best) best = sim;
+                }
+                if (best == 0) return 0;
+                sum += best;
+            }
+            return sum / matches.size();
+        }
+
+        float suggestScore(int id, String query, String prefix) {
+            Entry e = titles.get(id);
+            float score = 0;
+            if (e.normalized.startsWith(query)) score += 2;
+            for (String w : words.termsOf(id)) {
+                if (w.equals(prefix)) {
+                    score += 1;
+                    break;
+                }
+            }
+            return score + lengthBonus(id);
+        }
+
+        // kürzere Titel leicht bevorzugen (immer < 1, ändert nie die Stufe)
+        float lengthBonus(int id) {
+            return 1f / (1 + titles.get(id).title.length());
+        }
+
+        boolean hasWordWithPrefix(int id, String prefix) {
+            for (String w : words.termsOf(id)) {
+                if (w.startsWith(prefix)) return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Entry {
+        final String title;
+        final String normalized;
+
+        Entry(String title) {
+            this.title = title == null ? "" : title;
+            this.normalized = normalize(this.title);
+        }
+
+        List<String> words() {
+            return normalized.isEmpty() ? List.of() : Arrays.asList(normalized.split(" "));
+        }
+    }
+}
@@ -2,6 +2,8 @@ package at.technikum.mrp.service;
 
 import at.technikum.mrp.config.ServerConfig;
 import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.InMemoryExchange;
+import com.sun.net.httpserver.HttpExchange;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -43,6 +45,17 @@ public class TokenService {
         return token;
     }
 
+    /**
+     * userId für einen Request: Teil-Requests aus POST /api/batch bringen den dort schon einmal
+     * geprüften User mit, alle anderen werden über den Authorization-Header geprüft.
+     */
+    public int requireUserId(HttpExchange exchange) {
+        if (exchange instanceof InMemoryExchange sub && sub.getAuthenticatedUserId() != null) {
+            return sub.getAuthenticatedUserId();
+        }
+        return requireUserIdFromAuthHeader(exchange.getRequestHeaders().getFirst("Authorization"));
+    }
+
     /**
      * Liest "Authorization: Bearer <token>" und liefert userId zurück.
      * Wirft 401 wenn Header fehlt, Token ungültig oder abgelaufen.
@@ -0,0 +1,16 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.User;
+
+/**
+ * Callback für neue User.
+ * AuthService ruft die Listener nach erfolgreicher Registrierung auf, damit In-Memory Strukturen
+ * (z.B. das Leaderboard) auch User ohne Ratings kennen.
+ */
+public interface UserListener {
+
+    /**
+     * User wurde registriert (user = gespeicherter Stand inkl. id).
+     */
+    void onUserRegistered(User user);
+}
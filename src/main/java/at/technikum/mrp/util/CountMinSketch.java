@@ -0,0 +1,95 @@
+package at.technikum.mrp.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Count-Min Sketch: schätzt Häufigkeiten beliebig vieler IDs mit fixem Speicher (depth x width ints).
+ * - Schätzung ist nie zu klein, höchstens um epsilon * total zu groß (mit Wahrscheinlichkeit 1 - delta)
+ * - width = e / epsilon, depth = ln(1 / delta)
+ * - "Conservative Update": beim Hinzufügen werden nur die Zellen erhöht, die sonst unter der neuen
+ *   Schätzung lägen -> deutlich weniger Überschätzung bei schiefen Verteilungen
+ *
+ * Nicht thread-safe: der Aufrufer muss synchronisieren.
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final int[] table;   // depth Zeilen hintereinander
+    private final long[] seeds;
+    private long total;
+
+    public CountMinSketch(int width, int depth, long seed) {
+        this.width = Math.max(1, width);
+        this.depth = Math.max(1, depth);
+        this.table = new int[this.width * this.depth];
+        this.seeds = new long[this.depth];
+
+        Random random = new Random(seed);
+        for (int i = 0; i < this.depth; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Benötigte Breite für einen relativen Fehler epsilon (bezogen auf die Gesamtanzahl).
+     */
+    public static int widthFor(double epsilon) {
+        return (int) Math.ceil(Math.E / epsilon);
+    }
+
+    /**
+     * Benötigte Tiefe für eine Fehlerwahrscheinlichkeit delta.
+     */
+    public static int depthFor(double delta) {
+        return (int) Math.ceil(Math.log(1.0 / delta));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long memoryBytes() {
+        return (long) table.length * Integer.BYTES;
+    }
+
+    public void add(int id, int count) {
+        total += count;
+
+        int target = estimate(id) + count;
+        for (int row = 0; row < depth; row++) {
+            int idx = row * width + bucket(id, row);
+            if (table[idx] < target) table[idx] = target;
+        }
+    }
+
+    public int estimate(int id) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, table[row * width + bucket(id, row)]);
+        }
+        return min;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        total = 0;
+    }
+
+    private int bucket(int id, int row) {
+        long z = id * 0x9E3779B97F4A7C15L + seeds[row];
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) Math.floorMod(z, (long) width);
+    }
+}
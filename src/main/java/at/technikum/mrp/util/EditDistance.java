@@ -0,0 +1,50 @@
+package at.technikum.mrp.util;
+
+/**
+ * Editierdistanz (Damerau-Levenshtein, Variante "optimal string alignment") mit Obergrenze:
+ * Einfügen, Löschen, Ersetzen und Vertauschen zweier benachbarter Zeichen kosten je 1
+ * ("stra" -> "star" ist ein Tippfehler, nicht zwei).
+ * Sobald eine ganze DP-Zeile über max liegt, wird abgebrochen; für die Prüfung von Tippfehler-Kandidaten
+ * reicht "ist die Distanz <= max?", die genaue Zahl darüber ist egal.
+ */
+public class EditDistance {
+
+    /**
+     * @return Distanz zwischen a und b oder max + 1, wenn sie größer als max ist
+     */
+    public static int bounded(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) return max + 1;
+        if (n == 0 || m == 0) return Math.max(n, m);
+
+        int[] prevPrev = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+
+        for (int i = 1; i <= n; i++) {
+            curr[0] = i;
+            int rowMin = curr[0];
+            char ca = a.charAt(i - 1);
+
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int d = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    d = Math.min(d, prevPrev[j - 2] + 1);
+                }
+                curr[j] = d;
+                if (d < rowMin) rowMin = d;
+            }
+            if (rowMin > max) return max + 1;
+
+            int[] tmp = prevPrev;
+            prevPrev = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[m] > max ? max + 1 : prev[m];
+    }
+}
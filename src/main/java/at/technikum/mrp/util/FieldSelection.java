@@ -0,0 +1,57 @@
+package at.technikum.mrp.util;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ?fields=id,title,averageScore: welche JSON-Felder ein Client haben will.
+ * Die Repositories laden damit nur die passenden Spalten, der ObjectWriter gibt nur diese Felder aus.
+ *
+ * null = keine Auswahl -> alle Felder (wie bisher).
+ */
+public final class FieldSelection {
+
+    private FieldSelection() {}
+
+    /**
+     * Parst den Query-Parameter, unbekannte Felder -> 400.
+     * Sortiert, damit gleiche Auswahl in anderer Reihenfolge denselben Cache-Key ergibt.
+     */
+    public static Set<String> parse(String param, Set<String> allowed) {
+        if (param == null || param.isBlank()) return null;
+
+        Set<String> out = new TreeSet<>();
+        for (String part : param.split(",")) {
+            String field = part.trim();
+            if (field.isEmpty()) continue;
+            if (!allowed.contains(field)) {
+                throw ApiException.badRequest("Unbekanntes Feld in fields: " + field + " (erlaubt: " + String.join(",", allowed) + ")");
+            }
+            out.add(field);
+        }
+        return out.isEmpty() ? null : out;
+    }
+
+    /**
+     * true wenn das Feld gebraucht wird (keine Auswahl = alle).
+     */
+    public static boolean includes(Set<String> fields, String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    /**
+     * SELECT-Liste für die Auswahl: id immer (Likes, Caches und Sortierung hängen daran), sonst nur die gewählten Spalten.
+     */
+    public static String columns(Set<String> fields, Map<String, String> columnByField) {
+        if (fields == null) return "*";
+
+        StringBuilder sb = new StringBuilder("id");
+        for (Map.Entry<String, String> e : columnByField.entrySet()) {
+            if (!"id".equals(e.getKey()) && fields.contains(e.getKey())) {
+                sb.append(", ").append(e.getValue());
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,27 +1,66 @@
 package at.technikum.mrp.util;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.sun.net.httpserver.HttpExchange;
 
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Kleine Hilfsklasse für HTTP:
- * - Request Body lesen
+ * - Request Body als JSON lesen (mit Größenlimit)
  * - JSON Response senden
  * - leere Responses senden (z.B. 204)
+ * - Responses unbekannter Länge streamen (chunked, optional gzip)
  *
  * Damit nicht jeder Controller das gleiche IO-Zeug doppelt schreiben muss.
  */
 public class HttpUtil {
 
+    // Puffer für gestreamte Responses: so groß wird ein Chunk bzw. Block für gzip
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+
+    // Obergrenze für Request Bodies, wird beim Start aus der Konfiguration gesetzt (Standard: 1 MiB)
+    private static volatile long maxBodyBytes = 1024 * 1024;
+
+    public static void setMaxBodyBytes(long bytes) {
+        maxBodyBytes = Math.max(1, bytes);
+    }
+
     /**
-     * Liest den Request Body als String (UTF-8).
+     * Parst den Request Body direkt aus dem InputStream mit einem vorbereiteten ObjectReader aus JsonUtil
+     * (kein Zwischenpuffer als byte[] und String).
+     * - Content-Length über dem Limit -> 413, bevor etwas gelesen wird
+     * - ohne Content-Length (chunked) wird beim Lesen mitgezählt und beim Überschreiten abgebrochen -> 413
+     * - kaputtes JSON -> 400
      */
-    public static String readBody(HttpExchange exchange) throws IOException {
-        try (InputStream in = exchange.getRequestBody()) {
-            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    public static <T> T readJson(HttpExchange exchange, ObjectReader reader) throws IOException {
+        long limit = maxBodyBytes;
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > limit) throw tooLarge(limit);
+            } catch (NumberFormatException e) {
+                throw ApiException.badRequest("Ungültige Content-Length");
+            }
+        }
+
+        try (LimitedInputStream in = new LimitedInputStream(exchange.getRequestBody(), limit)) {
+            try {
+                return reader.readValue(in);
+            } catch (IOException e) {
+                // Jackson verpackt Fehler aus dem Stream teilweise, daher über das Flag prüfen
+                if (in.exceeded) throw tooLarge(limit);
+                if (e instanceof JsonProcessingException) throw ApiException.badRequest("Ungültiges JSON im Request Body");
+                throw e;
+            }
         }
     }
 
@@ -30,7 +69,20 @@ public class HttpUtil {
      * Nutzt Jackson ObjectMapper aus JsonUtil.
      */
     public static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
-        byte[] data = JsonUtil.MAPPER.writeValueAsBytes(body);
+        sendJsonBytes(exchange, status, JsonUtil.MAPPER.writeValueAsBytes(body));
+    }
+
+    /**
+     * Wie sendJson, aber mit einem vorbereiteten ObjectWriter aus JsonUtil (Response-DTOs).
+     */
+    public static void sendJson(HttpExchange exchange, int status, ObjectWriter writer, Object body) throws IOException {
+        sendJsonBytes(exchange, status, writer.writeValueAsBytes(body));
+    }
+
+    /**
+     * Schreibt bereits serialisiertes JSON (z.B. aus einem Response-Cache).
+     */
+    public static void sendJsonBytes(HttpExchange exchange, int status, byte[] data) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
         exchange.sendResponseHeaders(status, data.length);
 
@@ -38,6 +90,57 @@ public class HttpUtil {
         exchange.close();
     }
 
+    /**
+     * Schreibt fertige JSON-Elemente als Array direkt in den Response-Stream (ohne sie vorher zusammenzukopieren).
+     */
+    public static void sendJsonArray(HttpExchange exchange, int status, List<byte[]> elements) throws IOException {
+        long length = 2 + Math.max(0, elements.size() - 1);
+        for (byte[] e : elements) length += e.length;
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, length);
+
+        OutputStream out = exchange.getResponseBody();
+        out.write('[');
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) out.write(',');
+            out.write(elements.get(i));
+        }
+        out.write(']');
+        exchange.close();
+    }
+
+    /**
+     * Startet eine Response unbekannter Länge (chunked), z.B. für Exporte.
+     * Gepuffert, damit nicht jede geschriebene Zeile ein eigener Chunk wird; mit gzip=true komprimiert
+     * (Content-Encoding: gzip). close() beendet die Response.
+     */
+    public static OutputStream startStream(HttpExchange exchange, int status, String contentType, boolean gzip) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (gzip) exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(status, 0);
+
+        OutputStream out = exchange.getResponseBody();
+        if (gzip) out = new GZIPOutputStream(out, STREAM_BUFFER_BYTES);
+        return new BufferedOutputStream(out, STREAM_BUFFER_BYTES);
+    }
+
+    /**
+     * true wenn der Client gzip akzeptiert (Accept-Encoding: gzip, aber nicht gzip;q=0).
+     */
+    public static boolean acceptsGzip(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (header == null) return false;
+
+        for (String part : header.split(",")) {
+            String[] p = part.split(";");
+            if (!p[0].trim().equalsIgnoreCase("gzip")) continue;
+            return p.length < 2 || !p[1].replace(" ", "").matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
     /**
      * Antwort ohne Body (z.B. 204 No Content).
      */
@@ -45,4 +148,56 @@ public class HttpUtil {
         exchange.sendResponseHeaders(status, -1);
         exchange.close();
     }
+
+    private static ApiException tooLarge(long limit) {
+        return new ApiException(413, "Request Body zu groß (max. " + limit + " Bytes)");
+    }
+
+    /**
+     * Zählt gelesene Bytes mit und bricht ab, sobald mehr als limit ankommen.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+        private boolean exceeded;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long n) throws IOException {
+            count += n;
+            if (count > limit) {
+                exceeded = true;
+                throw new IOException("Request Body größer als " + limit + " Bytes");
+            }
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package at.technikum.mrp.util;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog: schätzt die Anzahl verschiedener Elemente (z.B. User-IDs) mit fixem Speicher.
+ * - 2^precision Register à 1 Byte (precision 10 -> 1 KB, Standardfehler ca. 1.04 / sqrt(1024) = 3.3%)
+ * - zwei Sketches mit gleicher precision lassen sich verlustfrei mergen (Register-Maximum)
+ *   -> Tages-Sketches können zu beliebigen Zeiträumen zusammengefasst werden
+ * - toBytes()/fromBytes() für die Ablage als bytea
+ *
+ * Nicht thread-safe: der Aufrufer muss synchronisieren.
+ */
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision muss zwischen 4 und 16 liegen");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    /**
+     * Liest einen mit toBytes() gespeicherten Sketch (Länge = 2^precision).
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        int precision = Integer.numberOfTrailingZeros(bytes.length);
+        if (bytes.length != 1 << precision || precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Ungültige HyperLogLog-Länge: " + bytes.length);
+        }
+        return new HyperLogLog(precision, Arrays.copyOf(bytes, bytes.length));
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return true wenn sich ein Register geändert hat (Sketch muss neu gespeichert werden)
+     */
+    public boolean add(int element) {
+        long hash = mix(element * 0x9E3779B97F4A7C15L);
+
+        int index = (int) (hash >>> (64 - precision));
+        // +1: Position der ersten 1 im Rest; Sentinel-Bit verhindert Werte > 64 - precision + 1
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+
+        if (rank > registers[index]) {
+            registers[index] = rank;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Übernimmt alle Elemente von other (Vereinigung der Mengen).
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("HyperLogLog mit unterschiedlicher precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+
+        double estimate = alpha(m) * m * m / sum;
+
+        // kleine Mengen: Linear Counting ist genauer
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        return Arrays.copyOf(registers, registers.length);
+    }
+
+    public HyperLogLog copy() {
+        return new HyperLogLog(precision, toBytes());
+    }
+
+    private static double alpha(int m) {
+        if (m == 16) return 0.673;
+        if (m == 32) return 0.697;
+        if (m == 64) return 0.709;
+        return 0.7213 / (1 + 1.079 / m);
+    }
+
+    // SplitMix64 Finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,148 @@
+package at.technikum.mrp.util;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HttpExchange ohne Socket: Request kommt aus dem Speicher, Status und Body werden mitgeschrieben.
+ * Damit laufen Teil-Requests von POST /api/batch durch dieselben Controller wie normale Requests.
+ */
+public class InMemoryExchange extends HttpExchange {
+
+    private final String method;
+    private final URI uri;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final InetSocketAddress remoteAddress;
+    private final Map<String, Object> attributes = new HashMap<>();
+    // schon geprüfter User (Batch prüft das Token einmal für alle Teil-Requests), null = Header prüfen
+    private final Integer authenticatedUserId;
+
+    private InputStream requestBody;
+    private OutputStream responseBody;
+    private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    private volatile int responseCode = -1;
+
+    public InMemoryExchange(String method, URI uri, Headers requestHeaders, byte[] body, InetSocketAddress remoteAddress) {
+        this(method, uri, requestHeaders, body, remoteAddress, null);
+    }
+
+    public InMemoryExchange(String method, URI uri, Headers requestHeaders, byte[] body, InetSocketAddress remoteAddress,
+                            Integer authenticatedUserId) {
+        this.authenticatedUserId = authenticatedUserId;
+        this.method = method;
+        this.uri = uri;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = new ByteArrayInputStream(body);
+        this.responseBody = captured;
+        this.remoteAddress = remoteAddress;
+    }
+
+    public Integer getAuthenticatedUserId() {
+        return authenticatedUserId;
+    }
+
+    /**
+     * Geschriebener Response Body (leer z.B. bei 204).
+     */
+    public byte[] getResponseBytes() {
+        return captured.toByteArray();
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        // nichts offen, der Body bleibt für getResponseBytes erhalten
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) {
+        this.responseCode = rCode;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public String getProtocol() {
+        return "HTTP/1.1";
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) requestBody = i;
+        if (o != null) responseBody = o;
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+}
@@ -0,0 +1,181 @@
+package at.technikum.mrp.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Invertierter Index: Term -> aufsteigend sortierte int-Postings (IDs).
+ * - Terme liegen sortiert (TreeMap), damit Präfix-Anfragen nur den passenden Bereich durchlaufen
+ * - pro ID werden ihre Terme gemerkt, damit Update/Delete nur die betroffenen Postings anfassen
+ *
+ * Nicht thread-safe: der Aufrufer muss synchronisieren.
+ */
+public class InvertedIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Callback für Präfix-Anfragen: der getroffene Term wird mitgeliefert (z.B. um exakte Treffer zu erkennen).
+     */
+    @FunctionalInterface
+    public interface PostingVisitor {
+        boolean visit(String term, int id);
+    }
+
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Integer, String[]> termsById = new HashMap<>();
+
+    public int size() {
+        return termsById.size();
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    public boolean contains(int id) {
+        return termsById.containsKey(id);
+    }
+
+    /**
+     * Ersetzt alle Terme einer ID (Create und Update).
+     */
+    public void put(int id, Collection<String> terms) {
+        remove(id);
+
+        String[] distinct = new LinkedHashSet<>(terms).toArray(new String[0]);
+        for (String term : distinct) {
+            postings.computeIfAbsent(term, t -> new Postings()).add(id);
+        }
+        termsById.put(id, distinct);
+    }
+
+    public void remove(int id) {
+        String[] old = termsById.remove(id);
+        if (old == null) return;
+
+        for (String term : old) {
+            Postings p = postings.get(term);
+            if (p == null) continue;
+            p.remove(id);
+            if (p.size == 0) postings.remove(term);
+        }
+    }
+
+    /**
+     * Terme einer ID (z.B. um einen Kandidaten gegen ein Präfix zu prüfen).
+     */
+    public String[] termsOf(int id) {
+        String[] terms = termsById.get(id);
+        return terms == null ? new String[0] : terms;
+    }
+
+    /**
+     * Sortierte IDs mit genau diesem Term (Kopie).
+     */
+    public int[] postings(String term) {
+        Postings p = postings.get(term);
+        return p == null ? EMPTY : Arrays.copyOf(p.ids, p.size);
+    }
+
+    /**
+     * Anzahl IDs mit genau diesem Term, ohne zu kopieren (um bei Schnittmengen mit der kürzesten Liste anzufangen).
+     */
+    public int frequency(String term) {
+        Postings p = postings.get(term);
+        return p == null ? 0 : p.size;
+    }
+
+    /**
+     * Durchläuft alle IDs mit genau diesem Term, ohne zu kopieren.
+     */
+    public void forEachPosting(String term, IntConsumer visitor) {
+        Postings p = postings.get(term);
+        if (p == null) return;
+        for (int i = 0; i < p.size; i++) {
+            visitor.accept(p.ids[i]);
+        }
+    }
+
+    /**
+     * Erhöht counts[id] für jede ID mit diesem Term (für dichte IDs 0..n-1, z.B. Zählen gemeinsamer N-Gramme).
+     */
+    public void addCounts(String term, int[] counts) {
+        Postings p = postings.get(term);
+        if (p == null) return;
+        for (int i = 0; i < p.size; i++) {
+            counts[p.ids[i]]++;
+        }
+    }
+
+    /**
+     * Durchläuft alle (Term, ID), deren Term mit prefix beginnt (Terme in sortierter Reihenfolge, der exakte Term zuerst).
+     * Eine ID kann mehrfach kommen, wenn sie mehrere passende Terme hat. visitor liefert false -> Abbruch.
+     */
+    public void forEachWithPrefix(String prefix, PostingVisitor visitor) {
+        NavigableMap<String, Postings> range = postings.tailMap(prefix, true);
+        for (Map.Entry<String, Postings> e : range.entrySet()) {
+            String term = e.getKey();
+            if (!term.startsWith(prefix)) return;
+
+            Postings p = e.getValue();
+            for (int i = 0; i < p.size; i++) {
+                if (!visitor.visit(term, p.ids[i])) return;
+            }
+        }
+    }
+
+    /**
+     * Schnittmenge sortierter IDs mit den Postings eines Terms, ohne die (evtl. sehr lange) Liste zu kopieren:
+     * binäre Suche pro Kandidat, O(candidates * log(postings)).
+     */
+    public int[] retain(int[] candidates, String term) {
+        Postings p = postings.get(term);
+        if (p == null) return EMPTY;
+
+        int[] out = new int[candidates.length];
+        int n = 0;
+        int from = 0;
+        for (int id : candidates) {
+            int pos = Arrays.binarySearch(p.ids, from, p.size, id);
+            if (pos >= 0) {
+                out[n++] = id;
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+            if (from >= p.size) break;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // sortiertes int-Array mit Reserve, Einfügen per binärer Suche
+    private static final class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) return;
+            pos = -pos - 1;
+
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+        }
+    }
+}
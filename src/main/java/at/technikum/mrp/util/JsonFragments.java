@@ -0,0 +1,123 @@
+package at.technikum.mrp.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Setzt bereits serialisierte JSON-Stücke (byte[]) zusammen, ohne sie erneut durch Jackson zu schicken:
+ * - Array aus Elementen
+ * - Objekt aus fertigen Feldwerten
+ * - ein zusätzliches Feld an ein fertiges Objekt anhängen (z.B. "similarity" an ein gecachtes Media)
+ */
+public class JsonFragments {
+
+    private static final byte[] EMPTY_ARRAY = {'[', ']'};
+
+    public static byte[] toBytes(Object value) {
+        try {
+            return JsonUtil.MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static byte[] toBytes(ObjectWriter writer, Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * [e1,e2,...] in ein passend großes Array kopiert.
+     */
+    public static byte[] array(List<byte[]> elements) {
+        if (elements.isEmpty()) return EMPTY_ARRAY.clone();
+
+        int length = 2 + elements.size() - 1;
+        for (byte[] e : elements) length += e.length;
+
+        byte[] out = new byte[length];
+        int pos = 0;
+        out[pos++] = '[';
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) out[pos++] = ',';
+            byte[] e = elements.get(i);
+            System.arraycopy(e, 0, out, pos, e.length);
+            pos += e.length;
+        }
+        out[pos] = ']';
+        return out;
+    }
+
+    /**
+     * {"name":raw,...} mit bereits serialisierten Werten (Reihenfolge wie in der Map).
+     */
+    public static byte[] object(Map<String, byte[]> rawFields) {
+        ByteBuilder out = new ByteBuilder();
+        out.append((byte) '{');
+        boolean first = true;
+        for (Map.Entry<String, byte[]> field : rawFields.entrySet()) {
+            if (!first) out.append((byte) ',');
+            first = false;
+            out.append(toBytes(field.getKey()));
+            out.append((byte) ':');
+            out.append(field.getValue());
+        }
+        out.append((byte) '}');
+        return out.toArray();
+    }
+
+    /**
+     * Hängt "name":value an ein fertiges JSON-Objekt an ({...} -> {...,"name":value}).
+     */
+    public static byte[] withField(byte[] object, String name, Object value) {
+        byte[] key = toBytes(name);
+        byte[] raw = toBytes(value);
+        boolean empty = object.length == 2;
+
+        byte[] out = new byte[object.length + (empty ? 0 : 1) + key.length + 1 + raw.length];
+        int pos = object.length - 1;  // schließende Klammer überschreiben
+        System.arraycopy(object, 0, out, 0, pos);
+        if (!empty) out[pos++] = ',';
+        System.arraycopy(key, 0, out, pos, key.length);
+        pos += key.length;
+        out[pos++] = ':';
+        System.arraycopy(raw, 0, out, pos, raw.length);
+        out[out.length - 1] = '}';
+        return out;
+    }
+
+    // wächst wie ArrayList, spart den ByteArrayOutputStream mit seinen synchronized-Methoden
+    private static final class ByteBuilder {
+        private byte[] buf = new byte[256];
+        private int size;
+
+        void append(byte b) {
+            ensure(1);
+            buf[size++] = b;
+        }
+
+        void append(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, size, b.length);
+            size += b.length;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -1,12 +1,37 @@
 package at.technikum.mrp.util;
 
+import at.technikum.mrp.dto.BatchRequest;
+import at.technikum.mrp.dto.BulkRatingRequest;
+import at.technikum.mrp.dto.BulkRatingResult;
+import at.technikum.mrp.dto.LoginRequest;
+import at.technikum.mrp.dto.MediaRequest;
+import at.technikum.mrp.dto.MediaResponse;
+import at.technikum.mrp.dto.RatingHistoryResponse;
+import at.technikum.mrp.dto.RatingRequest;
+import at.technikum.mrp.dto.RatingResponse;
+import at.technikum.mrp.dto.RecommendationResponse;
+import at.technikum.mrp.dto.RegisterRequest;
+import at.technikum.mrp.dto.UserProfileResponse;
+import at.technikum.mrp.dto.UserProfileUpdate;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * Zentraler ObjectMapper für JSON (Jackson).
  * Wir konfigurieren hier auch LocalDateTime Support, damit createdAt sauber als string rauskommt.
+ *
+ * Für die Request-/Response-DTOs gibt es fertige ObjectReader/ObjectWriter: der Serializer pro Typ wird einmal aufgelöst
+ * statt bei jedem Request über Map-Einträge und deren Laufzeit-Typen.
  */
 public class JsonUtil {
     public static final ObjectMapper MAPPER = new ObjectMapper();
@@ -17,5 +42,50 @@ public class JsonUtil {
 
         // Sonst würden Dates als "Timestamp Arrays" ausgegeben werden -> unlesbar im JSON
         MAPPER.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        // ?fields=: die Listen-DTOs hängen am Filter FIELDS_FILTER, ohne Auswahl werden alle Felder ausgegeben
+        MAPPER.addMixIn(MediaResponse.class, FieldsFilterMixIn.class);
+        MAPPER.addMixIn(RatingResponse.class, FieldsFilterMixIn.class);
+        MAPPER.addMixIn(RatingHistoryResponse.class, FieldsFilterMixIn.class);
+        MAPPER.setFilterProvider(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    private static final String FIELDS_FILTER = "fields";
+
+    @JsonFilter(FIELDS_FILTER)
+    private static class FieldsFilterMixIn {}
+
+    // erst nach dem static-Block oben anlegen, ObjectReader/-Writer übernehmen die Konfiguration beim Erzeugen
+    public static final ObjectReader MEDIA_REQUEST_READER = MAPPER.readerFor(MediaRequest.class);
+    public static final ObjectReader RATING_REQUEST_READER = MAPPER.readerFor(RatingRequest.class);
+    public static final ObjectReader REGISTER_REQUEST_READER = MAPPER.readerFor(RegisterRequest.class);
+    public static final ObjectReader LOGIN_REQUEST_READER = MAPPER.readerFor(LoginRequest.class);
+    public static final ObjectReader USER_PROFILE_UPDATE_READER = MAPPER.readerFor(UserProfileUpdate.class);
+    public static final ObjectReader BATCH_REQUEST_READER = MAPPER.readerFor(BatchRequest.class);
+    public static final ObjectReader BULK_RATING_REQUEST_READER = MAPPER.readerFor(BulkRatingRequest.class);
+
+    public static final ObjectWriter MEDIA_WRITER = MAPPER.writerFor(MediaResponse.class);
+    public static final ObjectWriter MEDIA_LIST_WRITER =
+            MAPPER.writerFor(new TypeReference<List<MediaResponse>>() {});
+    public static final ObjectWriter RATING_WRITER = MAPPER.writerFor(RatingResponse.class);
+    public static final ObjectWriter RATING_LIST_WRITER =
+            MAPPER.writerFor(new TypeReference<List<RatingResponse>>() {});
+    public static final ObjectWriter RATING_HISTORY_WRITER = MAPPER.writerFor(RatingHistoryResponse.class);
+    public static final ObjectWriter RATING_HISTORY_LIST_WRITER =
+            MAPPER.writerFor(new TypeReference<List<RatingHistoryResponse>>() {});
+    public static final ObjectWriter BULK_RATING_RESULT_LIST_WRITER =
+            MAPPER.writerFor(new TypeReference<List<BulkRatingResult>>() {});
+    public static final ObjectWriter USER_PROFILE_WRITER = MAPPER.writerFor(UserProfileResponse.class);
+    public static final ObjectWriter RECOMMENDATION_LIST_WRITER =
+            MAPPER.writerFor(new TypeReference<List<RecommendationResponse>>() {});
+
+    /**
+     * Writer, der nur die gewählten Felder ausgibt (Streaming, kein Umweg über einen JSON-Baum).
+     * fields == null -> der Writer selbst.
+     */
+    public static ObjectWriter withFields(ObjectWriter writer, Set<String> fields) {
+        if (fields == null) return writer;
+        return writer.with(new SimpleFilterProvider()
+                .addFilter(FIELDS_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
     }
 }
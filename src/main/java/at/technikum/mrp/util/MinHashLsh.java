@@ -0,0 +1,234 @@
+package at.technikum.mrp.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * MinHash-Signaturen + Locality Sensitive Hashing (Banding) für Mengen von int-Elementen.
+ * - pro ID wird eine Menge (sortiertes int[]) und ihre MinHash-Signatur gehalten
+ * - die Signatur wird in "bands" Blöcke zu je "rows" Werten geteilt, jeder Block landet in einem Bucket
+ * - ähnliche Mengen (hohe Jaccard-Ähnlichkeit) teilen mit hoher Wahrscheinlichkeit mind. einen Bucket
+ *   -> Kandidatensuche ohne den ganzen Bestand zu durchsuchen
+ *
+ * Hinzufügen eines Elements ist O(Signaturlänge), Entfernen rechnet die Signatur aus der Menge neu
+ * (MinHash kann nicht "abziehen").
+ *
+ * Nicht thread-safe: der Aufrufer muss synchronisieren.
+ */
+public class MinHashLsh {
+
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Long, Set<Integer>> buckets = new HashMap<>();
+
+    public MinHashLsh(int bands, int rows, long seed) {
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new long[bands * rows];
+
+        Random random = new Random(seed);
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    public boolean contains(int id) {
+        return entries.containsKey(id);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Ersetzt die komplette Menge einer ID (z.B. Genres nach einem Update). Leere Menge ist erlaubt.
+     */
+    public void setElements(int id, int[] elements) {
+        Entry e = entries.computeIfAbsent(id, k -> new Entry(seeds.length));
+        int[] sorted = Arrays.stream(elements).distinct().sorted().toArray();
+        e.elements = sorted;
+        e.size = sorted.length;
+        reindex(id, e);
+    }
+
+    /**
+     * Fügt ein Element hinzu und aktualisiert Signatur/Buckets nur, wenn sich ein Minimum ändert.
+     */
+    public void add(int id, int element) {
+        Entry e = entries.computeIfAbsent(id, k -> new Entry(seeds.length));
+        int pos = Arrays.binarySearch(e.elements, 0, e.size, element);
+        if (pos >= 0) return;
+
+        e.insertAt(-pos - 1, element);
+
+        boolean changed = false;
+        for (int k = 0; k < seeds.length; k++) {
+            int h = hash(element, k);
+            if (h < e.signature[k]) {
+                e.signature[k] = h;
+                changed = true;
+            }
+        }
+        if (changed || e.bandKeys == null) rebucket(id, e);
+    }
+
+    /**
+     * Entfernt ein Element (Signatur wird aus der Restmenge neu berechnet).
+     */
+    public void remove(int id, int element) {
+        Entry e = entries.get(id);
+        if (e == null) return;
+
+        int pos = Arrays.binarySearch(e.elements, 0, e.size, element);
+        if (pos < 0) return;
+
+        System.arraycopy(e.elements, pos + 1, e.elements, pos, e.size - pos - 1);
+        e.size--;
+        reindex(id, e);
+    }
+
+    /**
+     * Nur anhängen, ohne Signatur/Buckets zu berechnen (für Bulk-Load, danach reindexAll()).
+     */
+    public void addUnindexed(int id, int element) {
+        Entry e = entries.computeIfAbsent(id, k -> new Entry(seeds.length));
+        if (e.size == e.elements.length) {
+            e.elements = Arrays.copyOf(e.elements, Math.max(4, e.size * 2));
+        }
+        e.elements[e.size++] = element;
+    }
+
+    /**
+     * Nach addUnindexed(): Mengen sortieren/deduplizieren und alle Signaturen einmal berechnen.
+     */
+    public void reindexAll() {
+        for (Map.Entry<Integer, Entry> me : entries.entrySet()) {
+            Entry e = me.getValue();
+            int[] sorted = Arrays.stream(e.elements, 0, e.size).distinct().sorted().toArray();
+            e.elements = sorted;
+            e.size = sorted.length;
+            reindex(me.getKey(), e);
+        }
+    }
+
+    public void removeId(int id) {
+        Entry e = entries.remove(id);
+        if (e != null) unbucket(id, e);
+    }
+
+    /**
+     * Sammelt alle IDs, die mindestens einen Bucket mit id teilen (ohne id selbst), bis max erreicht ist.
+     */
+    public void collectCandidates(int id, Collection<Integer> out, int max) {
+        Entry e = entries.get(id);
+        if (e == null || e.bandKeys == null) return;
+
+        for (long key : e.bandKeys) {
+            Set<Integer> bucket = buckets.get(key);
+            if (bucket == null) continue;
+
+            for (Integer other : bucket) {
+                if (out.size() >= max) return;
+                if (other != id) out.add(other);
+            }
+        }
+    }
+
+    /**
+     * Geschätzte Jaccard-Ähnlichkeit = Anteil gleicher Signatur-Positionen.
+     *
+     * @return -1 wenn eine der beiden Mengen leer/unbekannt ist
+     */
+    public double similarity(int a, int b) {
+        Entry ea = entries.get(a);
+        Entry eb = entries.get(b);
+        if (ea == null || eb == null || ea.size == 0 || eb.size == 0) return -1;
+
+        int same = 0;
+        for (int k = 0; k < seeds.length; k++) {
+            if (ea.signature[k] == eb.signature[k]) same++;
+        }
+        return (double) same / seeds.length;
+    }
+
+    // --- intern ---
+
+    private void reindex(int id, Entry e) {
+        Arrays.fill(e.signature, Integer.MAX_VALUE);
+        for (int i = 0; i < e.size; i++) {
+            int element = e.elements[i];
+            for (int k = 0; k < seeds.length; k++) {
+                int h = hash(element, k);
+                if (h < e.signature[k]) e.signature[k] = h;
+            }
+        }
+        rebucket(id, e);
+    }
+
+    private void rebucket(int id, Entry e) {
+        unbucket(id, e);
+        if (e.size == 0) return; // leere Mengen sind zu nichts ähnlich
+
+        e.bandKeys = new long[bands];
+        for (int b = 0; b < bands; b++) {
+            long key = b;
+            for (int r = 0; r < rows; r++) {
+                key = key * 0x100000001B3L + e.signature[b * rows + r];
+            }
+            e.bandKeys[b] = mix(key);
+            buckets.computeIfAbsent(e.bandKeys[b], k -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void unbucket(int id, Entry e) {
+        if (e.bandKeys == null) return;
+
+        for (long key : e.bandKeys) {
+            Set<Integer> bucket = buckets.get(key);
+            if (bucket == null) continue;
+            bucket.remove(id);
+            if (bucket.isEmpty()) buckets.remove(key);
+        }
+        e.bandKeys = null;
+    }
+
+    private int hash(int element, int k) {
+        return (int) (mix(element * 0x9E3779B97F4A7C15L + seeds[k]) >>> 32);
+    }
+
+    // SplitMix64 Finalizer: gute Bit-Verteilung, sehr billig
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static class Entry {
+        int[] elements = new int[0];
+        int size;
+        final int[] signature;
+        long[] bandKeys;    // aktuelle Buckets (null = nicht einsortiert)
+
+        Entry(int signatureLength) {
+            this.signature = new int[signatureLength];
+            Arrays.fill(signature, Integer.MAX_VALUE);
+        }
+
+        void insertAt(int pos, int element) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(4, size * 2));
+            }
+            System.arraycopy(elements, pos, elements, pos + 1, size - pos);
+            elements[pos] = element;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package at.technikum.mrp.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sortierte Menge mit Rang-Abfragen (Treap, jeder Knoten kennt die Größe seines Teilbaums).
+ * - add/remove/rank in O(log n) (erwartet)
+ * - die ersten k Elemente in O(log n + k)
+ *
+ * Elemente, die laut Comparator gleich sind, gelten als Duplikat (wie bei TreeSet).
+ * Nicht thread-safe: der Aufrufer muss synchronisieren.
+ */
+public class OrderStatisticTree<T> {
+
+    private final Comparator<? super T> comparator;
+    private final Random random = new Random(42);
+    private Node<T> root;
+
+    public OrderStatisticTree(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * @return false wenn ein gleiches Element schon enthalten ist
+     */
+    public boolean add(T value) {
+        if (contains(value)) return false;
+        root = insert(root, new Node<>(value, random.nextInt()));
+        return true;
+    }
+
+    /**
+     * @return false wenn das Element nicht enthalten war
+     */
+    public boolean remove(T value) {
+        if (!contains(value)) return false;
+        root = delete(root, value);
+        return true;
+    }
+
+    public boolean contains(T value) {
+        Node<T> n = root;
+        while (n != null) {
+            int cmp = comparator.compare(value, n.value);
+            if (cmp == 0) return true;
+            n = cmp < 0 ? n.left : n.right;
+        }
+        return false;
+    }
+
+    /**
+     * Anzahl der Elemente, die vor value einsortiert sind (0 = erstes Element).
+     * Funktioniert auch für Werte, die nicht enthalten sind (Einfügeposition).
+     */
+    public int rank(T value) {
+        int rank = 0;
+        Node<T> n = root;
+        while (n != null) {
+            int cmp = comparator.compare(value, n.value);
+            if (cmp <= 0) {
+                n = n.left;
+            } else {
+                rank += size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Die ersten limit Elemente in Sortierreihenfolge.
+     */
+    public List<T> first(int limit) {
+        List<T> out = new ArrayList<>(Math.max(0, Math.min(limit, size())));
+        collect(root, out, limit);
+        return out;
+    }
+
+    // --- intern ---
+
+    private void collect(Node<T> n, List<T> out, int limit) {
+        if (n == null || out.size() >= limit) return;
+        collect(n.left, out, limit);
+        if (out.size() >= limit) return;
+        out.add(n.value);
+        collect(n.right, out, limit);
+    }
+
+    private Node<T> insert(Node<T> n, Node<T> node) {
+        if (n == null) return node;
+
+        if (comparator.compare(node.value, n.value) < 0) {
+            n.left = insert(n.left, node);
+            if (n.left.priority > n.priority) n = rotateRight(n);
+        } else {
+            n.right = insert(n.right, node);
+            if (n.right.priority > n.priority) n = rotateLeft(n);
+        }
+        n.update();
+        return n;
+    }
+
+    private Node<T> delete(Node<T> n, T value) {
+        if (n == null) return null;
+
+        int cmp = comparator.compare(value, n.value);
+        if (cmp < 0) {
+            n.left = delete(n.left, value);
+        } else if (cmp > 0) {
+            n.right = delete(n.right, value);
+        } else {
+            if (n.left == null) return n.right;
+            if (n.right == null) return n.left;
+
+            // Knoten nach unten rotieren, bis er nur noch ein Kind hat
+            if (n.left.priority > n.right.priority) {
+                n = rotateRight(n);
+                n.right = delete(n.right, value);
+            } else {
+                n = rotateLeft(n);
+                n.left = delete(n.left, value);
+            }
+        }
+        n.update();
+        return n;
+    }
+
+    private Node<T> rotateRight(Node<T> n) {
+        Node<T> l = n.left;
+        n.left = l.right;
+        l.right = n;
+        n.update();
+        l.update();
+        return l;
+    }
+
+    private Node<T> rotateLeft(Node<T> n) {
+        Node<T> r = n.right;
+        n.right = r.left;
+        r.left = n;
+        n.update();
+        r.update();
+        return r;
+    }
+
+    private static int size(Node<?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static class Node<T> {
+        final T value;
+        final int priority;
+        Node<T> left;
+        Node<T> right;
+        int size = 1;
+
+        Node(T value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+
+        void update() {
+            size = 1 + OrderStatisticTree.size(left) + OrderStatisticTree.size(right);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package at.technikum.mrp.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-Flight: gleichzeitige Aufrufe mit demselben Schlüssel teilen sich eine Ausführung.
+ * Der erste Aufrufer führt den Loader aus, alle, die währenddessen mit demselben Schlüssel kommen,
+ * warten auf dessen Ergebnis (bzw. bekommen dieselbe Exception) statt selbst die DB zu fragen.
+ *
+ * Kein Cache: sobald die Ausführung fertig ist, startet der nächste Aufruf wieder eine neue.
+ * Das Ergebnis wird geteilt, der Loader sollte also nichts zurückgeben, was Aufrufer verändern.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public V execute(K key, Supplier<V> loader) {
+        calls.increment();
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            collapsed.increment();
+            return await(running);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            failures.increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("calls", calls.sum());
+        out.put("executions", executions.sum());
+        out.put("collapsed", collapsed.sum());
+        out.put("failures", failures.sum());
+        out.put("inFlight", inFlight.size());
+        return out;
+    }
+
+    // Exception des ersten Aufrufers unverpackt weiterwerfen (z.B. ApiException mit Status)
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
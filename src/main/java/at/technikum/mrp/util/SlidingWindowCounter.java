@@ -0,0 +1,165 @@
+package at.technikum.mrp.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zähler pro ID über ein gleitendes Zeitfenster, als Ringpuffer aus Zeit-Buckets (int[] pro ID).
+ * - add() ist O(1): nur der aktuelle Bucket wird erhöht (abgelaufene Buckets werden beim Weiterdrehen genullt)
+ * - count() summiert die Buckets des gewünschten Fensters (max. "buckets" Stück)
+ * - Locks sind gestreift (ID -> einer von STRIPES Monitoren), damit parallele Writes auf
+ *   verschiedene IDs sich kaum blockieren
+ *
+ * Die Genauigkeit am Fensterrand ist ein Bucket (z.B. 1 Stunde).
+ */
+public class SlidingWindowCounter {
+
+    private static final int STRIPES = 64;
+
+    private final int buckets;
+    private final long bucketMillis;
+    private final Object[] locks = new Object[STRIPES];
+    private final Map<Integer, Ring> rings = new ConcurrentHashMap<>();
+
+    /**
+     * @param buckets      Länge des Ringpuffers (= längstes abfragbares Fenster)
+     * @param bucketMillis Breite eines Buckets
+     */
+    public SlidingWindowCounter(int buckets, long bucketMillis) {
+        this.buckets = buckets;
+        this.bucketMillis = bucketMillis;
+        for (int i = 0; i < STRIPES; i++) locks[i] = new Object();
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * Zählt delta Ereignisse zum Zeitpunkt atMillis (ältere als das Fenster werden ignoriert).
+     */
+    public void add(int id, long atMillis, int delta) {
+        long bucket = atMillis / bucketMillis;
+
+        synchronized (lockFor(id)) {
+            Ring r = rings.computeIfAbsent(id, k -> new Ring(buckets, bucket));
+            r.advance(bucket);
+            if (bucket <= r.head - buckets) return;
+            r.counts[index(bucket)] += delta;
+        }
+    }
+
+    /**
+     * Summe der letzten windowBuckets Buckets bis einschließlich nowMillis.
+     */
+    public int count(int id, long nowMillis, int windowBuckets) {
+        Ring r = rings.get(id);
+        if (r == null) return 0;
+
+        synchronized (lockFor(id)) {
+            return sum(r, nowMillis / bucketMillis, windowBuckets);
+        }
+    }
+
+    public void remove(int id) {
+        synchronized (lockFor(id)) {
+            rings.remove(id);
+        }
+    }
+
+    public int size() {
+        return rings.size();
+    }
+
+    /**
+     * Die limit IDs mit den meisten Ereignissen im Fenster (absteigend), IDs mit 0 fallen weg.
+     */
+    public List<Count> top(long nowMillis, int windowBuckets, int limit) {
+        if (limit <= 0) return List.of();
+
+        long now = nowMillis / bucketMillis;
+        // nie größer als die Zahl der gezählten IDs, auch bei riesigem limit
+        int capacity = Math.min(limit, rings.size());
+        int[] topIds = new int[capacity];
+        float[] topScores = new float[capacity];
+        int size = 0;
+
+        for (Map.Entry<Integer, Ring> e : rings.entrySet()) {
+            int id = e.getKey();
+            int c;
+            synchronized (lockFor(id)) {
+                c = sum(e.getValue(), now, windowBuckets);
+            }
+            if (c > 0) size = TopK.insert(topIds, topScores, size, id, c);
+        }
+
+        List<Count> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            out.add(new Count(topIds[i], (int) topScores[i]));
+        }
+        return out;
+    }
+
+    // --- intern ---
+
+    // nur mit Lock aufrufen
+    private int sum(Ring r, long now, int windowBuckets) {
+        int window = Math.min(windowBuckets, buckets);
+        long from = Math.max(now - window + 1, r.head - buckets + 1);
+        long to = Math.min(now, r.head);
+
+        int total = 0;
+        for (long b = from; b <= to; b++) {
+            total += r.counts[index(b)];
+        }
+        return total;
+    }
+
+    private int index(long bucket) {
+        return (int) Math.floorMod(bucket, (long) buckets);
+    }
+
+    private Object lockFor(int id) {
+        return locks[(id & 0x7fffffff) % STRIPES];
+    }
+
+    /**
+     * Ergebnis von top(): ID + Anzahl im Fenster.
+     */
+    public static final class Count {
+        public final int id;
+        public final int count;
+
+        public Count(int id, int count) {
+            this.id = id;
+            this.count = count;
+        }
+    }
+
+    private final class Ring {
+        final int[] counts;
+        long head; // jüngster beschriebener Bucket
+
+        Ring(int size, long head) {
+            this.counts = new int[size];
+            this.head = head;
+        }
+
+        // Auf neuen Bucket weiterdrehen, übersprungene (abgelaufene) Buckets nullen
+        void advance(long bucket) {
+            if (bucket <= head) return;
+
+            long steps = Math.min(bucket - head, buckets);
+            for (long i = 1; i <= steps; i++) {
+                counts[index(head + i)] = 0;
+            }
+            head = bucket;
+        }
+    }
+}
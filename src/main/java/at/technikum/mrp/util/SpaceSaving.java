@@ -0,0 +1,76 @@
+package at.technikum.mrp.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving: merkt sich mit fixer Kapazität die häufigsten IDs eines Datenstroms (Heavy Hitters).
+ * Jede ID, die mehr als total / capacity mal vorkommt, ist garantiert enthalten.
+ * Ist die Liste voll, verdrängt eine neue ID den Eintrag mit dem kleinsten Zähler und übernimmt
+ * dessen Zähler als mögliche Überschätzung.
+ *
+ * Verdrängen sucht das Minimum linear (Kapazität ist klein, typischerweise ein paar hundert).
+ * Nicht thread-safe: der Aufrufer muss synchronisieren.
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final int[] ids;
+    private final long[] counts;
+    private final Map<Integer, Integer> slotById;
+    private int size;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.ids = new int[this.capacity];
+        this.counts = new long[this.capacity];
+        this.slotById = new HashMap<>(this.capacity * 2);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void offer(int id, int count) {
+        Integer slot = slotById.get(id);
+        if (slot != null) {
+            counts[slot] += count;
+            return;
+        }
+
+        if (size < capacity) {
+            ids[size] = id;
+            counts[size] = count;
+            slotById.put(id, size);
+            size++;
+            return;
+        }
+
+        int min = 0;
+        for (int i = 1; i < size; i++) {
+            if (counts[i] < counts[min]) min = i;
+        }
+        slotById.remove(ids[min]);
+        ids[min] = id;
+        counts[min] += count;
+        slotById.put(id, min);
+    }
+
+    /**
+     * Alle aktuell verfolgten IDs (Kandidaten für die Top-Liste).
+     */
+    public int[] ids() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    public void clear() {
+        slotById.clear();
+        size = 0;
+    }
+
+    public long memoryBytes() {
+        // Arrays + grob geschätzte HashMap-Einträge (Entry + 2 Integer)
+        return (long) capacity * (Integer.BYTES + Long.BYTES) + (long) capacity * 64;
+    }
+}
@@ -0,0 +1,32 @@
+package at.technikum.mrp.util;
+
+/**
+ * Hilfsfunktionen für Top-K Listen auf primitiven Arrays (ohne Boxing / ohne komplette Sortierung).
+ * ids[] und scores[] werden parallel geführt und sind absteigend nach Score sortiert.
+ */
+public class TopK {
+
+    /**
+     * Fügt (id, score) sortiert ein. Ist das Array voll und der Score zu klein, passiert nichts,
+     * sonst fällt der letzte Eintrag raus.
+     *
+     * @return neue Anzahl belegter Einträge
+     */
+    public static int insert(int[] ids, float[] scores, int size, int id, float score) {
+        int capacity = ids.length;
+        if (capacity == 0) return 0;
+        if (size == capacity && score <= scores[capacity - 1]) return size;
+
+        int pos = size;
+        while (pos > 0 && scores[pos - 1] < score) pos--;
+
+        int moveCount = Math.min(size, capacity - 1) - pos;
+        if (moveCount > 0) {
+            System.arraycopy(ids, pos, ids, pos + 1, moveCount);
+            System.arraycopy(scores, pos, scores, pos + 1, moveCount);
+        }
+        ids[pos] = id;
+        scores[pos] = score;
+        return Math.min(size + 1, capacity);
+    }
+}
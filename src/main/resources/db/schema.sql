@@ -33,6 +33,7 @@ CREATE TABLE ratings (
                          comment TEXT,
                          confirmed BOOLEAN DEFAULT FALSE,
                          likes_count INT DEFAULT 0,
+                         likes_flush_gen BIGINT DEFAULT 0, -- letzter Like-Flush, der likes_count geändert hat
                          created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                          updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                          UNIQUE(media_id, user_id)
@@ -56,9 +57,19 @@ CREATE TABLE rating_likes (
                               UNIQUE(rating_id, user_id)
 );
 
+-- Engagement pro Media und Tag als HyperLogLog-Sketches (verschiedene Bewerter / Favorisierer)
+CREATE TABLE media_engagement (
+                                  media_id INT REFERENCES media(id) ON DELETE CASCADE,
+                                  day DATE NOT NULL,
+                                  raters BYTEA NOT NULL,
+                                  favoriters BYTEA NOT NULL,
+                                  PRIMARY KEY (media_id, day)
+);
+
 -- Indizes für Performance
 CREATE INDEX idx_media_title ON media(title);
 CREATE INDEX idx_media_genres ON media(genres);
 CREATE INDEX idx_ratings_user ON ratings(user_id);
 CREATE INDEX idx_ratings_media ON ratings(media_id);
-CREATE INDEX idx_favorites_user ON favorites(user_id);
\ No newline at end of file
+CREATE INDEX idx_favorites_user ON favorites(user_id);
+CREATE INDEX idx_media_engagement_day ON media_engagement(day);
@@ -0,0 +1,197 @@
+package at.technikum.mrp.controller;
+
+import at.technikum.mrp.service.TokenService;
+import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.HttpUtil;
+import at.technikum.mrp.util.InMemoryExchange;
+import at.technikum.mrp.util.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BatchControllerTest {
+
+    private TokenService tokenService;
+    private ExecutorService executor;
+    private BatchController batch;
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        tokenService = mock(TokenService.class);
+        when(tokenService.requireUserIdFromAuthHeader("Bearer ok")).thenReturn(1);
+        when(tokenService.requireUserIdFromAuthHeader("Bearer bad")).thenThrow(ApiException.unauthorized("Invalid token"));
+
+        executor = Executors.newFixedThreadPool(4);
+        batch = new BatchController(tokenService, executor, 5, 2000);
+
+        // Echo-Route: gibt Methode, Pfad und Body zurück
+        batch.register("/api/echo", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            events.add(exchange.getRequestMethod() + " " + exchange.getRequestURI());
+            HttpUtil.sendJson(exchange, exchange.getRequestMethod().equals("POST") ? 201 : 200,
+                    Map.of("path", exchange.getRequestURI().toString(), "body", body));
+        });
+        batch.register("/api/echo/empty", exchange -> HttpUtil.sendEmpty(exchange, 204));
+    }
+
+    @AfterEach
+    void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void batch_runsSubRequestsThroughRoutesInOrder() throws Exception {
+        // Prüft: Antworten in Request-Reihenfolge, Body wird weitergegeben, längster Präfix gewinnt, unbekannt -> 404
+        JsonNode out = post("Bearer ok", "{\"requests\":["
+                + "{\"method\":\"GET\",\"path\":\"/api/echo/a?x=1\"},"
+                + "{\"method\":\"POST\",\"path\":\"/api/echo/b\",\"body\":{\"stars\":5}},"
+                + "{\"method\":\"DELETE\",\"path\":\"/api/echo/empty\"},"
+                + "{\"method\":\"GET\",\"path\":\"/api/unknown\"}]}", 200);
+
+        JsonNode responses = out.get("responses");
+        assertEquals(4, responses.size());
+        assertEquals(200, responses.get(0).get("status").asInt());
+        assertEquals("/api/echo/a?x=1", responses.get(0).get("body").get("path").asText());
+        assertEquals(201, responses.get(1).get("status").asInt());
+        assertEquals("{\"stars\":5}", responses.get(1).get("body").get("body").asText());
+        assertEquals(204, responses.get(2).get("status").asInt());
+        assertTrue(responses.get(2).get("body").isNull());
+        assertEquals(404, responses.get(3).get("status").asInt());
+    }
+
+    @Test
+    void batch_getsRunInParallelWritesAreBarriers() throws Exception {
+        // Prüft: zwei GETs warten aufeinander (nur parallel möglich), der POST danach sieht beide fertig
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        batch.register("/api/slow", exchange -> {
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(1, TimeUnit.SECONDS)) throw new IllegalStateException("nicht parallel");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add("slow");
+            HttpUtil.sendJson(exchange, 200, Map.of("ok", true));
+        });
+
+        JsonNode out = post("Bearer ok", "{\"requests\":["
+                + "{\"method\":\"GET\",\"path\":\"/api/slow/1\"},"
+                + "{\"method\":\"GET\",\"path\":\"/api/slow/2\"},"
+                + "{\"method\":\"POST\",\"path\":\"/api/echo/write\",\"body\":{}},"
+                + "{\"method\":\"GET\",\"path\":\"/api/echo/after\"}]}", 200);
+
+        for (JsonNode r : out.get("responses")) {
+            assertTrue(r.get("status").asInt() < 300, r.toString());
+        }
+        assertEquals(List.of("slow", "slow", "POST /api/echo/write", "GET /api/echo/after"), events);
+        assertEquals(1L, batch.getMetrics().get("parallelGroups"));
+    }
+
+    @Test
+    void batch_embedsNonJsonResponsesAsString() throws Exception {
+        // Prüft: Antwort ohne JSON wird als String eingebettet, die Batch-Antwort bleibt gültiges JSON
+        batch.register("/api/ndjson", exchange -> {
+            try (OutputStream out = HttpUtil.startStream(exchange, 200, "application/x-ndjson; charset=utf-8", false)) {
+                out.write("{\"n\":1}\n{\"n\":2}\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        JsonNode out = post("Bearer ok", "{\"requests\":[{\"method\":\"GET\",\"path\":\"/api/ndjson\"}]}", 200);
+
+        JsonNode r = out.get("responses").get(0);
+        assertEquals(200, r.get("status").asInt());
+        assertEquals("{\"n\":1}\n{\"n\":2}\n", r.get("body").asText());
+    }
+
+    @Test
+    void batch_deadlineNeverReports504ForAStartedWrite() throws Exception {
+        // Prüft: langsamer Write über die Deadline -> Ergebnis wird abgewartet (201), der Write danach startet nicht mehr
+        batch = new BatchController(tokenService, executor, 5, 100);
+        batch.register("/api/echo", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("/slow")) {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(exchange.getRequestMethod() + " " + path);
+            HttpUtil.sendJson(exchange, 201, Map.of("path", path));
+        });
+
+        JsonNode out = post("Bearer ok", "{\"requests\":["
+                + "{\"method\":\"POST\",\"path\":\"/api/echo/slow\",\"body\":{}},"
+                + "{\"method\":\"PUT\",\"path\":\"/api/echo/next\",\"body\":{}}]}", 200);
+
+        JsonNode responses = out.get("responses");
+        assertEquals(201, responses.get(0).get("status").asInt());
+        assertEquals(504, responses.get(1).get("status").asInt());
+        assertTrue(responses.get(1).get("body").get("message").asText().startsWith("Nicht ausgeführt"));
+        assertEquals(List.of("POST /api/echo/slow"), events);
+    }
+
+    @Test
+    void batch_rejectsBadTokenAndInvalidBatches() throws Exception {
+        // Prüft: 401 ohne einen Teil-Request auszuführen, verschachtelt/zu groß -> 400
+        post("Bearer bad", "{\"requests\":[{\"method\":\"GET\",\"path\":\"/api/echo\"}]}", 401);
+        post("Bearer ok", "{\"requests\":[{\"method\":\"GET\",\"path\":\"/api/batch\"}]}", 400);
+        post("Bearer ok", "{\"requests\":[]}", 400);
+        // gestreamter Export würde komplett im Speicher landen
+        post("Bearer ok", "{\"requests\":[{\"method\":\"GET\",\"path\":\"/api/echo\"},"
+                + "{\"method\":\"GET\",\"path\":\"/api/users/alice/export?x=1\"}]}", 400);
+        post("Bearer ok", "{\"requests\":[" + "{\"method\":\"GET\",\"path\":\"/api/echo\"},".repeat(5)
+                + "{\"method\":\"GET\",\"path\":\"/api/echo\"}]}", 400);
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void batch_checksTokenOnce_andHandsUserToSubRequests() throws Exception {
+        // Prüft: Teil-Requests bekommen den User über TokenService.requireUserId, ohne das Token erneut zu prüfen
+        TokenService tokens = spy(new TokenService());
+        String token = tokens.issueToken(42);
+        batch = new BatchController(tokens, executor, 5, 2000);
+        batch.register("/api/whoami", exchange ->
+                HttpUtil.sendJson(exchange, 200, Map.of("userId", tokens.requireUserId(exchange))));
+
+        JsonNode out = post("Bearer " + token, "{\"requests\":["
+                + "{\"method\":\"GET\",\"path\":\"/api/whoami\"},"
+                + "{\"method\":\"GET\",\"path\":\"/api/whoami\"},"
+                + "{\"method\":\"POST\",\"path\":\"/api/whoami\"}]}", 200);
+
+        for (JsonNode r : out.get("responses")) {
+            assertEquals(42, r.get("body").get("userId").asInt());
+        }
+        verify(tokens, times(1)).requireUserIdFromAuthHeader(any());
+    }
+
+    private JsonNode post(String auth, String json, int expectedStatus) throws Exception {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        Headers headers = new Headers();
+        headers.set("Authorization", auth);
+        InMemoryExchange exchange = new InMemoryExchange("POST", new URI("/api/batch"), headers, body, null);
+
+        batch.handle(exchange);
+
+        assertEquals(expectedStatus, exchange.getResponseCode(), new String(exchange.getResponseBytes(), StandardCharsets.UTF_8));
+        return JsonUtil.MAPPER.readTree(exchange.getResponseBytes());
+    }
+}
@@ -0,0 +1,111 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.ApiException;
+import at.technikum.mrp.util.SlidingWindowCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ActivityWindowServiceTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * HOUR);
+    private ActivityWindowService activity;
+
+    @BeforeEach
+    void setup() {
+        activity = new ActivityWindowService(mock(RatingRepository.class), mock(FavoritesRepository.class), now::get);
+    }
+
+    @Test
+    void topMedia_countsRatingsAndFavoritesInWindow() {
+        // Prüft: Media 10 hat 2 Ratings + 1 Favorit, Media 11 nur 1 Rating -> 10 vor 11
+        activity.onRatingChanged(1, 10, 0, 5);
+        activity.onRatingChanged(2, 10, 0, 4);
+        activity.onFavoriteAdded(3, 10);
+        activity.onRatingChanged(1, 11, 0, 3);
+
+        // Update eines bestehenden Ratings zählt nicht als neue Aktivität
+        activity.onRatingChanged(1, 11, 3, 4);
+
+        List<SlidingWindowCounter.Count> top = activity.topMedia("24h", 10);
+        assertEquals(2, top.size());
+        assertEquals(10, top.get(0).id);
+        assertEquals(3, top.get(0).count);
+        assertEquals(1, top.get(1).count);
+    }
+
+    @Test
+    void deletedRatingsAndFavorites_areSubtracted() {
+        // Prüft: rate -> delete -> rate (und Favorit an/aus/an) auf dasselbe Media zählt nur einmal
+        for (int i = 0; i < 5; i++) {
+            activity.onRatingChanged(1, 10, 0, 5);
+            activity.onRatingChanged(1, 10, 5, 0);
+            activity.onFavoriteAdded(1, 10);
+            activity.onFavoriteRemoved(1, 10);
+        }
+        activity.onRatingChanged(1, 10, 0, 5);
+        activity.onFavoriteAdded(1, 10);
+        activity.onRatingChanged(2, 11, 0, 4);
+
+        List<SlidingWindowCounter.Count> users = activity.topUsers("24h", 10);
+        assertEquals(2, users.size());
+        assertEquals(1, users.get(0).count);
+        assertEquals(1, users.get(1).count);
+
+        List<SlidingWindowCounter.Count> media = activity.topMedia("7d", 10);
+        assertEquals(10, media.get(0).id);
+        assertEquals(2, media.get(0).count);
+
+        // nur gelöscht -> taucht nicht auf
+        activity.onRatingChanged(2, 11, 4, 0);
+        assertEquals(List.of(1), activity.topUsers("24h", 10).stream().map(c -> c.id).toList());
+    }
+
+    @Test
+    void topMedia_hugeLimit_isCappedAtCountedIds() {
+        // Prüft: limit nahe Integer.MAX_VALUE -> Top-K nur so groß wie die gezählten IDs, kein OutOfMemoryError
+        activity.onRatingChanged(1, 10, 0, 5);
+        activity.onRatingChanged(2, 11, 0, 4);
+
+        assertEquals(2, activity.topMedia("24h", Integer.MAX_VALUE - 8).size());
+        assertEquals(2, activity.topUsers("7d", Integer.MAX_VALUE - 8).size());
+    }
+
+    @Test
+    void topUsers_olderEventsLeave24hWindowButStayIn7d() {
+        // Prüft: Ratings von vor 2 Tagen zählen nur noch im 7d-Fenster
+        activity.onRatingChanged(1, 10, 0, 5);
+        activity.onRatingChanged(1, 11, 0, 5);
+
+        now.addAndGet(48 * HOUR);
+        activity.onRatingChanged(2, 12, 0, 5);
+
+        List<SlidingWindowCounter.Count> day = activity.topUsers("24h", 10);
+        assertEquals(1, day.size());
+        assertEquals(2, day.get(0).id);
+
+        List<SlidingWindowCounter.Count> week = activity.topUsers("7d", 10);
+        assertEquals(1, week.get(0).id);
+        assertEquals(2, week.get(0).count);
+
+        // nach 8 Tagen ist alles aus dem Ringpuffer gefallen
+        now.addAndGet(8 * 24 * HOUR);
+        assertTrue(activity.topUsers("7d", 10).isEmpty());
+    }
+
+    @Test
+    void parseWindow_invalid_throws400() {
+        ApiException ex = assertThrows(ApiException.class, () -> activity.topMedia("1y", 10));
+        assertEquals(400, ex.getStatus());
+    }
+}
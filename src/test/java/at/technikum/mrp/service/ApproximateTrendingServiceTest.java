@@ -0,0 +1,112 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.SlidingWindowCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ApproximateTrendingServiceTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * HOUR);
+    private ApproximateTrendingService trending;
+
+    @BeforeEach
+    void setup() {
+        // kleines Budget, damit Kollisionen im Sketch wirklich vorkommen
+        trending = new ApproximateTrendingService(mock(RatingRepository.class), mock(FavoritesRepository.class),
+                0.01, 0.01, 256, 100, now::get);
+    }
+
+    @Test
+    void top_findsHeavyHittersAmongManyRareMedia() {
+        // Prüft: 3 "virale" Media heben sich von 5000 Media mit je 1 Ereignis ab
+        // (Space-Saving garantiert alles über 5600 / 100 = 56 Ereignissen)
+        for (int i = 0; i < 300; i++) trending.onRatingChanged(i, 1, 0, 5);
+        for (int i = 0; i < 200; i++) trending.onFavoriteAdded(i, 2);
+        for (int i = 0; i < 100; i++) trending.onRatingChanged(i, 3, 0, 4);
+
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) trending.onRatingChanged(i, 1000 + random.nextInt(100_000), 0, 3);
+
+        List<SlidingWindowCounter.Count> top = trending.top("24h", 3);
+
+        assertEquals(List.of(1, 2, 3), top.stream().map(c -> c.id).toList());
+        // Count-Min überschätzt höchstens, nie zu wenig
+        assertTrue(top.get(0).count >= 300);
+        assertTrue(trending.estimate(2, "24h") >= 200);
+    }
+
+    @Test
+    void top_hugeLimit_isCappedAtCandidates() {
+        // Prüft: limit nahe Integer.MAX_VALUE -> nur so groß wie die Heavy-Hitter-Kandidaten, kein OutOfMemoryError
+        trending.onRatingChanged(1, 10, 0, 5);
+        trending.onRatingChanged(2, 11, 0, 5);
+
+        assertEquals(2, trending.top("24h", Integer.MAX_VALUE - 8).size());
+    }
+
+    @Test
+    void writesDuringTop_areNotLost_andDoNotWaitOnTheWholeComputation() throws Exception {
+        // Prüft: Ratings/Favoriten aus mehreren Threads, während dauernd top("7d") läuft ->
+        // jedes Ereignis landet genau einmal im Sketch (Locks pro Bucket statt einem Monitor für alles)
+        int writers = 4;
+        int perWriter = 5_000;
+        AtomicBoolean reading = new AtomicBoolean(true);
+
+        Thread reader = new Thread(() -> {
+            while (reading.get()) trending.top("7d", 10);
+        });
+        reader.start();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < writers; t++) {
+            int offset = t;
+            Thread w = new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    if (i % 2 == 0) trending.onRatingChanged(i, 1 + (i + offset) % 3, 0, 4);
+                    else trending.onFavoriteAdded(i, 1 + (i + offset) % 3);
+                }
+            });
+            threads.add(w);
+            w.start();
+        }
+        for (Thread w : threads) w.join();
+        reading.set(false);
+        reader.join();
+
+        assertEquals((long) writers * perWriter, trending.getMetrics().get("events7d"));
+        assertEquals(3, trending.top("7d", 10).size());
+    }
+
+    @Test
+    void top_respectsWindow() {
+        // Prüft: Ereignisse von vor 2 Tagen zählen nur noch im 7d-Fenster
+        trending.onRatingChanged(1, 10, 0, 5);
+        now.addAndGet(48 * HOUR);
+        trending.onRatingChanged(1, 11, 0, 5);
+
+        assertEquals(List.of(11), trending.top("24h", 10).stream().map(c -> c.id).toList());
+        assertEquals(2, trending.top("7d", 10).size());
+    }
+
+    @Test
+    void getMetrics_staysWithinMemoryBudget() {
+        // Prüft: Breite wird aufs Budget gekappt (256 KB für alle 168 Sketches)
+        long sketchBytes = (long) (int) trending.getMetrics().get("width")
+                * (int) trending.getMetrics().get("depth") * 4 * 168;
+        assertTrue(sketchBytes <= 256 * 1024);
+    }
+}
@@ -94,6 +94,26 @@ public class AuthServiceTest {
         assertTrue(BCrypt.checkpw("secret", saved.getPasswordHash())); // Hash passt wirklich
     }
 
+    @Test
+    void register_success_notifiesUserListeners() {
+        // Prüft: nach dem Speichern bekommen Listener (z.B. Leaderboard) den neuen User mit id
+        RegisterRequest req = new RegisterRequest();
+        req.setUsername("alice");
+        req.setPassword("secret");
+
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.empty());
+        when(userRepository.save(any(User.class)))
+                .thenReturn(User.builder().id(10).username("alice").passwordHash("HASH").build());
+
+        UserListener listener = mock(UserListener.class);
+        authService.addListener(listener);
+        authService.register(req);
+
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+        verify(listener).onUserRegistered(captor.capture());
+        assertEquals(10, captor.getValue().getId());
+    }
+
     @Test
     void register_repoReturnsNull_throws500() {
         // Prüft: DB-Insert liefert null -> 500
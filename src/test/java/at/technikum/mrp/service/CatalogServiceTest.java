@@ -0,0 +1,127 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.repository.MediaRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CatalogServiceTest {
+
+    private CatalogService catalogService;
+
+    @BeforeEach
+    void setup() {
+        MediaRepository mediaRepository = mock(MediaRepository.class);
+        RatingRepository ratingRepository = mock(RatingRepository.class);
+
+        List<Media> catalog = List.of(
+                media(1, "Alien", "MOVIE", 1979, 16, "Horror", "SciFi"),
+                media(2, "Aliens", "MOVIE", 1986, 16, "horror", "Action"),
+                media(3, "Notting Hill", "MOVIE", 1999, 0, "Romance"),
+                media(4, "Halo", "GAME", 2001, 16, "Action", "SciFi")
+        );
+        when(mediaRepository.forEachMedia(any())).thenAnswer(inv -> {
+            Consumer<Media> c = inv.getArgument(0);
+            catalog.forEach(c);
+            return (long) catalog.size();
+        });
+        when(ratingRepository.forEachRating(any())).thenAnswer(inv -> {
+            RatingRepository.RatingRowHandler h = inv.getArgument(0);
+            h.accept(100, 1, 5);
+            h.accept(101, 1, 4);
+            h.accept(100, 4, 3);
+            return 3L;
+        });
+
+        catalogService = new CatalogService(mediaRepository, ratingRepository);
+        catalogService.rebuild();
+    }
+
+    @Test
+    void facets_countAllColumnsForCurrentFilter() {
+        // Prüft: ohne Filter alle Werte, Genres case-insensitive zusammengefasst, Reihenfolge nach Anzahl
+        MediaCatalog.Facets all = catalogService.facets(null, null, null, null, null, null);
+
+        assertEquals(4, all.total);
+        assertEquals(Map.of("Horror", 2, "SciFi", 2, "Action", 2, "Romance", 1), all.genres);
+        assertEquals(List.of("MOVIE", "GAME"), List.copyOf(all.mediaTypes.keySet()));
+        assertEquals(3, all.ageRestrictions.get(16));
+        assertEquals(List.of(2001, 1999, 1986, 1979), List.copyOf(all.releaseYears.keySet()));
+
+        // Genre als Teilstring (wie LIKE), kombiniert mit Typ
+        MediaCatalog.Facets scifiMovies = catalogService.facets(null, "sci", "movie", null, null, null);
+        assertEquals(1, scifiMovies.total);
+        assertEquals(Map.of("MOVIE", 1), scifiMovies.mediaTypes);
+
+        // Titel-Teilstring + Altersfreigabe
+        assertEquals(2, catalogService.facets("ALIEN", null, null, null, 16, null).total);
+        assertEquals(0, catalogService.facets(null, null, "SERIES", null, null, null).total);
+    }
+
+    @Test
+    void ratingFilter_followsRatingChanges() {
+        // Prüft: Score wird aus den Sternen mitgeführt (Alien 4.5, Halo 3.0)
+        assertEquals(1, catalogService.facets(null, null, null, null, null, 4.5).total);
+        assertEquals(2, catalogService.facets(null, null, null, null, null, 3.0).total);
+
+        catalogService.onRatingChanged(100, 4, 3, 5);   // Halo 3 -> 5
+        catalogService.onRatingChanged(101, 1, 4, 0);   // Alien: ein Rating gelöscht -> 5.0
+
+        assertEquals(2, catalogService.facets(null, null, null, null, null, 4.5).total);
+    }
+
+    @Test
+    void listener_updateAndDeleteMoveBits() {
+        // Prüft: Update verschiebt die Zeile in andere Facetten, Delete entfernt sie
+        catalogService.onMediaSaved(media(3, "Notting Hill", "SERIES", 2020, 6, "Comedy"));
+        catalogService.onMediaDeleted(2);
+        catalogService.onMediaSaved(media(5, "Portal", "GAME", 2007, 12, "Puzzle"));
+
+        MediaCatalog.Facets all = catalogService.facets(null, null, null, null, null, null);
+        assertEquals(4, all.total);
+        assertNull(all.genres.get("Romance"));
+        assertEquals(1, all.genres.get("Horror"));
+        assertEquals(Map.of("GAME", 2, "MOVIE", 1, "SERIES", 1), all.mediaTypes);
+        assertEquals(1, catalogService.facets(null, "comedy", null, 2020, null, null).total);
+    }
+
+    @Test
+    void list_sortsLikeFindFilteredAndFollowsWrites() {
+        // Prüft: alle drei sortBy, Filter + Sortierung, Permutationen nach Update/Rating/Delete nachgeführt
+        assertEquals(List.of(1, 2, 4, 3), ids(catalogService.list(null, null, null, null, null, null, "title")));
+        assertEquals(List.of(1, 2, 3, 4), ids(catalogService.list(null, null, null, null, null, null, "year")));
+        assertEquals(List.of(1, 4, 2, 3), ids(catalogService.list(null, null, null, null, null, null, "score")));
+        assertEquals(List.of(2, 4), ids(catalogService.list(null, "action", null, null, null, null, null)));
+
+        Media alien = catalogService.list("alien", null, null, 1979, null, null, null).get(0);
+        assertEquals("Alien", alien.getTitle());
+        assertEquals(4.5, alien.getAverageScore());
+        assertEquals(List.of("Horror", "SciFi"), alien.getGenres());
+
+        catalogService.onMediaSaved(media(3, "Amelie", "MOVIE", 2001, 0, "Romance"));
+        catalogService.onRatingChanged(100, 2, 0, 5);   // Aliens 0 -> 5.0, überholt Alien
+        catalogService.onMediaDeleted(4);
+
+        assertEquals(List.of(1, 2, 3), ids(catalogService.list(null, null, null, null, null, null, "title")));
+        assertEquals(List.of(2, 1, 3), ids(catalogService.list(null, null, null, null, null, null, "score")));
+        assertEquals(List.of(1, 2, 3), ids(catalogService.list(null, null, null, null, null, null, "year")));
+    }
+
+    private static List<Integer> ids(List<Media> media) {
+        return media.stream().map(Media::getId).toList();
+    }
+
+    private static Media media(int id, String title, String type, int year, int age, String... genres) {
+        return Media.builder().id(id).title(title).type(type).releaseYear(year).ageRestriction(age)
+                .genres(List.of(genres)).build();
+    }
+}
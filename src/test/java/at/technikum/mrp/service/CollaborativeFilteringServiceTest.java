@@ -0,0 +1,89 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CollaborativeFilteringServiceTest {
+
+    private RatingRepository ratingRepository;
+    private CollaborativeFilteringService cf;
+
+    @BeforeEach
+    void setup() {
+        ratingRepository = mock(RatingRepository.class);
+
+        // Ratings (userId, mediaId, stars): User 1+2 mögen 10 und 11, User 2 mag auch 12, User 3 hasst 13
+        int[][] rows = {
+                {1, 10, 5}, {1, 11, 5},
+                {2, 10, 5}, {2, 11, 4}, {2, 12, 5},
+                {3, 10, 5}, {3, 13, 1}
+        };
+        when(ratingRepository.forEachRating(any())).thenAnswer(inv -> {
+            RatingRepository.RatingRowHandler h = inv.getArgument(0);
+            for (int[] r : rows) h.accept(r[0], r[1], r[2]);
+            return (long) rows.length;
+        });
+
+        cf = new CollaborativeFilteringService(ratingRepository, 5);
+        cf.rebuild();
+    }
+
+    @Test
+    void rebuild_buildsSymmetricNeighbours() {
+        // Prüft: 10 und 11 werden gemeinsam gut bewertet -> gegenseitig Nachbarn
+        assertTrue(cf.getNeighbours(10).stream().anyMatch(c -> c.mediaId == 11));
+        assertTrue(cf.getNeighbours(11).stream().anyMatch(c -> c.mediaId == 10));
+
+        // 13 wurde schlecht bewertet, 10 gut -> negative Ähnlichkeit, kein Nachbar
+        assertTrue(cf.getNeighbours(10).stream().noneMatch(c -> c.mediaId == 13));
+    }
+
+    @Test
+    void recommend_excludesAlreadyRatedMedia() {
+        // Prüft: User 1 bekommt 12 (über 10/11), aber nicht seine eigenen Media
+        List<RecommendationCandidate> recs = cf.recommend(1, 4, 10);
+
+        assertFalse(recs.isEmpty());
+        assertEquals(12, recs.get(0).mediaId);
+        assertTrue(recs.stream().noneMatch(c -> c.mediaId == 10 || c.mediaId == 11));
+    }
+
+    @Test
+    void recommend_hugeLimitDoesNotAllocateLimitSizedArrays() {
+        // Prüft: limit nahe Integer.MAX_VALUE -> Top-K nur so groß wie die Kandidaten, kein OutOfMemoryError
+        List<RecommendationCandidate> recs = cf.recommend(1, 4, Integer.MAX_VALUE - 8);
+
+        assertEquals(12, recs.get(0).mediaId);
+    }
+
+    @Test
+    void onRatingSaved_updatesIncrementally() {
+        // Prüft: neues Rating erzeugt sofort eine Nachbarschaft, ohne rebuild()
+        assertTrue(cf.getNeighbours(14).isEmpty());
+
+        cf.onRatingSaved(1, 14, 5);
+        cf.onRatingSaved(2, 14, 5);
+
+        assertTrue(cf.getNeighbours(14).stream().anyMatch(c -> c.mediaId == 10));
+        assertTrue(cf.getNeighbours(10).stream().anyMatch(c -> c.mediaId == 14));
+        verify(ratingRepository, times(1)).forEachRating(any());
+    }
+
+    @Test
+    void onRatingDeleted_removesNeighbourWithoutCoRaters() {
+        // Prüft: 12 hat nur User 2 als Bewerter -> nach Delete kein Nachbar von 10 mehr
+        assertTrue(cf.getNeighbours(10).stream().anyMatch(c -> c.mediaId == 12));
+
+        cf.onRatingDeleted(2, 12);
+
+        assertTrue(cf.getNeighbours(10).stream().noneMatch(c -> c.mediaId == 12));
+        assertTrue(cf.recommend(1, 4, 10).isEmpty());
+    }
+}
@@ -0,0 +1,138 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.dto.MediaResponse;
+import at.technikum.mrp.dto.RatingHistoryResponse;
+import at.technikum.mrp.dto.RecommendationResponse;
+import at.technikum.mrp.dto.UserProfileResponse;
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.model.Rating;
+import at.technikum.mrp.model.User;
+import at.technikum.mrp.util.ApiException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class DashboardServiceTest {
+
+    private RatingService ratingService;
+    private MediaService mediaService;
+    private FavoritesService favoritesService;
+    private RecommendationService recommendationService;
+    private ExecutorService executor;
+
+    private final User alice = User.builder().id(1).username("alice").passwordHash("x").build();
+
+    @BeforeEach
+    void setup() {
+        ratingService = mock(RatingService.class);
+        mediaService = mock(MediaService.class);
+        favoritesService = mock(FavoritesService.class);
+        recommendationService = mock(RecommendationService.class);
+        executor = Executors.newFixedThreadPool(4);
+
+        when(ratingService.listRecentByUserId(eq(1), eq(2), anyInt())).thenReturn(List.of(
+                Rating.builder().id(10).mediaId(5).userId(1).stars(4).build(),
+                Rating.builder().id(11).mediaId(6).userId(1).stars(2).build()));
+        when(mediaService.getByIds(anyList(), anyInt())).thenReturn(List.of(media(5, "Alien"), media(6, "Aliens")));
+        when(favoritesService.listRecentFavorites(eq(1), eq(2), anyInt())).thenReturn(List.of(media(5, "Alien"), media(6, "Aliens")));
+        when(recommendationService.recommendForUser(1, 2)).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void build_loadsAllSections() {
+        // Prüft: alle Abschnitte da, Titel über ein getByIds, Favoriten per LIMIT-Query, keine errors
+        Map<String, Object> out = service(1000).build(alice, 2);
+
+        assertEquals("alice", ((UserProfileResponse) out.get("profile")).username());
+
+        List<?> ratings = (List<?>) out.get("recentRatings");
+        assertEquals("Aliens", ((RatingHistoryResponse) ratings.get(1)).mediaTitle());
+        verify(mediaService, times(1)).getByIds(eq(List.of(5, 6)), anyInt());
+        verify(mediaService, never()).getById(anyInt());
+
+        List<?> favorites = (List<?>) out.get("favorites");
+        assertEquals(2, favorites.size());
+        assertEquals("Alien", ((MediaResponse) favorites.get(0)).title());
+        verify(favoritesService, never()).listFavorites(anyInt());
+
+        assertEquals(List.<RecommendationResponse>of(), out.get("recommendations"));
+        assertFalse(out.containsKey("errors"));
+    }
+
+    @Test
+    void build_slowOrFailingSectionsGivePartialResult() {
+        // Prüft: Empfehlungen hängen -> 504 nach der Deadline, Favoriten-Fehler -> Status aus der ApiException
+        CountDownLatch never = new CountDownLatch(1);
+        when(recommendationService.recommendForUser(1, 2)).thenAnswer(inv -> {
+            never.await();
+            return List.of();
+        });
+        when(favoritesService.listRecentFavorites(eq(1), eq(2), anyInt())).thenThrow(ApiException.notFound("weg"));
+
+        long start = System.nanoTime();
+        Map<String, Object> out = service(100).build(alice, 2);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(millis < 1000, "Deadline nicht eingehalten: " + millis + " ms");
+        assertNotNull(out.get("recentRatings"));
+        assertNull(out.get("favorites"));
+        assertNull(out.get("recommendations"));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> errors = (Map<String, Map<String, Object>>) out.get("errors");
+        assertEquals(504, errors.get("recommendations").get("status"));
+        assertEquals(404, errors.get("favorites").get("status"));
+        assertFalse(errors.containsKey("recentRatings"));
+    }
+
+    @Test
+    void build_passesDeadlineAsQueryTimeout_andCountsRunningSections() throws Exception {
+        // Prüft: Deadline 1500 ms -> 2 s Query-Timeout für die Abschnitts-Queries;
+        // ein abgelaufener Abschnitt zählt als "sectionsRunning", bis sein Thread wieder frei ist
+        CountDownLatch release = new CountDownLatch(1);
+        when(recommendationService.recommendForUser(1, 2)).thenAnswer(inv -> {
+            release.await();
+            return List.of();
+        });
+
+        DashboardService dashboard = service(1500);
+        Map<String, Object> out = dashboard.build(alice, 2);
+        assertNull(out.get("recommendations"));
+
+        verify(ratingService).listRecentByUserId(1, 2, 2);
+        verify(mediaService).getByIds(List.of(5, 6), 2);
+        verify(favoritesService).listRecentFavorites(1, 2, 2);
+        assertEquals(1L, dashboard.getMetrics().get("sectionsRunning"));
+
+        release.countDown();
+        long until = System.currentTimeMillis() + 2000;
+        while ((Long) dashboard.getMetrics().get("sectionsRunning") != 0 && System.currentTimeMillis() < until) {
+            Thread.sleep(5);
+        }
+        assertEquals(0L, dashboard.getMetrics().get("sectionsRunning"));
+    }
+
+    private DashboardService service(long timeoutMillis) {
+        return new DashboardService(ratingService, mediaService, favoritesService, recommendationService, executor, timeoutMillis);
+    }
+
+    private static Media media(int id, String title) {
+        return Media.builder().id(id).title(title).type("MOVIE").build();
+    }
+}
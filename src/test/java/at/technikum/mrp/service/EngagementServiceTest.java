@@ -0,0 +1,105 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.MediaEngagementRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class EngagementServiceTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final AtomicLong now = new AtomicLong(20_000 * DAY + 1000);
+    private MediaEngagementRepository engagementRepository;
+    private RatingRepository ratingRepository;
+    private FavoritesRepository favoritesRepository;
+    private EngagementService engagement;
+
+    @BeforeEach
+    void setup() {
+        engagementRepository = mock(MediaEngagementRepository.class);
+        ratingRepository = mock(RatingRepository.class);
+        favoritesRepository = mock(FavoritesRepository.class);
+        engagement = new EngagementService(engagementRepository, ratingRepository, favoritesRepository, 30, 30,
+                now::get);
+    }
+
+    @Test
+    void estimate_mergesDaysAndStaysWithinFewPercent() {
+        // Prüft: 5000 User an Tag 1, davon 2500 wieder an Tag 2 + 2500 neue -> 7500 verschiedene
+        for (int u = 0; u < 5000; u++) engagement.onRatingChanged(u, 1, 0, 4);
+        now.addAndGet(DAY);
+        for (int u = 2500; u < 7500; u++) engagement.onRatingChanged(u, 1, 0, 4);
+        for (int u = 0; u < 100; u++) engagement.onFavoriteAdded(100_000 + u, 1);
+        engagement.onRatingChanged(5, 2, 4, 0);
+
+        Map<String, Object> today = engagement.estimate(1, 1);
+        Map<String, Object> week = engagement.estimate(1, 7);
+
+        assertEquals(5000, (long) today.get("uniqueRaters"), 5000 * 0.1);
+        assertEquals(7500, (long) week.get("uniqueRaters"), 7500 * 0.1);
+        assertEquals(100, (long) week.get("uniqueFavoriters"), 5);
+        assertEquals(7600, (long) week.get("uniqueUsers"), 7600 * 0.1);
+        // gelöschte Ratings zählen nicht als Beschäftigung
+        assertEquals(0L, engagement.estimate(2, 7).get("uniqueUsers"));
+    }
+
+    @Test
+    void flush_writesOnlyChangedSketchesOnce() {
+        // Prüft: geänderte Sketches werden einmal gespeichert, ohne neue Änderungen passiert nichts
+        when(engagementRepository.upsertAll(anyList())).thenReturn(true);
+
+        engagement.onRatingChanged(1, 10, 0, 5);
+        engagement.onFavoriteAdded(2, 10);
+        engagement.onRatingChanged(1, 11, 0, 3);
+
+        assertEquals(2, engagement.flush());
+        assertEquals(0, engagement.flush());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MediaEngagementRepository.SketchRow>> rows = ArgumentCaptor.forClass(List.class);
+        verify(engagementRepository, times(1)).upsertAll(rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertEquals(1024, rows.getValue().get(0).raters.length);
+    }
+
+    @Test
+    void flush_failureKeepsSketchesDirty() {
+        // Prüft: schlägt das Speichern fehl, wird beim nächsten Flush erneut geschrieben
+        when(engagementRepository.upsertAll(anyList())).thenReturn(false, true);
+
+        engagement.onRatingChanged(1, 10, 0, 5);
+
+        assertEquals(0, engagement.flush());
+        assertEquals(1, engagement.flush());
+        assertEquals(1, engagement.getMetrics().get("failedFlushes"));
+    }
+
+    @Test
+    void rebuild_backfillsFromRatingsWhenTableIsEmpty() {
+        // Prüft: leere Tabelle -> Sketches werden aus ratings/favorites aufgebaut
+        when(engagementRepository.forEachSince(any(), any())).thenReturn(0L);
+        when(ratingRepository.forEachRatingSince(any(), any())).thenAnswer(inv -> {
+            RatingRepository.RatingEventHandler h = inv.getArgument(1);
+            h.accept(1, 7, now.get() - DAY);
+            h.accept(2, 7, now.get());
+            return 2L;
+        });
+        when(favoritesRepository.forEachFavoriteSince(any(), any())).thenReturn(0L);
+
+        assertEquals(2, engagement.rebuild());
+        assertEquals(2L, engagement.estimate(7, 7).get("uniqueRaters"));
+        assertEquals(1L, engagement.estimate(7, 1).get("uniqueRaters"));
+    }
+}
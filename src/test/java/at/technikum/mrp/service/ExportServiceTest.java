@@ -0,0 +1,98 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.model.Rating;
+import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ExportServiceTest {
+
+    private RatingRepository ratingRepository;
+    private FavoritesRepository favoritesRepository;
+    private ExportService service;
+
+    @BeforeEach
+    void setup() {
+        ratingRepository = mock(RatingRepository.class);
+        favoritesRepository = mock(FavoritesRepository.class);
+        service = new ExportService(ratingRepository, favoritesRepository);
+    }
+
+    @Test
+    void export_writesOneLinePerRowAndEndMarker() throws Exception {
+        // Prüft: Ratings (mit Titel, auch unconfirmed Kommentar) und Favoriten als NDJSON, zuletzt die end-Zeile
+        when(ratingRepository.forEachRatingOfUser(eq(1), any())).thenAnswer(inv -> {
+            RatingRepository.RatingExportHandler h = inv.getArgument(1);
+            h.accept(Rating.builder().id(10).mediaId(3).userId(1).stars(4).comment("gut").confirmed(false)
+                    .createdAt(LocalDateTime.of(2025, 1, 2, 3, 4)).build(), "Inception");
+            h.accept(Rating.builder().id(11).mediaId(4).userId(1).stars(2)
+                    .createdAt(LocalDateTime.of(2025, 1, 1, 0, 0)).build(), null);
+            return 2L;
+        });
+        when(favoritesRepository.forEachFavoriteOfUser(eq(1), any())).thenAnswer(inv -> {
+            FavoritesRepository.FavoriteExportHandler h = inv.getArgument(1);
+            h.accept(Media.builder().id(3).title("Inception").type("MOVIE").genres(List.of("Sci-Fi"))
+                    .createdAt(LocalDateTime.of(2024, 5, 6, 7, 8)).build());
+            return 1L;
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportService.Result result = service.export(1, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+
+        JsonNode first = JsonUtil.MAPPER.readTree(lines[0]);
+        assertEquals("rating", first.get("type").asText());
+        assertEquals("Inception", first.get("data").get("mediaTitle").asText());
+        assertEquals("gut", first.get("data").get("comment").asText());
+        assertEquals("rating", JsonUtil.MAPPER.readTree(lines[1]).get("type").asText());
+
+        JsonNode favorite = JsonUtil.MAPPER.readTree(lines[2]);
+        assertEquals("favorite", favorite.get("type").asText());
+        assertEquals(3, favorite.get("data").get("id").asInt());
+
+        JsonNode end = JsonUtil.MAPPER.readTree(lines[3]);
+        assertEquals("end", end.get("type").asText());
+        assertEquals(2, end.get("ratings").asInt());
+        assertEquals(1, end.get("favorites").asInt());
+
+        assertEquals(new ExportService.Result(2, 1), result);
+        assertEquals(3L, service.getMetrics().get("rows"));
+    }
+
+    @Test
+    void export_failureMidStreamLeavesOutEndMarker() throws Exception {
+        // Prüft: SQL-Fehler nach den ersten Zeilen -> Exception, geschriebene Zeilen bleiben, keine end-Zeile
+        when(ratingRepository.forEachRatingOfUser(eq(1), any())).thenAnswer(inv -> {
+            RatingRepository.RatingExportHandler h = inv.getArgument(1);
+            h.accept(Rating.builder().id(10).mediaId(3).userId(1).stars(4)
+                    .createdAt(LocalDateTime.of(2025, 1, 2, 3, 4)).build(), "Inception");
+            throw new SQLException("Verbindung weg");
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(SQLException.class, () -> service.export(1, out));
+
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("{\"type\":\"rating\""));
+        assertFalse(text.contains("\"end\""));
+        verifyNoInteractions(favoritesRepository);
+        assertEquals(1L, service.getMetrics().get("failures"));
+    }
+}
@@ -0,0 +1,121 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.ImportRepository;
+import at.technikum.mrp.repository.ImportRepository.Kind;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ImportServiceTest {
+
+    private ImportRepository repository;
+
+    // was COPY bekommen hätte, ein Eintrag pro Block
+    private final List<String> chunks = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        repository = mock(ImportRepository.class);
+        when(repository.copyAndMerge(any(), any())).thenAnswer(inv -> {
+            Iterator<byte[]> it = inv.getArgument(1);
+            long rows = 0;
+            while (it.hasNext()) {
+                String chunk = new String(it.next(), StandardCharsets.UTF_8);
+                chunks.add(chunk);
+                rows += chunk.chars().filter(c -> c == '\n').count();
+            }
+            return new ImportRepository.Result(rows, rows - 1, Map.of("Media unbekannt", 1L));
+        });
+    }
+
+    @Test
+    void ndjson_isSplitIntoChunks_andBrokenLinesAreCounted() throws Exception {
+        ImportService service = new ImportService(repository, 2, 1);
+        String file = """
+                {"mediaId":1,"userId":2,"stars":5,"comment":"super"}
+                {"mediaId":1,"userId":3,"stars":4}
+                kein json
+
+                {"mediaId":2,"userId":2,"stars":3,"confirmed":true}
+                {"mediaId":3,"userId":2,"stars":1}
+                {"mediaId":4,"userId":2,"stars":2}
+                """;
+
+        ImportService.Report report = service.importFrom(Kind.RATINGS, ImportService.Format.NDJSON, new StringReader(file));
+
+        assertEquals(List.of(
+                "1\t2\t5\tsuper\t\\N\n1\t3\t4\t\\N\t\\N\n",
+                "2\t2\t3\t\\N\ttrue\n3\t2\t1\t\\N\t\\N\n",
+                "4\t2\t2\t\\N\t\\N\n"), chunks);
+        assertEquals(6, report.rowsRead());
+        assertEquals(1, report.parseErrors());
+        assertEquals(1, report.parseErrorSamples().size());
+        assertTrue(report.parseErrorSamples().get(0).startsWith("Zeile 3: "));
+        assertEquals(5, report.copied());
+        assertEquals(4, report.inserted());
+        assertEquals(0, report.skipped());
+        verify(repository).copyAndMerge(eq(Kind.RATINGS), any());
+    }
+
+    @Test
+    void csv_mapsHeaderByName_andEscapesForCopy() throws Exception {
+        ImportService service = new ImportService(repository, 100, 4);
+        String file = "media_type,title,genres,release_year,description\n"
+                + "MOVIE,\"Tab\there, \"\"quoted\"\"\",Action,1999,\"a\\b\"\n"
+                + "GAME,Zelda,\"Adventure,RPG\",,\"\"\n";
+
+        ImportService.Report report = service.importFrom(Kind.MEDIA, ImportService.Format.CSV, new StringReader(file));
+
+        // Spalten in der Reihenfolge von ImportRepository.MEDIA_COLUMNS, fehlende Spalten -> \N
+        assertEquals(List.of(
+                "Tab\\there, \"quoted\"\ta\\\\b\tMOVIE\t1999\tAction\t\\N\t\\N\n" +
+                "Zelda\t\tGAME\t\\N\tAdventure,RPG\t\\N\t\\N\n"), chunks);
+        assertEquals(2, report.rowsRead());
+        assertEquals(0, report.parseErrors());
+    }
+
+    @Test
+    void parseCsvLine_distinguishesEmptyAndMissing() {
+        assertEquals(Arrays.asList("a", null, "", "x,y"), ImportService.parseCsvLine("a,,\"\",\"x,y\""));
+        assertThrows(IllegalArgumentException.class, () -> ImportService.parseCsvLine("\"offen,1"));
+    }
+
+    @Test
+    void toCopyRow_escapesControlCharacters() {
+        assertEquals("a\\nb\\r\t\\N\tc\\\\d\n", ImportService.toCopyRow(new String[]{"a\nb\r", null, "c\\d"}));
+    }
+
+    @Test
+    void formatFromFileName() {
+        assertEquals(ImportService.Format.CSV, ImportService.Format.fromFileName("media.CSV"));
+        assertEquals(ImportService.Format.NDJSON, ImportService.Format.fromFileName("ratings.jsonl"));
+        assertNull(ImportService.Format.fromFileName("ratings.xml"));
+    }
+
+    @Test
+    void chunks_areStreamed_notCollectedUpFront() throws Exception {
+        ImportService service = new ImportService(repository, 1, 1);
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 50; i++) file.append("{\"mediaId\":").append(i).append(",\"userId\":1,\"stars\":3}\n");
+
+        ImportService.Report report = service.importFrom(Kind.RATINGS, ImportService.Format.NDJSON,
+                new StringReader(file.toString()));
+
+        assertEquals(50, chunks.size());
+        assertEquals(50, report.copied());
+        assertTrue(report.summary().contains("Import ratings: 50 Zeilen"));
+        assertTrue(report.summary().contains("abgelehnt (Media unbekannt): 1"));
+    }
+}
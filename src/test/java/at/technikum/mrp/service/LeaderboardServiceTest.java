@@ -0,0 +1,96 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.User;
+import at.technikum.mrp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class LeaderboardServiceTest {
+
+    private UserRepository userRepository;
+    private LeaderboardService leaderboard;
+
+    @BeforeEach
+    void setup() {
+        userRepository = mock(UserRepository.class);
+
+        // (userId, username, totalRatings, starSum): bob und carl gleich viele Ratings, bob besserer Schnitt
+        when(userRepository.forEachUserRatingStats(any())).thenAnswer(inv -> {
+            UserRepository.UserStatsHandler h = inv.getArgument(0);
+            h.accept(1, "alice", 5, 20);
+            h.accept(2, "bob", 3, 15);
+            h.accept(3, "carl", 3, 9);
+            h.accept(4, "dora", 0, 0);
+            return 4L;
+        });
+
+        leaderboard = new LeaderboardService(userRepository);
+        leaderboard.rebuild();
+    }
+
+    @Test
+    void top_ordersByTotalThenAverageThenUsername() {
+        // Prüft: gleiche Reihenfolge wie das frühere ORDER BY in der DB
+        List<Map<String, Object>> top = leaderboard.top(3);
+
+        assertEquals(List.of("alice", "bob", "carl"), top.stream().map(m -> m.get("username")).toList());
+        assertEquals(1, top.get(0).get("rank"));
+        assertEquals(4.0, top.get(0).get("averageRating"));
+    }
+
+    @Test
+    void onUserRegistered_newUserWithoutRatingsIsListedAtTheBottom() {
+        // Prüft: wie das frühere findLeaderboard (alle User) - neu registrierter User ohne Ratings taucht
+        // in top() auf, ganz unten nach Username sortiert, ohne DB-Zugriff
+        leaderboard.onUserRegistered(User.builder().id(5).username("aaron").build());
+
+        List<Map<String, Object>> top = leaderboard.top(10);
+        assertEquals(List.of("alice", "bob", "carl", "aaron", "dora"),
+                top.stream().map(m -> m.get("username")).toList());
+        assertEquals(0, top.get(3).get("totalRatings"));
+        verify(userRepository, never()).findById(anyInt());
+
+        // doppelt gemeldet (oder schon per Rating bekannt) -> kein zweiter Eintrag
+        leaderboard.onUserRegistered(User.builder().id(5).username("aaron").build());
+        assertEquals(5, leaderboard.size());
+    }
+
+    @Test
+    void onRatingChanged_movesUserUp() {
+        // Prüft: carl bekommt 3 neue Ratings -> überholt alice; Update ändert nur den Schnitt
+        leaderboard.onRatingChanged(3, 100, 0, 5);
+        leaderboard.onRatingChanged(3, 101, 0, 5);
+        leaderboard.onRatingChanged(3, 102, 0, 5);
+        assertEquals(1, leaderboard.rankOf(3).orElseThrow().get("rank"));
+
+        // bob löscht ein Rating -> 2 Ratings, hinter alice/carl, vor dora
+        leaderboard.onRatingChanged(2, 50, 5, 0);
+        Map<String, Object> bob = leaderboard.rankOf(2).orElseThrow();
+        assertEquals(3, bob.get("rank"));
+        assertEquals(2, bob.get("totalRatings"));
+        assertEquals(4, bob.get("users"));
+    }
+
+    @Test
+    void rankOf_unknownUser_loadsFromDbOnce() {
+        // Prüft: User, die nach dem Start registriert wurden, werden nachgeladen und landen hinten
+        User eve = User.builder().id(5).username("eve").build();
+        when(userRepository.findById(5)).thenReturn(Optional.of(eve));
+
+        assertEquals(5, leaderboard.rankOf(5).orElseThrow().get("rank"));
+        assertEquals(5, leaderboard.rankOf(5).orElseThrow().get("rank"));
+        verify(userRepository, times(1)).findById(5);
+
+        when(userRepository.findById(6)).thenReturn(Optional.empty());
+        assertTrue(leaderboard.rankOf(6).isEmpty());
+    }
+}
@@ -0,0 +1,215 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class LikeCounterServiceTest {
+
+    private RatingRepository ratingRepository;
+    private LikeCounterService likeCounter;
+
+    @BeforeEach
+    void setup() {
+        ratingRepository = mock(RatingRepository.class);
+        likeCounter = new LikeCounterService(ratingRepository, 1000);
+    }
+
+    @Test
+    void flush_writesCoalescedDeltasInOneCall() {
+        // Prüft: 3 Likes auf Rating 5 + 1 Like auf Rating 6 -> ein einziger Batch-Update
+        when(ratingRepository.incrementLikeCounts(anyMap(), anyLong())).thenReturn(true);
+
+        likeCounter.increment(5);
+        likeCounter.increment(5);
+        likeCounter.increment(5);
+        likeCounter.increment(6);
+        assertEquals(3, likeCounter.pendingFor(5));
+
+        assertEquals(2, likeCounter.flush());
+
+        verify(ratingRepository, times(1)).incrementLikeCounts(eq(Map.of(5, 3L, 6, 1L)), anyLong());
+        assertEquals(0, likeCounter.pendingFor(5));
+        assertEquals(0, likeCounter.flush());
+        verifyNoMoreInteractions(ratingRepository);
+    }
+
+    @Test
+    void flush_dbError_keepsDeltasForNextFlush() {
+        // Prüft: schlägt das Schreiben fehl, gehen keine Likes verloren
+        when(ratingRepository.incrementLikeCounts(anyMap(), anyLong())).thenReturn(false, true);
+
+        likeCounter.increment(5);
+        likeCounter.increment(5);
+
+        assertEquals(0, likeCounter.flush());
+        assertEquals(2, likeCounter.pendingFor(5));
+
+        likeCounter.increment(5);
+        assertEquals(1, likeCounter.flush());
+        verify(ratingRepository).incrementLikeCounts(eq(Map.of(5, 3L)), anyLong());
+    }
+
+    @Test
+    void concurrentIncrementsAndFlushes_loseNothing() throws Exception {
+        // Prüft: viele Threads liken, während dauernd geflusht wird (auch Zähler, die dabei leer
+        // werden und entfernt werden) -> am Ende steht jedes Like genau einmal in der "DB"
+        Map<Integer, Row> db = recordingDb(null);
+
+        int threads = 8;
+        int perThread = 20_000;
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (running.get()) likeCounter.flush();
+        });
+        flusher.start();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    // Rating 1 ist "heiß", die anderen bekommen nur ab und zu ein Like -> werden zwischendurch leer
+                    likeCounter.increment(i % 10 == 0 ? 2 + (i / 10) % 5 : 1);
+                    if (i % 1000 == 0) Thread.yield();
+                }
+            });
+            workers.add(w);
+            w.start();
+        }
+        start.countDown();
+        for (Thread w : workers) w.join();
+        running.set(false);
+        flusher.join();
+
+        likeCounter.flush();
+
+        long total = 0;
+        for (Row r : db.values()) total += r.likes();
+        assertEquals((long) threads * perThread, total);
+        assertEquals((long) threads * perThread * 9 / 10, db.get(1).likes());
+        for (int id = 1; id <= 6; id++) assertEquals(0, likeCounter.pendingFor(id));
+    }
+
+    @Test
+    void readConsistent_neverCountsALikeTwiceWhileFlushing() throws Exception {
+        // Prüft: likes_count aus der "DB" + pendingFor() ist nie größer als die Zahl der Likes,
+        // auch wenn ein Flush gerade committet hat, inFlight aber noch gesetzt ist
+        Map<Integer, Row> db = recordingDb(new CountDownLatch(0));
+
+        AtomicLong started = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong maxOvercount = new AtomicLong();
+
+        Thread liker = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                started.incrementAndGet();
+                likeCounter.increment(1);
+            }
+        });
+        Thread flusher = new Thread(() -> {
+            while (running.get()) likeCounter.flush();
+        });
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                long seen = likeCounter.readConsistent(() -> read(db, 1));
+                long over = seen - started.get();
+                if (over > 0) maxOvercount.accumulateAndGet(over, Math::max);
+            }
+        });
+
+        liker.start();
+        flusher.start();
+        reader.start();
+        liker.join();
+        running.set(false);
+        flusher.join();
+        reader.join();
+        likeCounter.flush();
+
+        assertEquals(0, maxOvercount.get());
+        assertEquals(2_000L, db.get(1).likes());
+    }
+
+    @Test
+    void readConsistent_isNotBlockedByASlowFlush() throws Exception {
+        // Prüft: hängt das UPDATE des Flushs, kommen Lesende trotzdem sofort durch und sehen
+        // die Likes genau einmal - vor dem Commit über inFlight, danach über die gestempelte Zeile
+        CountDownLatch commit = new CountDownLatch(1);
+        Map<Integer, Row> db = recordingDb(commit);
+        db.put(1, new Row(10, 0));
+
+        likeCounter.increment(1);
+        likeCounter.increment(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> flush = pool.submit(likeCounter::flush);
+
+            // Flush steckt in incrementLikeCounts (Zeile schon geschrieben, Commit "dauert")
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (db.get(1).likes() == 10 && System.nanoTime() < deadline) Thread.sleep(1);
+            assertEquals(12, db.get(1).likes());
+            assertFalse(flush.isDone());
+
+            Future<Long> read = pool.submit(() -> likeCounter.readConsistent(() -> read(db, 1)));
+            assertEquals(12L, read.get(1, TimeUnit.SECONDS));
+
+            commit.countDown();
+            assertEquals(1, flush.get(5, TimeUnit.SECONDS));
+            assertEquals(12L, likeCounter.readConsistent(() -> read(db, 1)));
+        } finally {
+            commit.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    // ratings-Zeile in der "DB": likes_count + likes_flush_gen
+    private record Row(long likes, long flushGen) {}
+
+    private long read(Map<Integer, Row> db, int ratingId) {
+        Row row = db.getOrDefault(ratingId, new Row(0, 0));
+        return row.likes() + likeCounter.pendingFor(ratingId, row.flushGen());
+    }
+
+    // "DB" im Speicher: incrementLikeCounts addiert die Deltas auf und stempelt die Generation.
+    // commit != null: danach 1 ms (bzw. bis commit freigegeben ist) warten, wie ein langsamer Commit
+    private Map<Integer, Row> recordingDb(CountDownLatch commit) {
+        Map<Integer, Row> db = new ConcurrentHashMap<>();
+        when(ratingRepository.incrementLikeCounts(anyMap(), anyLong())).thenAnswer(inv -> {
+            Map<Integer, Long> deltas = inv.getArgument(0);
+            long generation = inv.getArgument(1);
+            deltas.forEach((id, d) -> db.merge(id, new Row(d, generation),
+                    (old, add) -> new Row(old.likes() + add.likes(), generation)));
+            if (commit != null) {
+                if (commit.getCount() == 0) Thread.sleep(1);
+                else commit.await();
+            }
+            return true;
+        });
+        return db;
+    }
+}
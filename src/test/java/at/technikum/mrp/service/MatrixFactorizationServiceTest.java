@@ -0,0 +1,77 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class MatrixFactorizationServiceTest {
+
+    private RatingRepository ratingRepository;
+    private MatrixFactorizationService mf;
+
+    @BeforeEach
+    void setup() {
+        ratingRepository = mock(RatingRepository.class);
+
+        // Zwei "Geschmacksgruppen": User 1-3 mögen Media 10/11, User 4-6 mögen Media 20/21
+        when(ratingRepository.forEachRating(any())).thenAnswer(inv -> {
+            RatingRepository.RatingRowHandler h = inv.getArgument(0);
+            for (int u = 1; u <= 6; u++) {
+                boolean groupA = u <= 3;
+                h.accept(u, 10, groupA ? 5 : 1);
+                h.accept(u, 20, groupA ? 1 : 5);
+                if (u != 1) h.accept(u, 11, groupA ? 5 : 1);
+                if (u != 4) h.accept(u, 21, groupA ? 1 : 5);
+            }
+            return 22L;
+        });
+
+        mf = new MatrixFactorizationService(ratingRepository, 4, 15, 0.05, 2, 60);
+    }
+
+    @Test
+    void recommend_beforeTraining_returnsEmpty() {
+        // Prüft: ohne Modell -> keine Kandidaten (RecommendationService fällt dann auf content zurück)
+        assertTrue(mf.recommend(1, new int[0], 5).isEmpty());
+        assertEquals("notTrained", mf.getMetrics().get("status"));
+    }
+
+    @Test
+    void train_learnsGroupsAndReportsMetrics() throws Exception {
+        // Prüft: nach dem Training sagt das Modell für User 1 Media 11 höher voraus als 21
+        assertTrue(mf.train());
+
+        List<RecommendationCandidate> recs = mf.recommend(1, new int[]{10, 20}, 2);
+        assertEquals(2, recs.size());
+        assertEquals(11, recs.get(0).mediaId);
+        assertTrue(recs.get(0).score > recs.get(1).score);
+
+        Map<String, Object> metrics = mf.getMetrics();
+        assertEquals("ready", metrics.get("status"));
+        assertEquals(22, metrics.get("ratings"));
+        assertTrue((Double) metrics.get("rmse") < 1.0);
+        assertNotNull(metrics.get("trainingMillis"));
+    }
+
+    @Test
+    void recommend_unknownUser_returnsEmpty() throws Exception {
+        // Prüft: Cold Start -> User ist nicht im Modell
+        mf.train();
+        assertTrue(mf.recommend(999, new int[0], 5).isEmpty());
+    }
+
+    @Test
+    void recommend_hugeLimit_isCappedAtItemCount() throws Exception {
+        // Prüft: limit nahe Integer.MAX_VALUE -> höchstens alle nicht ausgeschlossenen Items, kein OutOfMemoryError
+        mf.train();
+        List<RecommendationCandidate> recs = mf.recommend(1, new int[]{10, 20}, Integer.MAX_VALUE - 8);
+        assertEquals(2, recs.size());
+    }
+}
@@ -0,0 +1,97 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.util.JsonFragments;
+import at.technikum.mrp.util.JsonUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MediaJsonCacheTest {
+
+    private final AtomicInteger serialized = new AtomicInteger();
+    private final Function<Media, byte[]> serializer = m -> {
+        serialized.incrementAndGet();
+        return JsonFragments.toBytes(Map.of("id", m.getId(), "title", m.getTitle()));
+    };
+
+    private MediaJsonCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new MediaJsonCache(100);
+    }
+
+    @Test
+    void fragment_cachedUntilMediaChanges() throws IOException {
+        // Prüft: zweiter Aufruf ohne Serialisierung, nach Update/Rating neu serialisiert
+        Media alien = media(1, "Alien", 4.5);
+
+        long stamp = cache.stamp();
+        byte[] first = cache.fragment(alien, stamp, serializer);
+        assertSame(first, cache.fragment(alien, cache.stamp(), serializer));
+        assertEquals(1, serialized.get());
+
+        cache.onMediaSaved(media(1, "Alien (1979)", 4.5));
+        byte[] updated = cache.fragment(media(1, "Alien (1979)", 4.5), cache.stamp(), serializer);
+        assertEquals("{\"id\":1,\"title\":\"Alien (1979)\"}", sorted(updated));
+        assertEquals(2, serialized.get());
+
+        // Score aus dem Write-Behind ohne Event -> Score-Vergleich erzwingt neues JSON
+        cache.fragment(media(1, "Alien (1979)", 4.0), cache.stamp(), serializer);
+        assertEquals(3, serialized.get());
+    }
+
+    @Test
+    void fragment_objectLoadedBeforeChangeIsNotCached() {
+        // Prüft: vor dem Update geladen, danach serialisiert -> wird ausgeliefert, aber nicht gecacht
+        long stamp = cache.stamp();
+        Media old = media(2, "Aliens", 0.0);
+        cache.onRatingChanged(7, 2, 0, 5);
+
+        cache.fragment(old, stamp, serializer);
+        cache.fragment(media(2, "Aliens", 0.0), cache.stamp(), serializer);
+        assertEquals(2, serialized.get());
+        assertEquals(1, cache.getMetrics().get("entries"));
+    }
+
+    @Test
+    void jsonFragments_concatenateWithoutReserializing() {
+        // Prüft: Array, Objekt und angehängtes Feld ergeben gültiges JSON
+        byte[] a = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "{\"id\":2}".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("[]", text(JsonFragments.array(List.of())));
+        assertEquals("[{\"id\":1},{\"id\":2}]", text(JsonFragments.array(List.of(a, b))));
+        assertEquals("{\"id\":1,\"similarity\":0.5}", text(JsonFragments.withField(a, "similarity", 0.5)));
+        assertEquals("{\"n\":null}", text(JsonFragments.withField("{}".getBytes(), "n", null)));
+
+        Map<String, byte[]> fields = new LinkedHashMap<>();
+        fields.put("items", JsonFragments.array(List.of(a)));
+        fields.put("total", JsonFragments.toBytes(1));
+        assertEquals("{\"items\":[{\"id\":1}],\"total\":1}", text(JsonFragments.object(fields)));
+    }
+
+    private static Media media(int id, String title, double score) {
+        return Media.builder().id(id).title(title).type("MOVIE").averageScore(score).build();
+    }
+
+    private static String text(byte[] b) {
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // Map.of hat keine feste Reihenfolge -> für den Vergleich über Jackson neu sortiert ausgeben
+    private static String sorted(byte[] json) throws IOException {
+        return text(JsonFragments.toBytes(JsonUtil.MAPPER.readValue(json, TreeMap.class)));
+    }
+}
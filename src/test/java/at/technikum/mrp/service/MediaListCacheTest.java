@@ -0,0 +1,127 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.MediaRepository;
+import at.technikum.mrp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MediaListCacheTest {
+
+    // Refreshes sammeln statt sofort ausführen, damit der Test bestimmt, wann der Hintergrund-Thread läuft
+    private final List<Runnable> pendingRefreshes = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private MediaListCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new MediaListCache(2, pendingRefreshes::add);
+    }
+
+    @Test
+    void get_servesStaleWhileOneRefreshRuns() {
+        // Prüft: Miss lädt synchron, danach Treffer; nach einem Write veraltet ausliefern + genau ein Refresh
+        Supplier<byte[]> loader = () -> body("v" + loads.incrementAndGet());
+
+        assertEquals("v1", text(cache.get("k", loader)));
+        assertEquals("v1", text(cache.get("k", loader)));
+        assertEquals(1, loads.get());
+
+        cache.onRatingChanged(1, 10, 0, 5);
+        assertEquals("v1", text(cache.get("k", loader)));
+        assertEquals("v1", text(cache.get("k", loader)));
+        assertEquals(1, pendingRefreshes.size());
+        assertEquals(1, loads.get());
+
+        pendingRefreshes.remove(0).run();
+        assertEquals("v2", text(cache.get("k", loader)));
+        assertTrue(pendingRefreshes.isEmpty());
+
+        assertEquals(2L, cache.getMetrics().get("hits"));
+        assertEquals(2L, cache.getMetrics().get("staleHits"));
+        assertEquals(1L, cache.getMetrics().get("refreshes"));
+    }
+
+    @Test
+    void catalogOff_writeBehindScore_replacesRefreshWithOldScore() {
+        // Prüft: Katalog aus (Liste kommt aus der DB), average_score per Write-Behind -> der Refresh direkt
+        // nach dem Rating liest noch den alten Score; erst der Flush des Write-Behind macht den Eintrag
+        // wieder veraltet, danach steht der neue Score im Cache
+        MediaRepository mediaRepository = mock(MediaRepository.class);
+        StatisticsWriteBehindService statistics =
+                new StatisticsWriteBehindService(mediaRepository, mock(UserRepository.class), 1000, 100);
+        statistics.addListener(cache);
+
+        AtomicReference<String> dbScore = new AtomicReference<>("3.0");
+        when(mediaRepository.updateAverageScore(10)).thenAnswer(inv -> {
+            dbScore.set("4.0");
+            return true;
+        });
+        Supplier<byte[]> loader = () -> body(dbScore.get());
+
+        assertEquals("3.0", text(cache.get("k", loader)));
+
+        // Rating-Write: Statistik nur vorgemerkt, Refresh liest noch den alten Score
+        statistics.markChanged(1, 10);
+        cache.onRatingChanged(1, 10, 0, 5);
+        cache.get("k", loader);
+        pendingRefreshes.remove(0).run();
+        assertEquals("3.0", text(cache.get("k", loader)));
+        assertTrue(pendingRefreshes.isEmpty());
+
+        // Write-Behind schreibt den Score -> Eintrag veraltet, nächster Refresh holt den neuen
+        statistics.flush();
+        assertEquals("3.0", text(cache.get("k", loader)));
+        pendingRefreshes.remove(0).run();
+        assertEquals("4.0", text(cache.get("k", loader)));
+    }
+
+    @Test
+    void refresh_writeDuringLoadKeepsEntryStale() {
+        // Prüft: Version wird vor dem Laden gemerkt -> ein Media-Write währenddessen löst den nächsten Refresh aus
+        cache.get("k", () -> body("old"));
+        cache.onMediaDeleted(7);
+
+        cache.get("k", () -> {
+            cache.onMediaSaved(null);
+            return body("mid");
+        });
+        pendingRefreshes.remove(0).run();
+
+        assertEquals("mid", text(cache.get("k", () -> body("new"))));
+        assertEquals(1, pendingRefreshes.size());
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsedAndCanBeDisabled() {
+        // Prüft: Kapazität 2 -> ältester Schlüssel fliegt; maxEntries 0 -> jeder Aufruf lädt
+        cache.get("a", () -> body("a"));
+        cache.get("b", () -> body("b"));
+        cache.get("a", () -> body("a"));
+        cache.get("c", () -> body("c"));
+
+        assertEquals("a", text(cache.get("a", () -> body("a2"))));
+        assertEquals("b2", text(cache.get("b", () -> body("b2"))));
+
+        MediaListCache disabled = new MediaListCache(0, Runnable::run);
+        disabled.get("k", () -> body("v" + loads.incrementAndGet()));
+        assertEquals("v2", text(disabled.get("k", () -> body("v" + loads.incrementAndGet()))));
+    }
+
+    private static byte[] body(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] b) {
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
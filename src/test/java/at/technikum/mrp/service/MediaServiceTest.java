@@ -8,8 +8,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -143,11 +150,62 @@ public class MediaServiceTest {
     @Test
     void list_delegatesToRepository() {
         // Prüft: list() ruft repository.findFiltered() mit denselben Parametern auf
-        when(mediaRepository.findFiltered(any(), any(), any(), any(), any(), any(), any()))
+        when(mediaRepository.findFiltered(any(), any(), any(), any(), any(), any(), any(), any()))
                 .thenReturn(List.of());
 
         mediaService.list("ti", "action", "MOVIE", 2020, 16, 3.5, "score");
 
-        verify(mediaRepository).findFiltered("ti", "action", "MOVIE", 2020, 16, 3.5, "score");
+        verify(mediaRepository).findFiltered("ti", "action", "MOVIE", 2020, 16, 3.5, "score", null);
+    }
+
+    @Test
+    void list_withFieldsUsesProjection() {
+        // Prüft: Feld-Auswahl geht bis zur Query durch (nur diese Spalten laden)
+        Set<String> fields = Set.of("id", "title");
+        when(mediaRepository.findFiltered(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of());
+
+        mediaService.list(null, null, null, null, null, null, "title", fields);
+
+        verify(mediaRepository).findFiltered(null, null, null, null, null, null, "title", fields);
+    }
+
+    @Test
+    void list_concurrentIdenticalQueriesShareOneCall() throws Exception {
+        // Prüft: gleiche (normalisierte) Filter gleichzeitig -> eine DB-Query, alle bekommen das Ergebnis
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Media m = Media.builder().id(1).title("Alien").type("MOVIE").build();
+        when(mediaRepository.findFiltered(any(), any(), any(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(m);
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<List<Media>> first = pool.submit(() -> mediaService.list("Alien", null, "movie", null, null, null, null));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            List<Future<List<Media>>> others = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                others.add(pool.submit(() -> mediaService.list("ALIEN", "", "MOVIE", null, null, null, "title")));
+            }
+            // warten, bis alle drei am laufenden Aufruf hängen
+            while ((long) mediaService.getListCoalescingMetrics().get("collapsed") < 3) Thread.sleep(1);
+            release.countDown();
+
+            assertEquals(List.of(m), first.get(5, TimeUnit.SECONDS));
+            for (Future<List<Media>> f : others) assertEquals(List.of(m), f.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(mediaRepository, times(1)).findFiltered(any(), any(), any(), any(), any(), any(), any(), any());
+        assertEquals(1L, mediaService.getListCoalescingMetrics().get("executions"));
+
+        // danach kein Cache: nächster Aufruf fragt wieder die DB
+        mediaService.list("Alien", null, "MOVIE", null, null, null, null);
+        verify(mediaRepository, times(2)).findFiltered(any(), any(), any(), any(), any(), any(), any(), any());
     }
 }
@@ -1,6 +1,9 @@
 package at.technikum.mrp.service;
 
+import at.technikum.mrp.dto.BulkRatingRequest;
+import at.technikum.mrp.dto.BulkRatingResult;
 import at.technikum.mrp.dto.RatingRequest;
+import at.technikum.mrp.dto.RatingResponse;
 import at.technikum.mrp.model.Rating;
 import at.technikum.mrp.repository.MediaRepository;
 import at.technikum.mrp.repository.RatingRepository;
@@ -10,9 +13,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 public class RatingServiceTest {
@@ -111,12 +121,44 @@ public class RatingServiceTest {
                 .confirmed(true).likesCount(0).createdAt(LocalDateTime.now()).build();
 
         when(ratingRepository.findById(5)).thenReturn(Optional.of(existing));
-        when(ratingRepository.likeRating(5, 1)).thenReturn(false);
+        when(ratingRepository.likeRatingAndCount(5, 1)).thenReturn(false);
 
         ApiException ex = assertThrows(ApiException.class, () -> ratingService.likeRating(1, 5));
         assertEquals(409, ex.getStatus());
     }
 
+    @Test
+    void likeRating_withoutCounter_writesLikeAndCountTogether() {
+        // Prüft: ohne LikeCounterService gehen Like-Eintrag und likes_count in einem Repository-Aufruf
+        // (eine Transaktion) in die DB, nicht als zwei getrennte Statements
+        when(ratingRepository.findById(5)).thenReturn(Optional.of(Rating.builder().id(5).mediaId(10).userId(2)
+                .stars(3).confirmed(true).likesCount(1).createdAt(LocalDateTime.now()).build()));
+        when(ratingRepository.likeRatingAndCount(5, 1)).thenReturn(true);
+
+        ratingService.likeRating(1, 5);
+
+        verify(ratingRepository).likeRatingAndCount(5, 1);
+        verify(ratingRepository, never()).likeRating(anyInt(), anyInt());
+        verify(ratingRepository, never()).incrementLikeCounts(anyMap(), anyLong());
+    }
+
+    @Test
+    void likeRating_withCounter_countsInMemoryAndMergesPendingDelta() {
+        // Prüft: Like wird nicht per UPDATE geschrieben, Antwort enthält trotzdem den neuen Stand
+        LikeCounterService likeCounter = new LikeCounterService(ratingRepository, 1000);
+        ratingService = new RatingService(ratingRepository, mediaRepository, userRepository, likeCounter);
+
+        when(ratingRepository.findById(5)).thenAnswer(inv -> Optional.of(Rating.builder().id(5).mediaId(10).userId(2)
+                .stars(3).confirmed(true).likesCount(7).createdAt(LocalDateTime.now()).build()));
+        when(ratingRepository.likeRating(5, 1)).thenReturn(true);
+
+        Rating liked = ratingService.likeRating(1, 5);
+
+        assertEquals(8, liked.getLikesCount());
+        verify(ratingRepository, never()).incrementLikeCounts(anyMap(), anyLong());
+        verify(ratingRepository, never()).likeRatingAndCount(anyInt(), anyInt());
+    }
+
     @Test
     void deleteRating_triggersStatsUpdate() {
         // Prüft: nach delete werden media avg + user stats aktualisiert
@@ -133,4 +175,79 @@ public class RatingServiceTest {
         verify(mediaRepository).updateAverageScore(10);
         verify(userRepository).updateUserStatistics(1);
     }
+
+    @Test
+    void rateBulk_oneInsertAndStatusPerItem() {
+        // Prüft: ungültig/doppelt vorab aussortiert, ein insertBulk für den Rest, 201/404/409 pro Eintrag,
+        // Listener pro neuem Rating, keine Einzel-Statistik-Updates
+        List<int[]> events = new ArrayList<>();
+        ratingService.addListener(new RatingListener() {
+            @Override
+            public void onRatingChanged(int userId, int mediaId, int oldStars, int newStars) {
+                events.add(new int[]{mediaId, newStars});
+            }
+        });
+
+        when(mediaRepository.findExistingIds(Set.of(10, 11, 12))).thenReturn(Set.of(10, 11));
+        when(ratingRepository.insertBulk(eq(1), anyList())).thenReturn(List.of(
+                Rating.builder().id(100).mediaId(10).userId(1).stars(5).comment("top").createdAt(LocalDateTime.now()).build()));
+
+        List<BulkRatingResult> results = ratingService.rateBulk(1, List.of(
+                new BulkRatingRequest.Item(10, 5, "top"),
+                new BulkRatingRequest.Item(11, 3, null),   // schon bewertet -> ON CONFLICT DO NOTHING
+                new BulkRatingRequest.Item(12, 4, null),   // Media gibt es nicht
+                new BulkRatingRequest.Item(10, 1, null),   // doppelt im Request
+                new BulkRatingRequest.Item(13, 6, null),   // ungültige Sterne
+                new BulkRatingRequest.Item(null, 2, null)));
+
+        assertEquals(List.of(201, 409, 404, 409, 400, 400), results.stream().map(BulkRatingResult::status).toList());
+        assertEquals(100, results.get(0).rating().id());
+        assertEquals(3, results.get(3).index());
+
+        verify(ratingRepository, times(1)).insertBulk(eq(1), argThat(list -> list.size() == 3));
+        verify(mediaRepository, never()).updateAverageScore(anyInt());
+        verify(userRepository, never()).updateUserStatistics(anyInt());
+        assertEquals(1, events.size());
+        assertArrayEquals(new int[]{10, 5}, events.get(0));
+    }
+
+    @Test
+    void rateBulk_dbErrorIs500() {
+        // Prüft: Rollback im Repository (null) -> 500 für den ganzen Request
+        when(mediaRepository.findExistingIds(any())).thenReturn(Set.of(10));
+        when(ratingRepository.insertBulk(eq(1), anyList())).thenReturn(null);
+
+        ApiException ex = assertThrows(ApiException.class,
+                () -> ratingService.rateBulk(1, List.of(new BulkRatingRequest.Item(10, 5, null))));
+        assertEquals(500, ex.getStatus());
+    }
+
+    @Test
+    void listVisibleByMediaId_withoutComment_needsNoUserId() {
+        // Prüft: ?fields=id,stars lädt nur diese Spalten, unconfirmed Ratings ohne userId führen nicht zu einem Fehler
+        Rating unconfirmed = Rating.builder().id(1).stars(4).build();
+        when(ratingRepository.findByMediaId(10, Set.of("id", "stars"))).thenReturn(List.of(unconfirmed));
+
+        List<RatingResponse> out = ratingService.listVisibleByMediaId(10, 7, Set.of("id", "stars"));
+
+        assertEquals(1, out.size());
+        assertEquals(4, out.get(0).stars());
+        assertNull(out.get(0).comment());
+    }
+
+    @Test
+    void listVisibleByMediaId_withComment_appliesVisibilityRule() {
+        // Prüft: mit comment werden userId/confirmed mitgeladen, fremde unconfirmed Kommentare bleiben verborgen
+        Set<String> loaded = Set.of("comment", "confirmed", "id", "userId");
+        when(ratingRepository.findByMediaId(10, loaded)).thenReturn(List.of(
+                Rating.builder().id(1).userId(7).comment("eigener").confirmed(false).build(),
+                Rating.builder().id(2).userId(8).comment("fremd").confirmed(false).build(),
+                Rating.builder().id(3).userId(9).comment("öffentlich").confirmed(true).build()));
+
+        List<RatingResponse> out = ratingService.listVisibleByMediaId(10, 7, Set.of("id", "comment"));
+
+        assertEquals("eigener", out.get(0).comment());
+        assertNull(out.get(1).comment());
+        assertEquals("öffentlich", out.get(2).comment());
+    }
 }
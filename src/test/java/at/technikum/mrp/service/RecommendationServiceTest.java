@@ -1,13 +1,14 @@
 package at.technikum.mrp.service;
 
+import at.technikum.mrp.dto.RecommendationResponse;
 import at.technikum.mrp.model.Media;
 import at.technikum.mrp.repository.MediaRepository;
 import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.ApiException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,16 +30,25 @@ public class RecommendationServiceTest {
     void recommendForUser_fallbackWhenNoLiked_returnsTopRated() {
         // Prüft: wenn liked leer -> fallback topRated
         when(mediaRepository.findHighlyRatedByUser(1, 4)).thenReturn(List.of());
-        when(mediaRepository.findNotRatedByUser(1)).thenReturn(List.of()); // wird vorher geladen
         when(mediaRepository.findTopRated(2)).thenReturn(List.of(
                 Media.builder().id(10).title("A").type("MOVIE").averageScore(4.5).build(),
                 Media.builder().id(11).title("B").type("MOVIE").averageScore(4.0).build()
         ));
 
-        List<Map<String, Object>> recs = recommendationService.recommendForUser(1, 2);
+        List<RecommendationResponse> recs = recommendationService.recommendForUser(1, 2);
 
         assertEquals(2, recs.size());
-        assertEquals("fallback_topRated", recs.get(0).get("reason"));
+        assertEquals("fallback_topRated", recs.get(0).reason());
+        // ohne liked Media werden gar keine Kandidaten geladen
+        verify(mediaRepository, never()).findRecommendationCandidates(anyInt(), anyInt(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void recommendForUser_nonPositiveLimit_returnsEmptyWithoutQuery() {
+        // Prüft: limit 0 oder negativ -> [] statt 500, keine Query mit negativem LIMIT
+        assertTrue(recommendationService.recommendForUser(1, -1).isEmpty());
+        assertTrue(recommendationService.recommendForUser(1, 0, "content").isEmpty());
+        verifyNoInteractions(mediaRepository);
     }
 
     @Test
@@ -47,13 +57,13 @@ public class RecommendationServiceTest {
         when(mediaRepository.findHighlyRatedByUser(1, 4)).thenReturn(List.of(
                 Media.builder().id(1).title("Liked").type("MOVIE").genres(List.of("action")).ageRestriction(16).build()
         ));
-        when(mediaRepository.findNotRatedByUser(1)).thenReturn(List.of(
+        stubCandidates(List.of(
                 Media.builder().id(10).title("C1").type("MOVIE").genres(List.of("action")).ageRestriction(16).build(),
                 Media.builder().id(11).title("C2").type("MOVIE").genres(List.of("action")).ageRestriction(16).build(),
                 Media.builder().id(12).title("C3").type("MOVIE").genres(List.of("action")).ageRestriction(16).build()
         ));
 
-        List<Map<String, Object>> recs = recommendationService.recommendForUser(1, 2);
+        List<RecommendationResponse> recs = recommendationService.recommendForUser(1, 2);
         assertEquals(2, recs.size());
     }
 
@@ -68,11 +78,86 @@ public class RecommendationServiceTest {
         Media best = Media.builder().id(10).title("Best").type("GAME").genres(List.of("action")).ageRestriction(16).build();
         Media worse = Media.builder().id(11).title("Worse").type("GAME").genres(List.of("drama")).ageRestriction(16).build();
 
-        when(mediaRepository.findNotRatedByUser(1)).thenReturn(List.of(worse, best));
+        stubCandidates(List.of(worse, best));
 
-        List<Map<String, Object>> recs = recommendationService.recommendForUser(1, 2);
+        List<RecommendationResponse> recs = recommendationService.recommendForUser(1, 2);
 
         assertEquals(2, recs.size());
-        assertEquals(10, recs.get(0).get("id")); // "Best" sollte vorne sein
+        assertEquals(10, recs.get(0).id()); // "Best" sollte vorne sein
+    }
+
+    @Test
+    void recommendForUser_unknownStrategy_throws400() {
+        // Prüft: unbekannte strategy -> 400
+        ApiException ex = assertThrows(ApiException.class,
+                () -> recommendationService.recommendForUser(1, 5, "random"));
+        assertEquals(400, ex.getStatus());
+    }
+
+    @Test
+    void recommendForUser_collaborative_usesNeighboursAndLoadsDetailsOnce() {
+        // Prüft: collaborative nimmt die Kandidaten aus dem CF-Service und lädt Details per findByIds
+        CollaborativeFilteringService cf = mock(CollaborativeFilteringService.class);
+        recommendationService = new RecommendationService(mediaRepository, ratingRepository, cf, null);
+
+        when(cf.recommend(1, 4, 1)).thenReturn(List.of(new RecommendationCandidate(12, 0.8f)));
+        when(mediaRepository.findByIds(List.of(12))).thenReturn(List.of(
+                Media.builder().id(12).title("Neighbour").type("MOVIE").build()
+        ));
+
+        List<RecommendationResponse> recs = recommendationService.recommendForUser(1, 1, "collaborative");
+
+        assertEquals(1, recs.size());
+        assertEquals(12, recs.get(0).id());
+        assertEquals("collaborative", recs.get(0).reason());
+        verify(mediaRepository, never()).findRecommendationCandidates(anyInt(), anyInt(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void recommendForUser_loadsDetailsOnlyForTopN() {
+        // Prüft: Details (findByIds) werden nur für die limit besten Kandidaten nachgeladen
+        when(mediaRepository.findHighlyRatedByUser(1, 4)).thenReturn(List.of(
+                Media.builder().id(1).title("Liked").type("MOVIE").genres(List.of("action")).build()
+        ));
+        stubCandidates(List.of(
+                Media.builder().id(10).title("Match").type("MOVIE").genres(List.of("action")).build(),
+                Media.builder().id(11).title("Other").type("GAME").genres(List.of("drama")).build()
+        ));
+
+        List<RecommendationResponse> recs = recommendationService.recommendForUser(1, 1);
+
+        assertEquals(1, recs.size());
+        assertEquals(10, recs.get(0).id());
+        verify(mediaRepository).findByIds(List.of(10));
+    }
+
+    @Test
+    void recommendForUser_passesFavoriteGenreToCandidateQuery() {
+        // Prüft: die DB bekommt das Lieblingsgenre, damit ihr Score (und damit der Schnitt bei 200)
+        // dem Score im Service entspricht
+        when(mediaRepository.findHighlyRatedByUser(1, 4)).thenReturn(List.of(
+                Media.builder().id(1).title("A").type("MOVIE").genres(List.of("Action", "drama")).build(),
+                Media.builder().id(2).title("B").type("MOVIE").genres(List.of("action")).build()
+        ));
+        stubCandidates(List.of(
+                Media.builder().id(10).title("Match").type("GAME").genres(List.of("action")).build()
+        ));
+
+        List<RecommendationResponse> recs = recommendationService.recommendForUser(1, 3);
+
+        assertEquals(1, recs.size());
+        assertEquals(4, recs.get(0).recommendationScore().intValue());
+        verify(mediaRepository).findRecommendationCandidates(1, 4, "action", 200, 3);
+    }
+
+    // Kandidaten-Query + Detail-Nachladen (findByIds liefert die Media in der angefragten Reihenfolge)
+    private void stubCandidates(List<Media> candidates) {
+        when(mediaRepository.findRecommendationCandidates(eq(1), eq(4), any(), anyInt(), anyInt())).thenReturn(candidates);
+        when(mediaRepository.findByIds(anyList())).thenAnswer(inv -> {
+            List<Integer> ids = inv.getArgument(0);
+            return ids.stream()
+                    .flatMap(id -> candidates.stream().filter(m -> m.getId().equals(id)))
+                    .toList();
+        });
     }
 }
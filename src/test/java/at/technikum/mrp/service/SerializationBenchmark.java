@@ -0,0 +1,111 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.dto.MediaResponse;
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.util.JsonUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialisierung einer Liste mit 1.000 Media: Map.of pro Zeile + ObjectMapper (alt)
+ * gegen Response-Record + vorbereiteten ObjectWriter (JsonUtil.MEDIA_LIST_WRITER).
+ * Misst Durchsatz und allokierte Bytes pro Liste (kein JUnit-Test, läuft nicht im Build).
+ *
+ * Starten: mvn -q test-compile && java -cp "target/classes:target/test-classes:$(cat cp.txt)" \
+ *          at.technikum.mrp.service.SerializationBenchmark
+ * (cp.txt vorher mit mvn dependency:build-classpath -Dmdep.outputFile=cp.txt erzeugen)
+ */
+public class SerializationBenchmark {
+
+    private static final int ITEMS = 1_000;
+    private static final int WARMUP_ROUNDS = 3_000;
+    private static final int ROUNDS = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        List<Media> media = new ArrayList<>(ITEMS);
+        LocalDateTime now = LocalDateTime.of(2025, 11, 1, 12, 0);
+        for (int i = 1; i <= ITEMS; i++) {
+            media.add(Media.builder()
+                    .id(i)
+                    .title("Title " + i)
+                    .description("Description of media " + i)
+                    .type(i % 3 == 0 ? "GAME" : "MOVIE")
+                    .releaseYear(1970 + i % 55)
+                    .genres(List.of("Action", "SciFi"))
+                    .ageRestriction(i % 18)
+                    .creatorId(1 + i % 50)
+                    .averageScore((i % 50) / 10.0)
+                    .createdAt(now.plusMinutes(i))
+                    .build());
+        }
+
+        // gleiche Antwort (bis auf die Feldreihenfolge von Map.of)?
+        System.out.printf("bytes per list: maps=%d records=%d%n", viaMaps(media).length, viaRecords(media).length);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            viaMaps(media);
+            viaRecords(media);
+        }
+
+        report("Map.of + ObjectMapper     ", () -> viaMaps(media));
+        report("Record + ObjectWriter     ", () -> viaRecords(media));
+    }
+
+    private interface Serializer {
+        byte[] run() throws JsonProcessingException;
+    }
+
+    private static byte[] viaMaps(List<Media> media) throws JsonProcessingException {
+        List<Map<String, Object>> out = new ArrayList<>(media.size());
+        for (Media m : media) {
+            out.add(Map.of(
+                    "id", m.getId(),
+                    "title", m.getTitle(),
+                    "description", m.getDescription(),
+                    "mediaType", m.getType(),
+                    "releaseYear", m.getReleaseYear(),
+                    "genres", m.getGenres(),
+                    "ageRestriction", m.getAgeRestriction(),
+                    "creatorId", m.getCreatorId(),
+                    "averageScore", m.getAverageScore(),
+                    "createdAt", m.getCreatedAt()
+            ));
+        }
+        return JsonUtil.MAPPER.writeValueAsBytes(out);
+    }
+
+    private static byte[] viaRecords(List<Media> media) throws JsonProcessingException {
+        List<MediaResponse> out = new ArrayList<>(media.size());
+        for (Media m : media) {
+            out.add(MediaResponse.from(m));
+        }
+        return JsonUtil.MEDIA_LIST_WRITER.writeValueAsBytes(out);
+    }
+
+    private static void report(String name, Serializer serializer) throws JsonProcessingException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += serializer.run().length;
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+
+        System.out.printf("%s %8.0f lists/s  %6.1f us/list  %8.1f KB allocated/list  (sink %d)%n",
+                name,
+                ROUNDS / (nanos / 1e9),
+                nanos / 1e3 / ROUNDS,
+                allocated / 1024.0 / ROUNDS,
+                sink % 7);
+    }
+}
@@ -0,0 +1,85 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.repository.MediaRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class SimilarMediaServiceTest {
+
+    private SimilarMediaService similarMediaService;
+
+    @BeforeEach
+    void setup() {
+        MediaRepository mediaRepository = mock(MediaRepository.class);
+        RatingRepository ratingRepository = mock(RatingRepository.class);
+
+        List<Media> catalog = List.of(
+                Media.builder().id(1).title("Alien").type("MOVIE").genres(List.of("Horror", "SciFi")).build(),
+                Media.builder().id(2).title("Aliens").type("MOVIE").genres(List.of("horror", "scifi")).build(),
+                Media.builder().id(3).title("Notting Hill").type("MOVIE").genres(List.of("Romance")).build()
+        );
+        when(mediaRepository.forEachMedia(any())).thenAnswer(inv -> {
+            Consumer<Media> c = inv.getArgument(0);
+            catalog.forEach(c);
+            return (long) catalog.size();
+        });
+        when(ratingRepository.forEachRating(any())).thenAnswer(inv -> {
+            RatingRepository.RatingRowHandler h = inv.getArgument(0);
+            h.accept(100, 1, 5);
+            h.accept(100, 2, 5);
+            return 2L;
+        });
+
+        similarMediaService = new SimilarMediaService(mediaRepository, ratingRepository);
+        similarMediaService.rebuild();
+    }
+
+    @Test
+    void findSimilar_sameGenresAndRaters_isTopHit() {
+        // Prüft: 1 und 2 haben gleiche Genres (case-insensitive) und gleiche Bewerter -> Ähnlichkeit 1.0
+        List<RecommendationCandidate> similar = similarMediaService.findSimilar(1, 5);
+
+        assertEquals(1, similar.size());
+        assertEquals(2, similar.get(0).mediaId);
+        assertEquals(1.0f, similar.get(0).score, 0.0001f);
+    }
+
+    @Test
+    void findSimilar_hugeLimit_isCappedAtCandidateCount() {
+        // Prüft: limit nahe Integer.MAX_VALUE -> Top-K nur so groß wie die Kandidaten, kein OutOfMemoryError
+        List<RecommendationCandidate> similar = similarMediaService.findSimilar(1, Integer.MAX_VALUE - 8);
+
+        assertEquals(1, similar.size());
+        assertEquals(2, similar.get(0).mediaId);
+    }
+
+    @Test
+    void onMediaSaved_updatesGenresIncrementally() {
+        // Prüft: neues Media mit Romance wird sofort als ähnlich zu 3 gefunden
+        assertTrue(similarMediaService.findSimilar(3, 5).isEmpty());
+
+        similarMediaService.onMediaSaved(Media.builder().id(4).title("Love Actually").type("MOVIE")
+                .genres(List.of("Romance")).build());
+
+        List<RecommendationCandidate> similar = similarMediaService.findSimilar(3, 5);
+        assertEquals(4, similar.get(0).mediaId);
+    }
+
+    @Test
+    void onMediaDeleted_removesFromIndex() {
+        // Prüft: gelöschtes Media taucht nicht mehr auf
+        similarMediaService.onMediaDeleted(2);
+
+        assertFalse(similarMediaService.contains(2));
+        assertTrue(similarMediaService.findSimilar(1, 5).isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.MediaRepository;
+import at.technikum.mrp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class StatisticsWriteBehindServiceTest {
+
+    private MediaRepository mediaRepository;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setup() {
+        mediaRepository = mock(MediaRepository.class);
+        userRepository = mock(UserRepository.class);
+    }
+
+    @Test
+    void flush_recomputesEachIdOnce() {
+        // Prüft: 3 Ratings auf Media 10 (2 User) -> Media 10 nur 1x, jeder User 1x neu berechnet
+        StatisticsWriteBehindService stats = new StatisticsWriteBehindService(mediaRepository, userRepository, 500, 100);
+
+        stats.markChanged(1, 10);
+        stats.markChanged(2, 10);
+        stats.markChanged(1, 10);
+        verifyNoInteractions(mediaRepository, userRepository);
+
+        assertEquals(3, stats.flush());
+
+        verify(mediaRepository, times(1)).updateAverageScore(10);
+        verify(userRepository, times(1)).updateUserStatistics(1);
+        verify(userRepository, times(1)).updateUserStatistics(2);
+        assertEquals(0, stats.flush());
+    }
+
+    @Test
+    void markChanged_queueFull_recomputesSynchronously() {
+        // Prüft: Kapazität 2 -> Media 10 + User 1 passen, Media 11 / User 2 werden sofort gerechnet
+        StatisticsWriteBehindService stats = new StatisticsWriteBehindService(mediaRepository, userRepository, 500, 2);
+
+        stats.markChanged(1, 10);
+        stats.markChanged(2, 11);
+
+        verify(mediaRepository).updateAverageScore(11);
+        verify(userRepository).updateUserStatistics(2);
+        verify(mediaRepository, never()).updateAverageScore(10);
+        assertEquals(2L, stats.getMetrics().get("overflows"));
+    }
+
+    @Test
+    void stop_flushesPending() {
+        // Prüft: beim Herunterfahren geht nichts verloren
+        StatisticsWriteBehindService stats = new StatisticsWriteBehindService(mediaRepository, userRepository, 60_000, 100);
+        stats.start();
+        stats.markChanged(1, 10);
+
+        stats.stop();
+
+        verify(mediaRepository).updateAverageScore(10);
+        verify(userRepository).updateUserStatistics(anyInt());
+    }
+}
@@ -0,0 +1,173 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.repository.MediaRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Latenz von Autocomplete und Fuzzy-Suche über einen synthetischen Katalog mit 1 Mio. Titeln
+ * (kein JUnit-Test, läuft nicht im Build).
+ * Titel bestehen aus 1-4 Wörtern eines Vokabulars aus Kunstwörtern (Zipf-verteilt, dazu Füllwörter wie "the"),
+ * Fuzzy-Anfragen sind Wörter echter Titel mit einem Tippfehler (Ersetzen, Löschen, Einfügen oder Dreher).
+ *
+ * Ziel: Autocomplete p99 unter 1 ms, Fuzzy p99 unter 20 ms, Fuzzy-Recall@20 über 0.95.
+ *
+ * Starten: mvn -q test-compile && java -Xmx4g -cp "target/classes:target/test-classes:$(cat cp.txt)" \
+ *          at.technikum.mrp.service.TitleSearchBenchmark
+ * (cp.txt vorher mit mvn dependency:build-classpath -Dmdep.outputFile=cp.txt erzeugen)
+ */
+public class TitleSearchBenchmark {
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ra", "ven", "tor", "sha", "del", "qui", "bar", "nox", "el", "dra", "fin", "gor",
+            "hal", "ix", "jun", "kel", "lum", "mor", "nar", "os", "pel", "quin", "ros", "sil", "tam", "ul", "vor"
+    };
+    private static final String[] FILLERS = {"the", "of", "a", "and", "in", "2", "ii", "part"};
+
+    public static void main(String[] args) {
+        int catalog = 1_000_000;
+        int vocabulary = 80_000;
+        int queries = 2_000;
+
+        Random random = new Random(42);
+        String[] words = vocabulary(vocabulary, random);
+        List<Media> titles = new ArrayList<>(catalog);
+        for (int id = 1; id <= catalog; id++) {
+            titles.add(Media.builder().id(id).title(title(words, random)).type("MOVIE").build());
+        }
+
+        MediaRepository mediaRepository = mock(MediaRepository.class);
+        when(mediaRepository.forEachMedia(any())).thenAnswer(inv -> {
+            Consumer<Media> c = inv.getArgument(0);
+            titles.forEach(c);
+            return (long) titles.size();
+        });
+
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = rt.totalMemory() - rt.freeMemory();
+
+        TitleSearchService search = new TitleSearchService(mediaRepository);
+        long start = System.nanoTime();
+        search.rebuild();
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.gc();
+        long heapAfter = rt.totalMemory() - rt.freeMemory();
+        System.out.printf("catalog=%d titles  build=%d ms  index heap=~%.0f MB  %s%n",
+                catalog, buildMillis, (heapAfter - heapBefore) / 1e6, search.getMetrics());
+
+        // Aufwärmen (JIT), danach messen
+        run(search, titles, queries, new Random(1), false);
+        run(search, titles, queries, new Random(2), true);
+    }
+
+    private static void run(TitleSearchService search, List<Media> titles, int queries, Random random, boolean print) {
+        long[] suggestNanos = new long[queries];
+        long[] fuzzyNanos = new long[queries];
+        int fuzzyHits = 0;
+
+        for (int i = 0; i < queries; i++) {
+            Media m = titles.get(random.nextInt(titles.size()));
+            String title = m.getTitle().toLowerCase();
+
+            String prefix = title.substring(0, Math.min(title.length(), 3 + random.nextInt(4)));
+            long start = System.nanoTime();
+            search.suggest(prefix, 10);
+            suggestNanos[i] = System.nanoTime() - start;
+
+            String query = typo(title, random);
+            start = System.nanoTime();
+            List<TitleSearchService.Match> matches = search.fuzzy(query, 20);
+            fuzzyNanos[i] = System.nanoTime() - start;
+
+            // Treffer = Originaltitel gefunden (gleichlautende Titel sind nicht unterscheidbar und zählen mit)
+            for (TitleSearchService.Match match : matches) {
+                if (match.id == m.getId() || match.title.equalsIgnoreCase(m.getTitle())) {
+                    fuzzyHits++;
+                    break;
+                }
+            }
+        }
+
+        if (!print) return;
+        System.out.printf("  suggest: p50=%d us  p99=%d us  max=%d us%n",
+                percentile(suggestNanos, 0.5), percentile(suggestNanos, 0.99), percentile(suggestNanos, 1.0));
+        System.out.printf("  fuzzy:   p50=%d us  p99=%d us  max=%d us  recall@20=%.3f%n",
+                percentile(fuzzyNanos, 0.5), percentile(fuzzyNanos, 0.99), percentile(fuzzyNanos, 1.0),
+                fuzzyHits / (double) queries);
+    }
+
+    private static String[] vocabulary(int size, Random random) {
+        String[] out = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder sb = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            out[i] = sb.toString();
+        }
+        return out;
+    }
+
+    private static String title(String[] words, Random random) {
+        int count = 1 + random.nextInt(4);
+        List<String> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && random.nextInt(4) == 0) {
+                parts.add(FILLERS[random.nextInt(FILLERS.length)]);
+            } else {
+                // grob Zipf: kleine Indizes deutlich häufiger
+                int index = (int) (words.length * Math.pow(random.nextDouble(), 2.5));
+                parts.add(words[index]);
+            }
+        }
+        String t = String.join(" ", parts);
+        return Character.toUpperCase(t.charAt(0)) + t.substring(1);
+    }
+
+    // ein Tippfehler in einem zufälligen Wort mit mind. 4 Zeichen (kürzere Wörter werden exakt gesucht)
+    private static String typo(String title, Random random) {
+        String[] words = title.split(" ");
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].length() >= 4) candidates.add(i);
+        }
+        if (candidates.isEmpty()) return title;
+
+        int w = candidates.get(random.nextInt(candidates.size()));
+        char[] c = words[w].toCharArray();
+        int pos = 1 + random.nextInt(c.length - 2);
+        String word = new String(c);
+
+        switch (random.nextInt(4)) {
+            case 0 -> word = word.substring(0, pos) + 'x' + word.substring(pos + 1);
+            case 1 -> word = word.substring(0, pos) + word.substring(pos + 1);
+            case 2 -> word = word.substring(0, pos) + 'e' + word.substring(pos);
+            default -> {
+                char tmp = c[pos];
+                c[pos] = c[pos + 1];
+                c[pos + 1] = tmp;
+                word = new String(c);
+            }
+        }
+        words[w] = word;
+        return String.join(" ", Arrays.asList(words));
+    }
+
+    private static long percentile(long[] nanos, double p) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, index)]);
+    }
+}
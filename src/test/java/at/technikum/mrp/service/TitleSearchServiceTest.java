@@ -0,0 +1,103 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.model.Media;
+import at.technikum.mrp.repository.MediaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TitleSearchServiceTest {
+
+    private TitleSearchService titleSearch;
+
+    @BeforeEach
+    void setup() {
+        MediaRepository mediaRepository = mock(MediaRepository.class);
+
+        List<Media> catalog = List.of(
+                Media.builder().id(1).title("Star Wars: A New Hope").type("MOVIE").build(),
+                Media.builder().id(2).title("Star Trek").type("MOVIE").build(),
+                Media.builder().id(3).title("Lone Star").type("MOVIE").build(),
+                Media.builder().id(4).title("Amélie").type("MOVIE").build(),
+                Media.builder().id(5).title("Stargate").type("MOVIE").build()
+        );
+        when(mediaRepository.forEachMedia(any())).thenAnswer(inv -> {
+            Consumer<Media> c = inv.getArgument(0);
+            catalog.forEach(c);
+            return (long) catalog.size();
+        });
+
+        titleSearch = new TitleSearchService(mediaRepository);
+        titleSearch.rebuild();
+    }
+
+    @Test
+    void suggest_prefixRanksTitleStartAndWholeWordFirst() {
+        // Prüft: "sta" trifft alle Titel mit einem Wort "sta...", Titelanfang + ganzes Wort vor Wortmitte
+        List<Integer> ids = ids(titleSearch.suggest("sta", 10));
+        assertEquals(4, ids.size());
+        assertEquals(3, ids.get(ids.size() - 1));
+
+        // "star" als ganzes Wort: Star Trek (kürzer) vor Star Wars, Stargate nur Präfix
+        assertEquals(List.of(2, 1, 5, 3), ids(titleSearch.suggest("Star", 10)));
+        assertEquals(List.of(2), ids(titleSearch.suggest("star", 1)));
+    }
+
+    @Test
+    void suggest_multipleWordsAndAccents() {
+        // Prüft: vorherige Wörter exakt, letztes als Präfix; Akzente/Satzzeichen werden ignoriert
+        assertEquals(List.of(1), ids(titleSearch.suggest("star wars: a n", 10)));
+        assertEquals(List.of(3), ids(titleSearch.suggest("lone st", 10)));
+        assertTrue(titleSearch.suggest("lone wa", 10).isEmpty());
+        assertEquals(List.of(4), ids(titleSearch.suggest("AME", 10)));
+        assertTrue(titleSearch.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    void listener_keepsIndexCurrent() {
+        // Prüft: Update ersetzt alte Wörter, Delete entfernt den Titel
+        titleSearch.onMediaSaved(Media.builder().id(2).title("Deep Space Nine").type("SERIES").build());
+        titleSearch.onMediaDeleted(5);
+
+        assertEquals(List.of(1, 3), ids(titleSearch.suggest("star", 10)));
+        assertEquals(List.of(2), ids(titleSearch.suggest("deep s", 10)));
+        assertEquals("Deep Space Nine", titleSearch.suggest("nine", 1).get(0).title);
+    }
+
+    @Test
+    void fuzzy_toleratesTyposAndRanksBySimilarity() {
+        // Prüft: ein bzw. zwei Tippfehler werden gefunden, exakter Treffer vor ungefährem
+        List<TitleSearchService.Match> matches = titleSearch.fuzzy("stra wras", 10);
+        assertEquals(List.of(1), matches.stream().map(m -> m.id).toList());
+        assertTrue(matches.get(0).similarity < 1f);
+
+        assertEquals(4, titleSearch.fuzzy("amelei", 10).get(0).id);
+        assertEquals(List.of(5), titleSearch.fuzzy("stargaet", 10).stream().map(m -> m.id).toList());
+
+        List<TitleSearchService.Match> trek = titleSearch.fuzzy("star trek", 10);
+        assertEquals(2, trek.get(0).id);
+        assertEquals(1f, trek.get(0).similarity, 0.0001f);
+
+        // kurze Wörter nur exakt, sonst wäre "stx" ähnlich zu allem
+        assertTrue(titleSearch.fuzzy("stx", 10).isEmpty());
+    }
+
+    @Test
+    void fuzzy_vocabularyFollowsUpdates() {
+        // Prüft: nach Update/Delete verschwinden alte Wörter auch aus dem Trigramm-Index
+        titleSearch.onMediaSaved(Media.builder().id(5).title("Babylon 5").type("SERIES").build());
+
+        assertTrue(titleSearch.fuzzy("stargate", 10).isEmpty());
+        assertEquals(5, titleSearch.fuzzy("babilon", 10).get(0).id);
+    }
+
+    private static List<Integer> ids(List<TitleSearchService.Suggestion> suggestions) {
+        return suggestions.stream().map(s -> s.id).toList();
+    }
+}
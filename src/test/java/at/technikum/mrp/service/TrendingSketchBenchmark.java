@@ -0,0 +1,126 @@
+package at.technikum.mrp.service;
+
+import at.technikum.mrp.repository.FavoritesRepository;
+import at.technikum.mrp.repository.RatingRepository;
+import at.technikum.mrp.util.SlidingWindowCounter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Vergleich exaktes Zählen vs. Count-Min Sketch + Heavy Hitters (kein JUnit-Test, läuft nicht im Build).
+ * Simuliert 24h Ereignisse über einen großen Katalog mit Zipf-Verteilung (wenige sehr beliebte Media,
+ * sehr viele selten gesehene) und gibt Recall, relativen Fehler und Speicher aus.
+ *
+ * Starten: mvn -q test-compile && java -cp "target/classes:target/test-classes:$(cat cp.txt)" \
+ *          at.technikum.mrp.service.TrendingSketchBenchmark
+ * (cp.txt vorher mit mvn dependency:build-classpath -Dmdep.outputFile=cp.txt erzeugen)
+ */
+public class TrendingSketchBenchmark {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    // geschätzte Kosten pro Media bei exakten Zählern: int[168] + Ring-Objekt + Map-Eintrag
+    private static final long EXACT_BYTES_PER_MEDIA = 168 * 4 + 16 + 8 + 64;
+
+    public static void main(String[] args) {
+        int catalog = 1_000_000;
+        int events = 2_000_000;
+        double zipf = 1.1;
+        int k = 50;
+
+        for (int memoryKb : new int[]{1024, 4096, 16384}) {
+            run(catalog, events, zipf, k, memoryKb);
+        }
+    }
+
+    private static void run(int catalog, int events, double zipf, int k, int memoryKb) {
+        AtomicLong now = new AtomicLong(10_000 * HOUR);
+        ApproximateTrendingService approx = new ApproximateTrendingService(
+                mock(RatingRepository.class), mock(FavoritesRepository.class),
+                0.0001, 0.01, memoryKb, 200, now::get);
+
+        Map<Integer, Integer> exact = new HashMap<>();
+        ZipfSampler sampler = new ZipfSampler(catalog, zipf, new Random(42));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            // 24 Stunden gleichmäßig verteilt
+            now.set(10_000 * HOUR - 23 * HOUR + (long) i * 24 * HOUR / events);
+            int mediaId = sampler.next();
+            approx.onFavoriteAdded(0, mediaId);
+            exact.merge(mediaId, 1, Integer::sum);
+        }
+        long ingestMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        List<SlidingWindowCounter.Count> approxTop = approx.top("24h", k);
+        long queryMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+        List<Map.Entry<Integer, Integer>> exactTop = new ArrayList<>(exact.entrySet());
+        exactTop.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        exactTop = exactTop.subList(0, Math.min(k, exactTop.size()));
+
+        Set<Integer> exactIds = new HashSet<>();
+        for (Map.Entry<Integer, Integer> e : exactTop) exactIds.add(e.getKey());
+
+        int hits = 0;
+        double relErrorSum = 0;
+        for (SlidingWindowCounter.Count c : approxTop) {
+            if (exactIds.contains(c.id)) hits++;
+            int truth = exact.getOrDefault(c.id, 0);
+            relErrorSum += truth == 0 ? 1.0 : Math.abs(c.count - truth) / (double) truth;
+        }
+
+        long exactBytes = exact.size() * EXACT_BYTES_PER_MEDIA;
+        Map<String, Object> m = approx.getMetrics();
+
+        System.out.printf("budget=%5d KB  width=%6s depth=%s  epsilon=%.5f%n",
+                memoryKb, m.get("width"), m.get("depth"), (double) m.get("epsilon"));
+        System.out.printf("  recall@%d=%.2f  mean relative error=%.4f%n",
+                k, hits / (double) k, relErrorSum / Math.max(1, approxTop.size()));
+        System.out.printf("  memory approx=%.1f MB  exact=%.1f MB (%d distinct media)%n",
+                (long) m.get("memoryBytes") / 1e6, exactBytes / 1e6, exact.size());
+        System.out.printf("  ingest=%d ms for %d events, top-%d query=%d us%n%n",
+                ingestMillis, events, k, queryMicros);
+    }
+
+    /**
+     * Zipf-Verteilung über 1..n per Inversion der kumulierten Verteilung (binäre Suche).
+     */
+    private static final class ZipfSampler {
+        private final double[] cdf;
+        private final Random random;
+
+        ZipfSampler(int n, double s, Random random) {
+            this.random = random;
+            this.cdf = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, s);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < n; i++) cdf[i] /= sum;
+        }
+
+        int next() {
+            double u = random.nextDouble();
+            int lo = 0, hi = cdf.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cdf[mid] < u) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo + 1;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package at.technikum.mrp.util;
+
+import at.technikum.mrp.dto.MediaResponse;
+import at.technikum.mrp.repository.MediaRepository;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FieldSelectionTest {
+
+    @Test
+    void parse_sortsAndRejectsUnknownFields() {
+        // Prüft: Reihenfolge/Leerzeichen egal, leer -> alle Felder, unbekanntes Feld -> 400
+        assertEquals(List.of("averageScore", "id", "title"),
+                List.copyOf(FieldSelection.parse(" title,averageScore,,id ", MediaRepository.FIELDS)));
+        assertNull(FieldSelection.parse(null, MediaRepository.FIELDS));
+        assertNull(FieldSelection.parse(" , ", MediaRepository.FIELDS));
+
+        ApiException ex = assertThrows(ApiException.class,
+                () -> FieldSelection.parse("id,password", MediaRepository.FIELDS));
+        assertEquals(400, ex.getStatus());
+    }
+
+    @Test
+    void columns_onlySelectedPlusId() {
+        // Prüft: SELECT-Liste enthält id + die gewählten Spalten in Tabellen-Reihenfolge, ohne Auswahl "*"
+        assertEquals("id, title, average_score",
+                FieldSelection.columns(Set.of("averageScore", "title"), MediaRepository.COLUMNS));
+        assertEquals("*", FieldSelection.columns(null, MediaRepository.COLUMNS));
+    }
+
+    @Test
+    void withFields_narrowsSerializedJson() throws Exception {
+        // Prüft: gefilterter Writer gibt nur die Felder aus, der normale Writer weiterhin alle
+        MediaResponse alien = new MediaResponse(1, "Alien", "Lange Beschreibung", "MOVIE", 1979,
+                List.of("SciFi"), 16, 3, 4.5, LocalDateTime.of(2025, 1, 1, 12, 0));
+
+        byte[] narrow = JsonUtil.withFields(JsonUtil.MEDIA_LIST_WRITER, Set.of("id", "title", "averageScore"))
+                .writeValueAsBytes(List.of(alien));
+        assertEquals("[{\"id\":1,\"title\":\"Alien\",\"averageScore\":4.5}]",
+                new String(narrow, StandardCharsets.UTF_8));
+
+        String full = JsonUtil.MEDIA_WRITER.writeValueAsString(alien);
+        assertTrue(full.contains("\"description\":\"Lange Beschreibung\""));
+        assertTrue(full.contains("\"createdAt\":\"2025-01-01T12:00:00\""));
+    }
+}
@@ -0,0 +1,109 @@
+package at.technikum.mrp.util;
+
+import at.technikum.mrp.dto.RatingRequest;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class HttpUtilTest {
+
+    @AfterEach
+    void resetLimit() {
+        HttpUtil.setMaxBodyBytes(1024 * 1024);
+    }
+
+    @Test
+    void readJson_parsesStreamIntoDto() throws Exception {
+        // Prüft: Body wird direkt aus dem Stream in das DTO gelesen
+        HttpExchange exchange = exchange("{\"stars\":4,\"comment\":\"gut\"}", null);
+
+        RatingRequest req = HttpUtil.readJson(exchange, JsonUtil.RATING_REQUEST_READER);
+
+        assertEquals(4, req.getStars());
+        assertEquals("gut", req.getComment());
+    }
+
+    @Test
+    void readJson_rejectsOversizedBodyWith413() {
+        // Prüft: zu große Content-Length -> 413 ohne zu lesen; ohne Content-Length Abbruch beim Lesen
+        HttpUtil.setMaxBodyBytes(16);
+        String body = "{\"stars\":4,\"comment\":\"" + "x".repeat(100) + "\"}";
+
+        HttpExchange declared = exchange(body, String.valueOf(body.length()));
+        ApiException ex = assertThrows(ApiException.class,
+                () -> HttpUtil.readJson(declared, JsonUtil.RATING_REQUEST_READER));
+        assertEquals(413, ex.getStatus());
+        verify(declared, never()).getRequestBody();
+
+        HttpExchange chunked = exchange(body, null);
+        ex = assertThrows(ApiException.class, () -> HttpUtil.readJson(chunked, JsonUtil.RATING_REQUEST_READER));
+        assertEquals(413, ex.getStatus());
+    }
+
+    @Test
+    void readJson_invalidJsonIs400() {
+        // Prüft: kaputtes oder leeres JSON -> 400 statt 500
+        ApiException ex = assertThrows(ApiException.class,
+                () -> HttpUtil.readJson(exchange("{\"stars\":", null), JsonUtil.RATING_REQUEST_READER));
+        assertEquals(400, ex.getStatus());
+
+        ex = assertThrows(ApiException.class,
+                () -> HttpUtil.readJson(exchange("", null), JsonUtil.RATING_REQUEST_READER));
+        assertEquals(400, ex.getStatus());
+    }
+
+    @Test
+    void acceptsGzip_respectsQualityZero() {
+        // Prüft: gzip nur wenn angeboten und nicht mit q=0 abgelehnt
+        assertTrue(HttpUtil.acceptsGzip(withAcceptEncoding("gzip, deflate, br")));
+        assertTrue(HttpUtil.acceptsGzip(withAcceptEncoding("br;q=1.0, GZIP;q=0.5")));
+        assertFalse(HttpUtil.acceptsGzip(withAcceptEncoding("gzip;q=0")));
+        assertFalse(HttpUtil.acceptsGzip(withAcceptEncoding("deflate")));
+        assertFalse(HttpUtil.acceptsGzip(withAcceptEncoding(null)));
+    }
+
+    @Test
+    void startStream_sendsChunkedGzipResponse() throws Exception {
+        // Prüft: Länge 0 (chunked), Content-Encoding gesetzt, Body ist gültiges gzip
+        InMemoryExchange exchange = new InMemoryExchange("GET", new URI("/api/x"), new Headers(), new byte[0], null);
+
+        try (OutputStream out = HttpUtil.startStream(exchange, 200, "application/x-ndjson", true)) {
+            out.write("{\"a\":1}\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst("Content-Encoding"));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(exchange.getResponseBytes()))) {
+            assertEquals("{\"a\":1}\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static HttpExchange withAcceptEncoding(String value) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        Headers headers = new Headers();
+        if (value != null) headers.set("Accept-Encoding", value);
+        when(exchange.getRequestHeaders()).thenReturn(headers);
+        return exchange;
+    }
+
+    private static HttpExchange exchange(String body, String contentLength) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        Headers headers = new Headers();
+        if (contentLength != null) headers.set("Content-Length", contentLength);
+        InputStream in = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        when(exchange.getRequestHeaders()).thenReturn(headers);
+        when(exchange.getRequestBody()).thenReturn(in);
+        return exchange;
+    }
+}